@@ -24,6 +24,7 @@ import edu.stanford.bmir.protege.web.shared.event.EventList;
 import edu.stanford.bmir.protege.web.shared.inject.ApplicationSingleton;
 import edu.stanford.bmir.protege.web.shared.permissions.PermissionDeniedException;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.project.ProjectLoadingException;
 import elemental.client.Browser;
 
 import javax.annotation.Nonnull;
@@ -44,6 +45,20 @@ import static com.google.common.collect.ImmutableList.toImmutableList;
 @ApplicationSingleton
 public class DispatchServiceManager {
 
+    /**
+     * The delay before an action that failed because its project was still being loaded is first retried.  The delay
+     * is doubled for each subsequent retry, up to {@link #MAX_PROJECT_LOADING_RETRY_DELAY_MS}.
+     */
+    private static final int PROJECT_LOADING_RETRY_DELAY_MS = 2000;
+
+    private static final int MAX_PROJECT_LOADING_RETRY_DELAY_MS = 30000;
+
+    /**
+     * The number of times that an action is retried whilst its project is being loaded before the failure is passed
+     * on to the action's callback
+     */
+    private static final int MAX_PROJECT_LOADING_RETRIES = 10;
+
     @Nonnull
     private final DispatchServiceAsync async;
 
@@ -68,6 +83,19 @@ public class DispatchServiceManager {
 
     private List<PendingActionExecution<?,?>> pendingActionExecutions = new ArrayList<>();
 
+    /**
+     * Actions that failed because their project was being loaded and that are waiting to be retried.  Actions that
+     * are waiting when the retry timer fires are retried together in a batch.
+     */
+    private final List<PendingActionExecution<?,?>> pendingRetries = new ArrayList<>();
+
+    private final Timer retryTimer = new Timer() {
+        @Override
+        public void run() {
+            executePendingRetries();
+        }
+    };
+
     @Inject
     public DispatchServiceManager(@Nonnull EventBus eventBus,
                                   @Nonnull SignInRequiredHandler signInRequiredHandler,
@@ -141,9 +169,59 @@ public class DispatchServiceManager {
 
     @SuppressWarnings("unchecked")
     private <A extends Action<R>, R extends Result> void execAction(A action, DispatchServiceCallback<R> callback) {
+        submit(action, new AsyncCallbackProxy(action, callback));
+    }
+
+    private void submit(Action<?> action, AsyncCallback<DispatchServiceResultContainer> callback) {
         requestCount++;
         logAction(action);
-        async.executeAction(action, new AsyncCallbackProxy(action, callback));
+        async.executeAction(action, callback);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void scheduleRetry(Action<?> action, DispatchServiceCallback<?> callback, int retryCount) {
+        int delay = getRetryDelay(retryCount);
+        GWT.log("[Dispatch] Project is loading.  Retrying " + action.getClass().getSimpleName() + " (attempt " + retryCount + ") in " + delay + " ms");
+        AsyncCallbackProxy<?> proxy = new AsyncCallbackProxy(action, callback, retryCount);
+        pendingRetries.add(PendingActionExecution.get((Action) action, proxy));
+        if(!retryTimer.isRunning()) {
+            retryTimer.schedule(delay);
+        }
+    }
+
+    private static int getRetryDelay(int retryCount) {
+        int delay = PROJECT_LOADING_RETRY_DELAY_MS;
+        for(int i = 1; i < retryCount && delay < MAX_PROJECT_LOADING_RETRY_DELAY_MS; i++) {
+            delay *= 2;
+        }
+        return Math.min(delay, MAX_PROJECT_LOADING_RETRY_DELAY_MS);
+    }
+
+    private void executePendingRetries() {
+        ImmutableList<PendingActionExecution<?, ?>> retries = ImmutableList.copyOf(pendingRetries);
+        pendingRetries.clear();
+        List<PendingActionExecution<?, ?>> batchedRetries = new ArrayList<>();
+        for(PendingActionExecution<?, ?> retry : retries) {
+            // Batches are not nested
+            if(retry.getAction() instanceof BatchAction) {
+                submit(retry.getAction(), retry.getCallback());
+            }
+            else {
+                batchedRetries.add(retry);
+            }
+        }
+        if(batchedRetries.size() == 1) {
+            PendingActionExecution<?, ?> retry = batchedRetries.get(0);
+            submit(retry.getAction(), retry.getCallback());
+        }
+        else if(!batchedRetries.isEmpty()) {
+            ImmutableList.Builder<Action<?>> builder = ImmutableList.builder();
+            for(PendingActionExecution<?, ?> retry : batchedRetries) {
+                builder.add(retry.getAction());
+            }
+            BatchAction batchAction = BatchAction.create(builder.build());
+            execAction(batchAction, new BatchActionCallback(errorDisplay, ImmutableList.copyOf(batchedRetries)));
+        }
     }
 
     private <A extends Action<R>, R extends Result> void logAction(A action) {
@@ -207,15 +285,29 @@ public class DispatchServiceManager {
 
         private Stopwatch stopwatch = Stopwatch.createUnstarted();
 
+        /**
+         * The number of times that the action has been retried because its project was being loaded
+         */
+        private final int retryCount;
+
         public AsyncCallbackProxy(Action<?> action, DispatchServiceCallback<Result> delegate) {
+            this(action, delegate, 0);
+        }
+
+        public AsyncCallbackProxy(Action<?> action, DispatchServiceCallback<Result> delegate, int retryCount) {
             this.delegate = delegate;
             this.action = action;
+            this.retryCount = retryCount;
             stopwatch.start();
         }
 
+        /**
+         * Called directly for actions that were executed on their own, and by the {@link BatchActionCallback} for
+         * actions that were executed as part of a batch.
+         */
         @Override
         public void onFailure(Throwable caught) {
-            handleError(caught, action, delegate);
+            handleError(caught, action, delegate, retryCount);
         }
 
         @Override
@@ -258,7 +350,19 @@ public class DispatchServiceManager {
         }
     }
 
-    private void handleError(final Throwable throwable, final Action<?> action, final DispatchServiceCallback<?> callback) {
+    @SuppressWarnings("unchecked")
+    private void handleError(final Throwable throwable,
+                             final Action<?> action,
+                             final DispatchServiceCallback<?> callback,
+                             final int retryCount) {
+        if(isProjectLoading(throwable)) {
+            if(retryCount < MAX_PROJECT_LOADING_RETRIES) {
+                // The project is still being loaded on the server.  Try again later.
+                scheduleRetry(action, callback, retryCount + 1);
+                return;
+            }
+            GWT.log("[Dispatch] Project is still loading after " + retryCount + " retries.  Giving up on " + action.getClass().getSimpleName());
+        }
         if (throwable instanceof PermissionDeniedException) {
             // Try to determine if the user is logged in.  The session might have expired.
             UserInSession userInSession = ((PermissionDeniedException) throwable).getUserInSession();
@@ -279,6 +383,11 @@ public class DispatchServiceManager {
         callback.onFailure(throwable);
     }
 
+    private static boolean isProjectLoading(Throwable throwable) {
+        return throwable instanceof ActionExecutionException
+                && throwable.getCause() instanceof ProjectLoadingException;
+    }
+
     private void displayAlert(String alert) {
         messageBox.showAlert(alert);
     }
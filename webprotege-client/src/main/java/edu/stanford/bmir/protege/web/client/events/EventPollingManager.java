@@ -1,6 +1,7 @@
 package edu.stanford.bmir.protege.web.client.events;
 
 import com.google.gwt.core.client.GWT;
+import com.google.gwt.http.client.URL;
 import com.google.gwt.user.client.Timer;
 import com.google.web.bindery.event.shared.EventBus;
 import edu.stanford.bmir.protege.web.client.dispatch.DispatchServiceCallback;
@@ -16,15 +17,25 @@ import edu.stanford.bmir.protege.web.shared.inject.ProjectSingleton;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 import edu.stanford.bmir.protege.web.shared.user.UserId;
 
+import elemental.client.Browser;
+import elemental.html.EventSource;
+
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static edu.stanford.bmir.protege.web.shared.event.ProjectEventStreamConstants.*;
 
 /**
  * Author: Matthew Horridge<br>
  * Stanford University<br>
  * Bio-Medical Informatics Research Group<br>
  * Date: 20/03/2013
+ * <p>
+ *     Retrieves project events from the server.  Where possible, the server notifies this manager of new events
+ *     over an event stream, so that events are only retrieved when they have been posted.  If the stream cannot
+ *     be opened then this manager polls for events instead.
+ * </p>
  */
 @ProjectSingleton
 public class EventPollingManager {
@@ -35,6 +46,11 @@ public class EventPollingManager {
 
     private Timer pollingTimer;
 
+    @Nullable
+    private EventSource eventStream;
+
+    private boolean started = false;
+
     private EventTag nextTag = EventTag.getFirst();
 
     private final ProjectId projectId;
@@ -67,16 +83,74 @@ public class EventPollingManager {
     }
 
     public void start() {
-        if(pollingTimer.isRunning()) {
+        if(started) {
             return;
         }
-        pollingTimer.scheduleRepeating(pollingPeriodInMS);
+        started = true;
+        if(isEventStreamSupported()) {
+            openEventStream();
+        }
+        else {
+            startPolling();
+        }
     }
 
     public void stop() {
+        started = false;
+        closeEventStream();
         pollingTimer.cancel();
     }
 
+    private void startPolling() {
+        if(pollingTimer.isRunning()) {
+            return;
+        }
+        pollingTimer.scheduleRepeating(pollingPeriodInMS);
+    }
+
+    private void openEventStream() {
+        String eventStreamURL = GWT.getHostPageBaseURL() + PATH + "?"
+                + PROJECT + "=" + URL.encodeQueryString(projectId.getId())
+                + "&" + SINCE + "=" + nextTag.getOrdinal();
+        GWT.log("[Event Polling Manager] Opening event stream for " + projectId);
+        EventSource stream = Browser.getWindow().newEventSource(eventStreamURL);
+        // The server notifies us of the tag of new events.  We retrieve them from our next tag.
+        stream.setOnmessage(evt -> pollForProjectEvents());
+        stream.setOnerror(evt -> {
+            // The browser reconnects automatically, unless the server refused the stream
+            if(stream.getReadyState() == EventSource.CLOSED) {
+                fallBackToPolling(stream);
+            }
+        });
+        // The server tells us to poll when it cannot accept any more streams
+        stream.addEventListener(POLL_EVENT, evt -> {
+            stream.close();
+            fallBackToPolling(stream);
+        });
+        eventStream = stream;
+    }
+
+    private void fallBackToPolling(EventSource stream) {
+        if(stream != eventStream) {
+            return;
+        }
+        GWT.log("[Event Polling Manager] Event stream closed.  Polling for events instead.");
+        eventStream = null;
+        pollForProjectEvents();
+        startPolling();
+    }
+
+    private void closeEventStream() {
+        if(eventStream != null) {
+            eventStream.close();
+            eventStream = null;
+        }
+    }
+
+    private static native boolean isEventStreamSupported()/*-{
+        return typeof $wnd.EventSource !== "undefined";
+    }-*/;
+
 
     public void pollForProjectEvents() {
         GWT.log("[Event Polling Manager] Polling for project events for " + projectId + " from " + nextTag);
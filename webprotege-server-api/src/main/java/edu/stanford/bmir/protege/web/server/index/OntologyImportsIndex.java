@@ -0,0 +1,33 @@
+package edu.stanford.bmir.protege.web.server.index;
+
+
+import edu.stanford.bmir.protege.web.shared.inject.ProjectSingleton;
+import org.semanticweb.owlapi.model.OWLImportsDeclaration;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+
+import javax.annotation.Nonnull;
+import java.util.stream.Stream;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ */
+@ProjectSingleton
+public interface OntologyImportsIndex extends Index {
+
+    /**
+     * Gets the ids of the ontologies that have imports declarations
+     */
+    @Nonnull
+    Stream<OWLOntologyID> getOntologyIds();
+
+    /**
+     * Gets the imports declarations for the specified ontology Id
+     * @param ontologyID The ontology Id
+     * @return A stream of the imports declarations in the ontology.  If the ontology Id
+     * is not recognized then an empty stream is returned.
+     */
+    @Nonnull
+    Stream<OWLImportsDeclaration> getImportsDeclarations(@Nonnull OWLOntologyID ontologyID);
+}
@@ -0,0 +1,20 @@
+package edu.stanford.bmir.protege.web.server.project;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Runs background tasks for a project, one at a time, in the order that they are submitted or become due.
+ */
+public interface ProjectTaskExecutor extends Executor {
+
+    /**
+     * Runs the specified task once the specified delay has elapsed
+     */
+    void schedule(@Nonnull Runnable task, long delay, @Nonnull TimeUnit unit);
+}
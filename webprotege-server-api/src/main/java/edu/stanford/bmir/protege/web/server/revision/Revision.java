@@ -7,7 +7,9 @@ import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
 import edu.stanford.bmir.protege.web.shared.user.UserId;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.Iterator;
+import java.util.function.Supplier;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -27,8 +29,17 @@ public class Revision implements Comparable<Revision> {
 
     private long timestamp;
 
+    /**
+     * The changes, or null if the changes are loaded on demand by the changes supplier
+     */
+    @Nullable
     private final ImmutableList<OntologyChange> changes;
 
+    @Nullable
+    private final Supplier<ImmutableList<OntologyChange>> changesSupplier;
+
+    private final int size;
+
     private final String highLevelDescription;
 
     public Revision(UserId userId, RevisionNumber revisionNumber,
@@ -36,18 +47,61 @@ public class Revision implements Comparable<Revision> {
                     long timestamp,
                     String highLevelDescription) {
         this.changes = checkNotNull(changes);
+        this.changesSupplier = null;
+        this.size = changes.size();
+        this.userId = checkNotNull(userId);
+        this.revisionNumber = checkNotNull(revisionNumber);
+        this.timestamp = timestamp;
+        this.highLevelDescription = checkNotNull(highLevelDescription);
+    }
+
+    private Revision(UserId userId, RevisionNumber revisionNumber,
+                     int size,
+                     Supplier<ImmutableList<OntologyChange>> changesSupplier,
+                     long timestamp,
+                     String highLevelDescription) {
+        this.changes = null;
+        this.changesSupplier = checkNotNull(changesSupplier);
+        this.size = size;
         this.userId = checkNotNull(userId);
         this.revisionNumber = checkNotNull(revisionNumber);
         this.timestamp = timestamp;
         this.highLevelDescription = checkNotNull(highLevelDescription);
     }
 
+    /**
+     * Creates a revision whose changes are not held by the revision, but are instead loaded on demand (for example,
+     * from the change history file) each time they are requested.
+     * @param size The number of changes in the revision
+     * @param changesSupplier A supplier for the changes
+     */
+    public static Revision createLazyRevision(UserId userId, RevisionNumber revisionNumber,
+                                              int size,
+                                              Supplier<ImmutableList<OntologyChange>> changesSupplier,
+                                              long timestamp,
+                                              String highLevelDescription) {
+        return new Revision(userId, revisionNumber, size, changesSupplier, timestamp, highLevelDescription);
+    }
+
     public int getSize() {
-        return changes.size();
+        if(changes != null) {
+            return changes.size();
+        }
+        return size;
+    }
+
+    /**
+     * Determines whether the changes of this revision are loaded on demand, rather than being held by the revision
+     */
+    public boolean isLazy() {
+        return changes == null;
     }
 
     public ImmutableList<OntologyChange> getChanges() {
-        return changes;
+        if(changes != null) {
+            return changes;
+        }
+        return changesSupplier.get();
     }
 
     public static Revision createEmptyRevisionWithRevisionNumber(RevisionNumber revision) {
@@ -76,7 +130,7 @@ public class Revision implements Comparable<Revision> {
 
     @Nonnull
     public Iterator<OntologyChange> iterator() {
-        return changes.iterator();
+        return getChanges().iterator();
     }
 
 
@@ -87,7 +141,7 @@ public class Revision implements Comparable<Revision> {
                 .addValue(userId)
                 .add("timestamp", timestamp)
                 .add("description", highLevelDescription)
-                .add("changes", changes.size())
+                .add("changes", getSize())
                 .toString();
     }
 
@@ -104,11 +158,12 @@ public class Revision implements Comparable<Revision> {
                 && this.revisionNumber.equals(other.revisionNumber)
                 && this.timestamp == other.timestamp
                 && this.highLevelDescription.equals(other.highLevelDescription)
-                && this.changes.equals(other.changes);
+                && this.getSize() == other.getSize()
+                && this.getChanges().equals(other.getChanges());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(userId, revisionNumber, timestamp, highLevelDescription, changes);
+        return Objects.hashCode(userId, revisionNumber, timestamp, highLevelDescription, getSize());
     }
 }
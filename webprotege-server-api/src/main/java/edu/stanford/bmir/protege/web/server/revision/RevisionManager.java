@@ -6,9 +6,11 @@ import edu.stanford.bmir.protege.web.shared.inject.ProjectSingleton;
 import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
 import edu.stanford.bmir.protege.web.shared.revision.RevisionSummary;
 import edu.stanford.bmir.protege.web.shared.user.UserId;
+import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -51,11 +53,20 @@ public interface RevisionManager extends HasGetRevisionSummary {
 
     /**
      * Gets a list of revisions held by this manager.
-     * @return The list of revisions.  Modifications to the returned list will not affect the revisions contained
-     * within this manager.
+     * @return The list of revisions.  The list is an unmodifiable snapshot and is not affected by revisions
+     * that are subsequently added to this manager.
      */
     @Nonnull
-    ImmutableList<Revision> getRevisions();
+    List<Revision> getRevisions();
+
+    /**
+     * Gets the numbers of the revisions that contain changes for the specified subject.  The subject of a change
+     * is the subject of the axiom that the change adds or removes.
+     * @param subject The subject.  Not {@code null}.
+     * @return The revision numbers in increasing order.  Not {@code null}.
+     */
+    @Nonnull
+    ImmutableList<RevisionNumber> getRevisionNumbersForSubject(@Nonnull IRI subject);
 
     @Nonnull
     OWLOntologyManager getOntologyManagerForRevision(@Nonnull RevisionNumber revision);
@@ -76,4 +87,20 @@ public interface RevisionManager extends HasGetRevisionSummary {
                          @Nonnull List<OntologyChange> changes,
                          @Nonnull String desc);
 
+    /**
+     * Waits until the revision that has the specified revision number has been saved to durable storage.
+     * Returns immediately if the revision has already been saved.
+     * @param revisionNumber The revision number.  Not {@code null}.
+     * @throws IOException if the revision could not be saved, or if the current thread was interrupted whilst
+     * waiting for the revision to be saved
+     */
+    void awaitSaved(@Nonnull RevisionNumber revisionNumber) throws IOException;
+
+    /**
+     * Checks that revisions that are added can still be saved to durable storage.
+     * @throws IOException if an earlier revision could not be saved, in which case revisions that are added will
+     * not be saved either
+     */
+    void checkCanSaveRevisions() throws IOException;
+
 }
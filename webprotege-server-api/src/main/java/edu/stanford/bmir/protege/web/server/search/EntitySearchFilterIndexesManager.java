@@ -1,5 +1,10 @@
 package edu.stanford.bmir.protege.web.server.search;
 
+import com.google.common.collect.ImmutableList;
+import edu.stanford.bmir.protege.web.shared.search.EntitySearchFilter;
+
+import javax.annotation.Nonnull;
+
 /**
  * Matthew Horridge
  * Stanford Center for Biomedical Informatics Research
@@ -7,5 +12,12 @@ package edu.stanford.bmir.protege.web.server.search;
  */
 public interface EntitySearchFilterIndexesManager {
 
-    void updateEntitySearchFilterIndexes();
+    /**
+     * Updates the indexes after the search filters for a project have changed.  Only entities whose membership of
+     * the added, removed or modified filters has changed need to be reindexed.
+     * @param previousSearchFilters The search filters before the change
+     * @param searchFilters The search filters after the change
+     */
+    void updateEntitySearchFilterIndexes(@Nonnull ImmutableList<EntitySearchFilter> previousSearchFilters,
+                                         @Nonnull ImmutableList<EntitySearchFilter> searchFilters);
 }
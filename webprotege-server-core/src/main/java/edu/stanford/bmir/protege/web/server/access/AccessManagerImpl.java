@@ -1,13 +1,10 @@
 package edu.stanford.bmir.protege.web.server.access;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import edu.stanford.bmir.protege.web.shared.access.ActionId;
 import edu.stanford.bmir.protege.web.shared.access.BuiltInAction;
 import edu.stanford.bmir.protege.web.shared.access.RoleId;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 import org.mongodb.morphia.Datastore;
-import org.mongodb.morphia.query.CountOptions;
 import org.mongodb.morphia.query.Query;
 import org.mongodb.morphia.query.UpdateOperations;
 
@@ -18,11 +15,12 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 import static edu.stanford.bmir.protege.web.server.access.RoleAssignment.*;
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toSet;
 
 /**
  * Matthew Horridge
@@ -35,7 +33,12 @@ public class AccessManagerImpl implements AccessManager {
 
     private final Datastore datastore;
 
-    private final Cache<AccessManagerCacheKey, Boolean> permissionCache = CacheBuilder.newBuilder().build();
+    /**
+     * Materialized role assignments, keyed by the resource's project id (empty for the application).  Entries are
+     * loaded from the database the first time a resource is checked and are then kept up to date as roles are
+     * assigned, so that permission checks, whether granted or denied, do not hit the database.
+     */
+    private final ConcurrentMap<Optional<String>, ResourceRoleAssignments> roleAssignmentsByResource = new ConcurrentHashMap<>();
 
     /**
      * Constructs an {@link AccessManager} that is backed by MongoDb.
@@ -53,8 +56,6 @@ public class AccessManagerImpl implements AccessManager {
     public void setAssignedRoles(@Nonnull Subject subject,
                                  @Nonnull Resource resource,
                                  @Nonnull Collection<RoleId> roleIds) {
-        invalidateCacheOfrSubjectAndResource(subject, resource);
-
         String userName = toUserName(subject);
         String projectId = toProjectId(resource);
         List<String> assignedRoles = roleIds.stream().map(RoleId::getId).collect(toList());
@@ -65,17 +66,29 @@ public class AccessManagerImpl implements AccessManager {
                                                        assignedRoles,
                                                        roleClosure,
                                                        actionClosure);
-        datastore.delete(withUserAndTarget(subject, resource));
-        datastore.save(assignment);
+        // The database is written inside compute so that the write and the update of the materialized assignments
+        // happen atomically with respect to loading the assignments for the resource
+        roleAssignmentsByResource.compute(Optional.ofNullable(projectId), (resourceKey, roleAssignments) -> {
+            datastore.delete(withUserAndTarget(subject, resource));
+            datastore.save(assignment);
+            if(roleAssignments == null) {
+                return null;
+            }
+            return roleAssignments.withAssignment(Optional.ofNullable(userName), roleClosure, actionClosure);
+        });
+    }
+
+    @Nonnull
+    private ResourceRoleAssignments getRoleAssignments(@Nonnull Resource resource) {
+        return roleAssignmentsByResource.computeIfAbsent(Optional.ofNullable(toProjectId(resource)),
+                                                         this::loadRoleAssignments);
     }
 
-    private void invalidateCacheOfrSubjectAndResource(@Nonnull Subject subject,
-                                                     @Nonnull Resource resource) {
-        var currentActionClosure = getActionClosure(subject, resource);
-        for(var actionId : currentActionClosure) {
-            var cacheKey = AccessManagerCacheKey.get(subject, resource, actionId);
-            permissionCache.invalidate(cacheKey);
-        }
+    @Nonnull
+    private ResourceRoleAssignments loadRoleAssignments(@Nonnull Optional<String> projectId) {
+        Query<RoleAssignment> query = datastore.createQuery(RoleAssignment.class)
+                                               .field(PROJECT_ID).equal(projectId.orElse(null));
+        return ResourceRoleAssignments.get(query.asList());
     }
 
     private List<String> getActionClosure(@Nonnull Collection<RoleId> roleIds) {
@@ -116,61 +129,21 @@ public class AccessManagerImpl implements AccessManager {
                     .collect(toList());
     }
 
-    private Query<RoleAssignment> withUserOrAnyUserAndTarget(Subject subject, Resource resource) {
-        String userName = toUserName(subject);
-        String projectId = toProjectId(resource);
-
-        Query<RoleAssignment> query = datastore.createQuery(RoleAssignment.class)
-                                               .field(PROJECT_ID).equal(projectId);
-        if (!subject.isGuest()) {
-            query.or(
-                    query.criteria(USER_NAME).equal(userName),
-                    query.criteria(USER_NAME).equal(null)
-            );
-        }
-        else {
-            query.field(USER_NAME).equal(userName);
-        }
-        return query;
-    }
-
     @Nonnull
     @Override
     public Collection<RoleId> getRoleClosure(@Nonnull Subject subject, @Nonnull Resource resource) {
-        Query<RoleAssignment> query = withUserOrAnyUserAndTarget(subject,
-                                                                 resource);
-        return query.asList()
-                    .stream()
-                    .flatMap(ra -> ra.getRoleClosure().stream())
-                    .distinct()
-                    .map(RoleId::new)
-                    .collect(toList());
+        return getRoleAssignments(resource).getRoleClosure(subject).asList();
     }
 
     @Nonnull
     @Override
     public Set<ActionId> getActionClosure(@Nonnull Subject subject, @Nonnull Resource resource) {
-        Query<RoleAssignment> query = withUserOrAnyUserAndTarget(subject,
-                                                                 resource);
-        return query.asList()
-                    .stream()
-                    .flatMap(ra -> ra.getActionClosure().stream())
-                    .map(ActionId::new)
-                    .collect(toSet());
+        return getRoleAssignments(resource).getActionClosure(subject);
     }
 
     @Override
     public boolean hasPermission(@Nonnull Subject subject, @Nonnull Resource resource, @Nonnull ActionId actionId) {
-        var cacheKey = AccessManagerCacheKey.get(subject, resource, actionId);
-        var permission = permissionCache.getIfPresent(cacheKey);
-        if(permission != null && permission.equals(Boolean.TRUE)) {
-            return true;
-        }
-        Query<RoleAssignment> query = withUserOrAnyUserAndTarget(subject, resource)
-                .field(ACTION_CLOSURE).equal(actionId.getId());
-        var hasPermission = query.count(new CountOptions().limit(1)) == 1;
-        permissionCache.put(cacheKey, hasPermission);
-        return hasPermission;
+        return getRoleAssignments(resource).hasPermission(subject, actionId);
     }
 
     @Override
@@ -232,7 +205,8 @@ public class AccessManagerImpl implements AccessManager {
                          .set(RoleAssignment.ROLE_CLOSURE, roleClosure);
                  datastore.update(roleAssignment, updateOperations);
              });
-
+        // Closures may have changed for any resource.  Clearing waits for any in-progress loads.
+        roleAssignmentsByResource.clear();
     }
 
     /**
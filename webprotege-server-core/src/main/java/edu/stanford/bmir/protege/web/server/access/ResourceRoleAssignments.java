@@ -0,0 +1,117 @@
+package edu.stanford.bmir.protege.web.server.access;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import edu.stanford.bmir.protege.web.shared.access.ActionId;
+import edu.stanford.bmir.protege.web.shared.access.RoleId;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * An immutable, in-memory view of the role assignments for a single resource.  Each assignment is materialized as
+ * the role closure and action closure of the assigned roles, so that both granted and denied permission checks can
+ * be answered without querying the database.
+ */
+final class ResourceRoleAssignments {
+
+    /**
+     * Closures keyed by user name.  The empty user name is used for assignments to any signed in user.
+     */
+    @Nonnull
+    private final ImmutableMap<Optional<String>, Closures> closuresByUserName;
+
+    private ResourceRoleAssignments(@Nonnull ImmutableMap<Optional<String>, Closures> closuresByUserName) {
+        this.closuresByUserName = checkNotNull(closuresByUserName);
+    }
+
+    @Nonnull
+    public static ResourceRoleAssignments get(@Nonnull Collection<RoleAssignment> roleAssignments) {
+        var closuresByUserName = new HashMap<Optional<String>, Closures>();
+        for(var roleAssignment : roleAssignments) {
+            closuresByUserName.put(roleAssignment.getUserName(),
+                                   new Closures(roleAssignment.getRoleClosure(),
+                                                roleAssignment.getActionClosure()));
+        }
+        return new ResourceRoleAssignments(ImmutableMap.copyOf(closuresByUserName));
+    }
+
+    /**
+     * Gets a copy of these assignments with the assignment for the specified user name replaced.
+     *
+     * @param userName      The user name, or empty for any signed in user.
+     * @param roleClosure   The role closure of the roles that are assigned to the user.
+     * @param actionClosure The action closure of the roles that are assigned to the user.
+     */
+    @Nonnull
+    public ResourceRoleAssignments withAssignment(@Nonnull Optional<String> userName,
+                                                  @Nonnull Collection<String> roleClosure,
+                                                  @Nonnull Collection<String> actionClosure) {
+        var closuresByUserName = new HashMap<>(this.closuresByUserName);
+        closuresByUserName.put(userName, new Closures(roleClosure, actionClosure));
+        return new ResourceRoleAssignments(ImmutableMap.copyOf(closuresByUserName));
+    }
+
+    public boolean hasPermission(@Nonnull Subject subject, @Nonnull ActionId actionId) {
+        // This is on the hot path, so avoid the stream
+        var subjectClosures = closuresByUserName.get(subject.getUserName());
+        if(subjectClosures != null && subjectClosures.actionClosure.contains(actionId)) {
+            return true;
+        }
+        if(subject.isGuest()) {
+            return false;
+        }
+        var anySignedInUserClosures = closuresByUserName.get(Optional.<String>empty());
+        return anySignedInUserClosures != null && anySignedInUserClosures.actionClosure.contains(actionId);
+    }
+
+    @Nonnull
+    public ImmutableSet<ActionId> getActionClosure(@Nonnull Subject subject) {
+        return getClosures(subject).flatMap(closures -> closures.actionClosure.stream())
+                                   .collect(toImmutableSet());
+    }
+
+    @Nonnull
+    public ImmutableSet<RoleId> getRoleClosure(@Nonnull Subject subject) {
+        return getClosures(subject).flatMap(closures -> closures.roleClosure.stream())
+                                   .collect(toImmutableSet());
+    }
+
+    /**
+     * Gets the closures that apply to the specified subject.  These are the closures for the subject's own
+     * assignment along with, for subjects that are not the guest user, the closures for the assignment to any signed
+     * in user.
+     */
+    @Nonnull
+    private Stream<Closures> getClosures(@Nonnull Subject subject) {
+        var userName = subject.getUserName();
+        var subjectClosures = closuresByUserName.get(userName);
+        var anySignedInUserClosures = subject.isGuest() ? null : closuresByUserName.get(Optional.<String>empty());
+        return Stream.of(subjectClosures, anySignedInUserClosures)
+                     .filter(closures -> closures != null)
+                     .distinct();
+    }
+
+    private static final class Closures {
+
+        private final ImmutableSet<RoleId> roleClosure;
+
+        private final ImmutableSet<ActionId> actionClosure;
+
+        private Closures(@Nonnull Collection<String> roleClosure,
+                         @Nonnull Collection<String> actionClosure) {
+            this.roleClosure = roleClosure.stream().map(RoleId::new).collect(toImmutableSet());
+            this.actionClosure = actionClosure.stream().map(ActionId::new).collect(toImmutableSet());
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package edu.stanford.bmir.protege.web.server.app;
 
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import edu.stanford.bmir.protege.web.server.init.WebProtegeConfigurationException;
 import edu.stanford.bmir.protege.web.shared.app.WebProtegePropertyName;
@@ -147,4 +149,172 @@ public class WebProtegeProperties implements Serializable {
                 });
 
     }
+
+    public int getRevisionCheckpointInterval() {
+        try {
+            return Integer.parseInt(getRequiredString(REVISION_CHECKPOINT_INTERVAL));
+        } catch(NumberFormatException e) {
+            return Integer.parseInt(REVISION_CHECKPOINT_INTERVAL.getDefaultValue().orElseThrow());
+        }
+    }
+
+    public boolean isChangeHistoryLazyLoading() {
+        return Boolean.parseBoolean(getRequiredString(CHANGE_HISTORY_LAZY_LOADING));
+    }
+
+    public int getChangeHistoryCacheSize() {
+        try {
+            return Integer.parseInt(getRequiredString(CHANGE_HISTORY_CACHE_SIZE));
+        } catch(NumberFormatException e) {
+            return Integer.parseInt(CHANGE_HISTORY_CACHE_SIZE.getDefaultValue().orElseThrow());
+        }
+    }
+
+    public long getChangeHistoryGroupCommitMaxLatency() {
+        try {
+            return Long.parseLong(getRequiredString(CHANGE_HISTORY_GROUP_COMMIT_MAX_LATENCY));
+        } catch(NumberFormatException e) {
+            return Long.parseLong(CHANGE_HISTORY_GROUP_COMMIT_MAX_LATENCY.getDefaultValue().orElseThrow());
+        }
+    }
+
+    public int getChangeHistoryGroupCommitBatchSize() {
+        try {
+            return Integer.parseInt(getRequiredString(CHANGE_HISTORY_GROUP_COMMIT_BATCH_SIZE));
+        } catch(NumberFormatException e) {
+            return Integer.parseInt(CHANGE_HISTORY_GROUP_COMMIT_BATCH_SIZE.getDefaultValue().orElseThrow());
+        }
+    }
+
+    public boolean isChangeHistoryStrictDurability() {
+        return Boolean.parseBoolean(getRequiredString(CHANGE_HISTORY_STRICT_DURABILITY));
+    }
+
+    public int getProjectTaskSchedulerThreads() {
+        try {
+            return Math.max(Integer.parseInt(getRequiredString(PROJECT_TASK_SCHEDULER_THREADS)), 1);
+        } catch(NumberFormatException e) {
+            return Integer.parseInt(PROJECT_TASK_SCHEDULER_THREADS.getDefaultValue().orElseThrow());
+        }
+    }
+
+    public int getIndexBuildParallelism() {
+        try {
+            return Math.max(Integer.parseInt(getRequiredString(INDEX_BUILD_PARALLELISM)), 0);
+        } catch(NumberFormatException e) {
+            return Integer.parseInt(INDEX_BUILD_PARALLELISM.getDefaultValue().orElseThrow());
+        }
+    }
+
+    public int getSearchIndexRefreshIntervalMs() {
+        try {
+            return Math.max(Integer.parseInt(getRequiredString(SEARCH_INDEX_REFRESH_INTERVAL_MS)), 0);
+        } catch(NumberFormatException e) {
+            return Integer.parseInt(SEARCH_INDEX_REFRESH_INTERVAL_MS.getDefaultValue().orElseThrow());
+        }
+    }
+
+    public int getSearchIndexCommitIntervalMs() {
+        try {
+            return Math.max(Integer.parseInt(getRequiredString(SEARCH_INDEX_COMMIT_INTERVAL_MS)), 0);
+        } catch(NumberFormatException e) {
+            return Integer.parseInt(SEARCH_INDEX_COMMIT_INTERVAL_MS.getDefaultValue().orElseThrow());
+        }
+    }
+
+    public int getSearchIndexCommitMaxDocuments() {
+        try {
+            return Math.max(Integer.parseInt(getRequiredString(SEARCH_INDEX_COMMIT_MAX_DOCUMENTS)), 1);
+        } catch(NumberFormatException e) {
+            return Integer.parseInt(SEARCH_INDEX_COMMIT_MAX_DOCUMENTS.getDefaultValue().orElseThrow());
+        }
+    }
+
+    public int getBatchActionThreads() {
+        try {
+            return Math.max(Integer.parseInt(getRequiredString(BATCH_ACTION_THREADS)), 0);
+        } catch(NumberFormatException e) {
+            return Integer.parseInt(BATCH_ACTION_THREADS.getDefaultValue().orElseThrow());
+        }
+    }
+
+    public int getDownloadCacheMaxSizeMb() {
+        try {
+            return Math.max(Integer.parseInt(getRequiredString(DOWNLOAD_CACHE_MAX_SIZE_MB)), 0);
+        } catch(NumberFormatException e) {
+            return Integer.parseInt(DOWNLOAD_CACHE_MAX_SIZE_MB.getDefaultValue().orElseThrow());
+        }
+    }
+
+    public int getDownloadPregenerationChangeThreshold() {
+        try {
+            return Math.max(Integer.parseInt(getRequiredString(DOWNLOAD_PREGENERATION_CHANGE_THRESHOLD)), 0);
+        } catch(NumberFormatException e) {
+            return Integer.parseInt(DOWNLOAD_PREGENERATION_CHANGE_THRESHOLD.getDefaultValue().orElseThrow());
+        }
+    }
+
+    public int getImportChunkSize() {
+        try {
+            return Math.max(Integer.parseInt(getRequiredString(IMPORT_CHUNK_SIZE)), 1);
+        } catch(NumberFormatException e) {
+            return Integer.parseInt(IMPORT_CHUNK_SIZE.getDefaultValue().orElseThrow());
+        }
+    }
+
+    public int getProjectLoadMaxConcurrent() {
+        try {
+            return Math.max(Integer.parseInt(getRequiredString(PROJECT_LOAD_MAX_CONCURRENT)), 1);
+        } catch(NumberFormatException e) {
+            return Integer.parseInt(PROJECT_LOAD_MAX_CONCURRENT.getDefaultValue().orElseThrow());
+        }
+    }
+
+    public long getProjectLoadWaitMs() {
+        try {
+            return Math.max(Long.parseLong(getRequiredString(PROJECT_LOAD_WAIT_MS)), 0);
+        } catch(NumberFormatException e) {
+            return Long.parseLong(PROJECT_LOAD_WAIT_MS.getDefaultValue().orElseThrow());
+        }
+    }
+
+    @Nonnull
+    public ImmutableList<String> getProjectPrewarmIds() {
+        return getOptionalString(PROJECT_PREWARM_IDS)
+                .map(ids -> Splitter.on(',').trimResults().omitEmptyStrings().splitToList(ids))
+                .map(ImmutableList::copyOf)
+                .orElse(ImmutableList.of());
+    }
+
+    public int getProjectPrewarmRecentCount() {
+        try {
+            return Math.max(Integer.parseInt(getRequiredString(PROJECT_PREWARM_RECENT_COUNT)), 0);
+        } catch(NumberFormatException e) {
+            return Integer.parseInt(PROJECT_PREWARM_RECENT_COUNT.getDefaultValue().orElseThrow());
+        }
+    }
+
+    public int getProjectCacheMaxHeapMb() {
+        try {
+            return Math.max(Integer.parseInt(getRequiredString(PROJECT_CACHE_MAX_HEAP_MB)), 0);
+        } catch(NumberFormatException e) {
+            return Integer.parseInt(PROJECT_CACHE_MAX_HEAP_MB.getDefaultValue().orElseThrow());
+        }
+    }
+
+    public int getEventsPushMaxConnections() {
+        try {
+            return Math.max(Integer.parseInt(getRequiredString(EVENTS_PUSH_MAX_CONNECTIONS)), 0);
+        } catch(NumberFormatException e) {
+            return Integer.parseInt(EVENTS_PUSH_MAX_CONNECTIONS.getDefaultValue().orElseThrow());
+        }
+    }
+
+    public long getEventsPushHeartbeatIntervalMs() {
+        try {
+            return Math.max(Long.parseLong(getRequiredString(EVENTS_PUSH_HEARTBEAT_INTERVAL_MS)), 1000);
+        } catch(NumberFormatException e) {
+            return Long.parseLong(EVENTS_PUSH_HEARTBEAT_INTERVAL_MS.getDefaultValue().orElseThrow());
+        }
+    }
 }
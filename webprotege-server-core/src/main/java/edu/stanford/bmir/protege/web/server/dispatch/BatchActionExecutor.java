@@ -1,4 +1,4 @@
-package edu.stanford.bmir.protege.web.server.index;
+package edu.stanford.bmir.protege.web.server.dispatch;
 
 import javax.inject.Qualifier;
 import java.lang.annotation.Retention;
@@ -7,10 +7,12 @@ import java.lang.annotation.RetentionPolicy;
 /**
  * Matthew Horridge
  * Stanford Center for Biomedical Informatics Research
- * 2019-09-10
+ * 2020-12-11
+ *
+ * Qualifies the executor that runs the read only actions in a batch concurrently
  */
-@Retention(RetentionPolicy.RUNTIME)
 @Qualifier
-public @interface IndexUpdatingService {
+@Retention(RetentionPolicy.RUNTIME)
+public @interface BatchActionExecutor {
 
 }
@@ -0,0 +1,15 @@
+package edu.stanford.bmir.protege.web.server.dispatch;
+
+import javax.inject.Qualifier;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Qualifies the number of threads that are shared by all requests for executing the read only actions in batches
+ */
+@Qualifier
+public @interface BatchActionThreads {
+
+}
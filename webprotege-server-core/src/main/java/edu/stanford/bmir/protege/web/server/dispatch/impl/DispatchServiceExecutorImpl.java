@@ -1,5 +1,6 @@
 package edu.stanford.bmir.protege.web.server.dispatch.impl;
 
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import edu.stanford.bmir.protege.web.server.app.UserInSessionFactory;
 import edu.stanford.bmir.protege.web.server.dispatch.*;
@@ -8,6 +9,7 @@ import edu.stanford.bmir.protege.web.shared.dispatch.*;
 import edu.stanford.bmir.protege.web.shared.permissions.PermissionDeniedException;
 import edu.stanford.bmir.protege.web.shared.project.HasProjectId;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.project.ProjectLoadingException;
 import edu.stanford.bmir.protege.web.shared.user.UserId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,6 +17,13 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import static java.util.stream.Collectors.joining;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -28,6 +37,11 @@ public class DispatchServiceExecutorImpl implements DispatchServiceExecutor {
 
     private static final Logger logger = LoggerFactory.getLogger(DispatchServiceExecutorImpl.class.getName());
 
+    /**
+     * Batches that take longer than this are logged with the time taken by each action
+     */
+    private static final long SLOW_BATCH_THRESHOLD_MS = 1000;
+
     @Nonnull
     private final ApplicationActionHandlerRegistry handlerRegistry;
 
@@ -37,13 +51,18 @@ public class DispatchServiceExecutorImpl implements DispatchServiceExecutor {
     @Nonnull
     private final UserInSessionFactory userInSessionFactory;
 
+    @Nonnull
+    private final ExecutorService batchActionExecutor;
+
     @Inject
     public DispatchServiceExecutorImpl(@Nonnull ApplicationActionHandlerRegistry handlerRegistry,
                                        @Nonnull ProjectManager projectManager,
-                                       @Nonnull UserInSessionFactory userInSessionFactory) {
+                                       @Nonnull UserInSessionFactory userInSessionFactory,
+                                       @Nonnull @BatchActionExecutor ExecutorService batchActionExecutor) {
         this.handlerRegistry = checkNotNull(handlerRegistry);
         this.projectManager = checkNotNull(projectManager);
         this.userInSessionFactory = userInSessionFactory;
+        this.batchActionExecutor = checkNotNull(batchActionExecutor);
     }
 
     /**
@@ -90,25 +109,72 @@ public class DispatchServiceExecutorImpl implements DispatchServiceExecutor {
         }
     }
 
+    /**
+     * Executes the actions in a batch.  Consecutive read only actions are executed concurrently.  Other actions are
+     * executed on their own, after the actions that precede them and before the actions that follow them.
+     */
     private DispatchServiceResultContainer execBatchAction(BatchAction batchAction, RequestContext requestContext, ExecutionContext executionContext) {
-        ImmutableList.Builder<ActionExecutionResult> executionResultBuilder = ImmutableList.builder();
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        List<BatchedAction> batchedActions = new ArrayList<>();
+        List<BatchedAction> pendingReadOnlyActions = new ArrayList<>();
         for (Action<?> action : batchAction.getActions()) {
-            ActionExecutionResult executionResult;
-            try {
-                DispatchServiceResultContainer container = execAction(action, requestContext, executionContext);
-                Result result = container.getResult();
-                executionResult = ActionExecutionResult.get(new DispatchServiceResultContainer(result));
-            } catch (ActionExecutionException e) {
-                executionResult = ActionExecutionResult.get(e);
-            } catch (PermissionDeniedException e) {
-                executionResult = ActionExecutionResult.get(e);
+            BatchedAction batchedAction = new BatchedAction(action, requestContext, executionContext);
+            batchedActions.add(batchedAction);
+            if (action instanceof ReadOnlyAction) {
+                pendingReadOnlyActions.add(batchedAction);
             }
-            executionResultBuilder.add(executionResult);
+            else {
+                execConcurrently(pendingReadOnlyActions);
+                pendingReadOnlyActions.clear();
+                batchedAction.run();
+            }
+        }
+        execConcurrently(pendingReadOnlyActions);
+        ImmutableList.Builder<ActionExecutionResult> executionResultBuilder = ImmutableList.builder();
+        for (BatchedAction batchedAction : batchedActions) {
+            executionResultBuilder.add(batchedAction.getExecutionResult());
         }
         ImmutableList<ActionExecutionResult> results = executionResultBuilder.build();
+        logBatchTimings(batchedActions, stopwatch.elapsed().toMillis());
         return new DispatchServiceResultContainer(BatchResult.get(results));
     }
 
+    /**
+     * Executes the specified actions concurrently.  One of the actions is executed on the calling thread, so that
+     * the batch makes progress even when all of the batch action threads are busy.
+     */
+    private void execConcurrently(List<BatchedAction> batchedActions) {
+        if (batchedActions.isEmpty()) {
+            return;
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (BatchedAction batchedAction : batchedActions.subList(1, batchedActions.size())) {
+            try {
+                futures.add(CompletableFuture.runAsync(batchedAction, batchActionExecutor));
+            } catch (RejectedExecutionException e) {
+                // The executor has been shut down
+                batchedAction.run();
+            }
+        }
+        batchedActions.get(0).run();
+        futures.forEach(CompletableFuture::join);
+    }
+
+    private static void logBatchTimings(List<BatchedAction> batchedActions, long elapsedMs) {
+        if (elapsedMs < SLOW_BATCH_THRESHOLD_MS && !logger.isDebugEnabled()) {
+            return;
+        }
+        String timings = batchedActions.stream()
+                                       .map(BatchedAction::toTimingString)
+                                       .collect(joining(", "));
+        if (elapsedMs < SLOW_BATCH_THRESHOLD_MS) {
+            logger.debug("Executed batch of {} actions in {} ms: {}", batchedActions.size(), elapsedMs, timings);
+        }
+        else {
+            logger.info("Executed batch of {} actions in {} ms: {}", batchedActions.size(), elapsedMs, timings);
+        }
+    }
+
     private <A extends Action<R>, R extends Result> DispatchServiceResultContainer execAction(A action, RequestContext requestContext, ExecutionContext executionContext) {
         final ActionHandler<A, R> actionHandler;
         final Thread thread = Thread.currentThread();
@@ -117,7 +183,14 @@ public class DispatchServiceExecutorImpl implements DispatchServiceExecutor {
             ProjectAction projectAction = (ProjectAction) action;
             ProjectId projectId = projectAction.getProjectId();
             setTemporaryThreadName(thread, action, projectId);
-            ProjectActionHandlerRegistry actionHanderRegistry = projectManager.getActionHandlerRegistry(projectId);
+            ProjectActionHandlerRegistry actionHanderRegistry;
+            try {
+                actionHanderRegistry = projectManager.getActionHandlerRegistry(projectId);
+            } catch (ProjectLoadingException e) {
+                // The client retries the action once the project has loaded
+                thread.setName(threadName);
+                throw new ActionExecutionException(e);
+            }
             actionHandler = actionHanderRegistry.getActionHandler(action);
         }
         else {
@@ -137,6 +210,8 @@ public class DispatchServiceExecutorImpl implements DispatchServiceExecutor {
             return new DispatchServiceResultContainer(result);
         } catch (PermissionDeniedException e) {
             throw e;
+        } catch (ProjectLoadingException e) {
+            throw new ActionExecutionException(e);
         } catch (Exception e) {
             logger.error("An error occurred whilst executing an action", e);
             throw new ActionExecutionException(e);
@@ -156,4 +231,60 @@ public class DispatchServiceExecutorImpl implements DispatchServiceExecutor {
         throw new PermissionDeniedException(validationResult.getInvalidMessage(),
                                             userInSessionFactory.getUserInSession(userId));
     }
+
+    /**
+     * An action in a batch, along with its execution result and the time taken to execute it
+     */
+    private class BatchedAction implements Runnable {
+
+        private final Action<?> action;
+
+        private final RequestContext requestContext;
+
+        private final ExecutionContext executionContext;
+
+        @Nullable
+        private ActionExecutionResult executionResult;
+
+        @Nullable
+        private RuntimeException failure;
+
+        private long elapsedMs;
+
+        private BatchedAction(Action<?> action, RequestContext requestContext, ExecutionContext executionContext) {
+            this.action = action;
+            this.requestContext = requestContext;
+            this.executionContext = executionContext;
+        }
+
+        @Override
+        public void run() {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            try {
+                DispatchServiceResultContainer container = execAction(action, requestContext, executionContext);
+                Result result = container.getResult();
+                executionResult = ActionExecutionResult.get(new DispatchServiceResultContainer(result));
+            } catch (ActionExecutionException e) {
+                executionResult = ActionExecutionResult.get(e);
+            } catch (PermissionDeniedException e) {
+                executionResult = ActionExecutionResult.get(e);
+            } catch (RuntimeException e) {
+                // Rethrown on the request thread
+                failure = e;
+            } finally {
+                elapsedMs = stopwatch.elapsed().toMillis();
+            }
+        }
+
+        private ActionExecutionResult getExecutionResult() {
+            if (failure != null) {
+                throw failure;
+            }
+            return checkNotNull(executionResult);
+        }
+
+        private String toTimingString() {
+            return action.getClass().getSimpleName() + " " + elapsedMs + " ms";
+        }
+    }
 }
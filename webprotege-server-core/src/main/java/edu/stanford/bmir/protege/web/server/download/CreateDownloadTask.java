@@ -15,6 +15,8 @@ import javax.annotation.Nonnull;
 import java.io.BufferedOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
 import java.util.concurrent.Callable;
 
 /**
@@ -88,11 +90,20 @@ class CreateDownloadTask implements Callable<Void> {
                                                                        projectDisplayName,
                                                                        revisionNumber,
                                                                        format,
-                                                                       revisionManager);
+                                                                       revisionManager,
+                                                                       projectManager.getHeadRevisionExporter(projectId));
         logger.info("{} {} Writing download to file: {}", projectId, userId, downloadPath);
         Files.createDirectories(downloadPath.getParent());
-        try (BufferedOutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(downloadPath))) {
-            downloader.writeProject(outputStream);
+        // Write to a temporary file and then move it into place so that a partially written download
+        // is never served from the cache
+        Path temporaryPath = downloadPath.resolveSibling(downloadPath.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try (BufferedOutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(temporaryPath))) {
+                downloader.writeProject(outputStream);
+            }
+            Files.move(temporaryPath, downloadPath, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryPath);
         }
         double sizeInMB = Files.size(downloadPath) / (1024.0 * 1024);
         logger.info("{} {} Finished creating download ({} MB)", projectId, userId, String.format("%.4f", sizeInMB));
@@ -0,0 +1,18 @@
+package edu.stanford.bmir.protege.web.server.download;
+
+import javax.inject.Qualifier;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Qualifies the maximum size, in megabytes, of the cache of generated project downloads
+ */
+@Qualifier
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DownloadCacheMaxSizeMb {
+
+}
@@ -0,0 +1,19 @@
+package edu.stanford.bmir.protege.web.server.download;
+
+import javax.inject.Qualifier;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Qualifies the minimum number of changes in a commit that cause a download of the project to be generated in the
+ * background
+ */
+@Qualifier
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DownloadPregenerationChangeThreshold {
+
+}
@@ -0,0 +1,444 @@
+package edu.stanford.bmir.protege.web.server.download;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import edu.stanford.bmir.protege.web.server.index.OntologyAnnotationsIndex;
+import edu.stanford.bmir.protege.web.server.index.OntologyAxiomsIndex;
+import edu.stanford.bmir.protege.web.server.index.OntologyImportsIndex;
+import edu.stanford.bmir.protege.web.server.index.ProjectOntologiesIndex;
+import edu.stanford.bmir.protege.web.server.owlapi.WebProtegeOWLManager;
+import edu.stanford.bmir.protege.web.server.project.PrefixDeclarationsStore;
+import edu.stanford.bmir.protege.web.server.project.chg.ProjectChangeLock;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import org.semanticweb.owlapi.formats.FunctionalSyntaxDocumentFormat;
+import org.semanticweb.owlapi.formats.PrefixDocumentFormat;
+import org.semanticweb.owlapi.formats.TurtleDocumentFormat;
+import org.semanticweb.owlapi.functional.renderer.FunctionalSyntaxObjectRenderer;
+import org.semanticweb.owlapi.io.RDFResource;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.rdf.model.RDFTranslator;
+import org.semanticweb.owlapi.rdf.turtle.renderer.TurtleRenderer;
+import org.semanticweb.owlapi.util.AlwaysOutputId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Exports the head revision of a project by writing axioms straight from the project indexes into the output
+ * document, without building a complete copy of the project ontologies in memory.  The project change lock is only
+ * held while the ontology headers and the lists of axioms are taken from the indexes.  The axioms themselves are
+ * shared with the indexes rather than copied, and the documents are written after the lock has been released.  As
+ * for a head revision ontology manager, all anonymous ontologies are exported as a single anonymous ontology.
+ *
+ * Functional syntax is written axiom by axiom.  Turtle is written in chunks of axioms, each of which is rendered with
+ * the OWL API Turtle renderer.  The ontology header is only rendered once, and blank nodes for anonymous individuals
+ * are labelled consistently across the chunks of a document.  A Turtle document may repeat prefix declarations and
+ * triples, so the concatenation of the chunks is a Turtle document for the whole ontology.  Other formats are not
+ * supported and should be exported from an ontology manager.
+ */
+public class HeadRevisionExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeadRevisionExporter.class);
+
+    private static final int TURTLE_CHUNK_SIZE = 10_000;
+
+    @Nonnull
+    private final ProjectId projectId;
+
+    @Nonnull
+    private final ProjectChangeLock projectChangeLock;
+
+    @Nonnull
+    private final ProjectOntologiesIndex projectOntologiesIndex;
+
+    @Nonnull
+    private final OntologyImportsIndex ontologyImportsIndex;
+
+    @Nonnull
+    private final OntologyAnnotationsIndex ontologyAnnotationsIndex;
+
+    @Nonnull
+    private final OntologyAxiomsIndex ontologyAxiomsIndex;
+
+    @Nonnull
+    private final PrefixDeclarationsStore prefixDeclarationsStore;
+
+    @Inject
+    public HeadRevisionExporter(@Nonnull ProjectId projectId,
+                                @Nonnull ProjectChangeLock projectChangeLock,
+                                @Nonnull ProjectOntologiesIndex projectOntologiesIndex,
+                                @Nonnull OntologyImportsIndex ontologyImportsIndex,
+                                @Nonnull OntologyAnnotationsIndex ontologyAnnotationsIndex,
+                                @Nonnull OntologyAxiomsIndex ontologyAxiomsIndex,
+                                @Nonnull PrefixDeclarationsStore prefixDeclarationsStore) {
+        this.projectId = checkNotNull(projectId);
+        this.projectChangeLock = checkNotNull(projectChangeLock);
+        this.projectOntologiesIndex = checkNotNull(projectOntologiesIndex);
+        this.ontologyImportsIndex = checkNotNull(ontologyImportsIndex);
+        this.ontologyAnnotationsIndex = checkNotNull(ontologyAnnotationsIndex);
+        this.ontologyAxiomsIndex = checkNotNull(ontologyAxiomsIndex);
+        this.prefixDeclarationsStore = checkNotNull(prefixDeclarationsStore);
+    }
+
+    /**
+     * Determines whether the specified format can be exported by this exporter.
+     */
+    public static boolean isSupportedFormat(@Nonnull DownloadFormat format) {
+        return format == DownloadFormat.FUNCTIONAL_SYNTAX || format == DownloadFormat.RDF_TURLE;
+    }
+
+    /**
+     * Exports each ontology in the head revision of the project as a separate document.  Changes to the project are
+     * only blocked while the contents of the head revision are taken from the indexes, and not while the documents
+     * are written.
+     * @param format The format.  This must be a supported format.
+     * @param output The output that ontology documents are written to.
+     * @throws IllegalArgumentException if the format is not a supported format
+     */
+    public void exportHeadRevision(@Nonnull DownloadFormat format,
+                                   @Nonnull OntologyDocumentOutput output) throws IOException {
+        if(!isSupportedFormat(format)) {
+            throw new IllegalArgumentException("Unsupported format for streaming export: " + format);
+        }
+        var stopwatch = Stopwatch.createStarted();
+        var prefixes = prefixDeclarationsStore.find(projectId).getPrefixes();
+        var documents = getHeadRevisionDocuments();
+        logger.info("{} Took the head revision ({} ontologies) from the indexes in {} ms",
+                    projectId,
+                    documents.size(),
+                    stopwatch.elapsed().toMillis());
+        try {
+            for(var document : documents) {
+                var outputStream = output.startDocument(document.getOntologyId());
+                if(format == DownloadFormat.FUNCTIONAL_SYNTAX) {
+                    writeFunctionalSyntax(document, prefixes, outputStream);
+                }
+                else {
+                    writeTurtle(document, prefixes, outputStream);
+                }
+                output.endDocument();
+            }
+            logger.info("{} Exported the head revision ({} ontologies) in {} format in {} ms",
+                        projectId,
+                        documents.size(),
+                        format.getExtension(),
+                        stopwatch.elapsed().toMillis());
+        } catch (OWLOntologyCreationException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Takes the contents of the head revision from the indexes under the project read lock.  Anonymous ontologies are
+     * normalised to a single anonymous ontology, in the same way as for a head revision ontology manager.
+     */
+    @Nonnull
+    private ImmutableList<OntologyDocument> getHeadRevisionDocuments() {
+        var readLock = projectChangeLock.readLock();
+        try {
+            readLock.lock();
+            var anonymousOntologyId = new OWLOntologyID();
+            // Ontologies that only contain imports declarations are not in the project ontologies index
+            var ontologyIdsByDocumentId = new LinkedHashMap<OWLOntologyID, List<OWLOntologyID>>();
+            Stream.concat(projectOntologiesIndex.getOntologyIds(), ontologyImportsIndex.getOntologyIds())
+                  .distinct()
+                  .forEach(ontologyId -> {
+                      var documentId = ontologyId.isAnonymous() ? anonymousOntologyId : ontologyId;
+                      ontologyIdsByDocumentId.computeIfAbsent(documentId, id -> new ArrayList<>()).add(ontologyId);
+                  });
+            if(ontologyIdsByDocumentId.isEmpty()) {
+                // As for a replayed revision, an empty project is exported as an empty anonymous ontology
+                ontologyIdsByDocumentId.put(anonymousOntologyId, List.of());
+            }
+            var documents = ImmutableList.<OntologyDocument>builder();
+            ontologyIdsByDocumentId.forEach((documentId, ontologyIds) -> {
+                var importsDeclarations = ontologyIds.stream()
+                                                     .flatMap(ontologyImportsIndex::getImportsDeclarations)
+                                                     .collect(toImmutableSet());
+                var annotations = ontologyIds.stream()
+                                             .flatMap(ontologyAnnotationsIndex::getOntologyAnnotations)
+                                             .collect(toImmutableSet());
+                var axioms = ontologyIds.stream()
+                                        .flatMap(ontologyAxiomsIndex::getAxioms);
+                if(ontologyIds.size() > 1) {
+                    // Merged ontologies may have axioms in common
+                    axioms = axioms.distinct();
+                }
+                documents.add(new OntologyDocument(documentId,
+                                                   importsDeclarations,
+                                                   annotations,
+                                                   axioms.collect(toImmutableList())));
+            });
+            return documents.build();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private void writeFunctionalSyntax(@Nonnull OntologyDocument document,
+                                       @Nonnull Map<String, String> prefixes,
+                                       @Nonnull OutputStream outputStream) throws OWLOntologyCreationException, IOException {
+        // An empty ontology that only serves to provide the prefixes to the renderer
+        var ontologyId = document.getOntologyId();
+        var manager = WebProtegeOWLManager.createOWLOntologyManager();
+        var headerOntology = manager.createOntology(ontologyId);
+        var documentFormat = new FunctionalSyntaxDocumentFormat();
+        setPrefixes(documentFormat, prefixes);
+        manager.setOntologyFormat(headerOntology, documentFormat);
+        // The stream belongs to the caller so the writer is flushed but not closed
+        var writer = new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8));
+        var renderer = new StreamingFunctionalSyntaxRenderer(headerOntology, writer);
+        renderer.writePrefixes();
+        writer.write("\n\nOntology(");
+        if(ontologyId.getOntologyIRI().isPresent()) {
+            writer.write("<" + ontologyId.getOntologyIRI().get() + ">");
+            if(ontologyId.getVersionIRI().isPresent()) {
+                writer.write("\n<" + ontologyId.getVersionIRI().get() + ">");
+            }
+        }
+        writer.write("\n");
+        for(var importsDeclaration : document.getImportsDeclarations()) {
+            writer.write("Import(<" + importsDeclaration.getIRI() + ">)\n");
+        }
+        for(var annotation : document.getAnnotations()) {
+            annotation.accept(renderer);
+            writer.write("\n");
+        }
+        writer.write("\n");
+        for(var axiom : document.getAxioms()) {
+            axiom.accept(renderer);
+            writer.write("\n");
+        }
+        writer.write(")");
+        writer.flush();
+    }
+
+    private void writeTurtle(@Nonnull OntologyDocument document,
+                             @Nonnull Map<String, String> prefixes,
+                             @Nonnull OutputStream outputStream) throws OWLOntologyCreationException, IOException {
+        var manager = WebProtegeOWLManager.createOWLOntologyManager();
+        var documentFormat = new TurtleDocumentFormat();
+        setPrefixes(documentFormat, prefixes);
+        // The stream belongs to the caller so the writer is flushed but not closed
+        var writer = new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8));
+        var blankNodeIds = new BlankNodeIds();
+        var headerChunk = manager.createOntology(document.getOntologyId());
+        document.getImportsDeclarations()
+                .forEach(importsDeclaration -> manager.applyChange(new AddImport(headerChunk, importsDeclaration)));
+        document.getAnnotations()
+                .forEach(annotation -> manager.applyChange(new AddOntologyAnnotation(headerChunk, annotation)));
+        new ChunkTurtleRenderer(headerChunk, writer, documentFormat, blankNodeIds, true).render();
+        manager.removeOntology(headerChunk);
+        blankNodeIds.clearChunkIds();
+        var chunks = Iterators.partition(document.getAxioms().iterator(), TURTLE_CHUNK_SIZE);
+        while(chunks.hasNext()) {
+            // Each chunk has the ontology id of the document so that every chunk is rendered with the same base
+            var chunk = manager.createOntology(document.getOntologyId());
+            manager.addAxioms(chunk, new HashSet<>(chunks.next()));
+            new ChunkTurtleRenderer(chunk, writer, documentFormat, blankNodeIds, false).render();
+            manager.removeOntology(chunk);
+            blankNodeIds.clearChunkIds();
+        }
+        writer.flush();
+    }
+
+    private static void setPrefixes(@Nonnull PrefixDocumentFormat documentFormat,
+                                    @Nonnull Map<String, String> prefixes) {
+        prefixes.forEach(documentFormat::setPrefix);
+    }
+
+    /**
+     * The contents of an ontology in the head revision.  The axioms are shared with the project indexes.
+     */
+    private static class OntologyDocument {
+
+        private final OWLOntologyID ontologyId;
+
+        private final ImmutableSet<OWLImportsDeclaration> importsDeclarations;
+
+        private final ImmutableSet<OWLAnnotation> annotations;
+
+        private final ImmutableList<OWLAxiom> axioms;
+
+        private OntologyDocument(@Nonnull OWLOntologyID ontologyId,
+                                 @Nonnull ImmutableSet<OWLImportsDeclaration> importsDeclarations,
+                                 @Nonnull ImmutableSet<OWLAnnotation> annotations,
+                                 @Nonnull ImmutableList<OWLAxiom> axioms) {
+            this.ontologyId = checkNotNull(ontologyId);
+            this.importsDeclarations = checkNotNull(importsDeclarations);
+            this.annotations = checkNotNull(annotations);
+            this.axioms = checkNotNull(axioms);
+        }
+
+        @Nonnull
+        public OWLOntologyID getOntologyId() {
+            return ontologyId;
+        }
+
+        @Nonnull
+        public ImmutableSet<OWLImportsDeclaration> getImportsDeclarations() {
+            return importsDeclarations;
+        }
+
+        @Nonnull
+        public ImmutableSet<OWLAnnotation> getAnnotations() {
+            return annotations;
+        }
+
+        @Nonnull
+        public ImmutableList<OWLAxiom> getAxioms() {
+            return axioms;
+        }
+    }
+
+    /**
+     * The blank node ids that are used across the chunks of a Turtle document.  The translator looks up the ids of
+     * anonymous individuals by their node id, and the ids of other blank nodes, such as anonymous class expressions,
+     * by the objects that they are translated from.  Only the ids of anonymous individuals are shared across chunks.
+     * The other ids are cleared after each chunk, so that the objects that they are keyed by are not retained for
+     * the rest of the export.
+     */
+    private static class BlankNodeIds extends AbstractMap<Object, Integer> {
+
+        private final AtomicInteger nextBlankNodeId = new AtomicInteger(1);
+
+        private final Map<String, Integer> anonymousIndividualIds = new HashMap<>();
+
+        private final Map<Object, Integer> chunkIds = new IdentityHashMap<>();
+
+        @Override
+        public Integer get(Object key) {
+            if(key instanceof String) {
+                return anonymousIndividualIds.get(key);
+            }
+            return chunkIds.get(key);
+        }
+
+        @Override
+        public Integer put(Object key, Integer id) {
+            if(key instanceof String) {
+                return anonymousIndividualIds.put((String) key, id);
+            }
+            return chunkIds.put(key, id);
+        }
+
+        @Override
+        public Set<Entry<Object, Integer>> entrySet() {
+            var entries = new HashSet<Entry<Object, Integer>>(chunkIds.entrySet());
+            anonymousIndividualIds.forEach((nodeId, id) -> entries.add(new SimpleImmutableEntry<>(nodeId, id)));
+            return Collections.unmodifiableSet(entries);
+        }
+
+        public void clearChunkIds() {
+            chunkIds.clear();
+        }
+    }
+
+    /**
+     * Receives the ontology documents that are written by an export.
+     */
+    public interface OntologyDocumentOutput {
+
+        /**
+         * Starts a document for the specified ontology.
+         * @return The stream that the document should be written to.  The exporter does not close this stream.
+         */
+        @Nonnull
+        OutputStream startDocument(@Nonnull OWLOntologyID ontologyId) throws IOException;
+
+        /**
+         * Ends the document that was most recently started.
+         */
+        void endDocument() throws IOException;
+    }
+
+    /**
+     * A functional syntax renderer that renders individual axioms and annotations, rather than a whole ontology.
+     */
+    private static class StreamingFunctionalSyntaxRenderer extends FunctionalSyntaxObjectRenderer {
+
+        public StreamingFunctionalSyntaxRenderer(@Nonnull OWLOntology ontology, @Nonnull Writer writer) {
+            super(ontology, writer);
+        }
+
+        @Override
+        protected void writePrefixes() {
+            super.writePrefixes();
+        }
+    }
+
+    /**
+     * A Turtle renderer for a chunk of a Turtle document.  Anonymous individuals are always given a blank node label,
+     * taken from the ids that are shared by the chunks of the document, so that an anonymous individual that is
+     * mentioned in more than one chunk is rendered as the same node.  The ontology header is only rendered for the
+     * header chunk.
+     */
+    private static class ChunkTurtleRenderer extends TurtleRenderer {
+
+        private final BlankNodeIds blankNodeIds;
+
+        private final boolean headerChunk;
+
+        public ChunkTurtleRenderer(@Nonnull OWLOntology chunk,
+                                   @Nonnull Writer writer,
+                                   @Nonnull OWLDocumentFormat format,
+                                   @Nonnull BlankNodeIds blankNodeIds,
+                                   boolean headerChunk) {
+            super(chunk, writer, format);
+            this.blankNodeIds = checkNotNull(blankNodeIds);
+            this.headerChunk = headerChunk;
+        }
+
+        @Override
+        protected void renderOntologyHeader() throws IOException {
+            var translator = createTranslator();
+            if(headerChunk) {
+                ontology.accept(translator);
+            }
+            graph = translator.getGraph();
+            if(headerChunk && !graph.isEmpty()) {
+                render((RDFResource) translator.getMappedNode(ontology));
+            }
+            triplesWithRemappedNodes = graph.computeRemappingForSharedNodes();
+        }
+
+        @Override
+        protected void createGraph(Set<? extends OWLObject> objects) {
+            var translator = createTranslator();
+            objects.forEach(object -> deshare(object).accept(translator));
+            graph = translator.getGraph();
+            triplesWithRemappedNodes = graph.computeRemappingForSharedNodes();
+        }
+
+        private RDFTranslator createTranslator() {
+            return new RDFTranslator(ontology.getOWLOntologyManager(),
+                                     ontology,
+                                     shouldInsertDeclarations(),
+                                     new AlwaysOutputId(),
+                                     axiomOccurrences,
+                                     blankNodeIds.nextBlankNodeId,
+                                     blankNodeIds);
+        }
+    }
+}
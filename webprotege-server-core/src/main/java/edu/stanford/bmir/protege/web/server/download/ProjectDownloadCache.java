@@ -3,13 +3,24 @@ package edu.stanford.bmir.protege.web.server.download;
 import edu.stanford.bmir.protege.web.shared.inject.ApplicationSingleton;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toList;
 
 /**
  * Matthew Horridge
@@ -19,12 +30,19 @@ import static com.google.common.base.Preconditions.checkNotNull;
 @ApplicationSingleton
 public class ProjectDownloadCache {
 
+    private static final Logger logger = LoggerFactory.getLogger(ProjectDownloadCache.class);
+
+    private static final String DOWNLOAD_FILE_EXTENSION = ".zip";
 
     private final ProjectDownloadCacheDirectorySupplier resolver;
 
+    private final long maxSizeInBytes;
+
     @Inject
-    public ProjectDownloadCache(@Nonnull ProjectDownloadCacheDirectorySupplier resolver) {
+    public ProjectDownloadCache(@Nonnull ProjectDownloadCacheDirectorySupplier resolver,
+                                @DownloadCacheMaxSizeMb int maxSizeInMb) {
         this.resolver = checkNotNull(resolver);
+        this.maxSizeInBytes = maxSizeInMb * 1024L * 1024L;
     }
 
     /**
@@ -42,7 +60,7 @@ public class ProjectDownloadCache {
                                       @Nonnull RevisionNumber revisionNumber,
                                       @Nonnull DownloadFormat downloadFormat) {
         // If the revision is the head revision then we need to find the real number
-        String fileName = String.format("%s-R%d.%s.zip",
+        String fileName = String.format("%s-R%d.%s" + DOWNLOAD_FILE_EXTENSION,
                                         projectId.getId(),
                                         revisionNumber.getValue(),
                                         downloadFormat.getExtension());
@@ -51,4 +69,91 @@ public class ProjectDownloadCache {
         return resolver.get().resolve(relativePath);
     }
 
+    /**
+     * Records that the specified cached download has been used, so that it is among the last downloads to be
+     * removed from the cache when the cache grows too large.
+     *
+     * @param downloadPath The path to the cached download.
+     */
+    public void touch(@Nonnull Path downloadPath) {
+        try {
+            Files.setLastModifiedTime(downloadPath, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch(IOException e) {
+            logger.warn("Could not update the last modified time of cached download {}: {}", downloadPath, e.getMessage());
+        }
+    }
+
+    /**
+     * Removes the least recently used downloads from the cache until the total size of the cached downloads is no
+     * greater than the maximum size of the cache.
+     *
+     * @param retainedPath The path to a download that should not be removed, even if the cache is still too large
+     *                     without it.  This is typically the download that has just been generated.
+     */
+    public synchronized void evictIfNecessary(@Nonnull Path retainedPath) {
+        if(maxSizeInBytes == 0) {
+            return;
+        }
+        var cacheDirectory = resolver.get();
+        if(!Files.isDirectory(cacheDirectory)) {
+            return;
+        }
+        var cachedDownloads = new ArrayList<CachedDownload>();
+        try(var paths = Files.walk(cacheDirectory, 2)) {
+            for(var path : paths.filter(p -> p.getFileName().toString().endsWith(DOWNLOAD_FILE_EXTENSION))
+                                .collect(toList())) {
+                try {
+                    var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    if(attributes.isRegularFile()) {
+                        cachedDownloads.add(new CachedDownload(path, attributes.size(), attributes.lastModifiedTime()));
+                    }
+                } catch(NoSuchFileException e) {
+                    // Removed since the directory was listed
+                }
+            }
+        } catch(IOException e) {
+            logger.warn("Could not list the cached downloads in {}: {}", cacheDirectory, e.getMessage());
+            return;
+        }
+        long totalSize = cachedDownloads.stream().mapToLong(download -> download.size).sum();
+        if(totalSize <= maxSizeInBytes) {
+            return;
+        }
+        cachedDownloads.sort(Comparator.comparing(download -> download.lastModifiedTime));
+        for(var cachedDownload : evictionCandidates(cachedDownloads, retainedPath)) {
+            if(totalSize <= maxSizeInBytes) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(cachedDownload.path);
+                totalSize -= cachedDownload.size;
+                logger.info("Removed cached download {} ({} bytes) from the download cache", cachedDownload.path, cachedDownload.size);
+            } catch(IOException e) {
+                logger.warn("Could not remove cached download {}: {}", cachedDownload.path, e.getMessage());
+            }
+        }
+    }
+
+    private static List<CachedDownload> evictionCandidates(List<CachedDownload> cachedDownloads,
+                                                           Path retainedPath) {
+        var retainedAbsolutePath = retainedPath.toAbsolutePath();
+        return cachedDownloads.stream()
+                              .filter(download -> !download.path.toAbsolutePath().equals(retainedAbsolutePath))
+                              .collect(toList());
+    }
+
+    private static final class CachedDownload {
+
+        private final Path path;
+
+        private final long size;
+
+        private final FileTime lastModifiedTime;
+
+        private CachedDownload(Path path, long size, FileTime lastModifiedTime) {
+            this.path = path;
+            this.size = size;
+            this.lastModifiedTime = lastModifiedTime;
+        }
+    }
 }
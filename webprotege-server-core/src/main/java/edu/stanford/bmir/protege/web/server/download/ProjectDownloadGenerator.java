@@ -0,0 +1,142 @@
+package edu.stanford.bmir.protege.web.server.download;
+
+import com.google.common.base.Stopwatch;
+import edu.stanford.bmir.protege.web.server.project.ProjectDetailsManager;
+import edu.stanford.bmir.protege.web.shared.inject.ApplicationSingleton;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import edu.stanford.bmir.protege.web.shared.user.UserId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Generates project downloads into the {@link ProjectDownloadCache}.  At most one download is generated at a time
+ * for any given project, revision and format.  Requests for a download that is already being generated share the
+ * future of the generation that is in progress, rather than waiting on a lock, so requests for other revisions or
+ * formats of the same project are not held up.
+ */
+@ApplicationSingleton
+public class ProjectDownloadGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProjectDownloadGenerator.class);
+
+    @Nonnull
+    private final ExecutorService downloadGeneratorExecutor;
+
+    @Nonnull
+    private final ProjectDetailsManager projectDetailsManager;
+
+    @Nonnull
+    private final ProjectDownloadCache projectDownloadCache;
+
+    @Nonnull
+    private final CreateDownloadTaskFactory createDownloadTaskFactory;
+
+    /**
+     * The downloads that are being generated, keyed by the path of the download in the cache.  The path identifies
+     * the project, revision and format of the download.
+     */
+    private final ConcurrentMap<Path, CompletableFuture<Path>> inFlightDownloads = new ConcurrentHashMap<>();
+
+    @Inject
+    public ProjectDownloadGenerator(@Nonnull @DownloadGeneratorExecutor ExecutorService downloadGeneratorExecutor,
+                                    @Nonnull ProjectDetailsManager projectDetailsManager,
+                                    @Nonnull ProjectDownloadCache projectDownloadCache,
+                                    @Nonnull CreateDownloadTaskFactory createDownloadTaskFactory) {
+        this.downloadGeneratorExecutor = checkNotNull(downloadGeneratorExecutor);
+        this.projectDetailsManager = checkNotNull(projectDetailsManager);
+        this.projectDownloadCache = checkNotNull(projectDownloadCache);
+        this.createDownloadTaskFactory = checkNotNull(createDownloadTaskFactory);
+    }
+
+    /**
+     * Gets the download of the specified project revision in the specified format, generating it if it is not
+     * already in the cache.
+     *
+     * @param requester          The user that requested the download.
+     * @param projectId          The project.
+     * @param revisionNumber     The requested revision number.  This may be the head revision number.
+     * @param realRevisionNumber The actual number of the requested revision.  Downloads are cached under this
+     *                           revision number.
+     * @param downloadFormat     The format of the download.
+     * @return A future of the path to the cached download.  The future completes exceptionally if the download
+     * could not be generated.
+     */
+    @Nonnull
+    public CompletableFuture<Path> getDownload(@Nonnull UserId requester,
+                                               @Nonnull ProjectId projectId,
+                                               @Nonnull RevisionNumber revisionNumber,
+                                               @Nonnull RevisionNumber realRevisionNumber,
+                                               @Nonnull DownloadFormat downloadFormat) {
+        var downloadPath = projectDownloadCache.getCachedDownloadPath(projectId, realRevisionNumber, downloadFormat);
+        if(Files.exists(downloadPath)) {
+            logger.info("{} {} Download for the requested revision already exists.  Using cached download.",
+                        projectId,
+                        requester);
+            projectDownloadCache.touch(downloadPath);
+            return CompletableFuture.completedFuture(downloadPath);
+        }
+        var createdFuture = new CompletableFuture<Path>();
+        var inFlightFuture = inFlightDownloads.putIfAbsent(downloadPath, createdFuture);
+        if(inFlightFuture != null) {
+            logger.info("{} {} Download for the requested revision is already being generated.  Waiting for it.",
+                        projectId,
+                        requester);
+            return inFlightFuture;
+        }
+        // Only the request that registered the future generates the download, and removes the future
+        // once the download has been generated
+        createdFuture.whenComplete((path, throwable) -> inFlightDownloads.remove(downloadPath, createdFuture));
+        try {
+            var task = createDownloadTaskFactory.create(projectId,
+                                                        requester,
+                                                        getProjectDisplayName(projectId),
+                                                        revisionNumber,
+                                                        downloadFormat,
+                                                        downloadPath);
+            logger.info("{} {} Submitting request to create download to queue", projectId, requester);
+            downloadGeneratorExecutor.execute(() -> {
+                try {
+                    var stopwatch = Stopwatch.createStarted();
+                    task.call();
+                    logger.info("{} {} Created download after {} ms",
+                                projectId,
+                                requester,
+                                stopwatch.elapsed(MILLISECONDS));
+                    projectDownloadCache.evictIfNecessary(downloadPath);
+                    createdFuture.complete(downloadPath);
+                } catch(Throwable t) {
+                    createdFuture.completeExceptionally(t);
+                }
+            });
+        } catch(RejectedExecutionException e) {
+            logger.info("{} {} Generate download request rejected", projectId, requester);
+            createdFuture.completeExceptionally(e);
+        } catch(RuntimeException e) {
+            createdFuture.completeExceptionally(e);
+        }
+        return createdFuture;
+    }
+
+    private String getProjectDisplayName(@Nonnull ProjectId projectId) {
+        return projectDetailsManager.getProjectDetails(projectId)
+                                    .getDisplayName();
+    }
+}
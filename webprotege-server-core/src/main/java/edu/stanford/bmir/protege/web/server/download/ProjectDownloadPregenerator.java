@@ -0,0 +1,86 @@
+package edu.stanford.bmir.protege.web.server.download;
+
+import edu.stanford.bmir.protege.web.server.revision.Revision;
+import edu.stanford.bmir.protege.web.shared.inject.ProjectSingleton;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Generates a download of the revision that is created by a large commit, in the default download format, in the
+ * background, so that the next request for the download of the project is served from the download cache.  The
+ * download is generated for the revision itself, rather than for the head revision, because the download is cached
+ * under the number of the revision and later commits may have moved the head on by the time that it is generated.
+ */
+@ProjectSingleton
+public class ProjectDownloadPregenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProjectDownloadPregenerator.class);
+
+    @Nonnull
+    private final ProjectId projectId;
+
+    @Nonnull
+    private final ProjectDownloadGenerator projectDownloadGenerator;
+
+    private final int changeThreshold;
+
+    /**
+     * The most recent background generation.  Commits that are made while this is in progress do not start another
+     * generation, so that a series of large commits does not fill up the download generator queue.
+     */
+    @Nonnull
+    private CompletableFuture<Path> pregeneration = CompletableFuture.completedFuture(null);
+
+    @Inject
+    public ProjectDownloadPregenerator(@Nonnull ProjectId projectId,
+                                       @Nonnull ProjectDownloadGenerator projectDownloadGenerator,
+                                       @DownloadPregenerationChangeThreshold int changeThreshold) {
+        this.projectId = checkNotNull(projectId);
+        this.projectDownloadGenerator = checkNotNull(projectDownloadGenerator);
+        this.changeThreshold = changeThreshold;
+    }
+
+    /**
+     * Handles a revision that has been committed to the project.  If the revision contains at least the threshold
+     * number of changes then a download of the revision is generated in the background.
+     *
+     * @param revision The revision.
+     */
+    public synchronized void handleRevision(@Nonnull Revision revision) {
+        if(changeThreshold == 0 || revision.getSize() < changeThreshold) {
+            return;
+        }
+        if(!pregeneration.isDone()) {
+            logger.info("{} A download is already being generated in the background.  Not generating a download for revision {}.",
+                        projectId,
+                        revision.getRevisionNumber().getValue());
+            return;
+        }
+        logger.info("{} Revision {} contains {} changes.  Generating a download in the background.",
+                    projectId,
+                    revision.getRevisionNumber().getValue(),
+                    revision.getSize());
+        pregeneration = projectDownloadGenerator.getDownload(revision.getUserId(),
+                                                         projectId,
+                                                         revision.getRevisionNumber(),
+                                                         revision.getRevisionNumber(),
+                                                         DownloadFormat.getDefaultFormat());
+        pregeneration.whenComplete((path, throwable) -> {
+            if(throwable != null) {
+                logger.info("{} Could not generate download in the background: {}", projectId, throwable.getMessage());
+            }
+        });
+    }
+}
@@ -7,7 +7,7 @@ import edu.stanford.bmir.protege.web.server.revision.RevisionManager;
 import edu.stanford.bmir.protege.web.server.util.MemoryMonitor;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
-import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyID;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 import org.semanticweb.owlapi.model.OWLOntologyStorageException;
 import org.semanticweb.owlapi.util.OntologyIRIShortFormProvider;
@@ -50,6 +50,9 @@ public class ProjectDownloader {
     @Nonnull
     private final RevisionManager revisionManager;
 
+    @Nonnull
+    private final HeadRevisionExporter headRevisionExporter;
+
     @Nonnull
     private final ProjectId projectId;
 
@@ -59,6 +62,8 @@ public class ProjectDownloader {
      * @param revisionManager         The revision manager of project to be downloaded.  Not <code>null</code>.
      * @param revision                The revision of the project to be downloaded.
      * @param format                  The format which the project should be downloaded in.
+     * @param headRevisionExporter    The exporter that is used to stream the head revision for formats that it
+     *                                supports.
      * @param prefixDeclarationsStore The prefix declarations store that is used to retrieve customised prefixes
      */
     @AutoFactory
@@ -68,10 +73,12 @@ public class ProjectDownloader {
                              @Nonnull RevisionNumber revision,
                              @Nonnull DownloadFormat format,
                              @Nonnull RevisionManager revisionManager,
+                             @Nonnull HeadRevisionExporter headRevisionExporter,
                              @Provided @Nonnull PrefixDeclarationsStore prefixDeclarationsStore) {
         this.projectId = checkNotNull(projectId);
         this.revision = checkNotNull(revision);
         this.revisionManager = checkNotNull(revisionManager);
+        this.headRevisionExporter = checkNotNull(headRevisionExporter);
         this.format = checkNotNull(format);
         this.fileName = checkNotNull(fileName);
         this.prefixDeclarationsStore = checkNotNull(prefixDeclarationsStore);
@@ -91,6 +98,11 @@ public class ProjectDownloader {
                                        @Nonnull RevisionNumber revisionNumber,
                                        @Nonnull OutputStream outputStream,
                                        @Nonnull DownloadFormat format) throws IOException, OWLOntologyStorageException {
+        if(revisionNumber.isHead() && HeadRevisionExporter.isSupportedFormat(format)) {
+            // Stream straight from the project indexes rather than building a copy of the ontologies in memory
+            streamHeadRevisionToStream(projectDisplayName, format, outputStream);
+            return;
+        }
         OWLOntologyManager manager = revisionManager.getOntologyManagerForRevision(revisionNumber);
         saveOntologiesToStream(projectDisplayName, manager, format, outputStream, revisionNumber);
     }
@@ -102,9 +114,7 @@ public class ProjectDownloader {
                                         @Nonnull RevisionNumber revisionNumber) throws IOException, OWLOntologyStorageException {
         // TODO: Separate object
         try(ZipOutputStream zipOutputStream = new ZipOutputStream(new BufferedOutputStream(outputStream))) {
-            String baseFolder = projectDisplayName.replace(" ", "-") + "-ontologies-" + format.getExtension();
-            baseFolder = baseFolder.toLowerCase();
-            baseFolder = baseFolder + "-REVISION-" + (revisionNumber.isHead() ? "HEAD" : revisionNumber.getValue());
+            String baseFolder = getBaseFolder(projectDisplayName, format, revisionNumber);
             for(var ontology : manager.getOntologies()) {
                 var documentFormat = format.getDocumentFormat();
                 if(documentFormat.isPrefixOWLOntologyFormat()) {
@@ -112,10 +122,7 @@ public class ProjectDownloader {
                     Map<String, String> prefixes = prefixDeclarationsStore.find(projectId).getPrefixes();
                     prefixes.forEach(prefixDocumentFormat::setPrefix);
                 }
-                var ontologyShortForm = getOntologyShortForm(ontology);
-                var ontologyDocumentFileName = ontologyShortForm.replace(":", "_");
-                ZipEntry zipEntry = new ZipEntry(baseFolder + "/" + ontologyDocumentFileName + "." + format.getExtension());
-                zipOutputStream.putNextEntry(zipEntry);
+                zipOutputStream.putNextEntry(getZipEntry(baseFolder, ontology.getOntologyID(), format));
                 ontology.getOWLOntologyManager().saveOntology(ontology, documentFormat, zipOutputStream);
                 zipOutputStream.closeEntry();
                 logMemoryUsage();
@@ -125,12 +132,56 @@ public class ProjectDownloader {
         }
     }
 
+    private void streamHeadRevisionToStream(@Nonnull String projectDisplayName,
+                                            @Nonnull DownloadFormat format,
+                                            @Nonnull OutputStream outputStream) throws IOException {
+        try(ZipOutputStream zipOutputStream = new ZipOutputStream(new BufferedOutputStream(outputStream))) {
+            String baseFolder = getBaseFolder(projectDisplayName, format, RevisionNumber.getHeadRevisionNumber());
+            headRevisionExporter.exportHeadRevision(format, new HeadRevisionExporter.OntologyDocumentOutput() {
+                @Nonnull
+                @Override
+                public OutputStream startDocument(@Nonnull OWLOntologyID ontologyId) throws IOException {
+                    zipOutputStream.putNextEntry(getZipEntry(baseFolder, ontologyId, format));
+                    return zipOutputStream;
+                }
+
+                @Override
+                public void endDocument() throws IOException {
+                    zipOutputStream.closeEntry();
+                    logMemoryUsage();
+                }
+            });
+            zipOutputStream.finish();
+            zipOutputStream.flush();
+        }
+    }
+
+    private static String getBaseFolder(@Nonnull String projectDisplayName,
+                                        @Nonnull DownloadFormat format,
+                                        @Nonnull RevisionNumber revisionNumber) {
+        String baseFolder = projectDisplayName.replace(" ", "-") + "-ontologies-" + format.getExtension();
+        baseFolder = baseFolder.toLowerCase();
+        return baseFolder + "-REVISION-" + (revisionNumber.isHead() ? "HEAD" : revisionNumber.getValue());
+    }
+
+    private static ZipEntry getZipEntry(@Nonnull String baseFolder,
+                                        @Nonnull OWLOntologyID ontologyId,
+                                        @Nonnull DownloadFormat format) {
+        var ontologyShortForm = getOntologyShortForm(ontologyId);
+        var ontologyDocumentFileName = ontologyShortForm.replace(":", "_");
+        return new ZipEntry(baseFolder + "/" + ontologyDocumentFileName + "." + format.getExtension());
+    }
+
     private void logMemoryUsage() {
         MemoryMonitor memoryMonitor = new MemoryMonitor(logger);
         memoryMonitor.monitorMemoryUsage();
     }
 
-    private String getOntologyShortForm(OWLOntology ontology) {
-        return new OntologyIRIShortFormProvider().getShortForm(ontology);
+    private static String getOntologyShortForm(OWLOntologyID ontologyId) {
+        // The same as the short form of an ontology with this id
+        if(ontologyId.getOntologyIRI().isPresent()) {
+            return new OntologyIRIShortFormProvider().getShortForm(ontologyId.getOntologyIRI().get());
+        }
+        return ontologyId.toString();
     }
 }
@@ -14,12 +14,10 @@ import edu.stanford.bmir.protege.web.shared.inject.ProjectSingleton;
 
 import javax.inject.Inject;
 import java.util.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -35,40 +33,41 @@ public class EventManager<E extends WebProtegeEvent<?>> implements HasDispose, H
 
     private static final int EVENT_LIST_SIZE_LIMIT = 200;
 
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
-
-    private final Lock readLock = lock.readLock();
-
-    private final Lock writeLock = lock.writeLock();
-
+    private static final int INITIAL_BUCKET_CAPACITY = 256;
 
+    /**
+     * Serializes posts.  Readers do not take any locks.
+     */
+    private final Lock writeLock = new ReentrantLock();
 
-    private final Queue<EventBucket> eventQueue = new LinkedList<>();
+    /**
+     * A ring buffer of event buckets.  The bucket for a tag is stored at the index given by the tag ordinal modulo the
+     * length of the buffer, which is always a power of two.  The buffer is replaced by a larger one, rather than
+     * overwriting live buckets, if it becomes full.  Slots are written before the current tag is updated, so readers
+     * that read the current tag before the buffer see every bucket up to and including the current tag.
+     */
+    private volatile EventBucket<?>[] buckets = new EventBucket<?>[INITIAL_BUCKET_CAPACITY];
 
     private final EventLifeTime eventLifeTime;
 
     private EventBus eventBus = new SimpleEventBus();
 
 
-    private EventTag currentTag = EventTag.getFirst();
+    private volatile EventTag currentTag = EventTag.getFirst();
 
-    private ScheduledExecutorService purgeSweepService = Executors.newSingleThreadScheduledExecutor(runnable -> {
-        Thread thread = Executors.defaultThreadFactory().newThread(runnable);
-        thread.setName(thread.getName().replace("thread", "event-purge-thread"));
-        return thread;
-    });
+    /**
+     * The ordinal of the oldest tag whose bucket may still be live.  Guarded by the write lock.
+     */
+    private int oldestTagOrdinal = EventTag.getFirst().next().getOrdinal();
 
     private List<HandlerRegistration> registeredHandlers = new ArrayList<>();
 
+    private final List<Consumer<EventTag>> postedTagListeners = new CopyOnWriteArrayList<>();
+
 
     @Inject
     public EventManager(EventLifeTime eventLifeTime) {
         this.eventLifeTime = checkNotNull(eventLifeTime);
-        final long eventLifeTimeInMilliseconds = eventLifeTime.getEventLifeTimeInMilliseconds();
-        purgeSweepService.scheduleAtFixedRate(new PurgeExpiredEventsTask(writeLock, eventQueue),
-                eventLifeTimeInMilliseconds,
-                eventLifeTimeInMilliseconds,
-                TimeUnit.MILLISECONDS);
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -100,11 +99,17 @@ public class EventManager<E extends WebProtegeEvent<?>> implements HasDispose, H
             // Just don't bother
             return currentTag;
         }
+        final EventTag postedTag;
         try {
             writeLock.lock();
-            currentTag = currentTag.next();
-            EventBucket<E> e = new EventBucket<>(System.currentTimeMillis(), checkNotNull(events, "events must not be null"), currentTag, eventLifeTime);
-            eventQueue.add(e);
+            final long timestamp = System.currentTimeMillis();
+            dropExpiredBuckets(timestamp);
+            postedTag = currentTag.next();
+            EventBucket<E> e = new EventBucket<>(timestamp, checkNotNull(events, "events must not be null"), postedTag, eventLifeTime);
+            EventBucket<?>[] ring = ensureCapacity(postedTag.getOrdinal());
+            ring[postedTag.getOrdinal() & (ring.length - 1)] = e;
+            // Publishes the bucket to readers
+            currentTag = postedTag;
         }
         finally {
             writeLock.unlock();
@@ -112,7 +117,50 @@ public class EventManager<E extends WebProtegeEvent<?>> implements HasDispose, H
         for(E event : new LinkedHashSet<>(events)) {
             eventBus.fireEvent(event.asGWTEvent());
         }
-        return currentTag;
+        for(Consumer<EventTag> listener : postedTagListeners) {
+            listener.accept(postedTag);
+        }
+        return postedTag;
+    }
+
+    /**
+     * Removes the expired buckets at the tail of the ring buffer.  Must be called with the write lock held.
+     */
+    private void dropExpiredBuckets(long time) {
+        EventBucket<?>[] ring = buckets;
+        int mask = ring.length - 1;
+        int currentOrdinal = currentTag.getOrdinal();
+        while(oldestTagOrdinal <= currentOrdinal) {
+            EventBucket<?> bucket = ring[oldestTagOrdinal & mask];
+            if(bucket != null && !bucket.isExpired(time)) {
+                break;
+            }
+            ring[oldestTagOrdinal & mask] = null;
+            oldestTagOrdinal++;
+        }
+    }
+
+    /**
+     * Ensures that the ring buffer can hold the live buckets along with a bucket for the specified tag ordinal.  Must
+     * be called with the write lock held.
+     * @return The ring buffer
+     */
+    private EventBucket<?>[] ensureCapacity(int tagOrdinal) {
+        EventBucket<?>[] ring = buckets;
+        int required = tagOrdinal - oldestTagOrdinal + 1;
+        if(required <= ring.length) {
+            return ring;
+        }
+        int capacity = ring.length;
+        while(capacity < required) {
+            capacity *= 2;
+        }
+        EventBucket<?>[] expandedRing = new EventBucket<?>[capacity];
+        for(int ordinal = oldestTagOrdinal; ordinal < tagOrdinal; ordinal++) {
+            expandedRing[ordinal & (capacity - 1)] = ring[ordinal & (ring.length - 1)];
+        }
+        buckets = expandedRing;
+        return expandedRing;
     }
 
     /**
@@ -123,22 +171,25 @@ public class EventManager<E extends WebProtegeEvent<?>> implements HasDispose, H
      * @return The list of live events that happened since the specified tag.  Not {@code null}.
      * @throws NullPointerException if {@code tag} is {@code null}.
      */
+    @SuppressWarnings("unchecked")
     public EventList<E> getEventsFromTag(EventTag fromTag) {
         checkNotNull(fromTag, "tag must not be null");
+        // The current tag must be read before the buffer
+        final EventTag curTag = currentTag;
+        final EventBucket<?>[] ring = buckets;
+        final int mask = ring.length - 1;
+        final int currentOrdinal = curTag.getOrdinal();
+        final long time = System.currentTimeMillis();
         List<E> resultList = new ArrayList<>();
-        final EventTag curTag;
-        try {
-            readLock.lock();
-            curTag = currentTag;
-            for (EventBucket bucket : eventQueue) {
-                if(bucket.getTag().isGreaterOrEqualTo(fromTag)) {
-                    resultList.addAll(bucket.getEvents());
-                }
+        // Seek straight to the requested tag.  Buckets older than the buffer length are never live.
+        int firstOrdinal = Math.max(fromTag.getOrdinal(), currentOrdinal - ring.length + 1);
+        for(int ordinal = firstOrdinal; ordinal <= currentOrdinal; ordinal++) {
+            EventBucket<?> bucket = ring[ordinal & mask];
+            // The slot may have been cleared or reused if the bucket expired
+            if(bucket != null && bucket.getTag().getOrdinal() == ordinal && !bucket.isExpired(time)) {
+                resultList.addAll((List<E>) bucket.getEvents());
             }
         }
-        finally {
-            readLock.unlock();
-        }
         final EventTag toTag = curTag.next();
         if(resultList.isEmpty()) {
             return new EventList<>(fromTag, toTag);
@@ -149,13 +200,7 @@ public class EventManager<E extends WebProtegeEvent<?>> implements HasDispose, H
     }
 
     public EventTag getCurrentTag() {
-        try {
-            readLock.lock();
-            return currentTag;
-        }
-        finally {
-            readLock.unlock();
-        }
+        return currentTag;
     }
 
 
@@ -165,6 +210,15 @@ public class EventManager<E extends WebProtegeEvent<?>> implements HasDispose, H
         return handlerRegistration;
     }
 
+    /**
+     * Adds a listener that is notified with the tag of each list of events that is posted to this manager.  The
+     * listener is called on the posting thread, after the events are available from {@link #getEventsFromTag(EventTag)}.
+     * @param listener The listener.  Not {@code null}.
+     */
+    public void addPostedTagListener(Consumer<EventTag> listener) {
+        postedTagListeners.add(checkNotNull(listener));
+    }
+
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -222,8 +276,8 @@ public class EventManager<E extends WebProtegeEvent<?>> implements HasDispose, H
             return tag;
         }
 
-        public boolean isExpired() {
-            final long elapsedTime = System.currentTimeMillis() - timestamp;
+        public boolean isExpired(long time) {
+            final long elapsedTime = time - timestamp;
             return elapsedTime > eventLifeTime.getEventLifeTimeInMilliseconds();
         }
 
@@ -238,57 +292,10 @@ public class EventManager<E extends WebProtegeEvent<?>> implements HasDispose, H
     }
 
 
-    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-
-    private static class PurgeExpiredEventsTask extends TimerTask {
-
-        private final Lock writeLock;
-
-        private final Queue<EventBucket> queue;
-
-        public PurgeExpiredEventsTask(Lock writeLock, Queue<EventBucket> queue) {
-            this.writeLock = writeLock;
-            this.queue = queue;
-        }
-
-        @Override
-        public void run() {
-            removeExpiredEvents();
-        }
-
-        private void removeExpiredEvents() {
-            try {
-                writeLock.lock();
-                while (true) {
-                    if (queue.isEmpty()) {
-                        break;
-                    }
-                    EventBucket bucket = queue.peek();
-                    if (bucket.isExpired()) {
-                        queue.poll();
-                    }
-                    else {
-                        break;
-                    }
-                }
-            }
-            finally {
-                writeLock.unlock();
-            }
-        }
-    }
-
     @Override
     public void dispose() {
-        if(purgeSweepService != null) {
-            purgeSweepService.shutdown();
-            purgeSweepService = null;
-        }
         removeRegisteredHandlersFromEventBus();
+        postedTagListeners.clear();
     }
 
     private void removeRegisteredHandlersFromEventBus() {
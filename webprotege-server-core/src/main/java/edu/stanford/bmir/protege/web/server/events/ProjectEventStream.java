@@ -0,0 +1,44 @@
+package edu.stanford.bmir.protege.web.server.events;
+
+import edu.stanford.bmir.protege.web.shared.event.EventTag;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ * <p>
+ *     An open connection to a client that is notified when events are posted to a project.  Notifications only
+ *     carry the tag of the posted events.  Clients retrieve the events themselves, which means that the normal
+ *     access checks are applied to the events that they retrieve.
+ * </p>
+ */
+public interface ProjectEventStream {
+
+    /**
+     * Gets the id of the project whose events this stream is notified of
+     */
+    @Nonnull
+    ProjectId getProjectId();
+
+    /**
+     * Notifies the client that events with the specified tag have been posted
+     * @param tag The tag of the posted events
+     * @throws IOException if the client could not be notified
+     */
+    void sendEventTag(@Nonnull EventTag tag) throws IOException;
+
+    /**
+     * Sends a heartbeat to the client to keep the connection open
+     * @throws IOException if the heartbeat could not be sent
+     */
+    void sendHeartbeat() throws IOException;
+
+    /**
+     * Closes this stream.  Closing a stream that is already closed has no effect.
+     */
+    void close();
+}
@@ -0,0 +1,15 @@
+package edu.stanford.bmir.protege.web.server.events;
+
+import javax.inject.Qualifier;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Qualifies the executor that writes to project event streams
+ */
+@Qualifier
+public @interface ProjectEventStreamExecutor {
+
+}
@@ -0,0 +1,15 @@
+package edu.stanford.bmir.protege.web.server.events;
+
+import javax.inject.Qualifier;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Qualifies the interval, in milliseconds, between heartbeats sent to open project event streams
+ */
+@Qualifier
+public @interface ProjectEventStreamHeartbeatInterval {
+
+}
@@ -0,0 +1,183 @@
+package edu.stanford.bmir.protege.web.server.events;
+
+import edu.stanford.bmir.protege.web.shared.HasDispose;
+import edu.stanford.bmir.protege.web.shared.event.EventTag;
+import edu.stanford.bmir.protege.web.shared.inject.ApplicationSingleton;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ * <p>
+ *     Keeps track of the open {@link ProjectEventStream}s on this node.  Streams are notified when events are posted
+ *     to their project and are sent heartbeats so that idle connections are not closed by proxies.  The number of
+ *     open streams is capped.  Clients that cannot open a stream fall back to polling for events.
+ * </p>
+ */
+@ApplicationSingleton
+public class ProjectEventStreamManager implements HasDispose {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProjectEventStreamManager.class);
+
+    private final int maxConnections;
+
+    private final long heartbeatInterval;
+
+    @Nonnull
+    private final ScheduledExecutorService streamExecutor;
+
+    private final ConcurrentMap<ProjectId, Set<ProjectEventStream>> streamsByProject = new ConcurrentHashMap<>();
+
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    @Inject
+    public ProjectEventStreamManager(@ProjectEventStreamMaxConnections int maxConnections,
+                                     @ProjectEventStreamHeartbeatInterval long heartbeatInterval,
+                                     @Nonnull @ProjectEventStreamExecutor ScheduledExecutorService streamExecutor) {
+        this.maxConnections = maxConnections;
+        this.heartbeatInterval = heartbeatInterval;
+        this.streamExecutor = checkNotNull(streamExecutor);
+    }
+
+    public void start() {
+        if(maxConnections == 0) {
+            logger.info("Project event streams are disabled.  Clients will poll for project events.");
+            return;
+        }
+        logger.info("Accepting up to {} project event streams with a heartbeat interval of {} ms",
+                    maxConnections,
+                    heartbeatInterval);
+        streamExecutor.scheduleWithFixedDelay(this::sendHeartbeats,
+                                              heartbeatInterval,
+                                              heartbeatInterval,
+                                              TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens the specified stream, provided that the maximum number of streams are not already open.
+     * @param stream The stream
+     * @return true if the stream was opened, or false if the maximum number of streams are already open, in which
+     * case the client should poll for events instead.
+     */
+    public boolean open(@Nonnull ProjectEventStream stream) {
+        checkNotNull(stream);
+        int count;
+        do {
+            count = connectionCount.get();
+            if(count >= maxConnections) {
+                logger.info("{} Rejected project event stream.  The maximum number of streams ({}) are open.",
+                            stream.getProjectId(),
+                            maxConnections);
+                return false;
+            }
+        } while(!connectionCount.compareAndSet(count, count + 1));
+        streamsByProject.compute(stream.getProjectId(), (projectId, streams) -> {
+            var projectStreams = streams != null ? streams : ConcurrentHashMap.<ProjectEventStream>newKeySet();
+            projectStreams.add(stream);
+            return projectStreams;
+        });
+        return true;
+    }
+
+    /**
+     * Closes the specified stream so that it is no longer notified of events
+     * @param stream The stream
+     */
+    public void close(@Nonnull ProjectEventStream stream) {
+        checkNotNull(stream);
+        streamsByProject.computeIfPresent(stream.getProjectId(), (projectId, streams) -> {
+            if(streams.remove(stream)) {
+                connectionCount.decrementAndGet();
+            }
+            return streams.isEmpty() ? null : streams;
+        });
+        stream.close();
+    }
+
+    /**
+     * Determines whether any streams are open for the specified project
+     * @param projectId The project
+     */
+    public boolean hasOpenStreams(@Nonnull ProjectId projectId) {
+        var streams = streamsByProject.get(checkNotNull(projectId));
+        return streams != null && !streams.isEmpty();
+    }
+
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * Notifies the open streams for the specified project that events have been posted to the project.  Streams
+     * are notified asynchronously so that slow clients do not hold up the posting thread.
+     * @param projectId The project
+     * @param tag The tag of the posted events
+     */
+    public void handleEventsPosted(@Nonnull ProjectId projectId, @Nonnull EventTag tag) {
+        var streams = streamsByProject.get(projectId);
+        if(streams == null) {
+            return;
+        }
+        for(var stream : streams) {
+            execute(stream, () -> stream.sendEventTag(tag));
+        }
+    }
+
+    private void sendHeartbeats() {
+        for(var streams : streamsByProject.values()) {
+            for(var stream : streams) {
+                execute(stream, stream::sendHeartbeat);
+            }
+        }
+    }
+
+    private void execute(ProjectEventStream stream, StreamTask task) {
+        try {
+            streamExecutor.execute(() -> {
+                try {
+                    task.run();
+                } catch(IOException e) {
+                    logger.debug("{} Closing project event stream: {}", stream.getProjectId(), e.getMessage());
+                    close(stream);
+                } catch(RuntimeException e) {
+                    logger.warn("{} Error writing to project event stream", stream.getProjectId(), e);
+                    close(stream);
+                }
+            });
+        } catch(RejectedExecutionException e) {
+            // Shutting down
+            close(stream);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        for(var streams : new ArrayList<>(streamsByProject.values())) {
+            for(var stream : streams) {
+                close(stream);
+            }
+        }
+    }
+
+    private interface StreamTask {
+
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,15 @@
+package edu.stanford.bmir.protege.web.server.events;
+
+import javax.inject.Qualifier;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Qualifies the maximum number of project event streams that may be open on this node
+ */
+@Qualifier
+public @interface ProjectEventStreamMaxConnections {
+
+}
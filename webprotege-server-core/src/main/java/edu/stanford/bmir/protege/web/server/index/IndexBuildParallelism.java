@@ -0,0 +1,16 @@
+package edu.stanford.bmir.protege.web.server.index;
+
+import javax.inject.Qualifier;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-10
+ *
+ * Qualifies the number of threads that are used to build the indexes for a project when the project is loaded.
+ * A value of zero means that each index is built on a single thread.
+ */
+@Qualifier
+public @interface IndexBuildParallelism {
+
+}
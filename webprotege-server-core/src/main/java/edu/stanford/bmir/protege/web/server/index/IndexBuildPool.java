@@ -0,0 +1,15 @@
+package edu.stanford.bmir.protege.web.server.index;
+
+import javax.inject.Qualifier;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-10
+ *
+ * Qualifies the fork-join pool that is shared by parallel index builds
+ */
+@Qualifier
+public @interface IndexBuildPool {
+
+}
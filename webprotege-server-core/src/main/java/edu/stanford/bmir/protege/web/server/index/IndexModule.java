@@ -224,6 +224,12 @@ public class IndexModule {
         return impl;
     }
 
+    @ProjectSingleton
+    @Provides
+    OntologyImportsIndex provideOntologyImportsIndex(OntologyImportsIndexImpl impl) {
+        return impl;
+    }
+
     @Provides
     OntologyAxiomsIndex provideOntologyAxiomsIndex(OntologyAxiomsIndexImpl impl) {
         return impl;
@@ -394,6 +400,12 @@ public class IndexModule {
         return impl;
     }
 
+    @Provides
+    @IntoSet
+    public UpdatableIndex provideOntologyImportsIndexImplIntoSet(OntologyImportsIndexImpl impl) {
+        return impl;
+    }
+
     @Provides
     @IntoSet
     public UpdatableIndex provideSameIndividualAxiomsIndexImplIntoSet(SameIndividualAxiomsIndexImpl impl) {
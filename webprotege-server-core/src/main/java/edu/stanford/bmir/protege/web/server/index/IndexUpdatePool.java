@@ -0,0 +1,15 @@
+package edu.stanford.bmir.protege.web.server.index;
+
+import javax.inject.Qualifier;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Qualifies the fork-join pool that the indexes of a project are updated on when changes are applied
+ */
+@Qualifier
+public @interface IndexUpdatePool {
+
+}
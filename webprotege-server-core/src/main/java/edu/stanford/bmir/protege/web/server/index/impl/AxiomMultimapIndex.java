@@ -1,5 +1,7 @@
 package edu.stanford.bmir.protege.web.server.index.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.SetMultimap;
@@ -13,7 +15,9 @@ import javax.annotation.Nullable;
 import javax.validation.constraints.Null;
 import java.io.PrintStream;
 import java.util.ArrayDeque;
+import java.util.HashSet;
 import java.util.Queue;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -22,14 +26,45 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Matthew Horridge
  * Stanford Center for Biomedical Informatics Research
  * 2019-09-07
+ *
+ * Indexes axioms by key values that are extracted from the axioms.  Writers are serialized and apply changes to a
+ * backing multimap in place.  Readers are served immutable snapshots of the axioms for each key, which are published
+ * through a bounded cache.  A snapshot is taken under the writer lock the first time that a key is read after it
+ * has been modified, so the axioms for a key are copied at most once for each batch of changes, and only if the key
+ * is read.  Reading a key that has an up to date snapshot does not take any locks.  Snapshots of the keys that a
+ * batch touches are discarded at the end of the batch, so readers never see a partially updated key, although a
+ * reader that looks up several keys whilst a batch is being applied may see some keys before the batch and some
+ * keys after it.  Snapshots are evicted once the axioms that they hold exceed {@link #MAX_SNAPSHOT_WEIGHT}, and an
+ * evicted snapshot is simply taken again the next time that its key is read.
  */
 public class AxiomMultimapIndex<V, A extends OWLAxiom> {
 
+    /**
+     * The maximum number of axioms, across all keys, that are held in snapshots
+     */
+    private static final long MAX_SNAPSHOT_WEIGHT = 100_000;
+
     private final AxiomChangeHandler axiomChangeHandler = new AxiomChangeHandler();
 
+    /**
+     * The axioms for each key.  Guarded by this object's lock.
+     */
     @Nonnull
     private final Multimap<Key<V>, A> backingMap;
 
+    /**
+     * Snapshots of the axioms for the keys that have been read since they were last modified
+     */
+    private final Cache<Key<V>, ImmutableList<A>> snapshots = Caffeine.newBuilder()
+                                                                      .maximumWeight(MAX_SNAPSHOT_WEIGHT)
+                                                                      .<Key<V>, ImmutableList<A>>weigher((key, snapshot) -> 1 + snapshot.size())
+                                                                      .build();
+
+    /**
+     * The keys that have been touched by the batch of changes that is being applied
+     */
+    private final Set<Key<V>> touchedKeys = new HashSet<>();
+
     @Nullable
     private final KeyValueExtractor<V, A> unaryKeyValueExtractor;
 
@@ -41,6 +76,8 @@ public class AxiomMultimapIndex<V, A extends OWLAxiom> {
 
     private final Queue<ImmutableList<OntologyChange>> changeQueue = new ArrayDeque<>();
 
+    private volatile boolean queuedChanges = false;
+
     private volatile boolean lazy = false;
 
     private boolean allowDuplicates = true;
@@ -124,6 +161,7 @@ public class AxiomMultimapIndex<V, A extends OWLAxiom> {
     }
 
     private void handleOntologyChange(@Nonnull AxiomChange change, Key<V> key, A ax) {
+        touchedKeys.add(key);
         if(change.isAddAxiom()) {
             // Backing map may/may not be a set
             // If it is a set then we just added the key/axiom pair
@@ -144,24 +182,40 @@ public class AxiomMultimapIndex<V, A extends OWLAxiom> {
         return unaryKeyValueExtractor.extractValue(ax);
     }
 
-    public synchronized Stream<A> getAxioms(@Nonnull V value, @Nonnull OWLOntologyID ontologyId) {
+    public Stream<A> getAxioms(@Nonnull V value, @Nonnull OWLOntologyID ontologyId) {
         var key = Key.get(ontologyId, value);
-        if(!changeQueue.isEmpty()) {
+        if(queuedChanges) {
             applyQueuedChanges();
         }
-        return ImmutableList.copyOf(backingMap.get(key))
-                            .stream();
+        var snapshot = snapshots.getIfPresent(key);
+        if(snapshot == null) {
+            snapshot = takeSnapshot(key);
+        }
+        return snapshot.stream();
+    }
+
+    private synchronized ImmutableList<A> takeSnapshot(@Nonnull Key<V> key) {
+        var snapshot = snapshots.getIfPresent(key);
+        if(snapshot == null) {
+            snapshot = ImmutableList.copyOf(backingMap.get(key));
+            snapshots.put(key, snapshot);
+        }
+        return snapshot;
     }
 
-    private void applyQueuedChanges() {
+    private synchronized void applyQueuedChanges() {
         while(!changeQueue.isEmpty()) {
             var changes = changeQueue.poll();
             axiomChangeHandler.handleOntologyChanges(changes);
         }
+        snapshots.invalidateAll(touchedKeys);
+        touchedKeys.clear();
+        queuedChanges = false;
     }
 
     public synchronized void applyChanges(@Nonnull ImmutableList<OntologyChange> changes) {
         changeQueue.add(changes);
+        queuedChanges = true;
         if(!lazy) {
             applyQueuedChanges();
         }
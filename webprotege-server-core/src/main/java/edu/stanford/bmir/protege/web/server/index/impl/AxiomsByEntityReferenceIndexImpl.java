@@ -33,7 +33,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * 2019-08-07
  */
 @ProjectSingleton
-public class AxiomsByEntityReferenceIndexImpl implements AxiomsByEntityReferenceIndex, OntologyAxiomsSignatureIndex, ProjectAxiomsSignatureIndex, UpdatableIndex {
+public class AxiomsByEntityReferenceIndexImpl implements AxiomsByEntityReferenceIndex, OntologyAxiomsSignatureIndex, ProjectAxiomsSignatureIndex, ShardableIndex<AxiomsByEntityReferenceIndexImpl> {
 
 
     private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
@@ -280,6 +280,34 @@ public class AxiomsByEntityReferenceIndexImpl implements AxiomsByEntityReference
         }
     }
 
+    @Nonnull
+    @Override
+    public AxiomsByEntityReferenceIndexImpl createShard() {
+        return new AxiomsByEntityReferenceIndexImpl(entityProvider);
+    }
+
+    @Override
+    public void mergeShards(@Nonnull Collection<AxiomsByEntityReferenceIndexImpl> shards) {
+        try {
+            writeLock.lock();
+            for(var shard : shards) {
+                shard.readLock.lock();
+                try {
+                    byClass.putAll(shard.byClass);
+                    byObjectProperty.putAll(shard.byObjectProperty);
+                    byDataProperty.putAll(shard.byDataProperty);
+                    byAnnotationProperty.putAll(shard.byAnnotationProperty);
+                    byIndividual.putAll(shard.byIndividual);
+                    byDatatype.putAll(shard.byDatatype);
+                } finally {
+                    shard.readLock.unlock();
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
 
     protected interface Key {
 
@@ -116,4 +116,20 @@ public class AxiomsByTypeIndexImpl implements AxiomsByTypeIndex, UpdatableIndex
                          .unlock();
         }
     }
+
+    /**
+     * Gets the number of axioms in this index, across all ontologies
+     */
+    public int getAxiomCount() {
+        try {
+            readWriteLock.readLock()
+                         .lock();
+            return axiomTypeList.stream()
+                                .mapToInt(SetMultimap::size)
+                                .sum();
+        } finally {
+            readWriteLock.readLock()
+                         .unlock();
+        }
+    }
 }
@@ -10,11 +10,18 @@ import com.google.common.graph.Graph;
 import com.google.common.graph.GraphBuilder;
 import edu.stanford.bmir.protege.web.server.change.OntologyChange;
 import edu.stanford.bmir.protege.web.server.index.DependentIndex;
-import edu.stanford.bmir.protege.web.server.index.IndexUpdatingService;
+import edu.stanford.bmir.protege.web.server.index.IndexBuildParallelism;
+import edu.stanford.bmir.protege.web.server.index.IndexBuildPool;
+import edu.stanford.bmir.protege.web.server.index.IndexUpdatePool;
+import edu.stanford.bmir.protege.web.server.logging.Markers;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskScheduler;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskType;
+import edu.stanford.bmir.protege.web.server.revision.OntologySnapshot;
 import edu.stanford.bmir.protege.web.server.revision.Revision;
 import edu.stanford.bmir.protege.web.server.revision.RevisionManager;
 import edu.stanford.bmir.protege.web.shared.inject.ProjectSingleton;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,8 +30,8 @@ import javax.inject.Inject;
 import java.lang.management.ManagementFactory;
 import java.util.Collection;
 import java.util.Set;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.ImmutableList.toImmutableList;
@@ -33,35 +40,65 @@ import static com.google.common.collect.ImmutableList.toImmutableList;
  * Matthew Horridge
  * Stanford Center for Biomedical Informatics Research
  * 2019-08-09
+ *
+ * Updates the indexes of a project with changes.  Indexes of the same rank are updated concurrently on the index update
+ * pool, which is separate from the project task pool, so that updating the indexes from a project task does not wait
+ * for tasks that are queued behind it.  The update tasks are recorded in the project task statistics as
+ * {@link ProjectTaskType#INDEX_UPDATE} tasks.
  */
 @ProjectSingleton
 public class IndexUpdater {
 
     private static final Logger logger = LoggerFactory.getLogger(IndexUpdater.class);
 
+    /**
+     * The number of revisions that must be replayed when building the indexes before a fresh
+     * snapshot of the root indexes is saved.
+     */
+    private static final int SNAPSHOT_REVISION_THRESHOLD = 100;
+
     @Nonnull
     private final RevisionManager revisionManager;
 
     private final Collection<UpdatableIndex> indexes;
 
     @Nonnull
-    private final ExecutorService indexUpdaterService;
+    private final ProjectTaskScheduler projectTaskScheduler;
 
     @Nonnull
     private final ProjectId projectId;
 
+    @Nonnull
+    private final RootIndexSnapshotManager rootIndexSnapshotManager;
+
+    private final int buildParallelism;
+
+    @Nonnull
+    private final ForkJoinPool buildPool;
+
+    @Nonnull
+    private final ForkJoinPool updatePool;
+
     private boolean builtIndexes = false;
 
     @AutoFactory
     @Inject
     public IndexUpdater(@Provided @Nonnull RevisionManager revisionManager,
                         @Provided @Nonnull Set<UpdatableIndex> indexes,
-                        @Provided @Nonnull @IndexUpdatingService ExecutorService indexUpdaterService,
-                        @Provided @Nonnull ProjectId projectId) {
+                        @Provided @Nonnull ProjectTaskScheduler projectTaskScheduler,
+                        @Provided @Nonnull ProjectId projectId,
+                        @Provided @Nonnull RootIndexSnapshotManager rootIndexSnapshotManager,
+                        @Provided @IndexBuildParallelism int buildParallelism,
+                        @Provided @Nonnull @IndexBuildPool ForkJoinPool buildPool,
+                        @Provided @Nonnull @IndexUpdatePool ForkJoinPool updatePool) {
         this.revisionManager = checkNotNull(revisionManager);
         this.indexes = checkNotNull(indexes);
-        this.indexUpdaterService = checkNotNull(indexUpdaterService);
+        this.projectTaskScheduler = checkNotNull(projectTaskScheduler);
         this.projectId = checkNotNull(projectId);
+        this.rootIndexSnapshotManager = checkNotNull(rootIndexSnapshotManager);
+        this.buildParallelism = buildParallelism;
+        this.buildPool = checkNotNull(buildPool);
+        this.updatePool = checkNotNull(updatePool);
     }
 
     private Multimap<Integer, UpdatableIndex> getRankedIndexes() {
@@ -101,10 +138,37 @@ public class IndexUpdater {
         }
         builtIndexes = true;
         var revisions = revisionManager.getRevisions();
-        var revisionChanges = revisions.stream()
-                                       .map(Revision::getChanges)
-                                       .collect(toImmutableList());
-        updateIndexesWithRevisions(revisionChanges);
+        // Start from the root index snapshot if there is a valid one, so that we only need to replay
+        // the revisions that come after the snapshot
+        var snapshot = rootIndexSnapshotManager.loadSnapshot(revisionManager);
+        var snapshotRevisionNumber = snapshot.map(OntologySnapshot::getRevisionNumber)
+                                             .orElse(RevisionNumber.getRevisionNumber(0));
+        var replayedRevisions = revisions.stream()
+                                         .filter(rev -> rev.getRevisionNumber().compareTo(snapshotRevisionNumber) > 0)
+                                         .collect(toImmutableList());
+        var revisionChanges = ImmutableList.<ImmutableList<OntologyChange>>builder();
+        snapshot.map(OntologySnapshot::getChanges)
+                .ifPresent(revisionChanges::add);
+        replayedRevisions.stream()
+                         .map(Revision::getChanges)
+                         .forEach(revisionChanges::add);
+        logger.info("{} Building indexes from {} and {} revisions",
+                    projectId,
+                    snapshot.isPresent() ? "snapshot at " + snapshotRevisionNumber : "empty indexes",
+                    replayedRevisions.size());
+        if(buildParallelism > 0) {
+            // The indexes are empty at this point, so they can be built from the net effect of the revisions
+            new ParallelIndexBuilder(projectId, buildPool).buildIndexes(getRankedIndexes(), revisionChanges.build());
+        }
+        else {
+            updateIndexesWithRevisions(revisionChanges.build());
+        }
+        if(replayedRevisions.size() >= SNAPSHOT_REVISION_THRESHOLD) {
+            // No changes can be applied until we have finished building so the indexes
+            // are guaranteed to be at the last replayed revision
+            var lastReplayedRevision = replayedRevisions.get(replayedRevisions.size() - 1);
+            rootIndexSnapshotManager.saveSnapshot(lastReplayedRevision);
+        }
     }
 
     private synchronized void updateIndexesWithRevisions(ImmutableList<ImmutableList<OntologyChange>> revisions) {
@@ -120,29 +184,20 @@ public class IndexUpdater {
     private void buildIndexesWithRevisions(int rank,
                                            Collection<UpdatableIndex> indexes,
                                            ImmutableList<ImmutableList<OntologyChange>> revisions) {
-        try {
-            var stopwatch = Stopwatch.createStarted();
-            var countDownLatch = new CountDownLatch(indexes.size());
-            indexes.forEach(index -> buildIndex(rank, index, revisions, countDownLatch));
-            countDownLatch.await();
-            stopwatch.stop();
-            logger.info("{} Built indexes in {} ms",
-                        projectId,
-                        stopwatch.elapsed()
-                                 .toMillis());
-        } catch(InterruptedException e) {
-            logger.error("{} Interrupted while building indexes", projectId);
-        }
-
-    }
-
-
-    private void buildIndex(int rank,
-                            @Nonnull UpdatableIndex index,
-                            @Nonnull ImmutableList<ImmutableList<OntologyChange>> revisions,
-                            @Nonnull CountDownLatch countDownLatch) {
-        var updaterTask = new IndexUpdaterTask(projectId, rank, index, revisions, countDownLatch);
-        indexUpdaterService.submit(updaterTask);
+        var stopwatch = Stopwatch.createStarted();
+        var tasks = indexes.stream()
+                           .map(index -> new IndexUpdaterTask(projectId, rank, index, revisions))
+                           .map(task -> projectTaskScheduler.instrument(projectId, ProjectTaskType.INDEX_UPDATE, task))
+                           .map(ForkJoinTask::adapt)
+                           .collect(toImmutableList());
+        // A failed index is logged and counted by the instrumentation, so it does not stop the other indexes
+        ParallelIndexBuilder.invoke(updatePool, ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        stopwatch.stop();
+        logger.info(Markers.PERFORMANCE,
+                    "{} Built indexes in {} ms",
+                    projectId,
+                    stopwatch.elapsed()
+                             .toMillis());
     }
 
     public synchronized void updateIndexes(ImmutableList<OntologyChange> changes) {
@@ -164,19 +219,14 @@ public class IndexUpdater {
         @Nonnull
         private final ImmutableList<ImmutableList<OntologyChange>> revisions;
 
-        @Nonnull
-        private final CountDownLatch countDownLatch;
-
         public IndexUpdaterTask(ProjectId projectId,
                                 int rank,
                                 UpdatableIndex index,
-                                @Nonnull ImmutableList<ImmutableList<OntologyChange>> revisions,
-                                @Nonnull CountDownLatch countDownLatch) {
+                                @Nonnull ImmutableList<ImmutableList<OntologyChange>> revisions) {
             this.projectId = checkNotNull(projectId);
             this.rank = rank;
             this.index = checkNotNull(index);
             this.revisions = checkNotNull(revisions);
-            this.countDownLatch = countDownLatch;
         }
 
         @Override
@@ -186,11 +236,11 @@ public class IndexUpdater {
             var threadMxBean = ManagementFactory.getThreadMXBean();
             var cpu0 = threadMxBean.getCurrentThreadCpuTime();
             revisions.forEach(index::applyChanges);
-            countDownLatch.countDown();
             var cpu1 = threadMxBean.getCurrentThreadCpuTime();
             var cpuTimeMs = (cpu1 - cpu0) / (1_000_000);
             stopwatch.stop();
-            logger.info("{}    Built {} in {} ms of user-time ({} ms wall-clock)",
+            logger.info(Markers.PERFORMANCE,
+                        "{}    Built {} in {} ms of user-time ({} ms wall-clock)",
                         projectId,
                         indexName,
                         cpuTimeMs,
@@ -0,0 +1,263 @@
+package edu.stanford.bmir.protege.web.server.index.impl;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimap;
+import edu.stanford.bmir.protege.web.server.change.AddImportChange;
+import edu.stanford.bmir.protege.web.server.change.OntologyAxiomPair;
+import edu.stanford.bmir.protege.web.server.change.OntologyChange;
+import edu.stanford.bmir.protege.web.server.logging.Markers;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-10
+ *
+ * Builds empty indexes from a list of revisions using a fork-join pool.  The flattened change stream is partitioned
+ * by the fact (ontology axiom, ontology annotation or import) that each change adds or removes, so that all changes
+ * for a given fact end up in the same partition, in their original order.  Each partition is then reduced, in
+ * parallel, to the additions of the facts that are present at the end of the stream.  Indexes of the same rank are
+ * built concurrently from these additions.  Indexes that are {@link ShardableIndex}es are built as one shard per
+ * partition, with the shards being built concurrently and then merged.
+ */
+public class ParallelIndexBuilder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelIndexBuilder.class);
+
+    /**
+     * The number of changes that a single task assigns to partitions
+     */
+    private static final int CHUNK_SIZE = 10_000;
+
+    /**
+     * The number of partitions per thread.  Having more partitions than threads evens out the work between threads.
+     */
+    private static final int PARTITIONS_PER_THREAD = 4;
+
+    @Nonnull
+    private final ProjectId projectId;
+
+    @Nonnull
+    private final ForkJoinPool pool;
+
+    public ParallelIndexBuilder(@Nonnull ProjectId projectId, @Nonnull ForkJoinPool pool) {
+        this.projectId = checkNotNull(projectId);
+        this.pool = checkNotNull(pool);
+    }
+
+    /**
+     * Builds the specified indexes, which must be empty, from the specified revisions.
+     * @param rankedIndexes The indexes keyed by rank.  Indexes of a given rank only depend on indexes of a lower rank.
+     * @param revisions The changes in each revision, in revision order
+     */
+    public void buildIndexes(@Nonnull Multimap<Integer, UpdatableIndex> rankedIndexes,
+                             @Nonnull ImmutableList<ImmutableList<OntologyChange>> revisions) {
+        var stopwatch = Stopwatch.createStarted();
+        var partitions = getNetAdditions(revisions);
+        var changeCount = revisions.stream().mapToInt(List::size).sum();
+        var additionsCount = partitions.stream().mapToInt(List::size).sum();
+        logger.info(Markers.PERFORMANCE,
+                    "{} Reduced {} changes to {} additions in {} partitions in {} ms",
+                    projectId,
+                    changeCount,
+                    additionsCount,
+                    partitions.size(),
+                    stopwatch.elapsed().toMillis());
+        var ranks = rankedIndexes.keySet().size();
+        for(var rank = 0; rank < ranks; rank++) {
+            var rankStopwatch = Stopwatch.createStarted();
+            var tasks = rankedIndexes.get(rank)
+                                     .stream()
+                                     .map(index -> ForkJoinTask.adapt(() -> buildIndex(index, partitions)))
+                                     .collect(Collectors.toList());
+            invoke(pool, ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+            logger.info(Markers.PERFORMANCE,
+                        "{} Built indexes of rank {} in {} ms",
+                        projectId,
+                        rank,
+                        rankStopwatch.elapsed().toMillis());
+        }
+        logger.info(Markers.PERFORMANCE, "{} Built indexes in parallel in {} ms", projectId, stopwatch.elapsed().toMillis());
+    }
+
+    /**
+     * Runs a task in the specified pool and waits for its result.  If the calling thread is a worker of the pool then
+     * the task is run directly by that worker, which joins its subtasks by running or stealing them rather than by
+     * blocking.  This must be used in preference to blocking on tasks that are submitted to a pool from a worker of
+     * the same pool.
+     */
+    static <T> T invoke(@Nonnull ForkJoinPool pool, @Nonnull ForkJoinTask<T> task) {
+        if(ForkJoinTask.getPool() == pool) {
+            return task.invoke();
+        }
+        return pool.invoke(task);
+    }
+
+    /**
+     * Reduces the specified revisions to the additions of the facts that are present after the last revision.
+     * @return The additions, partitioned by fact.  Applying the additions in all partitions to empty indexes,
+     * in any order, produces the same indexes as applying all revisions in order.
+     */
+    @Nonnull
+    public ImmutableList<ImmutableList<OntologyChange>> getNetAdditions(@Nonnull ImmutableList<ImmutableList<OntologyChange>> revisions) {
+        var changes = revisions.stream()
+                               .flatMap(List::stream)
+                               .collect(toImmutableList());
+        var partitionCount = pool.getParallelism() * PARTITIONS_PER_THREAD;
+        var chunkTasks = new ArrayList<ChunkTask>();
+        for(int start = 0; start < changes.size(); start += CHUNK_SIZE) {
+            chunkTasks.add(new ChunkTask(changes, start, Math.min(start + CHUNK_SIZE, changes.size()), partitionCount));
+        }
+        var reduceTasks = new ArrayList<ReduceTask>();
+        for(int partition = 0; partition < partitionCount; partition++) {
+            reduceTasks.add(new ReduceTask(chunkTasks, partition));
+        }
+        return invoke(pool, new RecursiveTask<>() {
+            @Override
+            protected ImmutableList<ImmutableList<OntologyChange>> compute() {
+                ForkJoinTask.invokeAll(chunkTasks);
+                ForkJoinTask.invokeAll(reduceTasks);
+                return reduceTasks.stream()
+                                  .map(ForkJoinTask::join)
+                                  .collect(toImmutableList());
+            }
+        });
+    }
+
+    private void buildIndex(@Nonnull UpdatableIndex index,
+                            @Nonnull ImmutableList<ImmutableList<OntologyChange>> partitions) {
+        var stopwatch = Stopwatch.createStarted();
+        if(index instanceof ShardableIndex) {
+            buildShardedIndex((ShardableIndex<?>) index, partitions);
+        }
+        else {
+            var additions = partitions.stream()
+                                      .flatMap(List::stream)
+                                      .collect(toImmutableList());
+            index.applyChanges(additions);
+        }
+        logger.info(Markers.PERFORMANCE,
+                    "{}    Built {} in {} ms",
+                    projectId,
+                    index.getClass().getSimpleName(),
+                    stopwatch.elapsed().toMillis());
+    }
+
+    private <I extends ShardableIndex<I>> void buildShardedIndex(@Nonnull ShardableIndex<I> index,
+                                                                 @Nonnull ImmutableList<ImmutableList<OntologyChange>> partitions) {
+        var shardTasks = partitions.stream()
+                                   .filter(partition -> !partition.isEmpty())
+                                   .map(partition -> ForkJoinTask.adapt(() -> {
+                                       var shard = index.createShard();
+                                       shard.applyChanges(partition);
+                                       return shard;
+                                   }))
+                                   .collect(Collectors.toList());
+        var shards = ForkJoinTask.invokeAll(shardTasks)
+                                 .stream()
+                                 .map(ForkJoinTask::join)
+                                 .collect(Collectors.toList());
+        index.mergeShards(shards);
+    }
+
+    private static Object getFact(@Nonnull OntologyChange change) {
+        var ontologyId = change.getOntologyId();
+        if(change.isAxiomChange()) {
+            return OntologyAxiomPair.get(ontologyId, change.getAxiomOrThrow());
+        }
+        else if(change.isAddOntologyAnnotation() || change.isRemoveOntologyAnnotation()) {
+            return List.of(ontologyId, change.getAnnotationOrThrow());
+        }
+        else {
+            return List.of(ontologyId, change.getImportsDeclarationOrThrow());
+        }
+    }
+
+    private static boolean isAddition(@Nonnull OntologyChange change) {
+        return change.isAddAxiom() || change.isAddOntologyAnnotation() || change instanceof AddImportChange;
+    }
+
+    /**
+     * Assigns a contiguous chunk of the change stream to partitions
+     */
+    private static class ChunkTask extends RecursiveTask<List<List<OntologyChange>>> {
+
+        private final ImmutableList<OntologyChange> changes;
+
+        private final int start;
+
+        private final int end;
+
+        private final int partitionCount;
+
+        private ChunkTask(ImmutableList<OntologyChange> changes, int start, int end, int partitionCount) {
+            this.changes = changes;
+            this.start = start;
+            this.end = end;
+            this.partitionCount = partitionCount;
+        }
+
+        @Override
+        protected List<List<OntologyChange>> compute() {
+            var partitions = new ArrayList<List<OntologyChange>>(partitionCount);
+            for(int i = 0; i < partitionCount; i++) {
+                partitions.add(new ArrayList<>());
+            }
+            for(int i = start; i < end; i++) {
+                var change = changes.get(i);
+                var partition = Math.floorMod(getFact(change).hashCode(), partitionCount);
+                partitions.get(partition).add(change);
+            }
+            return partitions;
+        }
+    }
+
+    /**
+     * Reduces the changes in a partition, taken from each chunk in stream order, to the additions of the facts
+     * that are present at the end of the stream
+     */
+    private static class ReduceTask extends RecursiveTask<ImmutableList<OntologyChange>> {
+
+        private final Collection<ChunkTask> chunkTasks;
+
+        private final int partition;
+
+        private ReduceTask(Collection<ChunkTask> chunkTasks, int partition) {
+            this.chunkTasks = chunkTasks;
+            this.partition = partition;
+        }
+
+        @Override
+        protected ImmutableList<OntologyChange> compute() {
+            var presentFacts = new LinkedHashMap<Object, OntologyChange>();
+            for(var chunkTask : chunkTasks) {
+                for(var change : chunkTask.join().get(partition)) {
+                    var fact = getFact(change);
+                    if(isAddition(change)) {
+                        presentFacts.put(fact, change);
+                    }
+                    else {
+                        presentFacts.remove(fact);
+                    }
+                }
+            }
+            return ImmutableList.copyOf(presentFacts.values());
+        }
+    }
+}
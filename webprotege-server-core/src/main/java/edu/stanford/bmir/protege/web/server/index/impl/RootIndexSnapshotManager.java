@@ -0,0 +1,189 @@
+package edu.stanford.bmir.protege.web.server.index.impl;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import edu.stanford.bmir.protege.web.server.change.AddAxiomChange;
+import edu.stanford.bmir.protege.web.server.change.AddImportChange;
+import edu.stanford.bmir.protege.web.server.change.AddOntologyAnnotationChange;
+import edu.stanford.bmir.protege.web.server.change.OntologyChange;
+import edu.stanford.bmir.protege.web.server.index.OntologyAnnotationsIndex;
+import edu.stanford.bmir.protege.web.server.index.OntologyAxiomsIndex;
+import edu.stanford.bmir.protege.web.server.index.OntologyImportsIndex;
+import edu.stanford.bmir.protege.web.server.inject.IndexSnapshotFileFactory;
+import edu.stanford.bmir.protege.web.server.revision.OntologySnapshot;
+import edu.stanford.bmir.protege.web.server.revision.OntologySnapshotSerializer;
+import edu.stanford.bmir.protege.web.server.revision.Revision;
+import edu.stanford.bmir.protege.web.server.revision.RevisionManager;
+import edu.stanford.bmir.protege.web.shared.inject.ProjectSingleton;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-11-02
+ *
+ * Manages a persisted snapshot of the root indexes (the ontology axioms, ontology annotations and ontology
+ * imports indexes) for a project.  A snapshot is tagged with the revision that it covers.  When a project is loaded the
+ * snapshot can be used to build the indexes without replaying the full change history - only the revisions
+ * after the snapshot revision need to be replayed.
+ */
+@ProjectSingleton
+public class RootIndexSnapshotManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(RootIndexSnapshotManager.class);
+
+    @Nonnull
+    private final ProjectId projectId;
+
+    @Nonnull
+    private final IndexSnapshotFileFactory indexSnapshotFileFactory;
+
+    @Nonnull
+    private final OntologySnapshotSerializer snapshotSerializer;
+
+    /*
+     * We use the implementation here rather than the ProjectOntologiesIndex interface.  The provider for the
+     * interface initializes the index from the full change history, which is what we are trying to avoid.
+     */
+    @Nonnull
+    private final ProjectOntologiesIndexImpl projectOntologiesIndex;
+
+    @Nonnull
+    private final OntologyAxiomsIndex ontologyAxiomsIndex;
+
+    @Nonnull
+    private final OntologyAnnotationsIndex ontologyAnnotationsIndex;
+
+    @Nonnull
+    private final OntologyImportsIndex ontologyImportsIndex;
+
+    @Inject
+    public RootIndexSnapshotManager(@Nonnull ProjectId projectId,
+                                    @Nonnull IndexSnapshotFileFactory indexSnapshotFileFactory,
+                                    @Nonnull OntologySnapshotSerializer snapshotSerializer,
+                                    @Nonnull ProjectOntologiesIndexImpl projectOntologiesIndex,
+                                    @Nonnull OntologyAxiomsIndex ontologyAxiomsIndex,
+                                    @Nonnull OntologyAnnotationsIndex ontologyAnnotationsIndex,
+                                    @Nonnull OntologyImportsIndex ontologyImportsIndex) {
+        this.projectId = checkNotNull(projectId);
+        this.indexSnapshotFileFactory = checkNotNull(indexSnapshotFileFactory);
+        this.snapshotSerializer = checkNotNull(snapshotSerializer);
+        this.projectOntologiesIndex = checkNotNull(projectOntologiesIndex);
+        this.ontologyAxiomsIndex = checkNotNull(ontologyAxiomsIndex);
+        this.ontologyAnnotationsIndex = checkNotNull(ontologyAnnotationsIndex);
+        this.ontologyImportsIndex = checkNotNull(ontologyImportsIndex);
+    }
+
+    /**
+     * Loads the persisted snapshot, if there is one, and validates it against the change history.
+     * @param revisionManager The revision manager that provides the change history
+     * @return The snapshot, or empty if there is no snapshot or if the snapshot is stale or corrupt.  A snapshot
+     * is stale if it covers a revision that is beyond the head revision or if the revision that it covers does not
+     * match the revision in the change history.  In these cases the indexes must be rebuilt from the full
+     * change history.
+     */
+    @Nonnull
+    public Optional<OntologySnapshot> loadSnapshot(@Nonnull RevisionManager revisionManager) {
+        var snapshotFile = getSnapshotFile();
+        if(!snapshotFile.exists()) {
+            logger.info("{} No root index snapshot found", projectId);
+            return Optional.empty();
+        }
+        try {
+            var stopwatch = Stopwatch.createStarted();
+            var snapshot = snapshotSerializer.readSnapshot(snapshotFile);
+            stopwatch.stop();
+            if(!isValidSnapshot(snapshot, revisionManager)) {
+                logger.info("{} Root index snapshot at {} is stale.  Indexes will be rebuilt from the change history.",
+                            projectId,
+                            snapshot.getRevisionNumber());
+                return Optional.empty();
+            }
+            logger.info("{} Loaded root index snapshot at {} ({} changes) in {} ms",
+                        projectId,
+                        snapshot.getRevisionNumber(),
+                        snapshot.getChanges().size(),
+                        stopwatch.elapsed().toMillis());
+            return Optional.of(snapshot);
+        } catch(IOException e) {
+            logger.warn("{} Could not read root index snapshot.  Indexes will be rebuilt from the change history.  Cause: {}",
+                        projectId,
+                        e.getMessage());
+            deleteSnapshot(snapshotFile);
+            return Optional.empty();
+        }
+    }
+
+    private static boolean isValidSnapshot(@Nonnull OntologySnapshot snapshot,
+                                           @Nonnull RevisionManager revisionManager) {
+        var headRevisionNumber = revisionManager.getCurrentRevision();
+        if(snapshot.getRevisionNumber().compareTo(headRevisionNumber) > 0) {
+            return false;
+        }
+        return revisionManager.getRevision(snapshot.getRevisionNumber())
+                              .map(snapshot::isSnapshotOf)
+                              .orElse(false);
+    }
+
+    /**
+     * Saves a snapshot of the current state of the root indexes.  The indexes must not be modified while the
+     * snapshot is being saved.
+     * @param revision The revision that the indexes are currently at.
+     */
+    public void saveSnapshot(@Nonnull Revision revision) {
+        checkNotNull(revision);
+        try {
+            var stopwatch = Stopwatch.createStarted();
+            var snapshot = OntologySnapshot.get(revision.getRevisionNumber(),
+                                                revision.getTimestamp(),
+                                                getSnapshotChanges());
+            snapshotSerializer.writeSnapshot(snapshot, getSnapshotFile());
+            stopwatch.stop();
+            logger.info("{} Saved root index snapshot at {} ({} changes) in {} ms",
+                        projectId,
+                        snapshot.getRevisionNumber(),
+                        snapshot.getChanges().size(),
+                        stopwatch.elapsed().toMillis());
+        } catch(IOException e) {
+            logger.error("{} Could not save root index snapshot.  Cause: {}", projectId, e.getMessage(), e);
+        }
+    }
+
+    private ImmutableList<OntologyChange> getSnapshotChanges() {
+        var changes = ImmutableList.<OntologyChange>builder();
+        projectOntologiesIndex.getOntologyIds()
+                              .forEach(ontologyId -> {
+                                  ontologyAnnotationsIndex.getOntologyAnnotations(ontologyId)
+                                                          .map(annotation -> AddOntologyAnnotationChange.of(ontologyId, annotation))
+                                                          .forEach(changes::add);
+                                  ontologyAxiomsIndex.getAxioms(ontologyId)
+                                                     .map(axiom -> AddAxiomChange.of(ontologyId, axiom))
+                                                     .forEach(changes::add);
+                              });
+        ontologyImportsIndex.getOntologyIds()
+                            .forEach(ontologyId -> ontologyImportsIndex.getImportsDeclarations(ontologyId)
+                                                                       .map(importsDeclaration -> AddImportChange.of(ontologyId, importsDeclaration))
+                                                                       .forEach(changes::add));
+        return changes.build();
+    }
+
+    private File getSnapshotFile() {
+        return indexSnapshotFileFactory.getRootIndexSnapshotFile(projectId);
+    }
+
+    private void deleteSnapshot(@Nonnull File snapshotFile) {
+        if(!snapshotFile.delete()) {
+            logger.warn("{} Could not delete root index snapshot file {}", projectId, snapshotFile);
+        }
+    }
+}
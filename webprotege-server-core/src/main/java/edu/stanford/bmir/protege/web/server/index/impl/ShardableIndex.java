@@ -0,0 +1,29 @@
+package edu.stanford.bmir.protege.web.server.index.impl;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-10
+ *
+ * An index that can be built in parallel.  Empty shards of the index are built concurrently from disjoint sets of
+ * additions and the shards are then merged into the index.  Shards are only ever built from additions, so the
+ * content of the merged index is the union of the content of the shards.
+ */
+public interface ShardableIndex<I extends ShardableIndex<I>> extends UpdatableIndex {
+
+    /**
+     * Creates an empty shard of this index.  Changes can be applied to the shard independently of this index and
+     * of any other shards.
+     */
+    @Nonnull
+    I createShard();
+
+    /**
+     * Merges the content of the specified shards into this index
+     * @param shards The shards that were created by {@link #createShard()}
+     */
+    void mergeShards(@Nonnull Collection<I> shards);
+}
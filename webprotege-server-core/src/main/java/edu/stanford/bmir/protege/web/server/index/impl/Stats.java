@@ -14,9 +14,8 @@ public class Stats {
 
     public static <K, V> void dump(String title, Multimap<K, V> index, PrintStream stream) {
         DescriptiveStatistics statistics = new DescriptiveStatistics();
-        index.keySet()
-             .stream()
-             .map(index::get)
+        index.asMap()
+             .values()
              .forEach(axioms -> statistics.addValue(axioms.size()));
         stream.println(title);
         stream.print(statistics);
@@ -3,6 +3,7 @@ package edu.stanford.bmir.protege.web.server.inject;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
 import dagger.Module;
 import dagger.Provides;
 import edu.stanford.bmir.protege.web.server.access.AccessManager;
@@ -21,28 +22,46 @@ import edu.stanford.bmir.protege.web.server.change.OntologyChangeRecordTranslato
 import edu.stanford.bmir.protege.web.server.collection.CollectionItemDataRepository;
 import edu.stanford.bmir.protege.web.server.collection.CollectionItemDataRepositoryImpl;
 import edu.stanford.bmir.protege.web.server.dispatch.ActionHandlerRegistry;
+import edu.stanford.bmir.protege.web.server.dispatch.BatchActionExecutor;
+import edu.stanford.bmir.protege.web.server.dispatch.BatchActionThreads;
 import edu.stanford.bmir.protege.web.server.dispatch.DispatchServiceExecutor;
 import edu.stanford.bmir.protege.web.server.dispatch.impl.ActionHandlerRegistryImpl;
 import edu.stanford.bmir.protege.web.server.dispatch.impl.DispatchServiceExecutorImpl;
+import edu.stanford.bmir.protege.web.server.download.DownloadCacheMaxSizeMb;
 import edu.stanford.bmir.protege.web.server.download.DownloadGeneratorExecutor;
+import edu.stanford.bmir.protege.web.server.download.DownloadPregenerationChangeThreshold;
 import edu.stanford.bmir.protege.web.server.download.FileTransferExecutor;
+import edu.stanford.bmir.protege.web.server.events.ProjectEventStreamExecutor;
+import edu.stanford.bmir.protege.web.server.events.ProjectEventStreamHeartbeatInterval;
+import edu.stanford.bmir.protege.web.server.events.ProjectEventStreamManager;
+import edu.stanford.bmir.protege.web.server.events.ProjectEventStreamMaxConnections;
 import edu.stanford.bmir.protege.web.server.form.EntityFormRepository;
 import edu.stanford.bmir.protege.web.server.form.EntityFormRepositoryImpl;
 import edu.stanford.bmir.protege.web.server.form.EntityFormSelectorRepository;
 import edu.stanford.bmir.protege.web.server.form.EntityFormSelectorRepositoryImpl;
-import edu.stanford.bmir.protege.web.server.index.IndexUpdatingService;
 import edu.stanford.bmir.protege.web.server.jackson.ObjectMapperProvider;
+import edu.stanford.bmir.protege.web.server.index.IndexBuildParallelism;
+import edu.stanford.bmir.protege.web.server.index.IndexBuildPool;
+import edu.stanford.bmir.protege.web.server.index.IndexUpdatePool;
 import edu.stanford.bmir.protege.web.server.mail.*;
 import edu.stanford.bmir.protege.web.server.mansyntax.render.*;
+import edu.stanford.bmir.protege.web.server.match.CriteriaEvaluationPool;
 import edu.stanford.bmir.protege.web.server.owlapi.NonCachingDataFactory;
 import edu.stanford.bmir.protege.web.server.permissions.ProjectPermissionsManager;
 import edu.stanford.bmir.protege.web.server.permissions.ProjectPermissionsManagerImpl;
 import edu.stanford.bmir.protege.web.server.perspective.*;
 import edu.stanford.bmir.protege.web.server.project.*;
+import edu.stanford.bmir.protege.web.server.revision.ChangeHistoryCacheSize;
+import edu.stanford.bmir.protege.web.server.revision.ChangeHistoryGroupCommitBatchSize;
+import edu.stanford.bmir.protege.web.server.revision.ChangeHistoryGroupCommitMaxLatency;
+import edu.stanford.bmir.protege.web.server.revision.ChangeHistoryLazyLoading;
+import edu.stanford.bmir.protege.web.server.revision.RevisionCheckpointInterval;
+import edu.stanford.bmir.protege.web.server.revision.StrictChangeDurability;
 import edu.stanford.bmir.protege.web.server.search.EntitySearchFilterRepository;
 import edu.stanford.bmir.protege.web.server.search.EntitySearchFilterRepositoryImpl;
 import edu.stanford.bmir.protege.web.server.sharing.ProjectSharingSettingsManager;
 import edu.stanford.bmir.protege.web.server.sharing.ProjectSharingSettingsManagerImpl;
+import edu.stanford.bmir.protege.web.server.shortform.LuceneIndexRefreshSettings;
 import edu.stanford.bmir.protege.web.server.upload.*;
 import edu.stanford.bmir.protege.web.server.user.*;
 import edu.stanford.bmir.protege.web.server.util.DisposableObjectManager;
@@ -62,11 +81,16 @@ import org.semanticweb.owlapi.model.OWLEntityProvider;
 import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
 
 import javax.annotation.Nonnull;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.Properties;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Matthew Horridge
@@ -78,7 +102,10 @@ public class ApplicationModule {
 
     private static final int MAX_FILE_DOWNLOAD_THREADS = 5;
 
-    private static final int INDEX_UPDATING_THREADS = 10;
+    private static final int MAX_PROJECT_EVENT_STREAM_THREADS = 4;
+
+    private static final long PROJECT_TASK_STATS_LOG_INTERVAL_MINUTES = 5;
+
 
 
     @ApplicationSingleton
@@ -234,6 +261,20 @@ public class ApplicationModule {
         return executor;
     }
 
+    @Provides
+    @DownloadCacheMaxSizeMb
+    @ApplicationSingleton
+    int provideDownloadCacheMaxSizeMb(WebProtegeProperties properties) {
+        return properties.getDownloadCacheMaxSizeMb();
+    }
+
+    @Provides
+    @DownloadPregenerationChangeThreshold
+    @ApplicationSingleton
+    int provideDownloadPregenerationChangeThreshold(WebProtegeProperties properties) {
+        return properties.getDownloadPregenerationChangeThreshold();
+    }
+
     @Provides
     @FileTransferExecutor
     @ApplicationSingleton
@@ -248,18 +289,108 @@ public class ApplicationModule {
     }
 
     @Provides
-    @IndexUpdatingService
     @ApplicationSingleton
-    public ExecutorService provideIndexUpdatingExecutorService(ApplicationExecutorsRegistry executorsRegistry) {
-        var executor = Executors.newFixedThreadPool(INDEX_UPDATING_THREADS, r -> {
+    public ProjectTaskScheduler provideProjectTaskScheduler(@ProjectTaskSchedulerThreads int threads,
+                                                            ApplicationExecutorsRegistry executorsRegistry) {
+        var workerPool = Executors.newFixedThreadPool(threads, r -> {
             Thread thread = Executors.defaultThreadFactory().newThread(r);
-            thread.setName(thread.getName().replace("thread", "Index-Updater"));
+            thread.setName(thread.getName().replace("thread", "Project-Task-Worker"));
             return thread;
         });
-        executorsRegistry.registerService(executor, "Index-Updater");
+        var timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = Executors.defaultThreadFactory().newThread(r);
+            thread.setName(thread.getName().replace("thread", "Project-Task-Timer"));
+            return thread;
+        });
+        var scheduler = new ProjectTaskScheduler(workerPool, timer);
+        timer.scheduleAtFixedRate(scheduler::logStats,
+                                  PROJECT_TASK_STATS_LOG_INTERVAL_MINUTES,
+                                  PROJECT_TASK_STATS_LOG_INTERVAL_MINUTES,
+                                  TimeUnit.MINUTES);
+        // Delayed tasks that are still pending on the timer at shutdown are run on the calling thread
+        executorsRegistry.registerService(timer, "Project-Task-Timer");
+        executorsRegistry.registerService(workerPool, "Project-Task-Scheduler");
+        return scheduler;
+    }
+
+    @Provides
+    @IndexBuildParallelism
+    @ApplicationSingleton
+    int provideIndexBuildParallelism(WebProtegeProperties properties) {
+        return properties.getIndexBuildParallelism();
+    }
+
+    @Provides
+    @IndexBuildPool
+    @ApplicationSingleton
+    public ForkJoinPool provideIndexBuildPool(@IndexBuildParallelism int parallelism,
+                                              ApplicationExecutorsRegistry executorsRegistry) {
+        // Workers are only started when a parallel build runs and they time out when idle
+        var pool = new ForkJoinPool(Math.max(parallelism, 1));
+        executorsRegistry.registerService(pool, "Index-Build-Pool");
+        return pool;
+    }
+
+    @Provides
+    @IndexUpdatePool
+    @ApplicationSingleton
+    public ForkJoinPool provideIndexUpdatePool(ApplicationExecutorsRegistry executorsRegistry) {
+        // Separate from the project task pool so that index updates that are made from project tasks cannot
+        // wait on tasks that are queued behind them
+        var pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        executorsRegistry.registerService(pool, "Index-Update-Pool");
+        return pool;
+    }
+
+    @Provides
+    @CriteriaEvaluationPool
+    @ApplicationSingleton
+    public ForkJoinPool provideCriteriaEvaluationPool(ApplicationExecutorsRegistry executorsRegistry) {
+        var pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        executorsRegistry.registerService(pool, "Criteria-Evaluation-Pool");
+        return pool;
+    }
+
+    @Provides
+    @ApplicationSingleton
+    LuceneIndexRefreshSettings provideLuceneIndexRefreshSettings(WebProtegeProperties properties) {
+        return LuceneIndexRefreshSettings.get(Duration.ofMillis(properties.getSearchIndexRefreshIntervalMs()),
+                                              Duration.ofMillis(properties.getSearchIndexCommitIntervalMs()),
+                                              properties.getSearchIndexCommitMaxDocuments());
+    }
+
+    @Provides
+    @BatchActionThreads
+    @ApplicationSingleton
+    int provideBatchActionThreads(WebProtegeProperties properties) {
+        return properties.getBatchActionThreads();
+    }
+
+    @Provides
+    @BatchActionExecutor
+    @ApplicationSingleton
+    public ExecutorService provideBatchActionExecutorService(@BatchActionThreads int threads,
+                                                             ApplicationExecutorsRegistry executorsRegistry) {
+        if(threads == 0) {
+            // Actions submitted to the executor are run on the request thread
+            return MoreExecutors.newDirectExecutorService();
+        }
+        var executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = Executors.defaultThreadFactory().newThread(r);
+            thread.setName(thread.getName().replace("thread", "Batch-Action-Worker"));
+            return thread;
+        });
+        executorsRegistry.registerService(executor, "Batch-Action-Service");
         return executor;
     }
 
+    @Provides
+    @ProjectTaskSchedulerThreads
+    @ApplicationSingleton
+    int provideProjectTaskSchedulerThreads(WebProtegeProperties properties) {
+        return properties.getProjectTaskSchedulerThreads();
+    }
+
     @Provides
     @UploadedOntologiesCacheService
     @ApplicationSingleton
@@ -344,6 +475,142 @@ public class ApplicationModule {
         return properties.getProjectDormantTime();
     }
 
+    @Provides
+    @RevisionCheckpointInterval
+    @ApplicationSingleton
+    int provideRevisionCheckpointInterval(WebProtegeProperties properties) {
+        return properties.getRevisionCheckpointInterval();
+    }
+
+    @Provides
+    @ChangeHistoryLazyLoading
+    @ApplicationSingleton
+    boolean provideChangeHistoryLazyLoading(WebProtegeProperties properties) {
+        return properties.isChangeHistoryLazyLoading();
+    }
+
+    @Provides
+    @ChangeHistoryCacheSize
+    @ApplicationSingleton
+    int provideChangeHistoryCacheSize(WebProtegeProperties properties) {
+        return properties.getChangeHistoryCacheSize();
+    }
+
+    @Provides
+    @ChangeHistoryGroupCommitMaxLatency
+    @ApplicationSingleton
+    long provideChangeHistoryGroupCommitMaxLatency(WebProtegeProperties properties) {
+        return properties.getChangeHistoryGroupCommitMaxLatency();
+    }
+
+    @Provides
+    @ChangeHistoryGroupCommitBatchSize
+    @ApplicationSingleton
+    int provideChangeHistoryGroupCommitBatchSize(WebProtegeProperties properties) {
+        return properties.getChangeHistoryGroupCommitBatchSize();
+    }
+
+    @Provides
+    @ProjectLoaderExecutor
+    @ApplicationSingleton
+    ExecutorService provideProjectLoaderExecutor(WebProtegeProperties properties,
+                                                 ApplicationExecutorsRegistry executorsRegistry) {
+        // Load tasks are prioritized, so that projects that users are waiting for are loaded ahead of
+        // projects that are being prewarmed
+        var threads = properties.getProjectLoadMaxConcurrent();
+        var executor = new ThreadPoolExecutor(threads, threads,
+                                              0L, TimeUnit.MILLISECONDS,
+                                              new PriorityBlockingQueue<>(),
+                                              r -> {
+                                                  Thread thread = Executors.defaultThreadFactory().newThread(r);
+                                                  thread.setName(thread.getName().replace("thread", "Project-Loader"));
+                                                  return thread;
+                                              });
+        executorsRegistry.registerService(executor, "Project-Loader-Service");
+        return executor;
+    }
+
+    @Provides
+    @ProjectLoadWaitTime
+    @ApplicationSingleton
+    long provideProjectLoadWaitTime(WebProtegeProperties properties) {
+        return properties.getProjectLoadWaitMs();
+    }
+
+    @Provides
+    @ProjectPrewarmIds
+    @ApplicationSingleton
+    ImmutableList<String> provideProjectPrewarmIds(WebProtegeProperties properties) {
+        return properties.getProjectPrewarmIds();
+    }
+
+    @Provides
+    @ProjectPrewarmRecentCount
+    @ApplicationSingleton
+    int provideProjectPrewarmRecentCount(WebProtegeProperties properties) {
+        return properties.getProjectPrewarmRecentCount();
+    }
+
+    @Provides
+    @ProjectCacheMaxHeapMb
+    @ApplicationSingleton
+    int provideProjectCacheMaxHeapMb(WebProtegeProperties properties) {
+        return properties.getProjectCacheMaxHeapMb();
+    }
+
+    @Provides
+    @ProjectEventStreamMaxConnections
+    @ApplicationSingleton
+    int provideProjectEventStreamMaxConnections(WebProtegeProperties properties) {
+        return properties.getEventsPushMaxConnections();
+    }
+
+    @Provides
+    @ProjectEventStreamHeartbeatInterval
+    @ApplicationSingleton
+    long provideProjectEventStreamHeartbeatInterval(WebProtegeProperties properties) {
+        return properties.getEventsPushHeartbeatIntervalMs();
+    }
+
+    @Provides
+    @ProjectEventStreamExecutor
+    @ApplicationSingleton
+    ScheduledExecutorService provideProjectEventStreamExecutor(ApplicationExecutorsRegistry executorsRegistry) {
+        var executor = Executors.newScheduledThreadPool(MAX_PROJECT_EVENT_STREAM_THREADS, r -> {
+            Thread thread = Executors.defaultThreadFactory().newThread(r);
+            thread.setName(thread.getName().replace("thread", "Project-Event-Stream"));
+            return thread;
+        });
+        executorsRegistry.registerService(executor, "Project-Event-Stream-Service");
+        return executor;
+    }
+
+    @Provides
+    @ApplicationSingleton
+    ProjectEventStreamManager provideProjectEventStreamManager(@ProjectEventStreamMaxConnections int maxConnections,
+                                                               @ProjectEventStreamHeartbeatInterval long heartbeatInterval,
+                                                               @ProjectEventStreamExecutor ScheduledExecutorService streamExecutor,
+                                                               ApplicationDisposablesManager disposablesManager) {
+        var manager = new ProjectEventStreamManager(maxConnections, heartbeatInterval, streamExecutor);
+        manager.start();
+        disposablesManager.register(manager);
+        return manager;
+    }
+
+    @Provides
+    @ImportChunkSize
+    @ApplicationSingleton
+    int provideImportChunkSize(WebProtegeProperties properties) {
+        return properties.getImportChunkSize();
+    }
+
+    @Provides
+    @StrictChangeDurability
+    @ApplicationSingleton
+    boolean provideStrictChangeDurability(WebProtegeProperties properties) {
+        return properties.isChangeHistoryStrictDurability();
+    }
+
     @Provides
     Ticker provideTicker() {
         return Ticker.systemTicker();
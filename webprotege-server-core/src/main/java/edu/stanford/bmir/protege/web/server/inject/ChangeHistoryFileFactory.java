@@ -21,6 +21,8 @@ public class ChangeHistoryFileFactory {
 
     private static final String CHANGE_DATA_FILE_NAME = "change-data.binary";
 
+    private static final String ENTITY_REVISION_INDEX_FILE_NAME = "entity-revision-index.binary";
+
     @Nonnull
     private final ProjectDirectoryFactory projectDirectoryFactory;
 
@@ -34,4 +36,10 @@ public class ChangeHistoryFileFactory {
         var projectDirectory = projectDirectoryFactory.getProjectDirectory(projectId);
         return new File(new File(projectDirectory, CHANGE_DATA_DIRECTORY_NAME), CHANGE_DATA_FILE_NAME);
     }
+
+    public File getEntityRevisionIndexFile(@Nonnull ProjectId projectId) {
+        checkNotNull(projectId);
+        var projectDirectory = projectDirectoryFactory.getProjectDirectory(projectId);
+        return new File(new File(projectDirectory, CHANGE_DATA_DIRECTORY_NAME), ENTITY_REVISION_INDEX_FILE_NAME);
+    }
 }
@@ -0,0 +1,36 @@
+package edu.stanford.bmir.protege.web.server.inject;
+
+import edu.stanford.bmir.protege.web.server.inject.project.ProjectDirectoryFactory;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import java.io.File;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-11-02
+ */
+public class IndexSnapshotFileFactory {
+
+    private static final String INDEX_SNAPSHOT_DIRECTORY_NAME = "index-snapshot";
+
+    private static final String ROOT_INDEX_SNAPSHOT_FILE_NAME = "root-index-snapshot.binary";
+
+    @Nonnull
+    private final ProjectDirectoryFactory projectDirectoryFactory;
+
+    @Inject
+    public IndexSnapshotFileFactory(@Nonnull ProjectDirectoryFactory projectDirectoryFactory) {
+        this.projectDirectoryFactory = checkNotNull(projectDirectoryFactory);
+    }
+
+    public File getRootIndexSnapshotFile(@Nonnull ProjectId projectId) {
+        checkNotNull(projectId);
+        var projectDirectory = projectDirectoryFactory.getProjectDirectory(projectId);
+        return new File(new File(projectDirectory, INDEX_SNAPSHOT_DIRECTORY_NAME), ROOT_INDEX_SNAPSHOT_FILE_NAME);
+    }
+}
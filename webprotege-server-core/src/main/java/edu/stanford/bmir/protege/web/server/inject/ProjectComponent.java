@@ -2,11 +2,13 @@ package edu.stanford.bmir.protege.web.server.inject;
 
 import dagger.Subcomponent;
 import edu.stanford.bmir.protege.web.server.dispatch.impl.ProjectActionHandlerRegistry;
+import edu.stanford.bmir.protege.web.server.download.HeadRevisionExporter;
 import edu.stanford.bmir.protege.web.server.events.EventManager;
 import edu.stanford.bmir.protege.web.server.form.EntityFrameFormDataComponent;
 import edu.stanford.bmir.protege.web.server.form.EntityFrameFormDataModule;
 import edu.stanford.bmir.protege.web.server.inject.project.ProjectModule;
 import edu.stanford.bmir.protege.web.server.project.ProjectDisposablesManager;
+import edu.stanford.bmir.protege.web.server.project.ProjectHeapFootprintEstimator;
 import edu.stanford.bmir.protege.web.server.revision.RevisionManager;
 import edu.stanford.bmir.protege.web.shared.event.ProjectEvent;
 import edu.stanford.bmir.protege.web.shared.inject.ProjectSingleton;
@@ -39,6 +41,10 @@ public interface ProjectComponent {
 
     RevisionManager getRevisionManager();
 
+    HeadRevisionExporter getHeadRevisionExporter();
+
+    ProjectHeapFootprintEstimator getHeapFootprintEstimator();
+
     EntityFrameFormDataComponent getEntityFrameFormDataComponentBuilder(EntityFrameFormDataModule module);
 
 }
@@ -0,0 +1,34 @@
+package edu.stanford.bmir.protege.web.server.inject;
+
+import edu.stanford.bmir.protege.web.server.inject.project.ProjectDirectoryFactory;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import java.io.File;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-11-09
+ */
+public class RevisionCheckpointDirectoryFactory {
+
+    private static final String REVISION_CHECKPOINTS_DIRECTORY_NAME = "revision-checkpoints";
+
+    @Nonnull
+    private final ProjectDirectoryFactory projectDirectoryFactory;
+
+    @Inject
+    public RevisionCheckpointDirectoryFactory(@Nonnull ProjectDirectoryFactory projectDirectoryFactory) {
+        this.projectDirectoryFactory = checkNotNull(projectDirectoryFactory);
+    }
+
+    public File getRevisionCheckpointsDirectory(@Nonnull ProjectId projectId) {
+        checkNotNull(projectId);
+        var projectDirectory = projectDirectoryFactory.getProjectDirectory(projectId);
+        return new File(projectDirectory, REVISION_CHECKPOINTS_DIRECTORY_NAME);
+    }
+}
@@ -2,8 +2,10 @@ package edu.stanford.bmir.protege.web.server.inject.project;
 
 import edu.stanford.bmir.protege.web.server.events.EventLifeTime;
 import edu.stanford.bmir.protege.web.server.events.EventManager;
+import edu.stanford.bmir.protege.web.server.events.ProjectEventStreamManager;
 import edu.stanford.bmir.protege.web.server.project.ProjectDisposablesManager;
 import edu.stanford.bmir.protege.web.shared.event.ProjectEvent;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -20,16 +22,25 @@ public class EventManagerProvider implements Provider<EventManager<ProjectEvent<
 
     public static final EventLifeTime PROJECT_EVENT_LIFE_TIME = EventLifeTime.get(60, TimeUnit.SECONDS);
 
+    private final ProjectId projectId;
+
     private final ProjectDisposablesManager projectDisposablesManager;
 
+    private final ProjectEventStreamManager projectEventStreamManager;
+
     @Inject
-    public EventManagerProvider(ProjectDisposablesManager projectDisposablesManager) {
+    public EventManagerProvider(ProjectId projectId,
+                                ProjectDisposablesManager projectDisposablesManager,
+                                ProjectEventStreamManager projectEventStreamManager) {
+        this.projectId = checkNotNull(projectId);
         this.projectDisposablesManager = checkNotNull(projectDisposablesManager);
+        this.projectEventStreamManager = checkNotNull(projectEventStreamManager);
     }
 
     @Override
     public EventManager<ProjectEvent<?>> get() {
         EventManager<ProjectEvent<?>> projectEventEventManager = new EventManager<>(PROJECT_EVENT_LIFE_TIME);
+        projectEventEventManager.addPostedTagListener(tag -> projectEventStreamManager.handleEventsPosted(projectId, tag));
         projectDisposablesManager.register(projectEventEventManager);
         return projectEventEventManager;
     }
@@ -35,6 +35,9 @@ import edu.stanford.bmir.protege.web.server.obo.TermDefinitionManagerImpl;
 import edu.stanford.bmir.protege.web.server.owlapi.HasContainsEntityInSignatureImpl;
 import edu.stanford.bmir.protege.web.server.owlapi.StringFormatterLiteralRendererImpl;
 import edu.stanford.bmir.protege.web.server.project.ProjectDisposablesManager;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskExecutor;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskScheduler;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskType;
 import edu.stanford.bmir.protege.web.server.project.chg.ChangeManager;
 import edu.stanford.bmir.protege.web.server.renderer.LiteralRenderer;
 import edu.stanford.bmir.protege.web.server.renderer.*;
@@ -710,9 +713,17 @@ public class ProjectModule {
     }
 
     @Provides
+    @LuceneIndexTaskExecutor
     @ProjectSingleton
-    EntitySearchFilterIndexesManager provideEntitySearchFilterIndexesManager(LuceneIndexWriterImpl writer) {
-        return writer;
+    ProjectTaskExecutor provideLuceneIndexTaskExecutor(ProjectId projectId,
+                                                       ProjectTaskScheduler projectTaskScheduler) {
+        return projectTaskScheduler.createSerialQueue(projectId, ProjectTaskType.SEARCH_INDEX_MAINTENANCE);
+    }
+
+    @Provides
+    @ProjectSingleton
+    EntitySearchFilterIndexesManager provideEntitySearchFilterIndexesManager(LuceneSearchFilterIndexesManager impl) {
+        return impl;
     }
 
     @Provides
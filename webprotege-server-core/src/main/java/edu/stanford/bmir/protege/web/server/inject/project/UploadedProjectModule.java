@@ -17,9 +17,12 @@ import edu.stanford.bmir.protege.web.server.match.Matcher;
 import edu.stanford.bmir.protege.web.server.project.BuiltInPrefixDeclarations;
 import edu.stanford.bmir.protege.web.server.project.Ontology;
 import edu.stanford.bmir.protege.web.server.project.ProjectDisposablesManager;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskExecutor;
 import edu.stanford.bmir.protege.web.server.renderer.LiteralLexicalFormTransformer;
 import edu.stanford.bmir.protege.web.server.renderer.ShortFormAdapter;
 import edu.stanford.bmir.protege.web.server.repository.ProjectEntitySearchFiltersManager;
+import edu.stanford.bmir.protege.web.server.shortform.LuceneIndexRefreshSettings;
+import edu.stanford.bmir.protege.web.server.shortform.LuceneIndexTaskExecutor;
 import edu.stanford.bmir.protege.web.server.shortform.LuceneIndexesDirectory;
 import edu.stanford.bmir.protege.web.server.shortform.LuceneModule;
 import edu.stanford.bmir.protege.web.server.util.DisposableObjectManager;
@@ -39,6 +42,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -279,6 +283,28 @@ public class UploadedProjectModule {
         return protegePropertiesProvider.get();
     }
 
+    @Provides
+    LuceneIndexRefreshSettings provideLuceneIndexRefreshSettings() {
+        // Uploaded projects are not edited
+        return LuceneIndexRefreshSettings.getCommitEveryUpdate();
+    }
+
+    @Provides
+    @LuceneIndexTaskExecutor
+    ProjectTaskExecutor provideLuceneIndexTaskExecutor() {
+        return new ProjectTaskExecutor() {
+            @Override
+            public void schedule(@Nonnull Runnable task, long delay, @Nonnull TimeUnit unit) {
+                throw new UnsupportedOperationException("Background tasks are not supported for uploaded projects");
+            }
+
+            @Override
+            public void execute(@Nonnull Runnable task) {
+                task.run();
+            }
+        };
+    }
+
     @Provides
     @LuceneIndexesDirectory
     @ProjectSingleton
@@ -11,4 +11,9 @@ import org.slf4j.MarkerFactory;
 public class Markers {
 
     public static final Marker BROWSING = MarkerFactory.getMarker("BROWSING");
+
+    /**
+     * Marks log events that report timings and other performance statistics
+     */
+    public static final Marker PERFORMANCE = MarkerFactory.getMarker("PERFORMANCE");
 }
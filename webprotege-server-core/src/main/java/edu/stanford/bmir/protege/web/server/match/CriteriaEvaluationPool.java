@@ -0,0 +1,15 @@
+package edu.stanford.bmir.protege.web.server.match;
+
+import javax.inject.Qualifier;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Qualifies the fork-join pool that evaluates criteria against large project signatures in parallel
+ */
+@Qualifier
+public @interface CriteriaEvaluationPool {
+
+}
@@ -0,0 +1,162 @@
+package edu.stanford.bmir.protege.web.server.match;
+
+import edu.stanford.bmir.protege.web.server.revision.EntityRevisionIndex;
+import edu.stanford.bmir.protege.web.server.revision.Revision;
+import edu.stanford.bmir.protege.web.shared.match.criteria.*;
+import org.semanticweb.owlapi.model.IRI;
+
+import javax.annotation.Nonnull;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ * <p>
+ *     Criteria are entity-local if whether an entity matches them only depends upon the annotation assertions
+ *     whose subject is the entity and upon the presence of the entity in the project signature.  The matches
+ *     for entity-local criteria can be brought up to date after a revision by re-evaluating the entities that
+ *     the revision touches.
+ * </p>
+ */
+public final class EntityLocality {
+
+    /**
+     * Revisions that touch more entities than this are not handled incrementally
+     */
+    private static final int MAX_TOUCHED_ENTITIES = 10_000;
+
+    private EntityLocality() {
+    }
+
+    /**
+     * Gets the IRIs of the entities whose matches against entity-local criteria could have been changed by the
+     * specified revision.  These are the subjects of the changed axioms, and the entities in their signatures,
+     * which may have been added to or removed from the project signature.
+     * @return The IRIs, or empty if the revision could change the matches of any entity, or if it touches too many
+     * entities to be worth handling incrementally
+     */
+    @Nonnull
+    public static Optional<Set<IRI>> getTouchedIris(@Nonnull Revision revision) {
+        var touchedIris = new HashSet<IRI>();
+        for(var change : revision.getChanges()) {
+            if(!change.isAxiomChange()) {
+                return Optional.empty();
+            }
+            EntityRevisionIndex.getSubject(change).ifPresent(touchedIris::add);
+            change.getAxiomOrThrow()
+                  .getSignature()
+                  .forEach(entity -> touchedIris.add(entity.getIRI()));
+            if(touchedIris.size() > MAX_TOUCHED_ENTITIES) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(touchedIris);
+    }
+
+    /**
+     * Determines whether the specified criteria are entity-local.
+     */
+    public static boolean isEntityLocal(@Nonnull RootCriteria criteria) {
+        return criteria.accept(new RootCriteriaVisitor<Boolean>() {
+            @Nonnull
+            @Override
+            public Boolean visit(@Nonnull CompositeRootCriteria criteria) {
+                return criteria.getRootCriteria()
+                               .stream()
+                               .allMatch(EntityLocality::isEntityLocal);
+            }
+
+            @Nonnull
+            @Override
+            public Boolean visit(@Nonnull EntityAnnotationCriteria criteria) {
+                var annotationCriteria = criteria.getAnnotationCriteria();
+                if(!(annotationCriteria instanceof AnnotationComponentsCriteria)) {
+                    return false;
+                }
+                return isEntityLocal(((AnnotationComponentsCriteria) annotationCriteria).getAnnotationValueCriteria());
+            }
+
+            @Nonnull
+            @Override
+            public Boolean visit(@Nonnull EntityIsDeprecatedCriteria criteria) {
+                return true;
+            }
+
+            @Nonnull
+            @Override
+            public Boolean visit(@Nonnull EntityIsNotDeprecatedCriteria criteria) {
+                return true;
+            }
+
+            @Nonnull
+            @Override
+            public Boolean visit(@Nonnull EntityHasNonUniqueLangTagsCriteria criteria) {
+                return true;
+            }
+
+            @Nonnull
+            @Override
+            public Boolean visit(@Nonnull EntityTypeIsOneOfCriteria criteria) {
+                return true;
+            }
+
+            @Nonnull
+            @Override
+            public Boolean visit(@Nonnull EntityHasConflictingBooleanAnnotationValuesCriteria criteria) {
+                return true;
+            }
+
+            @Nonnull
+            @Override
+            public Boolean visit(@Nonnull EntityAnnotationValuesAreNotDisjointCriteria criteria) {
+                return true;
+            }
+
+            @Nonnull
+            @Override
+            public Boolean visit(@Nonnull IsNotBuiltInEntityCriteria criteria) {
+                return true;
+            }
+
+            @Nonnull
+            @Override
+            public Boolean visit(@Nonnull SubClassOfCriteria criteria) {
+                return false;
+            }
+
+            @Nonnull
+            @Override
+            public Boolean visit(@Nonnull InstanceOfCriteria criteria) {
+                return false;
+            }
+
+            @Nonnull
+            @Override
+            public Boolean visit(@Nonnull EntityRelationshipCriteria criteria) {
+                return false;
+            }
+
+            @Nonnull
+            @Override
+            public Boolean visit(EntityIsCriteria criteria) {
+                return true;
+            }
+        });
+    }
+
+    private static boolean isEntityLocal(@Nonnull AnnotationValueCriteria criteria) {
+        if(criteria instanceof IriHasAnnotationCriteria) {
+            // Depends upon the annotations on the value
+            return false;
+        }
+        if(criteria instanceof CompositeAnnotationValueCriteria) {
+            return ((CompositeAnnotationValueCriteria) criteria).getAnnotationValueCriteria()
+                                                                .stream()
+                                                                .allMatch(EntityLocality::isEntityLocal);
+        }
+        return true;
+    }
+}
@@ -5,16 +5,15 @@ import edu.stanford.bmir.protege.web.server.access.AccessManager;
 import edu.stanford.bmir.protege.web.server.dispatch.AbstractProjectActionHandler;
 import edu.stanford.bmir.protege.web.server.dispatch.ExecutionContext;
 import edu.stanford.bmir.protege.web.server.entity.EntityNodeRenderer;
-import edu.stanford.bmir.protege.web.server.renderer.RenderingManager;
 import edu.stanford.bmir.protege.web.server.shortform.DictionaryManager;
 import edu.stanford.bmir.protege.web.shared.access.BuiltInAction;
 import edu.stanford.bmir.protege.web.shared.entity.EntityNode;
-import edu.stanford.bmir.protege.web.shared.entity.OWLEntityData;
 import edu.stanford.bmir.protege.web.shared.match.GetMatchingEntitiesAction;
 import edu.stanford.bmir.protege.web.shared.match.GetMatchingEntitiesResult;
 import edu.stanford.bmir.protege.web.shared.match.criteria.Criteria;
 import edu.stanford.bmir.protege.web.shared.pagination.Page;
 import edu.stanford.bmir.protege.web.shared.pagination.PageRequest;
+import org.semanticweb.owlapi.model.OWLEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,9 +43,6 @@ public class GetMatchingEntitiesActionHandler extends AbstractProjectActionHandl
     @Nonnull
     private final EntityNodeRenderer nodeRenderer;
 
-    @Nonnull
-    private final RenderingManager renderingManager;
-
     @Nonnull
     private final MatchingEngine matchingEngine;
 
@@ -54,11 +50,10 @@ public class GetMatchingEntitiesActionHandler extends AbstractProjectActionHandl
     public GetMatchingEntitiesActionHandler(@Nonnull AccessManager accessManager,
                                             @Nonnull DictionaryManager dictionaryManager,
                                             @Nonnull EntityNodeRenderer nodeRenderer,
-                                            @Nonnull RenderingManager renderingManager, @Nonnull MatchingEngine matchingEngine) {
+                                            @Nonnull MatchingEngine matchingEngine) {
         super(accessManager);
         this.dictionaryManager = checkNotNull(dictionaryManager);
         this.nodeRenderer = checkNotNull(nodeRenderer);
-        this.renderingManager = renderingManager;
         this.matchingEngine = checkNotNull(matchingEngine);
     }
 
@@ -80,11 +75,13 @@ public class GetMatchingEntitiesActionHandler extends AbstractProjectActionHandl
         Stopwatch stopwatch = Stopwatch.createStarted();
         PageRequest pageRequest = action.getPageRequest();
         Criteria criteria = action.getCriteria();
-        Optional<Page<OWLEntityData>> result = matchingEngine.match(criteria)
-                                                             .map(renderingManager::getRendering)
-                                                             .sorted()
-                                                             .collect(toPage(pageRequest.getPageNumber(),
-                                                                           pageRequest.getPageSize()));
+        // Matches are sorted by their browser text, but only the matches in the requested page are rendered
+        Optional<Page<OWLEntity>> result = matchingEngine.match(criteria)
+                                                         .map(entity -> new BrowserTextSortKey(entity, getBrowserText(entity)))
+                                                         .sorted()
+                                                         .map(BrowserTextSortKey::getEntity)
+                                                         .collect(toPage(pageRequest.getPageNumber(),
+                                                                         pageRequest.getPageSize()));
         stopwatch.stop();
         logger.info("{} {} Answered query in {} ms",
                     action.getProjectId(),
@@ -92,7 +89,7 @@ public class GetMatchingEntitiesActionHandler extends AbstractProjectActionHandl
                     stopwatch.elapsed(TimeUnit.MILLISECONDS));
         Optional<Page<EntityNode>> entityHierarchyNodes = result.map(pg -> {
             List<EntityNode> nodes = pg.getPageElements().stream()
-                                       .map(ed -> nodeRenderer.render(ed.getEntity()))
+                                       .map(nodeRenderer::render)
                                        .collect(toList());
             return new Page<>(pg.getPageNumber(),
                               pg.getPageCount(),
@@ -102,4 +99,37 @@ public class GetMatchingEntitiesActionHandler extends AbstractProjectActionHandl
         return entityHierarchyNodes.map(GetMatchingEntitiesResult::get)
                      .orElseGet(() -> GetMatchingEntitiesResult.get(Page.emptyPage()));
     }
+
+    /**
+     * Gets the browser text of the specified entity, which is the same as the browser text of its rendering
+     */
+    @Nonnull
+    private String getBrowserText(@Nonnull OWLEntity entity) {
+        return dictionaryManager.getShortForms(entity)
+                                .values()
+                                .stream()
+                                .findFirst()
+                                .orElseGet(() -> entity.getIRI().toQuotedString());
+    }
+
+    private static class BrowserTextSortKey implements Comparable<BrowserTextSortKey> {
+
+        private final OWLEntity entity;
+
+        private final String browserText;
+
+        private BrowserTextSortKey(OWLEntity entity, String browserText) {
+            this.entity = entity;
+            this.browserText = browserText;
+        }
+
+        public OWLEntity getEntity() {
+            return entity;
+        }
+
+        @Override
+        public int compareTo(BrowserTextSortKey o) {
+            return browserText.compareToIgnoreCase(o.browserText);
+        }
+    }
 }
@@ -44,9 +44,10 @@ public class InstanceOfMatcher implements Matcher<OWLEntity> {
     @Nonnull
     private final HierarchyFilterType filterType;
 
-    private boolean initialised = false;
-
-    private Set<OWLNamedIndividual> instances;
+    /**
+     * The instances of the target class, or null if they have not been computed
+     */
+    private volatile Set<OWLNamedIndividual> instances;
 
     public InstanceOfMatcher(@Nonnull @Provided ClassHierarchyProvider hierarchyProvider,
                              @Nonnull @Provided ProjectOntologiesIndex projectOntologiesIndex,
@@ -65,33 +66,48 @@ public class InstanceOfMatcher implements Matcher<OWLEntity> {
     @SuppressWarnings("SuspiciousMethodCalls")
     @Override
     public boolean matches(@Nonnull OWLEntity value) {
-        if(!initialised) {
-            if(filterType == HierarchyFilterType.DIRECT) {
-                instances = getClassAssertionAxioms(target)
-                                                  .map(OWLClassAssertionAxiom::getIndividual)
-                                                  .filter(OWLIndividual::isNamed)
-                                                  .map(ind -> (OWLNamedIndividual) ind)
-                                                  .collect(toSet());
-            }
-            else {
-                if(target.isOWLThing()) {
-                    instances = projectSignatureByType.getSignature(EntityType.NAMED_INDIVIDUAL)
-                                                      .collect(toSet());
-                }
-                else {
-                    Collection<OWLClass> clses = hierarchyProvider.getDescendants(target);
-                    clses.add(target);
-                    instances = clses.stream()
-                                     .flatMap(this::getClassAssertionAxioms)
-                                     .map(OWLClassAssertionAxiom::getIndividual)
-                                     .filter(OWLIndividual::isNamed)
-                                     .map(ind -> (OWLNamedIndividual) ind)
-                                     .collect(toSet());
+        return getInstances().contains(value);
+    }
+
+    /**
+     * Gets the instances of the target class.  These are computed once, on first use.  A matcher may be used by
+     * several threads when a large signature is evaluated in parallel, so the instances are initialised with double
+     * checked locking, which keeps the lock off the path of each match once they have been computed.
+     */
+    private Set<OWLNamedIndividual> getInstances() {
+        var result = instances;
+        if(result == null) {
+            synchronized (this) {
+                result = instances;
+                if(result == null) {
+                    result = computeInstances();
+                    instances = result;
                 }
             }
-            initialised = true;
         }
-        return instances.contains(value);
+        return result;
+    }
+
+    private Set<OWLNamedIndividual> computeInstances() {
+        if(filterType == HierarchyFilterType.DIRECT) {
+            return getClassAssertionAxioms(target)
+                    .map(OWLClassAssertionAxiom::getIndividual)
+                    .filter(OWLIndividual::isNamed)
+                    .map(ind -> (OWLNamedIndividual) ind)
+                    .collect(toSet());
+        }
+        if(target.isOWLThing()) {
+            return projectSignatureByType.getSignature(EntityType.NAMED_INDIVIDUAL)
+                                         .collect(toSet());
+        }
+        Collection<OWLClass> clses = hierarchyProvider.getDescendants(target);
+        clses.add(target);
+        return clses.stream()
+                    .flatMap(this::getClassAssertionAxioms)
+                    .map(OWLClassAssertionAxiom::getIndividual)
+                    .filter(OWLIndividual::isNamed)
+                    .map(ind -> (OWLNamedIndividual) ind)
+                    .collect(toSet());
     }
 
     private Stream<OWLClassAssertionAxiom> getClassAssertionAxioms(OWLClass cls) {
@@ -0,0 +1,290 @@
+package edu.stanford.bmir.protege.web.server.match;
+
+import edu.stanford.bmir.protege.web.server.hierarchy.ClassHierarchyProvider;
+import edu.stanford.bmir.protege.web.server.index.*;
+import edu.stanford.bmir.protege.web.shared.DataFactory;
+import edu.stanford.bmir.protege.web.shared.match.AnnotationPresence;
+import edu.stanford.bmir.protege.web.shared.match.criteria.*;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.vocab.OWLRDFVocabulary;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ * <p>
+ *     Plans the evaluation of criteria by looking up the entities that could possibly match selective criteria
+ *     in the project indexes.  Only these candidates need to be evaluated against the full matcher for the
+ *     criteria, rather than every entity in the project signature.  Candidates are always a superset of the
+ *     entities that match the criteria, and are always in the project signature.
+ * </p>
+ */
+public class MatchCandidatesPlanner {
+
+    private static final OWLAnnotationProperty OWL_DEPRECATED = DataFactory.getOWLAnnotationProperty(
+            OWLRDFVocabulary.OWL_DEPRECATED.getIRI());
+
+    @Nonnull
+    private final ProjectOntologiesIndex projectOntologiesIndex;
+
+    @Nonnull
+    private final EntitiesInProjectSignatureIndex entitiesInProjectSignatureIndex;
+
+    @Nonnull
+    private final EntitiesInProjectSignatureByIriIndex entitiesInProjectSignatureByIriIndex;
+
+    @Nonnull
+    private final AxiomsByEntityReferenceIndex axiomsByEntityReferenceIndex;
+
+    @Nonnull
+    private final AnnotationAssertionAxiomsByValueIndex annotationAssertionAxiomsByValueIndex;
+
+    @Nonnull
+    private final ClassAssertionAxiomsByClassIndex classAssertionAxiomsByClassIndex;
+
+    @Nonnull
+    private final ClassHierarchyProvider classHierarchyProvider;
+
+    @Inject
+    public MatchCandidatesPlanner(@Nonnull ProjectOntologiesIndex projectOntologiesIndex,
+                                  @Nonnull EntitiesInProjectSignatureIndex entitiesInProjectSignatureIndex,
+                                  @Nonnull EntitiesInProjectSignatureByIriIndex entitiesInProjectSignatureByIriIndex,
+                                  @Nonnull AxiomsByEntityReferenceIndex axiomsByEntityReferenceIndex,
+                                  @Nonnull AnnotationAssertionAxiomsByValueIndex annotationAssertionAxiomsByValueIndex,
+                                  @Nonnull ClassAssertionAxiomsByClassIndex classAssertionAxiomsByClassIndex,
+                                  @Nonnull ClassHierarchyProvider classHierarchyProvider) {
+        this.projectOntologiesIndex = checkNotNull(projectOntologiesIndex);
+        this.entitiesInProjectSignatureIndex = checkNotNull(entitiesInProjectSignatureIndex);
+        this.entitiesInProjectSignatureByIriIndex = checkNotNull(entitiesInProjectSignatureByIriIndex);
+        this.axiomsByEntityReferenceIndex = checkNotNull(axiomsByEntityReferenceIndex);
+        this.annotationAssertionAxiomsByValueIndex = checkNotNull(annotationAssertionAxiomsByValueIndex);
+        this.classAssertionAxiomsByClassIndex = checkNotNull(classAssertionAxiomsByClassIndex);
+        this.classHierarchyProvider = checkNotNull(classHierarchyProvider);
+    }
+
+    /**
+     * Gets the candidate entities for the specified criteria.
+     * @param criteria The criteria
+     * @return The candidates, or empty if the criteria cannot be answered from the indexes, in which case every
+     * entity in the project signature is a candidate.
+     */
+    @Nonnull
+    public Optional<Set<OWLEntity>> getCandidates(@Nonnull RootCriteria criteria) {
+        return criteria.accept(new RootCriteriaVisitor<>() {
+            @Nonnull
+            @Override
+            public Optional<Set<OWLEntity>> visit(@Nonnull CompositeRootCriteria criteria) {
+                if(criteria.getMatchType() == MultiMatchType.ANY) {
+                    return getCandidatesForAny(criteria.getRootCriteria());
+                }
+                else {
+                    return getCandidatesForAll(criteria.getRootCriteria());
+                }
+            }
+
+            @Nonnull
+            @Override
+            public Optional<Set<OWLEntity>> visit(@Nonnull EntityAnnotationCriteria criteria) {
+                return getAnnotationCandidates(criteria);
+            }
+
+            @Nonnull
+            @Override
+            public Optional<Set<OWLEntity>> visit(@Nonnull EntityIsDeprecatedCriteria criteria) {
+                return Optional.of(getSubjectsOfAnnotationsWithProperty(OWL_DEPRECATED));
+            }
+
+            @Nonnull
+            @Override
+            public Optional<Set<OWLEntity>> visit(@Nonnull EntityIsNotDeprecatedCriteria criteria) {
+                return Optional.empty();
+            }
+
+            @Nonnull
+            @Override
+            public Optional<Set<OWLEntity>> visit(@Nonnull EntityHasNonUniqueLangTagsCriteria criteria) {
+                return Optional.empty();
+            }
+
+            @Nonnull
+            @Override
+            public Optional<Set<OWLEntity>> visit(@Nonnull EntityTypeIsOneOfCriteria criteria) {
+                return Optional.empty();
+            }
+
+            @Nonnull
+            @Override
+            public Optional<Set<OWLEntity>> visit(@Nonnull EntityHasConflictingBooleanAnnotationValuesCriteria criteria) {
+                return Optional.empty();
+            }
+
+            @Nonnull
+            @Override
+            public Optional<Set<OWLEntity>> visit(@Nonnull EntityAnnotationValuesAreNotDisjointCriteria criteria) {
+                return Optional.empty();
+            }
+
+            @Nonnull
+            @Override
+            public Optional<Set<OWLEntity>> visit(@Nonnull IsNotBuiltInEntityCriteria criteria) {
+                return Optional.empty();
+            }
+
+            @Nonnull
+            @Override
+            public Optional<Set<OWLEntity>> visit(@Nonnull SubClassOfCriteria criteria) {
+                var target = criteria.getTarget();
+                if(target.isOWLThing()) {
+                    // Every class
+                    return Optional.empty();
+                }
+                if(criteria.getFilterType() == HierarchyFilterType.DIRECT) {
+                    return Optional.of(new HashSet<>(classHierarchyProvider.getChildren(target)));
+                }
+                else {
+                    return Optional.of(new HashSet<>(classHierarchyProvider.getDescendants(target)));
+                }
+            }
+
+            @Nonnull
+            @Override
+            public Optional<Set<OWLEntity>> visit(@Nonnull InstanceOfCriteria criteria) {
+                var target = criteria.getTarget();
+                if(criteria.getFilterType() == HierarchyFilterType.DIRECT) {
+                    return Optional.of(getAssertedInstances(Stream.of(target)));
+                }
+                if(target.isOWLThing()) {
+                    // Every individual
+                    return Optional.empty();
+                }
+                var types = Stream.concat(Stream.of(target),
+                                          classHierarchyProvider.getDescendants(target).stream());
+                return Optional.of(getAssertedInstances(types));
+            }
+
+            @Nonnull
+            @Override
+            public Optional<Set<OWLEntity>> visit(@Nonnull EntityRelationshipCriteria criteria) {
+                return Optional.empty();
+            }
+
+            @Nonnull
+            @Override
+            public Optional<Set<OWLEntity>> visit(EntityIsCriteria criteria) {
+                var entity = criteria.getEntity();
+                if(entitiesInProjectSignatureIndex.containsEntityInSignature(entity)) {
+                    return Optional.of(Collections.singleton(entity));
+                }
+                else {
+                    return Optional.of(Collections.emptySet());
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the candidate entities for a disjunction of the specified criteria.
+     * @return The candidates, or empty if any of the criteria cannot be answered from the indexes.
+     */
+    @Nonnull
+    public Optional<Set<OWLEntity>> getCandidatesForAny(@Nonnull List<? extends RootCriteria> criteria) {
+        Set<OWLEntity> union = new HashSet<>();
+        for(var c : criteria) {
+            var candidates = getCandidates(c);
+            if(candidates.isEmpty()) {
+                return Optional.empty();
+            }
+            union.addAll(candidates.get());
+        }
+        return Optional.of(union);
+    }
+
+    /**
+     * Gets the candidate entities for a conjunction of the specified criteria.  Criteria that cannot be answered
+     * from the indexes do not narrow down the candidates.
+     * @return The candidates, or empty if none of the criteria can be answered from the indexes.
+     */
+    @Nonnull
+    private Optional<Set<OWLEntity>> getCandidatesForAll(@Nonnull List<? extends RootCriteria> criteria) {
+        Set<OWLEntity> intersection = null;
+        for(var c : criteria) {
+            var candidates = getCandidates(c);
+            if(candidates.isEmpty()) {
+                continue;
+            }
+            if(intersection == null) {
+                intersection = new HashSet<>(candidates.get());
+            }
+            else {
+                intersection.retainAll(candidates.get());
+            }
+            if(intersection.isEmpty()) {
+                break;
+            }
+        }
+        return Optional.ofNullable(intersection);
+    }
+
+    private Optional<Set<OWLEntity>> getAnnotationCandidates(@Nonnull EntityAnnotationCriteria criteria) {
+        if(criteria.getAnnotationPresence() != AnnotationPresence.AT_LEAST_ONE) {
+            // Entities without matching annotations also match
+            return Optional.empty();
+        }
+        var annotationCriteria = criteria.getAnnotationCriteria();
+        if(!(annotationCriteria instanceof AnnotationComponentsCriteria)) {
+            return Optional.empty();
+        }
+        var componentsCriteria = (AnnotationComponentsCriteria) annotationCriteria;
+        var valueCriteria = componentsCriteria.getAnnotationValueCriteria();
+        if(valueCriteria instanceof IriEqualsCriteria) {
+            return Optional.of(getSubjectsOfAnnotationsWithValue(((IriEqualsCriteria) valueCriteria).getIri()));
+        }
+        var propertyCriteria = componentsCriteria.getAnnotationPropertyCriteria();
+        if(propertyCriteria instanceof IriEqualsCriteria) {
+            var property = DataFactory.getOWLAnnotationProperty(((IriEqualsCriteria) propertyCriteria).getIri());
+            return Optional.of(getSubjectsOfAnnotationsWithProperty(property));
+        }
+        return Optional.empty();
+    }
+
+    private Set<OWLEntity> getSubjectsOfAnnotationsWithValue(@Nonnull IRI value) {
+        var axioms = projectOntologiesIndex.getOntologyIds()
+                                           .flatMap(ontId -> annotationAssertionAxiomsByValueIndex.getAxiomsByValue(value, ontId));
+        return getSubjects(axioms);
+    }
+
+    private Set<OWLEntity> getSubjectsOfAnnotationsWithProperty(@Nonnull OWLAnnotationProperty property) {
+        var axioms = projectOntologiesIndex.getOntologyIds()
+                                           .flatMap(ontId -> axiomsByEntityReferenceIndex.getReferencingAxioms(property, ontId))
+                                           .filter(ax -> ax instanceof OWLAnnotationAssertionAxiom)
+                                           .map(ax -> (OWLAnnotationAssertionAxiom) ax)
+                                           .filter(ax -> ax.getProperty().equals(property));
+        return getSubjects(axioms);
+    }
+
+    private Set<OWLEntity> getSubjects(@Nonnull Stream<OWLAnnotationAssertionAxiom> axioms) {
+        return axioms.map(OWLAnnotationAssertionAxiom::getSubject)
+                     .filter(subject -> subject instanceof IRI)
+                     .map(subject -> (IRI) subject)
+                     .distinct()
+                     .flatMap(entitiesInProjectSignatureByIriIndex::getEntitiesInSignature)
+                     .collect(toSet());
+    }
+
+    private Set<OWLEntity> getAssertedInstances(@Nonnull Stream<OWLClass> types) {
+        return types.flatMap(type -> projectOntologiesIndex.getOntologyIds()
+                                                           .flatMap(ontId -> classAssertionAxiomsByClassIndex.getClassAssertionAxioms(type, ontId)))
+                    .map(OWLClassAssertionAxiom::getIndividual)
+                    .filter(OWLIndividual::isNamed)
+                    .map(OWLIndividual::asOWLNamedIndividual)
+                    .collect(toSet());
+    }
+}
@@ -0,0 +1,245 @@
+package edu.stanford.bmir.protege.web.server.match;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import edu.stanford.bmir.protege.web.server.index.EntitiesInProjectSignatureByIriIndex;
+import edu.stanford.bmir.protege.web.server.revision.Revision;
+import edu.stanford.bmir.protege.web.shared.inject.ProjectSingleton;
+import edu.stanford.bmir.protege.web.shared.match.criteria.RootCriteria;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLEntity;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ * <p>
+ *     Caches the entities that match criteria at a given revision of a project.  A cached result is only returned
+ *     for the revision that it was computed at.  When a revision is committed, the IRIs of the entities that it
+ *     touches are recorded.  The next lookup of a result for criteria that only depend upon the annotations and the
+ *     declared type of each entity brings the result up to date by re-evaluating the entities touched by the
+ *     revisions since it was computed.  Results for other criteria, such as hierarchy criteria, are discarded on
+ *     lookup.  Committing a revision therefore does not evaluate any criteria.
+ * </p>
+ */
+@ProjectSingleton
+public class MatchResultCache {
+
+    /**
+     * The maximum total number of matching entities held by the cache
+     */
+    private static final long MAX_CACHED_ENTITIES = 1_000_000;
+
+    /**
+     * The maximum number of revisions whose touched IRIs are recorded for cached results that have not been
+     * brought up to date
+     */
+    private static final int MAX_RECORDED_REVISIONS = 10_000;
+
+    @Nonnull
+    private final MatcherFactory matcherFactory;
+
+    @Nonnull
+    private final EntitiesInProjectSignatureByIriIndex entitiesInProjectSignatureByIriIndex;
+
+    private final Cache<ImmutableList<RootCriteria>, CachedMatches> cache = Caffeine.newBuilder()
+                                                                                   .maximumWeight(MAX_CACHED_ENTITIES)
+                                                                                   .weigher(MatchResultCache::weigh)
+                                                                                   .build();
+
+    /**
+     * The IRIs touched by each revision that has been committed since the oldest cached result was computed, keyed
+     * by revision number.  Guarded by this object's lock.
+     */
+    private final NavigableMap<Long, ImmutableSet<IRI>> touchedIrisByRevision = new TreeMap<>();
+
+    /**
+     * The number of the most recently committed revision, or null if no revision has been committed since the
+     * project was loaded.  Guarded by this object's lock.
+     */
+    @Nullable
+    private RevisionNumber headRevisionNumber = null;
+
+    @Inject
+    public MatchResultCache(@Nonnull MatcherFactory matcherFactory,
+                            @Nonnull EntitiesInProjectSignatureByIriIndex entitiesInProjectSignatureByIriIndex) {
+        this.matcherFactory = checkNotNull(matcherFactory);
+        this.entitiesInProjectSignatureByIriIndex = checkNotNull(entitiesInProjectSignatureByIriIndex);
+    }
+
+    private static int weigh(@Nonnull ImmutableList<RootCriteria> criteria, @Nonnull CachedMatches matches) {
+        // Empty results still take up space
+        return 1 + matches.getMatches().size();
+    }
+
+    /**
+     * Gets the cached entities that match any of the specified criteria at the specified revision.
+     * @param criteria The criteria
+     * @param revisionNumber The revision number
+     * @return The matching entities, or empty if they are not cached for the revision
+     */
+    @Nonnull
+    public Optional<ImmutableSet<OWLEntity>> get(@Nonnull ImmutableList<RootCriteria> criteria,
+                                                 @Nonnull RevisionNumber revisionNumber) {
+        var cachedMatches = cache.getIfPresent(criteria);
+        if(cachedMatches == null) {
+            return Optional.empty();
+        }
+        var upToDateMatches = bringUpToDate(criteria, cachedMatches);
+        if(upToDateMatches == null || !upToDateMatches.getRevisionNumber().equals(revisionNumber)) {
+            return Optional.empty();
+        }
+        return Optional.of(upToDateMatches.getMatches());
+    }
+
+    /**
+     * Brings the cached matches up to date with the most recently committed revision.  The matchers are evaluated
+     * without holding the lock so that committing a revision does not wait for the evaluation.
+     * @return The up to date matches, or null if the matches could not be brought up to date and were discarded
+     */
+    @Nullable
+    private CachedMatches bringUpToDate(@Nonnull ImmutableList<RootCriteria> criteria,
+                                        @Nonnull CachedMatches cachedMatches) {
+        RevisionNumber revisionNumber;
+        Optional<ImmutableSet<IRI>> touchedIris;
+        synchronized (this) {
+            revisionNumber = headRevisionNumber;
+            if(revisionNumber == null || revisionNumber.compareTo(cachedMatches.getRevisionNumber()) <= 0) {
+                return cachedMatches;
+            }
+            touchedIris = getTouchedIris(cachedMatches.getRevisionNumber(), revisionNumber);
+        }
+        if(touchedIris.isEmpty() || !criteria.stream().allMatch(EntityLocality::isEntityLocal)) {
+            cache.asMap().remove(criteria, cachedMatches);
+            return null;
+        }
+        var updatedMatches = update(criteria, cachedMatches.getMatches(), touchedIris.get(), revisionNumber);
+        cache.asMap().replace(criteria, cachedMatches, updatedMatches);
+        return updatedMatches;
+    }
+
+    /**
+     * Gets the IRIs touched by the revisions after the specified revision, up to and including the specified head
+     * revision.
+     * @return The touched IRIs, or empty if they were not recorded for all of the revisions
+     */
+    private Optional<ImmutableSet<IRI>> getTouchedIris(@Nonnull RevisionNumber fromRevisionNumber,
+                                                       @Nonnull RevisionNumber toRevisionNumber) {
+        var revisions = touchedIrisByRevision.subMap(fromRevisionNumber.getValue(), false,
+                                                     toRevisionNumber.getValue(), true);
+        if(revisions.size() != toRevisionNumber.getValue() - fromRevisionNumber.getValue()) {
+            return Optional.empty();
+        }
+        var touchedIris = ImmutableSet.<IRI>builder();
+        revisions.values().forEach(touchedIris::addAll);
+        return Optional.of(touchedIris.build());
+    }
+
+    /**
+     * Caches the entities that match any of the specified criteria at the specified revision.
+     */
+    public synchronized void put(@Nonnull ImmutableList<RootCriteria> criteria,
+                                 @Nonnull RevisionNumber revisionNumber,
+                                 @Nonnull ImmutableSet<OWLEntity> matches) {
+        cache.put(checkNotNull(criteria), new CachedMatches(revisionNumber, matches));
+    }
+
+    /**
+     * Handles a revision that has been committed to the project.  This must be called after the project indexes
+     * have been updated with the changes in the revision.
+     * @param revision The revision
+     */
+    public synchronized void handleRevision(@Nonnull Revision revision) {
+        var revisionNumber = revision.getRevisionNumber();
+        headRevisionNumber = revisionNumber;
+        if(cache.estimatedSize() == 0) {
+            // Results that are cached later for earlier revisions are discarded because their revisions are missing
+            touchedIrisByRevision.clear();
+            return;
+        }
+        var touchedIris = EntityLocality.getTouchedIris(revision);
+        if(touchedIris.isEmpty()) {
+            cache.invalidateAll();
+            touchedIrisByRevision.clear();
+            return;
+        }
+        if(touchedIrisByRevision.size() >= MAX_RECORDED_REVISIONS) {
+            discardRecordedRevisions();
+        }
+        touchedIrisByRevision.put(revisionNumber.getValue(), ImmutableSet.copyOf(touchedIris.get()));
+    }
+
+    /**
+     * Discards the touched IRIs of revisions that no cached result needs.  If this does not free up any space then
+     * the cached results and all of the touched IRIs are discarded.
+     */
+    private void discardRecordedRevisions() {
+        cache.asMap()
+             .values()
+             .stream()
+             .map(CachedMatches::getRevisionNumber)
+             .min(RevisionNumber::compareTo)
+             .ifPresent(oldest -> touchedIrisByRevision.headMap(oldest.getValue(), true).clear());
+        if(touchedIrisByRevision.size() >= MAX_RECORDED_REVISIONS) {
+            cache.invalidateAll();
+            touchedIrisByRevision.clear();
+        }
+    }
+
+    private CachedMatches update(@Nonnull ImmutableList<RootCriteria> criteria,
+                                 @Nonnull ImmutableSet<OWLEntity> matches,
+                                 @Nonnull Set<IRI> touchedIris,
+                                 @Nonnull RevisionNumber revisionNumber) {
+        var touchedEntities = touchedIris.stream()
+                                         .flatMap(entitiesInProjectSignatureByIriIndex::getEntitiesInSignature)
+                                         .collect(toImmutableList());
+        var matchers = criteria.stream()
+                               .map(matcherFactory::getMatcher)
+                               .collect(toImmutableList());
+        var updatedMatches = ImmutableSet.<OWLEntity>builder();
+        matches.stream()
+               .filter(entity -> !touchedIris.contains(entity.getIRI()))
+               .forEach(updatedMatches::add);
+        touchedEntities.stream()
+                       .filter(entity -> matchers.stream().anyMatch(matcher -> matcher.matches(entity)))
+                       .forEach(updatedMatches::add);
+        return new CachedMatches(revisionNumber, updatedMatches.build());
+    }
+
+    private static class CachedMatches {
+
+        private final RevisionNumber revisionNumber;
+
+        private final ImmutableSet<OWLEntity> matches;
+
+        private CachedMatches(@Nonnull RevisionNumber revisionNumber,
+                              @Nonnull ImmutableSet<OWLEntity> matches) {
+            this.revisionNumber = checkNotNull(revisionNumber);
+            this.matches = checkNotNull(matches);
+        }
+
+        @Nonnull
+        public RevisionNumber getRevisionNumber() {
+            return revisionNumber;
+        }
+
+        @Nonnull
+        public ImmutableSet<OWLEntity> getMatches() {
+            return matches;
+        }
+    }
+}
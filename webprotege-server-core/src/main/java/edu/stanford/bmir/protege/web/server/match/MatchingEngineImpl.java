@@ -1,53 +1,132 @@
 package edu.stanford.bmir.protege.web.server.match;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import edu.stanford.bmir.protege.web.server.index.ProjectSignatureIndex;
+import edu.stanford.bmir.protege.web.server.revision.RevisionManager;
 import edu.stanford.bmir.protege.web.shared.match.criteria.Criteria;
 import edu.stanford.bmir.protege.web.shared.match.criteria.RootCriteria;
 import org.semanticweb.owlapi.model.OWLEntity;
 
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
 
 /**
  * Matthew Horridge
  * Stanford Center for Biomedical Informatics Research
  * 19 Jun 2018
+ * <p>
+ *     Criteria that can be answered from the project indexes are evaluated against the candidates planned by
+ *     the {@link MatchCandidatesPlanner}.  Other criteria are evaluated against the whole project signature.
+ *     Large numbers of candidates are evaluated in parallel.  The matching entities are cached in the
+ *     {@link MatchResultCache} for the head revision of the project.
+ * </p>
  */
 public class MatchingEngineImpl implements MatchingEngine {
 
+    /**
+     * The number of candidates above which candidates are evaluated in parallel
+     */
+    private static final int PARALLEL_EVALUATION_THRESHOLD = 10_000;
+
     @Nonnull
     private final ProjectSignatureIndex projectSignatureIndex;
 
     @Nonnull
     private final MatcherFactory matcherFactory;
 
+    @Nonnull
+    private final MatchCandidatesPlanner candidatesPlanner;
+
+    @Nonnull
+    private final MatchResultCache matchResultCache;
+
+    @Nonnull
+    private final RevisionManager revisionManager;
+
+    @Nonnull
+    private final ForkJoinPool evaluationPool;
+
     @Inject
     public MatchingEngineImpl(@Nonnull ProjectSignatureIndex projectSignatureIndex,
-                              @Nonnull MatcherFactory matcherFactory) {
+                              @Nonnull MatcherFactory matcherFactory,
+                              @Nonnull MatchCandidatesPlanner candidatesPlanner,
+                              @Nonnull MatchResultCache matchResultCache,
+                              @Nonnull RevisionManager revisionManager,
+                              @Nonnull @CriteriaEvaluationPool ForkJoinPool evaluationPool) {
         this.projectSignatureIndex = projectSignatureIndex;
         this.matcherFactory = checkNotNull(matcherFactory);
+        this.candidatesPlanner = checkNotNull(candidatesPlanner);
+        this.matchResultCache = checkNotNull(matchResultCache);
+        this.revisionManager = checkNotNull(revisionManager);
+        this.evaluationPool = checkNotNull(evaluationPool);
     }
 
     @Override
     public Stream<OWLEntity> match(@Nonnull Criteria criteria) {
-        Matcher<OWLEntity> matcher = getMatcher(criteria);
-        return projectSignatureIndex.getSignature()
-                                    .filter(matcher::matches);
+        var rootCriteria = (RootCriteria) criteria;
+        return getMatches(ImmutableList.of(rootCriteria),
+                          () -> getMatcher(rootCriteria),
+                          () -> candidatesPlanner.getCandidates(rootCriteria)).stream();
     }
 
     @Override
     public Stream<OWLEntity> matchAny(@Nonnull ImmutableList<? extends Criteria> criteria) {
-        ImmutableList<Matcher<OWLEntity>> matchers = criteria.stream()
-                                                             .map(this::getMatcher)
-                                                             .collect(toImmutableList());
-        OrMatcher<OWLEntity> orMatcher = new OrMatcher<>(matchers);
-        return projectSignatureIndex.getSignature()
-                                    .filter(orMatcher::matches);
+        ImmutableList<RootCriteria> rootCriteria = criteria.stream()
+                                                           .map(c -> (RootCriteria) c)
+                                                           .collect(toImmutableList());
+        return getMatches(rootCriteria,
+                          () -> {
+                              ImmutableList<Matcher<OWLEntity>> matchers = rootCriteria.stream()
+                                                                                       .map(this::getMatcher)
+                                                                                       .collect(toImmutableList());
+                              return new OrMatcher<>(matchers);
+                          },
+                          () -> candidatesPlanner.getCandidatesForAny(rootCriteria)).stream();
+    }
+
+    private ImmutableSet<OWLEntity> getMatches(@Nonnull ImmutableList<RootCriteria> criteria,
+                                               @Nonnull Supplier<Matcher<OWLEntity>> matcherSupplier,
+                                               @Nonnull Supplier<Optional<Set<OWLEntity>>> candidatesSupplier) {
+        // Read the revision before evaluating so that changes made during evaluation are not cached against it
+        var revisionNumber = revisionManager.getCurrentRevision();
+        var cachedMatches = matchResultCache.get(criteria, revisionNumber);
+        if(cachedMatches.isPresent()) {
+            return cachedMatches.get();
+        }
+        var candidates = getCandidates(candidatesSupplier.get());
+        var matcher = matcherSupplier.get();
+        ImmutableSet<OWLEntity> matches;
+        if(candidates.size() < PARALLEL_EVALUATION_THRESHOLD) {
+            matches = candidates.stream()
+                                .filter(matcher::matches)
+                                .collect(toImmutableSet());
+        }
+        else {
+            matches = evaluationPool.submit(() -> candidates.parallelStream()
+                                                            .filter(matcher::matches)
+                                                            .collect(toImmutableSet()))
+                                    .join();
+        }
+        matchResultCache.put(criteria, revisionNumber, matches);
+        return matches;
+    }
+
+    private List<OWLEntity> getCandidates(@Nonnull Optional<Set<OWLEntity>> plannedCandidates) {
+        return plannedCandidates.<List<OWLEntity>>map(ArrayList::new)
+                                .orElseGet(() -> projectSignatureIndex.getSignature()
+                                                                      .collect(toImmutableList()));
     }
 
     @Override
@@ -0,0 +1,16 @@
+package edu.stanford.bmir.protege.web.server.project;
+
+import javax.inject.Qualifier;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Qualifies the maximum number of changes in each of the revisions that are written when a project is created from
+ * uploaded ontologies
+ */
+@Qualifier
+public @interface ImportChunkSize {
+
+}
@@ -1,10 +1,11 @@
 package edu.stanford.bmir.protege.web.server.project;
 
 import com.google.common.base.Stopwatch;
-import com.google.common.collect.Interner;
-import com.google.common.collect.Interners;
+import com.google.common.collect.ImmutableList;
 import edu.stanford.bmir.protege.web.server.dispatch.impl.ProjectActionHandlerRegistry;
+import edu.stanford.bmir.protege.web.server.download.HeadRevisionExporter;
 import edu.stanford.bmir.protege.web.server.events.EventManager;
+import edu.stanford.bmir.protege.web.server.events.ProjectEventStreamManager;
 import edu.stanford.bmir.protege.web.server.inject.ProjectComponent;
 import edu.stanford.bmir.protege.web.server.revision.RevisionManager;
 import edu.stanford.bmir.protege.web.shared.HasDispose;
@@ -15,35 +16,56 @@ import edu.stanford.bmir.protege.web.shared.project.NewProjectSettings;
 import edu.stanford.bmir.protege.web.shared.project.ProjectAlreadyExistsException;
 import edu.stanford.bmir.protege.web.shared.project.ProjectDocumentNotFoundException;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
-import org.semanticweb.owlapi.io.OWLParserException;
+import edu.stanford.bmir.protege.web.shared.project.ProjectLoadingException;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static edu.stanford.bmir.protege.web.server.logging.Markers.PERFORMANCE;
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.joining;
 
 /**
  * Author: Matthew Horridge<br>
  * Stanford University<br>
  * Bio-Medical Informatics Research Group<br>
  * Date: 07/03/2012
+ * <p>
+ *     Projects are loaded on the project loader executor, which bounds the number of projects that are loaded at
+ *     the same time.  Requests for a project that is being loaded share the load that is in progress.  Requests
+ *     from clients wait for a limited time for the project to be loaded, after which they fail with a
+ *     {@link ProjectLoadingException} so that servlet threads are not held while large projects load.
+ * </p>
  */
 @ApplicationSingleton
 public class ProjectCache implements HasDispose {
 
     private static final Logger logger = LoggerFactory.getLogger(ProjectCache.class);
 
-    private final Interner<ProjectId> projectIdInterner;
+    /**
+     * The priority of loads of projects that have been requested.  Lower values are loaded first.  Prewarmed
+     * projects are loaded with priorities that follow this one.
+     */
+    private static final int REQUESTED_LOAD_PRIORITY = 0;
+
+    /**
+     * The number of the largest project heap footprints that are logged at info level
+     */
+    private static final int LOGGED_HEAP_FOOTPRINT_COUNT = 5;
 
     private final ReadWriteLock projectMapReadWriteLoc = new ReentrantReadWriteLock();
 
@@ -57,6 +79,12 @@ public class ProjectCache implements HasDispose {
 
     private final Map<ProjectId, Long> lastAccessMap = new HashMap<>();
 
+    /**
+     * Projects that were loaded by prewarming and that have not been accessed since.  These are not purged as
+     * dormant projects, because they have not been used yet.  Guarded by the last access lock.
+     */
+    private final Set<ProjectId> prewarmedProjectIds = new HashSet<>();
+
     private final ProjectImporterFactory projectImporterFactory;
 
     /**
@@ -68,19 +96,64 @@ public class ProjectCache implements HasDispose {
 
     private final ProjectComponentFactory projectComponentFactory;
 
+    /**
+     * The loads of projects that are in progress.  A failed load is kept until its failure has been reported
+     * to a request that was told that the project was loading.
+     */
+    private final ConcurrentMap<ProjectId, ProjectLoad> projectLoads = new ConcurrentHashMap<>();
+
+    /**
+     * Loads projects.  This must be backed by a priority queue because load tasks are ordered by their priority.
+     */
+    private final ExecutorService projectLoaderExecutor;
+
+    /**
+     * The time that a client request waits for a project to be loaded before failing with a
+     * {@link ProjectLoadingException}
+     */
+    private final long projectLoadWaitTime;
+
+    private final AtomicLong loadSequenceNumber = new AtomicLong();
+
+    /**
+     * The maximum estimated heap that loaded projects may use, or zero if there is no limit
+     */
+    private final long maxHeapBytes;
+
+    /**
+     * Clients that read a project event stream do not poll for events, so the streams are used to tell whether
+     * these clients are still using the project
+     */
+    private final ProjectEventStreamManager projectEventStreamManager;
+
     @Inject
     public ProjectCache(@Nonnull ProjectComponentFactory projectComponentFactory,
                         @Nonnull ProjectImporterFactory projectImporterFactory,
-                        @DormantProjectTime  long dormantProjectTime) {
+                        @DormantProjectTime  long dormantProjectTime,
+                        @Nonnull @ProjectLoaderExecutor ExecutorService projectLoaderExecutor,
+                        @ProjectLoadWaitTime long projectLoadWaitTime,
+                        @ProjectCacheMaxHeapMb int maxHeapMb,
+                        @Nonnull ProjectEventStreamManager projectEventStreamManager) {
         this.projectComponentFactory = checkNotNull(projectComponentFactory);
         this.projectImporterFactory = checkNotNull(projectImporterFactory);
-        projectIdInterner = Interners.newWeakInterner();
         this.dormantProjectTime = dormantProjectTime;
+        this.projectLoaderExecutor = checkNotNull(projectLoaderExecutor);
+        this.projectLoadWaitTime = projectLoadWaitTime;
+        this.maxHeapBytes = maxHeapMb * 1024L * 1024L;
+        this.projectEventStreamManager = checkNotNull(projectEventStreamManager);
         logger.info("Dormant project time: {} milliseconds", dormantProjectTime);
+        logger.info("Project load wait time: {} milliseconds", projectLoadWaitTime);
+        if(maxHeapMb > 0) {
+            logger.info("Project heap budget: {} MB", maxHeapMb);
+        }
     }
 
-    public ProjectActionHandlerRegistry getActionHandlerRegistry(ProjectId projectId) {
-        return getProjectInternal(projectId, AccessMode.NORMAL, InstantiationMode.EAGER).getActionHandlerRegistry();
+    /**
+     * Gets the action handler registry for the specified project.
+     * @throws ProjectLoadingException if the project is still being loaded after the project load wait time.
+     */
+    public ProjectActionHandlerRegistry getActionHandlerRegistry(ProjectId projectId) throws ProjectLoadingException {
+        return getLoadedProject(projectId).getActionHandlerRegistry();
     }
 
 
@@ -100,17 +173,110 @@ public class ProjectCache implements HasDispose {
     }
 
     /**
-     * Purges projects that have not been access for some given period of time
+     * Purges projects that have not been access for some given period of time, and then purges projects until
+     * the estimated heap used by loaded projects is within the heap budget.  Projects that have open event streams
+     * are accessed by the clients that are reading the streams.
      */
     public void purgeDormantProjects() {
         // No locking needed
         for (ProjectId projectId : getCachedProjectIds()) {
+            if(projectEventStreamManager.hasOpenStreams(projectId)) {
+                logProjectAccess(projectId);
+                continue;
+            }
+            if(isPrewarmedAndNotAccessed(projectId)) {
+                continue;
+            }
             long time = getLastAccessTime(projectId);
             long lastAccessTimeDiff = System.currentTimeMillis() - time;
             if (time == 0 || lastAccessTimeDiff > dormantProjectTime) {
                 purge(projectId);
             }
         }
+        purgeProjectsOverHeapBudget(null);
+    }
+
+    /**
+     * Gets estimates of the heap used by each loaded project.
+     * @return The estimates, ordered from the largest estimate.
+     */
+    @Nonnull
+    public ImmutableList<ProjectHeapFootprint> getHeapFootprints() {
+        return projectId2ProjectComponent.values()
+                                         .stream()
+                                         .map(projectComponent -> projectComponent.getHeapFootprintEstimator()
+                                                                                  .estimateHeapFootprint())
+                                         .sorted(comparing(ProjectHeapFootprint::getEstimatedHeapBytes).reversed())
+                                         .collect(toImmutableList());
+    }
+
+    /**
+     * Purges loaded projects until their estimated heap footprint is within the heap budget.  Projects are
+     * purged in order of their eviction weight, which is the product of their estimated heap footprint and the
+     * time since they were last accessed, so large projects that have not been used recently are purged first.
+     * The footprints are logged on each check, whether or not there is a heap budget.
+     * @param retainedProjectId A project that should not be purged, for example, because it has just been loaded.
+     */
+    private synchronized void purgeProjectsOverHeapBudget(@Nullable ProjectId retainedProjectId) {
+        var footprints = getHeapFootprints();
+        var totalHeapBytes = footprints.stream()
+                                       .mapToLong(ProjectHeapFootprint::getEstimatedHeapBytes)
+                                       .sum();
+        logHeapFootprints(footprints, totalHeapBytes);
+        if(maxHeapBytes == 0 || totalHeapBytes <= maxHeapBytes) {
+            return;
+        }
+        logger.info("Loaded projects have an estimated heap footprint of {} MB, which exceeds the budget of {} MB",
+                    toMegabytes(totalHeapBytes),
+                    toMegabytes(maxHeapBytes));
+        var currentTime = System.currentTimeMillis();
+        var evictionCandidates = footprints.stream()
+                                           .filter(footprint -> !footprint.getProjectId().equals(retainedProjectId))
+                                           .sorted(comparing((ProjectHeapFootprint footprint) -> getEvictionWeight(footprint, currentTime)).reversed())
+                                           .collect(toImmutableList());
+        for(var footprint : evictionCandidates) {
+            if(totalHeapBytes <= maxHeapBytes) {
+                break;
+            }
+            logger.info("{} Purging project with an estimated heap footprint of {} MB",
+                        footprint.getProjectId(),
+                        toMegabytes(footprint.getEstimatedHeapBytes()));
+            purge(footprint.getProjectId());
+            totalHeapBytes -= footprint.getEstimatedHeapBytes();
+        }
+    }
+
+    /**
+     * Logs the total estimated heap footprint of the loaded projects along with the largest footprints.  Every
+     * footprint is logged at debug level.
+     */
+    private static void logHeapFootprints(@Nonnull ImmutableList<ProjectHeapFootprint> footprints,
+                                          long totalHeapBytes) {
+        if(footprints.isEmpty()) {
+            return;
+        }
+        logger.info(PERFORMANCE,
+                    "{} loaded projects have an estimated heap footprint of {} MB.  Largest: {}",
+                    footprints.size(),
+                    toMegabytes(totalHeapBytes),
+                    footprints.stream()
+                              .limit(LOGGED_HEAP_FOOTPRINT_COUNT)
+                              .map(footprint -> footprint.getProjectId().getId() + " (" + toMegabytes(footprint.getEstimatedHeapBytes()) + " MB)")
+                              .collect(joining(", ")));
+        if(logger.isDebugEnabled()) {
+            footprints.forEach(footprint -> logger.debug(PERFORMANCE, "{} {}", footprint.getProjectId(), footprint));
+        }
+    }
+
+    private double getEvictionWeight(@Nonnull ProjectHeapFootprint footprint, long currentTime) {
+        var lastAccessTime = getLastAccessTime(footprint.getProjectId());
+        // Add a second so that recently accessed projects are still ordered by size
+        var idleTime = Math.max(currentTime - lastAccessTime, 0) + 1000;
+        return (double) footprint.getEstimatedHeapBytes() * idleTime;
+    }
+
+    private static long toMegabytes(long bytes) {
+        return bytes / (1024 * 1024);
     }
 
     public void purgeAllProjects() {
@@ -120,15 +286,37 @@ public class ProjectCache implements HasDispose {
         }
     }
 
-    public void ensureProjectIsLoaded(ProjectId projectId) throws ProjectDocumentNotFoundException {
-        var projectComponent = getProjectInternal(projectId, AccessMode.NORMAL, InstantiationMode.EAGER);
+    /**
+     * Ensures that the specified project is loaded.
+     * @throws ProjectLoadingException if the project is still being loaded after the project load wait time.
+     */
+    public void ensureProjectIsLoaded(ProjectId projectId) throws ProjectDocumentNotFoundException, ProjectLoadingException {
+        var projectComponent = getLoadedProject(projectId);
         logger.info("Loaded {}", projectComponent.getProjectId());
     }
 
+    /**
+     * Loads the specified projects, if they are not already loaded, in the background.  Projects are loaded in
+     * the order that they are specified in, after any projects that have been requested.
+     * @param projectIds The projects to load.
+     */
+    public void prewarm(@Nonnull List<ProjectId> projectIds) {
+        for(int i = 0; i < projectIds.size(); i++) {
+            var projectId = projectIds.get(i);
+            if(!projectId2ProjectComponent.containsKey(projectId)) {
+                requestLoad(projectId, InstantiationMode.EAGER, REQUESTED_LOAD_PRIORITY + 1 + i, true);
+            }
+        }
+    }
+
     public RevisionManager getRevisionManager(ProjectId projectId) {
         return getProjectInternal(projectId, AccessMode.NORMAL, InstantiationMode.LAZY).getRevisionManager();
     }
 
+    public HeadRevisionExporter getHeadRevisionExporter(ProjectId projectId) {
+        return getProjectInternal(projectId, AccessMode.NORMAL, InstantiationMode.LAZY).getHeadRevisionExporter();
+    }
+
     @Nonnull
     public Optional<EventManager<ProjectEvent<?>>> getProjectEventManagerIfActive(@Nonnull ProjectId projectId) {
         try {
@@ -152,50 +340,121 @@ public class ProjectCache implements HasDispose {
         QUIET
     }
 
+    /**
+     * Gets the component for the specified project, waiting for as long as it takes for the project to be loaded.
+     */
     private ProjectComponent getProjectInternal(ProjectId projectId, AccessMode accessMode, InstantiationMode instantiationMode) {
-        // Per project lock
-        synchronized (getInternedProjectId(projectId)) {
+        var projectComponent = projectId2ProjectComponent.get(projectId);
+        if(projectComponent == null) {
+            var load = requestLoad(projectId, instantiationMode, REQUESTED_LOAD_PRIORITY);
             try {
-                ProjectComponent projectComponent = getProjectInjector(projectId, instantiationMode);
-                if (accessMode == AccessMode.NORMAL) {
-                    logProjectAccess(projectId);
-                }
-                return projectComponent;
-            }
-            catch (OWLParserException e) {
+                projectComponent = load.getFuture().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
                 throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                projectLoads.remove(projectId, load);
+                throw getLoadFailure(e);
             }
         }
+        if (accessMode == AccessMode.NORMAL) {
+            logProjectAccess(projectId);
+        }
+        return projectComponent;
     }
 
-    private ProjectComponent getProjectInjector(ProjectId projectId, InstantiationMode instantiationMode) {
-        ProjectComponent projectComponent = projectId2ProjectComponent.get(projectId);
-        if (projectComponent == null) {
-            logger.info("Request for unloaded project {}.", projectId.getId());
-            Stopwatch stopwatch = Stopwatch.createStarted();
-            projectComponent = projectComponentFactory.createProjectComponent(projectId);
-            if(instantiationMode == InstantiationMode.EAGER) {
-                // Force instantiation of certain objects in the project graph.
-                // This needs to be done in a nicer way, but this approach works for now.
-                projectComponent.init();
+    /**
+     * Gets the eagerly instantiated component for the specified project, waiting for at most the project load
+     * wait time for the project to be loaded.
+     * @throws ProjectLoadingException if the project is still being loaded after the project load wait time.
+     */
+    private ProjectComponent getLoadedProject(ProjectId projectId) throws ProjectLoadingException {
+        var projectComponent = projectId2ProjectComponent.get(projectId);
+        if(projectComponent == null) {
+            var load = requestLoad(projectId, InstantiationMode.EAGER, REQUESTED_LOAD_PRIORITY);
+            try {
+                projectComponent = load.getFuture().get(projectLoadWaitTime, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                projectLoads.remove(projectId, load);
+                throw getLoadFailure(e);
+            } catch (TimeoutException e) {
+                load.setReportedAsLoading();
+                // The load might have failed in the mean time.  If so, then report the failure now, otherwise
+                // it is reported to the next request for the project.
+                if(load.getFuture().isCompletedExceptionally()) {
+                    projectLoads.remove(projectId, load);
+                    throw getLoadFailure(load.getFuture());
+                }
+                logger.info("{} Project is still loading after {} ms", projectId, projectLoadWaitTime);
+                throw new ProjectLoadingException(projectId);
             }
-            stopwatch.stop();
-            logger.info("{} Instantiated project component in {} ms",
-                        projectId,
-                        stopwatch.elapsed(TimeUnit.MILLISECONDS));
-            projectId2ProjectComponent.put(projectId, projectComponent);
         }
+        logProjectAccess(projectId);
         return projectComponent;
     }
 
     /**
-     * Gets an interned {@link ProjectId} that is equal to the specified {@link ProjectId}.
-     * @param projectId The project id to intern.
-     * @return The interned project Id.  Not {@code null}.
+     * Requests that the specified project is loaded.  If the project is already being loaded then the load
+     * that is in progress is returned.
+     * @param projectId The project to load.
+     * @param instantiationMode The instantiation mode of the project component.
+     * @param priority The priority of the load.  Lower values are loaded first.
+     * @return The load of the project.
+     */
+    private ProjectLoad requestLoad(ProjectId projectId, InstantiationMode instantiationMode, int priority) {
+        return requestLoad(projectId, instantiationMode, priority, false);
+    }
+
+    /**
+     * Requests that the specified project is loaded.  If the project is already being loaded then the load
+     * that is in progress is returned.
+     * @param projectId The project to load.
+     * @param instantiationMode The instantiation mode of the project component.
+     * @param priority The priority of the load.  Lower values are loaded first.
+     * @param prewarm true if the project is being prewarmed, rather than requested.
+     * @return The load of the project.
      */
-    private ProjectId getInternedProjectId(ProjectId projectId) {
-        // The interner is thread safe.
-        return projectIdInterner.intern(projectId);
+    private ProjectLoad requestLoad(ProjectId projectId, InstantiationMode instantiationMode, int priority, boolean prewarm) {
+        var load = projectLoads.computeIfAbsent(projectId, ProjectLoad::new);
+        if(load.getFuture().isCompletedExceptionally()) {
+            // Report the failure to this request.  The next request starts a new load.
+            projectLoads.remove(projectId, load);
+            return load;
+        }
+        if(instantiationMode == InstantiationMode.EAGER) {
+            load.setEager();
+        }
+        if(prewarm) {
+            load.setPrewarm();
+        }
+        load.schedule(priority);
+        return load;
+    }
+
+    private static RuntimeException getLoadFailure(ExecutionException e) {
+        var cause = e.getCause();
+        if(cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if(cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new RuntimeException(cause);
+    }
+
+    private static RuntimeException getLoadFailure(Future<?> failedFuture) {
+        try {
+            failedFuture.get();
+            return new IllegalStateException("Load did not fail");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new RuntimeException(e);
+        } catch (ExecutionException e) {
+            return getLoadFailure(e);
+        }
     }
 
     public ProjectId getProject(NewProjectSettings newProjectSettings) throws ProjectAlreadyExistsException, OWLOntologyCreationException, IOException {
@@ -205,7 +464,9 @@ public class ProjectCache implements HasDispose {
             ProjectImporter importer = projectImporterFactory.create(projectId);
             importer.createProjectFromSources(sourceDocumentId.get(), newProjectSettings.getProjectOwner());
         }
-        return getProjectInternal(projectId, AccessMode.NORMAL, InstantiationMode.EAGER).getProjectId();
+        // The project is loaded in the background.  Requests for the project wait for it to be loaded.
+        requestLoad(projectId, InstantiationMode.EAGER, REQUESTED_LOAD_PRIORITY);
+        return projectId;
     }
 
     public void purge(ProjectId projectId) {
@@ -218,6 +479,7 @@ public class ProjectCache implements HasDispose {
                 projectDisposableObjectManager.dispose();
             }
             lastAccessMap.remove(projectId);
+            prewarmedProjectIds.remove(projectId);
         }
         finally {
             final int projectsBeingAccessed = lastAccessMap.size();
@@ -255,23 +517,210 @@ public class ProjectCache implements HasDispose {
         return Objects.requireNonNullElse(timestamp, 0L);
     }
 
+    private boolean isPrewarmedAndNotAccessed(ProjectId projectId) {
+        try {
+            lastAccessLock.readLock().lock();
+            return prewarmedProjectIds.contains(projectId);
+        }
+        finally {
+            lastAccessLock.readLock().unlock();
+        }
+    }
+
     private void logProjectAccess(final ProjectId projectId) {
         try {
             lastAccessLock.writeLock().lock();
-            long currentTime = System.currentTimeMillis();
-            int currentSize = lastAccessMap.size();
-            lastAccessMap.put(projectId, currentTime);
-            if(lastAccessMap.size() > currentSize) {
-                logger.info("{} projects are now being accessed", lastAccessMap.size());
+            prewarmedProjectIds.remove(projectId);
+            putLastAccessTime(projectId);
+        }
+        finally {
+            lastAccessLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records that the specified project has been loaded.  The project's last access time is set to the load time.
+     * @param prewarm true if the project was loaded by prewarming it
+     */
+    private void logProjectLoaded(ProjectId projectId, boolean prewarm) {
+        try {
+            lastAccessLock.writeLock().lock();
+            if(prewarm) {
+                prewarmedProjectIds.add(projectId);
             }
+            putLastAccessTime(projectId);
         }
         finally {
             lastAccessLock.writeLock().unlock();
         }
     }
 
+    /**
+     * Sets the last access time of the specified project to the current time.  The caller must hold the write
+     * lock of the last access lock.
+     */
+    private void putLastAccessTime(ProjectId projectId) {
+        long currentTime = System.currentTimeMillis();
+        int currentSize = lastAccessMap.size();
+        lastAccessMap.put(projectId, currentTime);
+        if(lastAccessMap.size() > currentSize) {
+            logger.info("{} projects are now being accessed", lastAccessMap.size());
+        }
+    }
+
     @Override
     public void dispose() {
         purgeAllProjects();
     }
+
+    /**
+     * The load of a project.  A load is scheduled on the project loader executor with the priority of the most
+     * urgent request for the project.  The load is performed by the first of its scheduled tasks to run.
+     */
+    private class ProjectLoad {
+
+        private final ProjectId projectId;
+
+        private final CompletableFuture<ProjectComponent> future = new CompletableFuture<>();
+
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        private volatile boolean eager = false;
+
+        private volatile boolean reportedAsLoading = false;
+
+        private volatile boolean prewarm = false;
+
+        /**
+         * The priority of the most urgent task that has been scheduled for this load
+         */
+        private int scheduledPriority = Integer.MAX_VALUE;
+
+        private ProjectLoad(ProjectId projectId) {
+            this.projectId = projectId;
+        }
+
+        public CompletableFuture<ProjectComponent> getFuture() {
+            return future;
+        }
+
+        public void setEager() {
+            eager = true;
+        }
+
+        public void setPrewarm() {
+            prewarm = true;
+        }
+
+        public void setReportedAsLoading() {
+            reportedAsLoading = true;
+        }
+
+        public synchronized void schedule(int priority) {
+            if(started.get() || priority >= scheduledPriority) {
+                return;
+            }
+            scheduledPriority = priority;
+            try {
+                projectLoaderExecutor.execute(new ProjectLoadTask(this, priority, loadSequenceNumber.getAndIncrement()));
+            } catch (RejectedExecutionException e) {
+                logger.info("{} Project load rejected", projectId);
+                future.completeExceptionally(e);
+            }
+        }
+
+        public void load() {
+            if(!started.compareAndSet(false, true)) {
+                // Loaded by a more urgent task
+                return;
+            }
+            var loadedProjectComponent = projectId2ProjectComponent.get(projectId);
+            if(loadedProjectComponent != null) {
+                // The project was loaded by an earlier load after the request for this load found it unloaded
+                completeWithLoadedProject(loadedProjectComponent);
+                return;
+            }
+            try {
+                logger.info("Request for unloaded project {}.", projectId.getId());
+                Stopwatch stopwatch = Stopwatch.createStarted();
+                ProjectComponent projectComponent = projectComponentFactory.createProjectComponent(projectId);
+                if(eager) {
+                    // Force instantiation of certain objects in the project graph.
+                    // This needs to be done in a nicer way, but this approach works for now.
+                    projectComponent.init();
+                }
+                stopwatch.stop();
+                logger.info("{} Instantiated project component in {} ms",
+                            projectId,
+                            stopwatch.elapsed(TimeUnit.MILLISECONDS));
+                projectId2ProjectComponent.put(projectId, projectComponent);
+                // Requests that are waiting for this load record their access once the load completes
+                logProjectLoaded(projectId, prewarm);
+                future.complete(projectComponent);
+                projectLoads.remove(projectId, this);
+            } catch (Throwable t) {
+                logger.error("{} An error occurred whilst loading the project", projectId, t);
+                future.completeExceptionally(t);
+                if(!reportedAsLoading) {
+                    // Every request for the project has been given the failure
+                    projectLoads.remove(projectId, this);
+                }
+                return;
+            }
+            try {
+                purgeProjectsOverHeapBudget(projectId);
+            } catch (RuntimeException e) {
+                logger.error("{} An error occurred whilst purging projects that are over the heap budget", projectId, e);
+            }
+        }
+
+        private void completeWithLoadedProject(ProjectComponent loadedProjectComponent) {
+            try {
+                if(eager) {
+                    loadedProjectComponent.init();
+                }
+                future.complete(loadedProjectComponent);
+                projectLoads.remove(projectId, this);
+            } catch (Throwable t) {
+                logger.error("{} An error occurred whilst initializing the project", projectId, t);
+                future.completeExceptionally(t);
+                if(!reportedAsLoading) {
+                    projectLoads.remove(projectId, this);
+                }
+            }
+        }
+    }
+
+    /**
+     * A task that loads a project.  Tasks are ordered by priority and then by the order in which they were
+     * scheduled.
+     */
+    private static class ProjectLoadTask implements Runnable, Comparable<ProjectLoadTask> {
+
+        private final ProjectLoad load;
+
+        private final int priority;
+
+        private final long sequenceNumber;
+
+        private ProjectLoadTask(ProjectLoad load, int priority, long sequenceNumber) {
+            this.load = load;
+            this.priority = priority;
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        @Override
+        public void run() {
+            load.load();
+        }
+
+        @Override
+        public int compareTo(ProjectLoadTask o) {
+            int diff = Integer.compare(priority, o.priority);
+            if(diff != 0) {
+                return diff;
+            }
+            return Long.compare(sequenceNumber, o.sequenceNumber);
+        }
+    }
 }
@@ -0,0 +1,15 @@
+package edu.stanford.bmir.protege.web.server.project;
+
+import javax.inject.Qualifier;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Qualifies the maximum estimated heap, in megabytes, that loaded projects may use
+ */
+@Qualifier
+public @interface ProjectCacheMaxHeapMb {
+
+}
@@ -200,6 +200,26 @@ public class ProjectDetailsRepository implements Repository {
         }
     }
 
+    /**
+     * Finds the most recently modified projects that are not in the trash.
+     * @param limit The maximum number of projects to find.
+     * @return The project details, ordered from the most recently modified project.
+     */
+    public List<ProjectDetails> findRecentlyModified(int limit) {
+        try {
+            readLock.lock();
+            ArrayList<ProjectDetails> result = new ArrayList<>();
+            collection.find(new Document(IN_TRASH, new Document("$ne", true)))
+                      .sort(new Document(MODIFIED_AT, -1))
+                      .limit(limit)
+                      .map(d -> objectMapper.convertValue(d, ProjectDetails.class))
+                      .into(result);
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     private static Document withOwner(@Nonnull UserId owner) {
         return new Document(OWNER, owner.getUserName());
     }
@@ -0,0 +1,49 @@
+package edu.stanford.bmir.protege.web.server.project;
+
+import com.google.auto.value.AutoValue;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * An estimate of the heap that is used by a loaded project.  The estimate is derived from the number of axioms in
+ * the project indexes and the number of revisions and changes that are held in memory by the revision store.
+ */
+@AutoValue
+public abstract class ProjectHeapFootprint {
+
+    @Nonnull
+    public static ProjectHeapFootprint get(@Nonnull ProjectId projectId,
+                                           long indexedAxiomCount,
+                                           long revisionCount,
+                                           long heldChangeCount,
+                                           long estimatedHeapBytes) {
+        return new AutoValue_ProjectHeapFootprint(projectId,
+                                                  indexedAxiomCount,
+                                                  revisionCount,
+                                                  heldChangeCount,
+                                                  estimatedHeapBytes);
+    }
+
+    @Nonnull
+    public abstract ProjectId getProjectId();
+
+    /**
+     * Gets the number of axioms in the project indexes
+     */
+    public abstract long getIndexedAxiomCount();
+
+    public abstract long getRevisionCount();
+
+    /**
+     * Gets the number of changes that are held in memory by revisions.  Changes of lazily loaded revisions are
+     * not included.
+     */
+    public abstract long getHeldChangeCount();
+
+    public abstract long getEstimatedHeapBytes();
+}
@@ -0,0 +1,77 @@
+package edu.stanford.bmir.protege.web.server.project;
+
+import edu.stanford.bmir.protege.web.server.index.impl.AxiomsByTypeIndexImpl;
+import edu.stanford.bmir.protege.web.server.revision.RevisionManager;
+import edu.stanford.bmir.protege.web.shared.inject.ProjectSingleton;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Estimates the heap footprint of a loaded project.  The estimate is cheap to compute and is intended for
+ * comparing projects with each other and with a heap budget, rather than as an accurate measurement.
+ */
+@ProjectSingleton
+public class ProjectHeapFootprintEstimator {
+
+    /**
+     * The approximate number of bytes per axiom across all of the project indexes.  Each axiom appears in
+     * many indexes, so this includes the axiom itself and the index entries that refer to it.
+     */
+    static final long BYTES_PER_INDEXED_AXIOM = 1536;
+
+    /**
+     * The approximate number of bytes per change that is held in memory by a revision
+     */
+    static final long BYTES_PER_HELD_CHANGE = 256;
+
+    /**
+     * The approximate number of bytes of revision metadata (user, timestamp and description) per revision
+     */
+    static final long BYTES_PER_REVISION = 256;
+
+    @Nonnull
+    private final ProjectId projectId;
+
+    @Nonnull
+    private final AxiomsByTypeIndexImpl axiomsByTypeIndex;
+
+    @Nonnull
+    private final RevisionManager revisionManager;
+
+    @Inject
+    public ProjectHeapFootprintEstimator(@Nonnull ProjectId projectId,
+                                         @Nonnull AxiomsByTypeIndexImpl axiomsByTypeIndex,
+                                         @Nonnull RevisionManager revisionManager) {
+        this.projectId = checkNotNull(projectId);
+        this.axiomsByTypeIndex = checkNotNull(axiomsByTypeIndex);
+        this.revisionManager = checkNotNull(revisionManager);
+    }
+
+    @Nonnull
+    public ProjectHeapFootprint estimateHeapFootprint() {
+        long axiomCount = axiomsByTypeIndex.getAxiomCount();
+        var revisions = revisionManager.getRevisions();
+        long heldChangeCount = 0;
+        for(var revision : revisions) {
+            if(!revision.isLazy()) {
+                heldChangeCount += revision.getSize();
+            }
+        }
+        long estimatedHeapBytes = axiomCount * BYTES_PER_INDEXED_AXIOM
+                + heldChangeCount * BYTES_PER_HELD_CHANGE
+                + revisions.size() * BYTES_PER_REVISION;
+        return ProjectHeapFootprint.get(projectId,
+                                        axiomCount,
+                                        revisions.size(),
+                                        heldChangeCount,
+                                        estimatedHeapBytes);
+    }
+}
@@ -5,8 +5,9 @@ import com.google.auto.factory.Provided;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import edu.stanford.bmir.protege.web.server.change.*;
+import edu.stanford.bmir.protege.web.server.inject.ChangeHistoryFileFactory;
 import edu.stanford.bmir.protege.web.server.revision.Revision;
-import edu.stanford.bmir.protege.web.server.revision.RevisionStoreFactory;
+import edu.stanford.bmir.protege.web.server.revision.RevisionSerializationTask;
 import edu.stanford.bmir.protege.web.server.upload.DocumentResolver;
 import edu.stanford.bmir.protege.web.server.upload.UploadedOntologiesProcessor;
 import edu.stanford.bmir.protege.web.server.util.MemoryMonitor;
@@ -14,15 +15,23 @@ import edu.stanford.bmir.protege.web.shared.csv.DocumentId;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
 import edu.stanford.bmir.protege.web.shared.user.UserId;
+import org.semanticweb.binaryowl.BinaryOWLOntologyChangeLog;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
-import java.util.Collection;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -36,6 +45,8 @@ public class ProjectImporter {
 
     private static final Logger logger = LoggerFactory.getLogger(ProjectImporter.class);
 
+    private static final String INITIAL_IMPORT_DESCRIPTION = "Initial import";
+
     @Nonnull
     private final UploadedOntologiesProcessor uploadedOntologiesProcessor;
 
@@ -46,18 +57,22 @@ public class ProjectImporter {
     private final ProjectId projectId;
 
     @Nonnull
-    private final RevisionStoreFactory revisionStoreFactory;
+    private final ChangeHistoryFileFactory changeHistoryFileFactory;
+
+    private final int chunkSize;
 
     @AutoFactory
     @Inject
     public ProjectImporter(ProjectId projectId,
                            @Provided @Nonnull UploadedOntologiesProcessor uploadedOntologiesProcessor,
                            @Provided @Nonnull DocumentResolver documentResolver,
-                           @Provided @Nonnull RevisionStoreFactory revisionStoreFactory) {
+                           @Provided @Nonnull ChangeHistoryFileFactory changeHistoryFileFactory,
+                           @Provided @ImportChunkSize int chunkSize) {
         this.projectId = checkNotNull(projectId);
         this.uploadedOntologiesProcessor = checkNotNull(uploadedOntologiesProcessor);
         this.documentResolver = checkNotNull(documentResolver);
-        this.revisionStoreFactory = checkNotNull(revisionStoreFactory);
+        this.changeHistoryFileFactory = checkNotNull(changeHistoryFileFactory);
+        this.chunkSize = chunkSize;
     }
 
 
@@ -65,49 +80,76 @@ public class ProjectImporter {
                                          UserId owner) throws IOException, OWLOntologyCreationException {
         logger.info("{} Creating project from sources", projectId);
         var stopwatch = Stopwatch.createStarted();
-        var uploadedOntologies = uploadedOntologiesProcessor.getUploadedOntologies(sourcesId);
+        var uploadedOntologies = uploadedOntologiesProcessor.getUploadedOWLOntologies(sourcesId);
         logger.info("{} Loaded sources in {} ms", projectId, stopwatch.elapsed(TimeUnit.MILLISECONDS));
         var memoryMonitor = new MemoryMonitor(logger);
         memoryMonitor.logMemoryUsage();
         logger.info("{} Writing change log", projectId);
-        generateInitialChanges(owner, uploadedOntologies);
+        writeInitialRevisions(owner, uploadedOntologies, memoryMonitor);
         deleteSourceFile(sourcesId);
         logger.info("{} Project creation from sources complete in {} ms", projectId, stopwatch.elapsed(TimeUnit.MILLISECONDS));
         memoryMonitor.logMemoryUsage();
+        memoryMonitor.logPeakMemoryUsage();
+    }
 
+    /**
+     * Writes the initial changes for the uploaded ontologies to the change history as a series of revisions that
+     * each contain at most {@link #chunkSize} changes.  Only the changes for the revision that is being written are
+     * held in memory.  Each ontology is removed from its manager once its changes have been written, and is removed
+     * from the specified list, so that the memory it uses can be reclaimed while the remaining ontologies are written.
+     */
+    private void writeInitialRevisions(UserId owner,
+                                       List<OWLOntology> uploadedOntologies,
+                                       MemoryMonitor memoryMonitor) throws IOException {
+        var totalChangeCount = uploadedOntologies.stream()
+                                                 .mapToLong(ProjectImporter::getInitialChangeCount)
+                                                 .sum();
+        var revisionCount = Math.max(1, (totalChangeCount + chunkSize - 1) / chunkSize);
+        logger.info("{} Writing {} change records in {} initial revision(s)", projectId, totalChangeCount, revisionCount);
+        var changeHistoryFile = changeHistoryFileFactory.getChangeHistoryFile(projectId).toPath();
+        Files.createDirectories(changeHistoryFile.getParent());
+        // Write to a temporary file so that a failed import does not leave a partial change history behind
+        var temporaryFile = changeHistoryFile.resolveSibling(changeHistoryFile.getFileName() + ".import");
+        try {
+            try(var fileOutputStream = new FileOutputStream(temporaryFile.toFile())) {
+                var outputStream = new BufferedOutputStream(fileOutputStream);
+                var writer = new InitialRevisionsWriter(owner, outputStream, totalChangeCount, revisionCount, memoryMonitor);
+                var ontologiesIterator = uploadedOntologies.iterator();
+                while(ontologiesIterator.hasNext()) {
+                    var ont = ontologiesIterator.next();
+                    ontologiesIterator.remove();
+                    writeInitialChanges(ont, writer);
+                    ont.getOWLOntologyManager().removeOntology(ont);
+                }
+                writer.finish();
+                outputStream.flush();
+                fileOutputStream.getChannel().force(false);
+            }
+            Files.move(temporaryFile, changeHistoryFile, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
     }
 
-    private void generateInitialChanges(UserId owner, Collection<Ontology> uploadedOntologies) {
-        ImmutableList<OntologyChange> changeRecords = getInitialChangeRecords(uploadedOntologies);
-        logger.info("{} Writing initial revision containing {} change records", projectId, changeRecords.size());
-        Stopwatch stopwatch = Stopwatch.createStarted();
-        var revisionStore = revisionStoreFactory.createRevisionStore(projectId);
-        revisionStore.addRevision(
-                new Revision(
-                        owner,
-                        RevisionNumber.getRevisionNumber(1),
-                        changeRecords,
-                        System.currentTimeMillis(),
-                        "Initial import"));
-        logger.info("{} Initial revision written in {} ms", projectId, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+    private static long getInitialChangeCount(OWLOntology ont) {
+        return (long) ont.getAxiomCount() + ont.getAnnotations().size() + ont.getImportsDeclarations().size();
     }
 
-    private ImmutableList<OntologyChange> getInitialChangeRecords(Collection<Ontology> ontologies) {
-        ImmutableList.Builder<OntologyChange> changeRecordList = ImmutableList.builder();
-        for (var ont : ontologies) {
-            var axioms = ont.getAxioms();
-            logger.info("{} Processing ontology source ({} axioms)", projectId, axioms.size());
-            for (var axiom : ont.getAxioms()) {
-                changeRecordList.add(AddAxiomChange.of(ont.getOntologyId(), axiom));
-            }
-            for (var annotation : ont.getAnnotations()) {
-                changeRecordList.add(AddOntologyAnnotationChange.of(ont.getOntologyId(), annotation));
-            }
-            for (var importsDeclaration : ont.getImportsDeclarations()) {
-                changeRecordList.add(AddImportChange.of(ont.getOntologyId(), importsDeclaration));
+    private void writeInitialChanges(OWLOntology ont, InitialRevisionsWriter writer) throws IOException {
+        logger.info("{} Processing ontology source ({} axioms)", projectId, ont.getAxiomCount());
+        var ontologyId = ont.getOntologyID();
+        // Get the axioms by type, which avoids copying all of the axioms in the ontology at once
+        for (var axiomType : AxiomType.AXIOM_TYPES) {
+            for (var axiom : ont.getAxioms(axiomType)) {
+                writer.add(AddAxiomChange.of(ontologyId, axiom));
             }
         }
-        return changeRecordList.build();
+        for (var annotation : ont.getAnnotations()) {
+            writer.add(AddOntologyAnnotationChange.of(ontologyId, annotation));
+        }
+        for (var importsDeclaration : ont.getImportsDeclarations()) {
+            writer.add(AddImportChange.of(ontologyId, importsDeclaration));
+        }
     }
 
     private void deleteSourceFile(DocumentId sourceFileId) {
@@ -118,4 +160,82 @@ public class ProjectImporter {
             logger.info("Could not delete uploaded file: {} Cause: {}", sourceFilePath, e.getMessage());
         }
     }
+
+    /**
+     * Buffers initial changes and writes them to the change history as a revision each time that the buffer is full
+     */
+    private class InitialRevisionsWriter {
+
+        private final BinaryOWLOntologyChangeLog changeLog = new BinaryOWLOntologyChangeLog();
+
+        private final UserId owner;
+
+        private final OutputStream outputStream;
+
+        private final long totalChangeCount;
+
+        private final long revisionCount;
+
+        private final MemoryMonitor memoryMonitor;
+
+        private final Stopwatch stopwatch = Stopwatch.createStarted();
+
+        private final List<OntologyChange> buffer = new ArrayList<>();
+
+        private long writtenChangeCount = 0;
+
+        private long writtenRevisionCount = 0;
+
+        private InitialRevisionsWriter(UserId owner,
+                                       OutputStream outputStream,
+                                       long totalChangeCount,
+                                       long revisionCount,
+                                       MemoryMonitor memoryMonitor) {
+            this.owner = owner;
+            this.outputStream = outputStream;
+            this.totalChangeCount = totalChangeCount;
+            this.revisionCount = revisionCount;
+            this.memoryMonitor = memoryMonitor;
+        }
+
+        public void add(OntologyChange change) throws IOException {
+            buffer.add(change);
+            if(buffer.size() == chunkSize) {
+                writeRevision();
+            }
+        }
+
+        /**
+         * Writes any buffered changes.  The initial revision is always written, even if there are no changes.
+         */
+        public void finish() throws IOException {
+            if(!buffer.isEmpty() || writtenRevisionCount == 0) {
+                writeRevision();
+            }
+        }
+
+        private void writeRevision() throws IOException {
+            var revisionNumber = RevisionNumber.getRevisionNumber(writtenRevisionCount + 1);
+            var description = revisionCount == 1 ? INITIAL_IMPORT_DESCRIPTION :
+                    String.format("%s (part %d of %d)", INITIAL_IMPORT_DESCRIPTION, revisionNumber.getValue(), revisionCount);
+            var revision = new Revision(owner,
+                                        revisionNumber,
+                                        ImmutableList.copyOf(buffer),
+                                        System.currentTimeMillis(),
+                                        description);
+            buffer.clear();
+            changeLog.appendChanges(RevisionSerializationTask.toChangeRecordList(revision), outputStream);
+            writtenRevisionCount++;
+            writtenChangeCount += revision.getSize();
+            logger.info("{} Written initial revision {} of {} ({} of {} change records, {}%) after {} ms",
+                        projectId,
+                        writtenRevisionCount,
+                        revisionCount,
+                        writtenChangeCount,
+                        totalChangeCount,
+                        totalChangeCount == 0 ? 100 : (100 * writtenChangeCount) / totalChangeCount,
+                        stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            memoryMonitor.monitorMemoryUsage();
+        }
+    }
 }
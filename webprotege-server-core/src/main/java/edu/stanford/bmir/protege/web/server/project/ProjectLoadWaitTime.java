@@ -0,0 +1,15 @@
+package edu.stanford.bmir.protege.web.server.project;
+
+import javax.inject.Qualifier;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Qualifies the time, in milliseconds, that a request for a project waits for the project to be loaded
+ */
+@Qualifier
+public @interface ProjectLoadWaitTime {
+
+}
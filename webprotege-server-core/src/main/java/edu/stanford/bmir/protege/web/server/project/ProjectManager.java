@@ -1,6 +1,7 @@
 package edu.stanford.bmir.protege.web.server.project;
 
 import edu.stanford.bmir.protege.web.server.dispatch.impl.ProjectActionHandlerRegistry;
+import edu.stanford.bmir.protege.web.server.download.HeadRevisionExporter;
 import edu.stanford.bmir.protege.web.server.events.EventManager;
 import edu.stanford.bmir.protege.web.server.revision.RevisionManager;
 import edu.stanford.bmir.protege.web.shared.event.EventList;
@@ -11,6 +12,7 @@ import edu.stanford.bmir.protege.web.shared.project.NewProjectSettings;
 import edu.stanford.bmir.protege.web.shared.project.ProjectAlreadyExistsException;
 import edu.stanford.bmir.protege.web.shared.project.ProjectDocumentNotFoundException;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.project.ProjectLoadingException;
 import edu.stanford.bmir.protege.web.shared.user.UserId;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyStorageException;
@@ -52,9 +54,10 @@ public class ProjectManager {
      * @param projectId The project.
      * @param requestingUser The user that is requesting that the project is loaded.
      * @throws ProjectDocumentNotFoundException If there is no such project.
+     * @throws ProjectLoadingException If the project is still being loaded.
      */
     public void ensureProjectIsLoaded(@Nonnull ProjectId projectId,
-                                      @Nonnull UserId requestingUser) throws ProjectDocumentNotFoundException {
+                                      @Nonnull UserId requestingUser) throws ProjectDocumentNotFoundException, ProjectLoadingException {
         long currentTime = System.currentTimeMillis();
         projectAccessManager.logProjectAccess(projectId, requestingUser, currentTime);
         projectCache.ensureProjectIsLoaded(projectId);
@@ -64,6 +67,10 @@ public class ProjectManager {
         return projectCache.getRevisionManager(projectId);
     }
 
+    public HeadRevisionExporter getHeadRevisionExporter(@Nonnull ProjectId projectId) {
+        return projectCache.getHeadRevisionExporter(projectId);
+    }
+
     public ProjectId createNewProject(@Nonnull NewProjectSettings newProjectSettings) throws ProjectAlreadyExistsException, OWLOntologyCreationException, IOException, OWLOntologyStorageException {
         return projectCache.getProject(newProjectSettings);
     }
@@ -21,6 +21,7 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -64,7 +65,7 @@ public class ProjectOntologyManagerLoader {
     public OWLOntology createProjectOntologiesInManager(@Nonnull OWLOntologyManager manager) throws OWLOntologyCreationException {
         logger.info("{} Loading project", projectId);
         Stopwatch stopwatch = Stopwatch.createStarted();
-        ImmutableList<Revision> revisions = revisionManager.getRevisions();
+        List<Revision> revisions = revisionManager.getRevisions();
         logger.info("{} Processing {} revisions", projectId, String.format("%,d", revisions.size()));
         if(revisions.isEmpty()) {
             var ontologyIri = createUniqueOntologyIRI();
@@ -0,0 +1,15 @@
+package edu.stanford.bmir.protege.web.server.project;
+
+import javax.inject.Qualifier;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Qualifies the number of recently modified projects that are loaded at startup
+ */
+@Qualifier
+public @interface ProjectPrewarmRecentCount {
+
+}
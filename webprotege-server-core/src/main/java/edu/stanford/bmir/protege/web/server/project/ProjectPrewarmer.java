@@ -0,0 +1,102 @@
+package edu.stanford.bmir.protege.web.server.project;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.bmir.protege.web.shared.inject.ApplicationSingleton;
+import edu.stanford.bmir.protege.web.shared.project.ProjectDetails;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.project.ProjectIdFormatException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Loads frequently used projects at startup so that the first requests for them do not have to wait for them to
+ * be loaded.  The configured projects are loaded first, in the order that they are configured in, followed by the
+ * most recently modified projects.
+ */
+@ApplicationSingleton
+public class ProjectPrewarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProjectPrewarmer.class);
+
+    @Nonnull
+    private final ProjectCache projectCache;
+
+    @Nonnull
+    private final ProjectDetailsRepository projectDetailsRepository;
+
+    @Nonnull
+    private final ImmutableList<String> prewarmIds;
+
+    private final int prewarmRecentCount;
+
+    @Inject
+    public ProjectPrewarmer(@Nonnull ProjectCache projectCache,
+                            @Nonnull ProjectDetailsRepository projectDetailsRepository,
+                            @Nonnull @ProjectPrewarmIds ImmutableList<String> prewarmIds,
+                            @ProjectPrewarmRecentCount int prewarmRecentCount) {
+        this.projectCache = checkNotNull(projectCache);
+        this.projectDetailsRepository = checkNotNull(projectDetailsRepository);
+        this.prewarmIds = checkNotNull(prewarmIds);
+        this.prewarmRecentCount = prewarmRecentCount;
+    }
+
+    /**
+     * Starts loading the prewarmed projects in the background
+     */
+    public void prewarmProjects() {
+        try {
+            var projectIds = getProjectsToPrewarm();
+            if(projectIds.isEmpty()) {
+                return;
+            }
+            logger.info("Prewarming {} projects: {}", projectIds.size(), projectIds);
+            projectCache.prewarm(projectIds);
+        } catch (RuntimeException e) {
+            logger.error("An error occurred whilst prewarming projects", e);
+        }
+    }
+
+    @Nonnull
+    private List<ProjectId> getProjectsToPrewarm() {
+        Set<ProjectId> projectIds = new LinkedHashSet<>();
+        for(var prewarmId : prewarmIds) {
+            try {
+                var projectId = ProjectId.get(prewarmId);
+                if(isExistingProject(projectId)) {
+                    projectIds.add(projectId);
+                }
+                else {
+                    logger.warn("Project {} is configured to be prewarmed but it does not exist or is in the trash", projectId);
+                }
+            } catch (ProjectIdFormatException e) {
+                logger.warn("Malformed project id configured to be prewarmed: {}", prewarmId);
+            }
+        }
+        if(prewarmRecentCount > 0) {
+            projectDetailsRepository.findRecentlyModified(prewarmRecentCount)
+                                    .stream()
+                                    .map(ProjectDetails::getProjectId)
+                                    .forEach(projectIds::add);
+        }
+        return new ArrayList<>(projectIds);
+    }
+
+    private boolean isExistingProject(@Nonnull ProjectId projectId) {
+        return projectDetailsRepository.findOne(projectId)
+                                       .map(projectDetails -> !projectDetails.isInTrash())
+                                       .orElse(false);
+    }
+}
@@ -0,0 +1,108 @@
+package edu.stanford.bmir.protege.web.server.project;
+
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-08
+ *
+ * A queue of tasks for a project that runs on the shared {@link ProjectTaskScheduler}.  Tasks are run one at a time,
+ * in the order that they are submitted (or become due, for delayed tasks), and each task sees the effects of the
+ * tasks that ran before it.  The queue does not hold on to a worker thread between tasks, so queues for many projects
+ * share the scheduler's threads fairly.
+ */
+public class ProjectTaskQueue implements ProjectTaskExecutor {
+
+    @Nonnull
+    private final ProjectId projectId;
+
+    @Nonnull
+    private final ProjectTaskType taskType;
+
+    @Nonnull
+    private final ProjectTaskScheduler scheduler;
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    /**
+     * True whilst a task from this queue is dispatched to, or running on, the scheduler
+     */
+    private boolean active = false;
+
+    ProjectTaskQueue(@Nonnull ProjectId projectId,
+                     @Nonnull ProjectTaskType taskType,
+                     @Nonnull ProjectTaskScheduler scheduler) {
+        this.projectId = checkNotNull(projectId);
+        this.taskType = checkNotNull(taskType);
+        this.scheduler = checkNotNull(scheduler);
+    }
+
+    @Nonnull
+    public ProjectId getProjectId() {
+        return projectId;
+    }
+
+    @Nonnull
+    public ProjectTaskType getTaskType() {
+        return taskType;
+    }
+
+    /**
+     * Adds the specified task to the end of this queue
+     */
+    @Override
+    public void execute(@Nonnull Runnable task) {
+        var instrumentedTask = scheduler.instrument(projectId, taskType, checkNotNull(task));
+        synchronized (tasks) {
+            tasks.add(instrumentedTask);
+            if(active) {
+                return;
+            }
+            active = true;
+        }
+        scheduler.dispatch(this::runNext);
+    }
+
+    /**
+     * Adds the specified task to the end of this queue once the specified delay has elapsed
+     */
+    @Override
+    public void schedule(@Nonnull Runnable task, long delay, @Nonnull TimeUnit unit) {
+        checkNotNull(task);
+        if(delay <= 0) {
+            execute(task);
+        }
+        else {
+            scheduler.dispatchLater(() -> execute(task), delay, unit);
+        }
+    }
+
+    private void runNext() {
+        Runnable task;
+        synchronized (tasks) {
+            task = tasks.poll();
+        }
+        try {
+            if(task != null) {
+                task.run();
+            }
+        } finally {
+            synchronized (tasks) {
+                if(tasks.isEmpty()) {
+                    active = false;
+                    return;
+                }
+            }
+            // Hand the thread back between tasks so that busy projects do not starve other projects
+            scheduler.dispatch(this::runNext);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package edu.stanford.bmir.protege.web.server.project;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.bmir.protege.web.server.logging.Markers;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-08
+ *
+ * Runs the background tasks of all loaded projects on a bounded pool of worker threads, rather than each project
+ * having its own threads.  Tasks that must run in order for a project are submitted to a {@link ProjectTaskQueue},
+ * which runs its tasks one at a time and in submission order.  Tasks that may run concurrently are submitted
+ * directly to the scheduler.  The queue depth, queue latency and run time are recorded for each type of task.
+ */
+public class ProjectTaskScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProjectTaskScheduler.class);
+
+    @Nonnull
+    private final ExecutorService workerPool;
+
+    @Nonnull
+    private final ScheduledExecutorService timer;
+
+    private final Map<ProjectTaskType, TaskTypeMetrics> metrics = new EnumMap<>(ProjectTaskType.class);
+
+    /**
+     * Creates a scheduler
+     * @param workerPool The pool that tasks are run on
+     * @param timer The executor that is used to wait for the delays of delayed tasks.  Tasks are not run on the
+     *              timer.
+     */
+    public ProjectTaskScheduler(@Nonnull ExecutorService workerPool,
+                                @Nonnull ScheduledExecutorService timer) {
+        this.workerPool = checkNotNull(workerPool);
+        this.timer = checkNotNull(timer);
+        for(var taskType : ProjectTaskType.values()) {
+            metrics.put(taskType, new TaskTypeMetrics());
+        }
+    }
+
+    /**
+     * Creates a queue that runs tasks for the specified project one at a time, in the order that they are submitted.
+     * @param projectId The project that the tasks belong to
+     * @param taskType The type of the tasks
+     */
+    @Nonnull
+    public ProjectTaskQueue createSerialQueue(@Nonnull ProjectId projectId,
+                                              @Nonnull ProjectTaskType taskType) {
+        return new ProjectTaskQueue(checkNotNull(projectId), checkNotNull(taskType), this);
+    }
+
+    /**
+     * Submits a task that may run concurrently with other tasks for the same project.
+     * @param projectId The project that the task belongs to
+     * @param taskType The type of the task
+     * @param task The task
+     * @return A future that completes when the task has run.  The future completes exceptionally if the task throws
+     * a runtime exception.
+     */
+    @Nonnull
+    public CompletableFuture<Void> submit(@Nonnull ProjectId projectId,
+                                          @Nonnull ProjectTaskType taskType,
+                                          @Nonnull Runnable task) {
+        checkNotNull(task);
+        var done = new CompletableFuture<Void>();
+        var error = new RuntimeException[1];
+        var instrumentedTask = instrument(projectId, taskType, () -> {
+            try {
+                task.run();
+            } catch(RuntimeException e) {
+                error[0] = e;
+                throw e;
+            }
+        });
+        // Complete the future after the task's statistics have been recorded
+        dispatch(() -> {
+            instrumentedTask.run();
+            if(error[0] == null) {
+                done.complete(null);
+            }
+            else {
+                done.completeExceptionally(error[0]);
+            }
+        });
+        return done;
+    }
+
+    /**
+     * Wraps a task so that its queue latency and run time are recorded from now on.  This is for tasks that are run
+     * by some other executor but that should be included in the statistics for their task type.  The wrapped task
+     * logs and counts any runtime exception that the task throws, rather than rethrowing it.
+     */
+    @Nonnull
+    public Runnable instrument(@Nonnull ProjectId projectId,
+                        @Nonnull ProjectTaskType taskType,
+                        @Nonnull Runnable task) {
+        var taskTypeMetrics = metrics.get(checkNotNull(taskType));
+        var queuedAt = System.nanoTime();
+        taskTypeMetrics.queueDepth.incrementAndGet();
+        return () -> {
+            var startedAt = System.nanoTime();
+            taskTypeMetrics.taskStarted(startedAt - queuedAt);
+            try {
+                task.run();
+            } catch(RuntimeException e) {
+                taskTypeMetrics.failedCount.incrementAndGet();
+                logger.error("{} Project task of type {} failed: {}", projectId, taskType, e.getMessage(), e);
+            } finally {
+                taskTypeMetrics.taskFinished(System.nanoTime() - startedAt);
+            }
+        };
+    }
+
+    /**
+     * Runs the specified task on the worker pool.  If the pool has been shut down, which happens at application
+     * shutdown, then the task is run on the calling thread so that pending work, such as unsaved changes, is not
+     * lost.
+     */
+    void dispatch(@Nonnull Runnable task) {
+        try {
+            workerPool.execute(task);
+        } catch(RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * Dispatches the specified task after the specified delay.  If the timer has been shut down then the task is
+     * dispatched immediately.
+     */
+    void dispatchLater(@Nonnull Runnable task, long delay, @Nonnull TimeUnit unit) {
+        try {
+            timer.schedule(task, delay, unit);
+        } catch(RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * Gets a snapshot of the statistics for each type of task
+     */
+    @Nonnull
+    public ImmutableList<ProjectTaskStats> getStats() {
+        var stats = ImmutableList.<ProjectTaskStats>builder();
+        metrics.forEach((taskType, taskTypeMetrics) -> stats.add(taskTypeMetrics.getStats(taskType)));
+        return stats.build();
+    }
+
+    /**
+     * Logs the statistics for each type of task that has been run
+     */
+    public void logStats() {
+        for(var stats : getStats()) {
+            if(stats.getCompletedCount() == 0 && stats.getQueueDepth() == 0) {
+                continue;
+            }
+            logger.info(Markers.PERFORMANCE,
+                        "Project tasks [{}]: queued: {}, running: {}, completed: {}, failed: {}, " +
+                                "mean queue latency: {} ms, max queue latency: {} ms, mean run time: {} ms",
+                        stats.getTaskType(),
+                        stats.getQueueDepth(),
+                        stats.getRunningCount(),
+                        stats.getCompletedCount(),
+                        stats.getFailedCount(),
+                        stats.getMeanQueueLatency().toMillis(),
+                        stats.getMaxQueueLatency().toMillis(),
+                        stats.getMeanRunTime().toMillis());
+        }
+    }
+
+    private static class TaskTypeMetrics {
+
+        private final AtomicLong queueDepth = new AtomicLong();
+
+        private final AtomicLong runningCount = new AtomicLong();
+
+        private final AtomicLong startedCount = new AtomicLong();
+
+        private final AtomicLong completedCount = new AtomicLong();
+
+        private final AtomicLong failedCount = new AtomicLong();
+
+        private final AtomicLong totalQueueLatency = new AtomicLong();
+
+        private final LongAccumulator maxQueueLatency = new LongAccumulator(Math::max, 0);
+
+        private final AtomicLong totalRunTime = new AtomicLong();
+
+        private void taskStarted(long queueLatency) {
+            queueDepth.decrementAndGet();
+            runningCount.incrementAndGet();
+            startedCount.incrementAndGet();
+            totalQueueLatency.addAndGet(queueLatency);
+            maxQueueLatency.accumulate(queueLatency);
+        }
+
+        private void taskFinished(long runTime) {
+            totalRunTime.addAndGet(runTime);
+            runningCount.decrementAndGet();
+            completedCount.incrementAndGet();
+        }
+
+        private ProjectTaskStats getStats(ProjectTaskType taskType) {
+            var started = startedCount.get();
+            var completed = completedCount.get();
+            return ProjectTaskStats.get(taskType,
+                                        queueDepth.get(),
+                                        runningCount.get(),
+                                        completed,
+                                        failedCount.get(),
+                                        Duration.ofNanos(started == 0 ? 0 : totalQueueLatency.get() / started),
+                                        Duration.ofNanos(maxQueueLatency.get()),
+                                        Duration.ofNanos(completed == 0 ? 0 : totalRunTime.get() / completed));
+        }
+    }
+}
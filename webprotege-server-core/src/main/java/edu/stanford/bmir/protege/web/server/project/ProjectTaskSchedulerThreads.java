@@ -0,0 +1,15 @@
+package edu.stanford.bmir.protege.web.server.project;
+
+import javax.inject.Qualifier;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-08
+ *
+ * Qualifies the number of worker threads that are shared by the background tasks of all loaded projects
+ */
+@Qualifier
+public @interface ProjectTaskSchedulerThreads {
+
+}
@@ -0,0 +1,66 @@
+package edu.stanford.bmir.protege.web.server.project;
+
+import com.google.auto.value.AutoValue;
+
+import javax.annotation.Nonnull;
+import java.time.Duration;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-08
+ *
+ * A snapshot of the statistics for a type of task that runs on the {@link ProjectTaskScheduler}.  Queue latency
+ * is the time between a task being submitted (or becoming due, for a delayed task) and the task starting to run.
+ */
+@AutoValue
+public abstract class ProjectTaskStats {
+
+    @Nonnull
+    public static ProjectTaskStats get(@Nonnull ProjectTaskType taskType,
+                                       long queueDepth,
+                                       long runningCount,
+                                       long completedCount,
+                                       long failedCount,
+                                       @Nonnull Duration meanQueueLatency,
+                                       @Nonnull Duration maxQueueLatency,
+                                       @Nonnull Duration meanRunTime) {
+        return new AutoValue_ProjectTaskStats(taskType,
+                                              queueDepth,
+                                              runningCount,
+                                              completedCount,
+                                              failedCount,
+                                              meanQueueLatency,
+                                              maxQueueLatency,
+                                              meanRunTime);
+    }
+
+    @Nonnull
+    public abstract ProjectTaskType getTaskType();
+
+    /**
+     * Gets the number of tasks that are waiting to run
+     */
+    public abstract long getQueueDepth();
+
+    /**
+     * Gets the number of tasks that are currently running
+     */
+    public abstract long getRunningCount();
+
+    /**
+     * Gets the number of tasks that have finished running, including tasks that failed
+     */
+    public abstract long getCompletedCount();
+
+    public abstract long getFailedCount();
+
+    @Nonnull
+    public abstract Duration getMeanQueueLatency();
+
+    @Nonnull
+    public abstract Duration getMaxQueueLatency();
+
+    @Nonnull
+    public abstract Duration getMeanRunTime();
+}
@@ -0,0 +1,42 @@
+package edu.stanford.bmir.protege.web.server.project;
+
+import javax.annotation.Nonnull;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-08
+ *
+ * The types of per-project background task that run on the {@link ProjectTaskScheduler}.  Statistics are
+ * gathered for each type of task.
+ */
+public enum ProjectTaskType {
+
+    CHANGE_SERIALIZATION("change-serializer"),
+
+    INDEX_UPDATE("index-updater"),
+
+    CHECKPOINT_WRITING("checkpoint-writer"),
+
+    TAG_MEMBERSHIP_UPDATE("tag-membership-updater"),
+
+    SEARCH_INDEX_MAINTENANCE("search-index-maintainer");
+
+    private final String name;
+
+    ProjectTaskType(@Nonnull String name) {
+        this.name = checkNotNull(name);
+    }
+
+    @Nonnull
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
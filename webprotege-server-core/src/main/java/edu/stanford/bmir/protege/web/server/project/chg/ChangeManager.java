@@ -8,6 +8,7 @@ import edu.stanford.bmir.protege.web.server.app.UserInSessionFactory;
 import edu.stanford.bmir.protege.web.server.change.HasApplyChanges;
 import edu.stanford.bmir.protege.web.server.change.*;
 import edu.stanford.bmir.protege.web.server.crud.*;
+import edu.stanford.bmir.protege.web.server.download.ProjectDownloadPregenerator;
 import edu.stanford.bmir.protege.web.server.events.EventManager;
 import edu.stanford.bmir.protege.web.server.events.EventTranslatorManager;
 import edu.stanford.bmir.protege.web.server.hierarchy.AnnotationPropertyHierarchyProviderImpl;
@@ -17,6 +18,7 @@ import edu.stanford.bmir.protege.web.server.hierarchy.ObjectPropertyHierarchyPro
 import edu.stanford.bmir.protege.web.server.index.RootIndex;
 import edu.stanford.bmir.protege.web.server.index.impl.IndexUpdater;
 import edu.stanford.bmir.protege.web.server.lang.ActiveLanguagesManager;
+import edu.stanford.bmir.protege.web.server.match.MatchResultCache;
 import edu.stanford.bmir.protege.web.server.owlapi.OWLEntityCreator;
 import edu.stanford.bmir.protege.web.server.owlapi.RenameMap;
 import edu.stanford.bmir.protege.web.server.owlapi.RenameMapFactory;
@@ -26,8 +28,10 @@ import edu.stanford.bmir.protege.web.server.project.PrefixDeclarationsStore;
 import edu.stanford.bmir.protege.web.server.project.ProjectDetailsRepository;
 import edu.stanford.bmir.protege.web.server.revision.Revision;
 import edu.stanford.bmir.protege.web.server.revision.RevisionManager;
+import edu.stanford.bmir.protege.web.server.revision.StrictChangeDurability;
 import edu.stanford.bmir.protege.web.server.shortform.DictionaryManager;
 import edu.stanford.bmir.protege.web.server.shortform.DictionaryUpdatesProcessor;
+import edu.stanford.bmir.protege.web.server.tag.TagsManager;
 import edu.stanford.bmir.protege.web.server.util.IriReplacer;
 import edu.stanford.bmir.protege.web.server.util.IriReplacerFactory;
 import edu.stanford.bmir.protege.web.server.webhook.ProjectChangedWebhookInvoker;
@@ -41,15 +45,17 @@ import edu.stanford.bmir.protege.web.shared.permissions.PermissionDeniedExceptio
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 import edu.stanford.bmir.protege.web.shared.user.UserId;
 import org.semanticweb.owlapi.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
 import javax.inject.Provider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static edu.stanford.bmir.protege.web.server.access.Subject.forUser;
@@ -63,6 +69,8 @@ import static edu.stanford.bmir.protege.web.shared.access.BuiltInAction.*;
 @ProjectSingleton
 public class ChangeManager implements HasApplyChanges {
 
+    private static final Logger logger = LoggerFactory.getLogger(ChangeManager.class);
+
     @Nonnull
     private final ProjectId projectId;
 
@@ -124,10 +132,7 @@ public class ChangeManager implements HasApplyChanges {
     private final EntityCrudContextFactory entityCrudContextFactory;
 
     @Nonnull
-    private final ReadWriteLock projectChangeLock = new ReentrantReadWriteLock();
-
-    @Nonnull
-    private final Lock projectChangeWriteLock = projectChangeLock.writeLock();
+    private final Lock projectChangeWriteLock;
 
     @Nonnull
     private final Lock changeProcesssingLock = new ReentrantLock();
@@ -147,6 +152,17 @@ public class ChangeManager implements HasApplyChanges {
     @Nonnull
     private final IriReplacerFactory iriReplacerFactory;
 
+    @Nonnull
+    private final ProjectDownloadPregenerator projectDownloadPregenerator;
+
+    @Nonnull
+    private final MatchResultCache matchResultCache;
+
+    @Nonnull
+    private final TagsManager tagsManager;
+
+    private final boolean strictDurability;
+
     @Inject
     public ChangeManager(@Nonnull ProjectId projectId,
                          @Nonnull OWLDataFactory dataFactory,
@@ -172,7 +188,12 @@ public class ChangeManager implements HasApplyChanges {
                          @Nonnull BuiltInPrefixDeclarations builtInPrefixDeclarations,
                          @Nonnull IndexUpdater indexUpdater,
                          @Nonnull DefaultOntologyIdManager defaultOntologyIdManager,
-                         @Nonnull IriReplacerFactory iriReplacerFactory) {
+                         @Nonnull IriReplacerFactory iriReplacerFactory,
+                         @Nonnull ProjectChangeLock projectChangeLock,
+                         @Nonnull ProjectDownloadPregenerator projectDownloadPregenerator,
+                         @Nonnull MatchResultCache matchResultCache,
+                         @Nonnull TagsManager tagsManager,
+                         @StrictChangeDurability boolean strictDurability) {
         this.projectId = projectId;
         this.dataFactory = dataFactory;
         this.dictionaryUpdatesProcessor = dictionaryUpdatesProcessor;
@@ -198,6 +219,11 @@ public class ChangeManager implements HasApplyChanges {
         this.indexUpdater = indexUpdater;
         this.defaultOntologyIdManager = defaultOntologyIdManager;
         this.iriReplacerFactory = iriReplacerFactory;
+        this.projectChangeWriteLock = projectChangeLock.writeLock();
+        this.projectDownloadPregenerator = projectDownloadPregenerator;
+        this.matchResultCache = matchResultCache;
+        this.tagsManager = tagsManager;
+        this.strictDurability = strictDurability;
     }
 
     /**
@@ -226,8 +252,13 @@ public class ChangeManager implements HasApplyChanges {
         // Final check of whether the user can actually edit the project
         throwEditPermissionDeniedIfNecessary(userId);
 
+        // Changes that could not be saved would be lost when the project is reloaded, whatever the durability
+        throwIfRevisionsCannotBeSaved();
+
         final ChangeApplicationResult<R> changeApplicationResult;
 
+        Optional<Revision> appliedRevision = Optional.empty();
+
 
         var crudContext = getEntityCrudContext(userId);
 
@@ -332,19 +363,50 @@ public class ChangeManager implements HasApplyChanges {
                 projectChangeWriteLock.unlock();
             }
 
+            if(strictDurability) {
+                // A revision that cannot be saved fails the change before any events are posted for it
+                revision.ifPresent(this::awaitRevisionSaved);
+            }
+
+            // Brought up to date whilst holding the change processing lock so that revisions are handled in order
+            revision.ifPresent(matchResultCache::handleRevision);
+
             generateAndDispatchHighLevelEvents(userId,
                                                changeListGenerator,
                                                changeApplicationResult,
                                                eventTranslatorManager,
                                                revision);
+            // Posts tag membership changes after the events for the changes themselves
+            revision.ifPresent(tagsManager::handleRevision);
+            appliedRevision = revision;
 
         } finally {
             changeProcesssingLock.unlock();
         }
 
+        appliedRevision.ifPresent(projectDownloadPregenerator::handleRevision);
+
         return changeApplicationResult;
     }
 
+    private void awaitRevisionSaved(@Nonnull Revision revision) {
+        try {
+            changeManager.awaitSaved(revision.getRevisionNumber());
+        } catch(IOException e) {
+            logger.error("{} Revision {} could not be saved.  Cause: {}", projectId, revision.getRevisionNumber(), e.getMessage(), e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void throwIfRevisionsCannotBeSaved() {
+        try {
+            changeManager.checkCanSaveRevisions();
+        } catch(IOException e) {
+            logger.error("{} Rejected changes because revisions cannot be saved.  The project must be reloaded.  Cause: {}", projectId, e.getMessage());
+            throw new UncheckedIOException(e);
+        }
+    }
+
     private void throwEditPermissionDeniedIfNecessary(UserId userId) {
         var subject = forUser(userId);
         var projectResource = new ProjectResource(projectId);
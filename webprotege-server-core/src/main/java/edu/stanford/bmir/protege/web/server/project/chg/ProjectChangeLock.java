@@ -0,0 +1,38 @@
+package edu.stanford.bmir.protege.web.server.project.chg;
+
+import edu.stanford.bmir.protege.web.shared.inject.ProjectSingleton;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-11-09
+ *
+ * The lock that guards the ontologies in a project.  The {@link ChangeManager} holds the write lock while it
+ * applies changes to the project indexes and records the corresponding revision.  Readers that need the indexes
+ * to be consistent with the head revision, for example when exporting the project, should hold the read lock.
+ */
+@ProjectSingleton
+public class ProjectChangeLock {
+
+    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+
+    @Inject
+    public ProjectChangeLock() {
+    }
+
+    @Nonnull
+    public Lock readLock() {
+        return readWriteLock.readLock();
+    }
+
+    @Nonnull
+    public Lock writeLock() {
+        return readWriteLock.writeLock();
+    }
+}
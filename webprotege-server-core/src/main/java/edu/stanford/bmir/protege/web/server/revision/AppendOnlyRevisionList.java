@@ -0,0 +1,144 @@
+package edu.stanford.bmir.protege.web.server.revision;
+
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+
+import javax.annotation.Nonnull;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.RandomAccess;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-11-23
+ *
+ * An append-only list of revisions.  Revisions are stored in fixed size chunks so that appending a revision never
+ * copies the revisions that are already in the list.  Readers obtain consistent, immutable snapshots of the list
+ * without taking any locks.  Appends must be externally synchronized, but may take place concurrently with reads.
+ */
+public final class AppendOnlyRevisionList {
+
+    private static final int CHUNK_SIZE_BITS = 10;
+
+    private static final int CHUNK_SIZE = 1 << CHUNK_SIZE_BITS;
+
+    private static final int CHUNK_INDEX_MASK = CHUNK_SIZE - 1;
+
+    private volatile Snapshot snapshot = new Snapshot(new Revision[0][], 0);
+
+    /**
+     * Appends the specified revision to this list.  The revision number of the revision must be greater than the
+     * revision number of the last revision in the list.
+     * @param revision The revision to append
+     */
+    public void append(@Nonnull Revision revision) {
+        checkNotNull(revision);
+        var current = snapshot;
+        var size = current.size;
+        if(size > 0 && revision.getRevisionNumber().compareTo(current.get(size - 1).getRevisionNumber()) <= 0) {
+            throw new IllegalArgumentException("Revisions must be appended in increasing revision number order");
+        }
+        var chunks = current.chunks;
+        var chunkIndex = size >>> CHUNK_SIZE_BITS;
+        if(chunkIndex == chunks.length) {
+            // Only the chunk directory is copied, never the chunks themselves
+            chunks = Arrays.copyOf(chunks, Math.max(1, chunks.length * 2));
+        }
+        if(chunks[chunkIndex] == null) {
+            chunks[chunkIndex] = new Revision[CHUNK_SIZE];
+        }
+        // Slots at or beyond the current size are never read by existing snapshots, so they can be written
+        // in place.  The volatile write below publishes the new revision to readers.
+        chunks[chunkIndex][size & CHUNK_INDEX_MASK] = revision;
+        snapshot = new Snapshot(chunks, size + 1);
+    }
+
+    /**
+     * Gets a snapshot of the revisions in this list.
+     * @return An unmodifiable list containing the revisions that were in this list at the time of the call.  The
+     * snapshot is not affected by subsequent appends.
+     */
+    @Nonnull
+    public List<Revision> getSnapshot() {
+        return snapshot;
+    }
+
+    public int size() {
+        return snapshot.size;
+    }
+
+    /**
+     * Gets the revision number of the last revision in the list, or zero if the list is empty.
+     */
+    @Nonnull
+    public RevisionNumber getLastRevisionNumber() {
+        var current = snapshot;
+        if(current.size == 0) {
+            return RevisionNumber.getRevisionNumber(0);
+        }
+        return current.get(current.size - 1).getRevisionNumber();
+    }
+
+    /**
+     * Gets the revision that has the specified revision number.
+     * @param revisionNumber The revision number.  The head revision number denotes the last revision.
+     * @return The revision, or empty if this list does not contain a revision with the specified revision number.
+     */
+    @Nonnull
+    public Optional<Revision> getRevision(@Nonnull RevisionNumber revisionNumber) {
+        checkNotNull(revisionNumber);
+        var current = snapshot;
+        if(current.size == 0) {
+            return Optional.empty();
+        }
+        if(revisionNumber.isHead()) {
+            return Optional.of(current.get(current.size - 1));
+        }
+        var low = 0;
+        var high = current.size - 1;
+        while(low <= high) {
+            var mid = (low + high) >>> 1;
+            var midRevision = current.get(mid);
+            var cmp = midRevision.getRevisionNumber().compareTo(revisionNumber);
+            if(cmp < 0) {
+                low = mid + 1;
+            }
+            else if(cmp > 0) {
+                high = mid - 1;
+            }
+            else {
+                return Optional.of(midRevision);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static final class Snapshot extends AbstractList<Revision> implements RandomAccess {
+
+        private final Revision[][] chunks;
+
+        private final int size;
+
+        private Snapshot(Revision[][] chunks, int size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        @Override
+        public Revision get(int index) {
+            if(index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return chunks[index >>> CHUNK_SIZE_BITS][index & CHUNK_INDEX_MASK];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package edu.stanford.bmir.protege.web.server.revision;
+
+import javax.inject.Qualifier;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-11-30
+ *
+ * Qualifies the maximum number of lazily loaded changes that are cached per project
+ */
+@Qualifier
+public @interface ChangeHistoryCacheSize {
+
+}
@@ -0,0 +1,15 @@
+package edu.stanford.bmir.protege.web.server.revision;
+
+import javax.inject.Qualifier;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-03
+ *
+ * Qualifies the maximum number of revisions that are written to the change history in a single batch
+ */
+@Qualifier
+public @interface ChangeHistoryGroupCommitBatchSize {
+
+}
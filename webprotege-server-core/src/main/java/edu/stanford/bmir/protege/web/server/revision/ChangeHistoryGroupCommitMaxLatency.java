@@ -0,0 +1,15 @@
+package edu.stanford.bmir.protege.web.server.revision;
+
+import javax.inject.Qualifier;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-03
+ *
+ * Qualifies the maximum time, in milliseconds, that a revision waits before it is written to the change history
+ */
+@Qualifier
+public @interface ChangeHistoryGroupCommitMaxLatency {
+
+}
@@ -0,0 +1,264 @@
+package edu.stanford.bmir.protege.web.server.revision;
+
+import com.google.auto.factory.AutoFactory;
+import com.google.auto.factory.Provided;
+import com.google.common.base.Stopwatch;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskQueue;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import org.semanticweb.binaryowl.BinaryOWLOntologyChangeLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-03
+ *
+ * Appends revisions to a change history file using group commit.  Submitted revisions are queued and written in
+ * batches, with each batch being written with a single append and a single force to the storage device.  A batch
+ * is written when the oldest queued revision has waited for the maximum latency, or as soon as the batch size is
+ * reached, whichever comes first.  Batches are written in submission order on the specified project task queue.
+ *
+ * If a batch cannot be written then the change history file is truncated to the end of the last batch that was
+ * written.  Later revisions are not written, so that the change history never has a gap in it, and their saves fail
+ * with the same cause.  Callers should check that revisions can still be saved, using {@link #checkCanSave()},
+ * before they apply changes that will be submitted.
+ */
+@AutoFactory
+public class ChangeHistoryGroupCommitWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeHistoryGroupCommitWriter.class);
+
+    @Nonnull
+    private final ProjectId projectId;
+
+    @Nonnull
+    private final File changeHistoryFile;
+
+    @Nonnull
+    private final ProjectTaskQueue taskQueue;
+
+    private final long maxLatency;
+
+    private final int maxBatchSize;
+
+    private final List<PendingRevision> queue = new ArrayList<>();
+
+    private final Map<RevisionNumber, CompletableFuture<Void>> pendingSaves = new HashMap<>();
+
+    private boolean flushScheduled = false;
+
+    /**
+     * The first revision that could not be saved, along with the cause, or null if all revisions have been saved
+     */
+    private RevisionNumber firstFailedRevision = null;
+
+    private Exception failure = null;
+
+    private Runnable savedHook = () -> {};
+
+    public ChangeHistoryGroupCommitWriter(@Nonnull ProjectId projectId,
+                                          @Nonnull File changeHistoryFile,
+                                          @Nonnull ProjectTaskQueue taskQueue,
+                                          @Provided @ChangeHistoryGroupCommitMaxLatency long maxLatency,
+                                          @Provided @ChangeHistoryGroupCommitBatchSize int maxBatchSize) {
+        this.projectId = checkNotNull(projectId);
+        this.changeHistoryFile = checkNotNull(changeHistoryFile);
+        this.taskQueue = checkNotNull(taskQueue);
+        this.maxLatency = Math.max(maxLatency, 0);
+        this.maxBatchSize = Math.max(maxBatchSize, 1);
+    }
+
+    /**
+     * Sets a hook that is run after each revision has been saved
+     */
+    public void setSavedHook(@Nonnull Runnable savedHook) {
+        this.savedHook = checkNotNull(savedHook);
+    }
+
+    /**
+     * Queues the specified revision for writing.  Revisions must be submitted in revision number order.
+     * @param revision The revision
+     * @return A future that completes when the revision has been written and forced to the storage device.  The future
+     * completes exceptionally if the revision could not be written.
+     */
+    @Nonnull
+    public CompletableFuture<Void> submit(@Nonnull Revision revision) {
+        checkNotNull(revision);
+        var saved = new CompletableFuture<Void>();
+        synchronized (queue) {
+            if(failure != null) {
+                saved.completeExceptionally(failure);
+                return saved;
+            }
+            queue.add(new PendingRevision(revision, saved));
+            pendingSaves.put(revision.getRevisionNumber(), saved);
+            if(queue.size() == maxBatchSize) {
+                flushScheduled = true;
+                taskQueue.execute(this::flush);
+            }
+            else if(!flushScheduled) {
+                flushScheduled = true;
+                taskQueue.schedule(this::flush, maxLatency, TimeUnit.MILLISECONDS);
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Checks that submitted revisions can still be saved
+     * @throws IOException if a revision could not be saved, in which case no later revisions will be saved
+     */
+    public void checkCanSave() throws IOException {
+        synchronized (queue) {
+            if(failure != null) {
+                throw new IOException("Revisions from revision " + firstFailedRevision.getValue() + " onwards cannot be saved", failure);
+            }
+        }
+    }
+
+    /**
+     * Waits until the revision that has the specified revision number has been saved.  Returns immediately if the
+     * revision has already been saved, or if it was never submitted.  A revision that is still queued is written
+     * straight away rather than after the maximum latency.
+     * @param revisionNumber The revision number
+     * @throws IOException if the revision could not be saved, or if the current thread was interrupted whilst waiting
+     */
+    public void awaitSaved(@Nonnull RevisionNumber revisionNumber) throws IOException {
+        CompletableFuture<Void> saved;
+        synchronized (queue) {
+            if(firstFailedRevision != null && revisionNumber.compareTo(firstFailedRevision) >= 0) {
+                throw new IOException("Revision " + revisionNumber.getValue() + " could not be saved", failure);
+            }
+            saved = pendingSaves.get(revisionNumber);
+            if(saved != null && !saved.isDone()) {
+                taskQueue.execute(this::flush);
+            }
+        }
+        if(saved == null) {
+            return;
+        }
+        try {
+            saved.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted whilst waiting for revision " + revisionNumber.getValue() + " to be saved");
+        } catch(ExecutionException e) {
+            throw new IOException("Revision " + revisionNumber.getValue() + " could not be saved", e.getCause());
+        }
+    }
+
+    private void flush() {
+        while(true) {
+            List<PendingRevision> batch;
+            synchronized (queue) {
+                if(queue.isEmpty()) {
+                    flushScheduled = false;
+                    return;
+                }
+                // Revisions that are queued whilst a batch is being written have already waited, so they are
+                // written straight after it
+                var head = queue.subList(0, Math.min(queue.size(), maxBatchSize));
+                batch = new ArrayList<>(head);
+                head.clear();
+            }
+            try {
+                var stopwatch = Stopwatch.createStarted();
+                write(batch);
+                logger.debug("{} Saved {} revisions in {} ms", projectId, batch.size(), stopwatch.elapsed().toMillis());
+                complete(batch, null);
+            } catch(IOException | RuntimeException e) {
+                logger.error("{} An error occurred whilst saving {} revisions.  Cause: {}", projectId, batch.size(), e.getMessage(), e);
+                complete(batch, e);
+            }
+        }
+    }
+
+    private void write(@Nonnull List<PendingRevision> batch) throws IOException {
+        var changeLog = new BinaryOWLOntologyChangeLog();
+        try(var fileOutputStream = new FileOutputStream(changeHistoryFile, true)) {
+            var channel = fileOutputStream.getChannel();
+            var lastGoodOffset = channel.size();
+            try {
+                var outputStream = new BufferedOutputStream(fileOutputStream);
+                for(var pendingRevision : batch) {
+                    changeLog.appendChanges(RevisionSerializationTask.toChangeRecordList(pendingRevision.revision),
+                                            outputStream);
+                }
+                outputStream.flush();
+                channel.force(false);
+            } catch(IOException | RuntimeException e) {
+                // Remove any part of the batch that was written, so that the file ends with a complete revision
+                try {
+                    channel.truncate(lastGoodOffset);
+                    channel.force(false);
+                } catch(IOException truncateException) {
+                    e.addSuppressed(truncateException);
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void complete(@Nonnull List<PendingRevision> batch, Exception error) {
+        var failedRevisions = new ArrayList<PendingRevision>();
+        synchronized (queue) {
+            batch.forEach(pendingRevision -> pendingSaves.remove(pendingRevision.revision.getRevisionNumber()));
+            if(error != null && failure == null) {
+                // Waiters that arrive late see the failure without the futures being retained
+                firstFailedRevision = batch.get(0).revision.getRevisionNumber();
+                failure = error;
+                logger.error("{} Revisions from revision {} onwards will not be saved.  The project must be reloaded.",
+                             projectId,
+                             firstFailedRevision.getValue());
+            }
+            if(failure != null) {
+                // Revisions queued after a failed revision cannot be written without leaving a gap
+                failedRevisions.addAll(queue);
+                queue.forEach(pendingRevision -> pendingSaves.remove(pendingRevision.revision.getRevisionNumber()));
+                queue.clear();
+            }
+        }
+        for(var pendingRevision : failedRevisions) {
+            pendingRevision.saved.completeExceptionally(failure);
+        }
+        for(var pendingRevision : batch) {
+            if(error == null) {
+                savedHook.run();
+                pendingRevision.saved.complete(null);
+            }
+            else {
+                pendingRevision.saved.completeExceptionally(error);
+            }
+        }
+    }
+
+    private static class PendingRevision {
+
+        private final Revision revision;
+
+        private final CompletableFuture<Void> saved;
+
+        private PendingRevision(Revision revision, CompletableFuture<Void> saved) {
+            this.revision = revision;
+            this.saved = saved;
+        }
+    }
+}
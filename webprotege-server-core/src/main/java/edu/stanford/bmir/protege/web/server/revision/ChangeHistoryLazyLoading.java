@@ -0,0 +1,15 @@
+package edu.stanford.bmir.protege.web.server.revision;
+
+import javax.inject.Qualifier;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-11-30
+ *
+ * Qualifies the flag that specifies whether the changes in a change history are loaded on demand
+ */
+@Qualifier
+public @interface ChangeHistoryLazyLoading {
+
+}
@@ -0,0 +1,202 @@
+package edu.stanford.bmir.protege.web.server.revision;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.bmir.protege.web.server.axiom.AxiomIRISubjectProvider;
+import edu.stanford.bmir.protege.web.server.change.OntologyChange;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import org.semanticweb.owlapi.model.IRI;
+
+import javax.annotation.Nonnull;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-11-16
+ *
+ * An inverted index from entity IRIs to the numbers of the revisions that contain changes whose subject is the
+ * entity.  The subject of a change is the subject of the axiom that the change adds or removes.  Revisions must be
+ * added in increasing revision number order.  This class is not thread safe.
+ */
+public class EntityRevisionIndex {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final AxiomIRISubjectProvider subjectProvider = new AxiomIRISubjectProvider(IRI::compareTo);
+
+    private final Map<IRI, RevisionNumberList> revisionNumbersBySubject = new HashMap<>();
+
+    private RevisionNumber lastRevisionNumber = RevisionNumber.getRevisionNumber(0);
+
+    private long lastRevisionTimestamp = 0;
+
+    /**
+     * Gets the subject of the specified change.
+     * @param change The change
+     * @return The IRI of the subject of the change, or empty if the change is not an axiom change or if the
+     * axiom does not have an IRI subject.
+     */
+    @Nonnull
+    public static Optional<IRI> getSubject(@Nonnull OntologyChange change) {
+        if(change.isAxiomChange()) {
+            return subjectProvider.getSubject(change.getAxiomOrThrow());
+        }
+        else {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Adds the specified revision to this index.
+     * @param revision The revision.  The revision number must be greater than the last revision number that was
+     *                 added to this index.
+     * @throws IllegalArgumentException if the revision number is not greater than the last revision number
+     */
+    public void add(@Nonnull Revision revision) {
+        checkNotNull(revision);
+        var revisionNumber = revision.getRevisionNumber();
+        if(revisionNumber.compareTo(lastRevisionNumber) <= 0) {
+            throw new IllegalArgumentException(String.format("Revision number (%d) must be greater than the last indexed revision number (%d)",
+                                                             revisionNumber.getValue(),
+                                                             lastRevisionNumber.getValue()));
+        }
+        var subjects = new HashSet<IRI>();
+        for(var change : revision.getChanges()) {
+            getSubject(change).ifPresent(subjects::add);
+        }
+        for(var subject : subjects) {
+            revisionNumbersBySubject.computeIfAbsent(subject, s -> new RevisionNumberList())
+                                    .add(revisionNumber.getValue());
+        }
+        lastRevisionNumber = revisionNumber;
+        lastRevisionTimestamp = revision.getTimestamp();
+    }
+
+    /**
+     * Gets the numbers of the revisions that contain changes for the specified subject.
+     * @param subject The subject
+     * @return The revision numbers in increasing order
+     */
+    @Nonnull
+    public ImmutableList<RevisionNumber> getRevisionNumbers(@Nonnull IRI subject) {
+        var revisionNumbers = revisionNumbersBySubject.get(checkNotNull(subject));
+        if(revisionNumbers == null) {
+            return ImmutableList.of();
+        }
+        return revisionNumbers.toRevisionNumbers();
+    }
+
+    /**
+     * Gets the number of the last revision that was added to this index.  If no revisions have been added then
+     * revision number zero is returned.
+     */
+    @Nonnull
+    public RevisionNumber getLastRevisionNumber() {
+        return lastRevisionNumber;
+    }
+
+    /**
+     * Gets the timestamp of the last revision that was added to this index.  This can be used to check that a
+     * persisted index matches the change history that it was built from.
+     */
+    public long getLastRevisionTimestamp() {
+        return lastRevisionTimestamp;
+    }
+
+    /**
+     * Writes this index to the specified output stream.
+     */
+    public void write(@Nonnull OutputStream outputStream) throws IOException {
+        var dataOutput = new DataOutputStream(outputStream);
+        dataOutput.writeInt(FORMAT_VERSION);
+        dataOutput.writeLong(lastRevisionNumber.getValue());
+        dataOutput.writeLong(lastRevisionTimestamp);
+        dataOutput.writeInt(revisionNumbersBySubject.size());
+        for(var entry : revisionNumbersBySubject.entrySet()) {
+            var iriBytes = entry.getKey().toString().getBytes(StandardCharsets.UTF_8);
+            dataOutput.writeInt(iriBytes.length);
+            dataOutput.write(iriBytes);
+            var revisionNumbers = entry.getValue();
+            dataOutput.writeInt(revisionNumbers.size);
+            for(int i = 0; i < revisionNumbers.size; i++) {
+                dataOutput.writeLong(revisionNumbers.values[i]);
+            }
+        }
+        dataOutput.flush();
+    }
+
+    /**
+     * Reads an index from the specified input stream.
+     * @throws IOException if the index could not be read or was written with a different format version
+     */
+    @Nonnull
+    public static EntityRevisionIndex read(@Nonnull InputStream inputStream) throws IOException {
+        var dataInput = new DataInputStream(inputStream);
+        var formatVersion = dataInput.readInt();
+        if(formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported entity revision index format version: " + formatVersion);
+        }
+        var index = new EntityRevisionIndex();
+        index.lastRevisionNumber = RevisionNumber.getRevisionNumber(dataInput.readLong());
+        index.lastRevisionTimestamp = dataInput.readLong();
+        var subjectCount = dataInput.readInt();
+        for(int i = 0; i < subjectCount; i++) {
+            var iriBytes = new byte[dataInput.readInt()];
+            dataInput.readFully(iriBytes);
+            var subject = IRI.create(new String(iriBytes, StandardCharsets.UTF_8));
+            var revisionNumberCount = dataInput.readInt();
+            var revisionNumbers = new RevisionNumberList(revisionNumberCount);
+            for(int j = 0; j < revisionNumberCount; j++) {
+                revisionNumbers.add(dataInput.readLong());
+            }
+            index.revisionNumbersBySubject.put(subject, revisionNumbers);
+        }
+        return index;
+    }
+
+    /**
+     * A compact, growable list of revision number values
+     */
+    private static class RevisionNumberList {
+
+        private long[] values;
+
+        private int size = 0;
+
+        private RevisionNumberList() {
+            this(2);
+        }
+
+        private RevisionNumberList(int initialCapacity) {
+            values = new long[Math.max(initialCapacity, 1)];
+        }
+
+        private void add(long value) {
+            if(size == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[size] = value;
+            size++;
+        }
+
+        private ImmutableList<RevisionNumber> toRevisionNumbers() {
+            var builder = ImmutableList.<RevisionNumber>builderWithExpectedSize(size);
+            for(int i = 0; i < size; i++) {
+                builder.add(RevisionNumber.getRevisionNumber(values[i]));
+            }
+            return builder.build();
+        }
+    }
+}
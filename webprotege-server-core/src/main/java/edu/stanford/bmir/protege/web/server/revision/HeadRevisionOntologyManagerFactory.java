@@ -0,0 +1,118 @@
+package edu.stanford.bmir.protege.web.server.revision;
+
+import com.google.common.base.Stopwatch;
+import edu.stanford.bmir.protege.web.server.index.OntologyAnnotationsIndex;
+import edu.stanford.bmir.protege.web.server.index.OntologyAxiomsIndex;
+import edu.stanford.bmir.protege.web.server.index.OntologyImportsIndex;
+import edu.stanford.bmir.protege.web.server.index.ProjectOntologiesIndex;
+import edu.stanford.bmir.protege.web.server.owlapi.WebProtegeOWLManager;
+import edu.stanford.bmir.protege.web.server.project.chg.ProjectChangeLock;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import org.semanticweb.owlapi.model.AddImport;
+import org.semanticweb.owlapi.model.AddOntologyAnnotation;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-11-09
+ *
+ * Creates an ontology manager that contains the ontologies in the head revision of a project.  The ontologies are
+ * populated directly from the live project indexes, rather than by replaying the change history.
+ */
+public class HeadRevisionOntologyManagerFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeadRevisionOntologyManagerFactory.class);
+
+    @Nonnull
+    private final ProjectId projectId;
+
+    @Nonnull
+    private final ProjectChangeLock projectChangeLock;
+
+    @Nonnull
+    private final ProjectOntologiesIndex projectOntologiesIndex;
+
+    @Nonnull
+    private final OntologyAnnotationsIndex ontologyAnnotationsIndex;
+
+    @Nonnull
+    private final OntologyAxiomsIndex ontologyAxiomsIndex;
+
+    @Nonnull
+    private final OntologyImportsIndex ontologyImportsIndex;
+
+    @Inject
+    public HeadRevisionOntologyManagerFactory(@Nonnull ProjectId projectId,
+                                              @Nonnull ProjectChangeLock projectChangeLock,
+                                              @Nonnull ProjectOntologiesIndex projectOntologiesIndex,
+                                              @Nonnull OntologyAnnotationsIndex ontologyAnnotationsIndex,
+                                              @Nonnull OntologyAxiomsIndex ontologyAxiomsIndex,
+                                              @Nonnull OntologyImportsIndex ontologyImportsIndex) {
+        this.projectId = checkNotNull(projectId);
+        this.projectChangeLock = checkNotNull(projectChangeLock);
+        this.projectOntologiesIndex = checkNotNull(projectOntologiesIndex);
+        this.ontologyAnnotationsIndex = checkNotNull(ontologyAnnotationsIndex);
+        this.ontologyAxiomsIndex = checkNotNull(ontologyAxiomsIndex);
+        this.ontologyImportsIndex = checkNotNull(ontologyImportsIndex);
+    }
+
+    /**
+     * Creates an ontology manager containing the ontologies in the head revision.  Changes to the project are
+     * blocked while the ontologies are being populated.
+     * @return The ontology manager
+     */
+    @Nonnull
+    public OWLOntologyManager createOntologyManager() throws OWLOntologyCreationException {
+        var readLock = projectChangeLock.readLock();
+        try {
+            readLock.lock();
+            var stopwatch = Stopwatch.createStarted();
+            var manager = WebProtegeOWLManager.createOWLOntologyManager();
+            var singletonAnonymousId = new OWLOntologyID();
+            // Ontologies that only contain imports declarations are not in the project ontologies index
+            var ontologyIds = Stream.concat(projectOntologiesIndex.getOntologyIds(),
+                                            ontologyImportsIndex.getOntologyIds())
+                                    .collect(toSet());
+            for(var ontologyId : ontologyIds) {
+                var normalisedOntologyId = normaliseOntologyId(ontologyId, singletonAnonymousId);
+                if(!manager.contains(normalisedOntologyId)) {
+                    manager.createOntology(normalisedOntologyId);
+                }
+                var ontology = manager.getOntology(normalisedOntologyId);
+                ontologyImportsIndex.getImportsDeclarations(ontologyId)
+                                    .forEach(importsDeclaration -> manager.applyChange(new AddImport(ontology, importsDeclaration)));
+                ontologyAnnotationsIndex.getOntologyAnnotations(ontologyId)
+                                        .forEach(annotation -> manager.applyChange(new AddOntologyAnnotation(ontology, annotation)));
+                manager.addAxioms(ontology, ontologyAxiomsIndex.getAxioms(ontologyId).collect(toSet()));
+            }
+            if(manager.getOntologies().isEmpty()) {
+                manager.createOntology();
+            }
+            logger.info("{} Created head revision ontologies from the project indexes in {} ms",
+                        projectId,
+                        stopwatch.elapsed().toMillis());
+            return manager;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private static OWLOntologyID normaliseOntologyId(@Nonnull OWLOntologyID ontologyId,
+                                                     @Nonnull OWLOntologyID singletonAnonymousId) {
+        // Anonymous ontologies are not handled nicely at all.
+        return ontologyId.isAnonymous() ? singletonAnonymousId : ontologyId;
+    }
+}
@@ -0,0 +1,257 @@
+package edu.stanford.bmir.protege.web.server.revision;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.collect.ImmutableList;
+import edu.stanford.bmir.protege.web.server.change.OntologyChange;
+import edu.stanford.bmir.protege.web.server.change.OntologyChangeRecordTranslator;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import org.semanticweb.binaryowl.BinaryOWLOntologyChangeLog;
+import org.semanticweb.binaryowl.BinaryOWLParseException;
+import org.semanticweb.binaryowl.chunk.SkipSetting;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+
+import javax.annotation.Nonnull;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-11-30
+ *
+ * A read-only, memory mapped view of a change history file.  The changes in a revision are decoded on demand from
+ * the byte range that holds the revision's record in the file.  Recently decoded revisions are held in a cache whose
+ * size is bounded by the total number of changes that it contains.  This class is thread safe.
+ *
+ * The mapping is reference counted.  Closing the history releases the owner's reference, and the file channel is
+ * closed once any decodes that are in progress have completed.  Lazily loaded revisions may outlive the history, so
+ * changes that are requested after it has been closed are read directly from the file rather than from the mapping.
+ */
+public class MappedChangeHistory implements AutoCloseable {
+
+    /**
+     * The maximum size of a file that can be mapped into a single buffer
+     */
+    public static final long MAX_MAPPED_FILE_SIZE = Integer.MAX_VALUE;
+
+    @Nonnull
+    private final File changeHistoryFile;
+
+    @Nonnull
+    private final FileChannel fileChannel;
+
+    @Nonnull
+    private final MappedByteBuffer mappedBuffer;
+
+    @Nonnull
+    private final OWLDataFactory dataFactory;
+
+    @Nonnull
+    private final OntologyChangeRecordTranslator changeRecordTranslator;
+
+    @Nonnull
+    private final Cache<RevisionNumber, ImmutableList<OntologyChange>> cache;
+
+    /**
+     * The number of references to the mapping.  The owner holds one reference until the history is closed and each
+     * decode that is in progress holds one reference.
+     */
+    private int referenceCount = 1;
+
+    private boolean closed = false;
+
+    private MappedChangeHistory(@Nonnull File changeHistoryFile,
+                                @Nonnull FileChannel fileChannel,
+                                @Nonnull MappedByteBuffer mappedBuffer,
+                                @Nonnull OWLDataFactory dataFactory,
+                                @Nonnull OntologyChangeRecordTranslator changeRecordTranslator,
+                                int cacheSize) {
+        this.changeHistoryFile = checkNotNull(changeHistoryFile);
+        this.fileChannel = checkNotNull(fileChannel);
+        this.mappedBuffer = checkNotNull(mappedBuffer);
+        this.dataFactory = checkNotNull(dataFactory);
+        this.changeRecordTranslator = checkNotNull(changeRecordTranslator);
+        this.cache = Caffeine.newBuilder()
+                             .maximumWeight(Math.max(cacheSize, 0))
+                             .<RevisionNumber, ImmutableList<OntologyChange>>weigher((revisionNumber, changes) -> changes.size())
+                             .build();
+    }
+
+    /**
+     * Maps the first length bytes of the specified change history file.
+     * @param changeHistoryFile The change history file
+     * @param length The number of bytes to map.  This must not be greater than {@link #MAX_MAPPED_FILE_SIZE}.
+     * @param dataFactory The data factory that is used to decode changes
+     * @param changeRecordTranslator The translator that is used to translate decoded change records into changes
+     * @param cacheSize The maximum number of decoded changes to cache
+     */
+    @Nonnull
+    public static MappedChangeHistory map(@Nonnull File changeHistoryFile,
+                                          long length,
+                                          @Nonnull OWLDataFactory dataFactory,
+                                          @Nonnull OntologyChangeRecordTranslator changeRecordTranslator,
+                                          int cacheSize) throws IOException {
+        checkArgument(length >= 0 && length <= MAX_MAPPED_FILE_SIZE, "Cannot map %s bytes", length);
+        var fileChannel = FileChannel.open(changeHistoryFile.toPath(), StandardOpenOption.READ);
+        try {
+            var mappedBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            return new MappedChangeHistory(changeHistoryFile, fileChannel, mappedBuffer, dataFactory, changeRecordTranslator, cacheSize);
+        } catch(IOException e) {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the changes for a revision.
+     * @param revisionNumber The number of the revision.  This is used as the cache key.
+     * @param start The offset of the start of the revision's record in the change history file
+     * @param end The offset of the end (exclusive) of the revision's record in the change history file
+     * @return The changes in the revision
+     * @throws UncheckedIOException if the changes could not be decoded
+     */
+    @Nonnull
+    public ImmutableList<OntologyChange> getChanges(@Nonnull RevisionNumber revisionNumber, long start, long end) {
+        checkNotNull(revisionNumber);
+        if(!retain()) {
+            return decodeChanges(revisionNumber, readRecord(revisionNumber, start, end));
+        }
+        try {
+            return cache.get(revisionNumber, rn -> decodeChanges(rn, getMappedRecord(start, end)));
+        } finally {
+            release();
+        }
+    }
+
+    private ByteBuffer getMappedRecord(long start, long end) {
+        // Duplicates share the mapped content but have their own position and limit
+        var buffer = mappedBuffer.duplicate();
+        buffer.limit((int) end);
+        buffer.position((int) start);
+        return buffer;
+    }
+
+    private ByteBuffer readRecord(@Nonnull RevisionNumber revisionNumber, long start, long end) {
+        var buffer = ByteBuffer.allocate((int) (end - start));
+        try(var channel = FileChannel.open(changeHistoryFile.toPath(), StandardOpenOption.READ)) {
+            while(buffer.hasRemaining()) {
+                if(channel.read(buffer, start + buffer.position()) < 0) {
+                    throw new EOFException("Unexpected end of change history file");
+                }
+            }
+        } catch(IOException e) {
+            throw new UncheckedIOException(new IOException("Could not read the changes for revision " + revisionNumber.getValue(), e));
+        }
+        return buffer.flip();
+    }
+
+    private ImmutableList<OntologyChange> decodeChanges(@Nonnull RevisionNumber revisionNumber,
+                                                        @Nonnull ByteBuffer buffer) {
+        var changes = ImmutableList.<OntologyChange>builder();
+        try {
+            var changeLog = new BinaryOWLOntologyChangeLog();
+            changeLog.readChanges(new ByteBufferInputStream(buffer), dataFactory, (changeRecordList, skipSetting, filePosition) -> {
+                changeRecordList.getChangeRecords()
+                                .stream()
+                                .map(changeRecordTranslator::getOntologyChange)
+                                .forEach(changes::add);
+            }, SkipSetting.SKIP_NONE);
+            return changes.build();
+        } catch(IOException | BinaryOWLParseException e) {
+            throw new UncheckedIOException(new IOException("Could not decode the changes for revision " + revisionNumber.getValue(), e));
+        }
+    }
+
+    /**
+     * Gets the number of changes that are currently held in the cache of decoded revisions.
+     */
+    public long getCachedChangeCount() {
+        cache.cleanUp();
+        return cache.asMap().values().stream().mapToLong(ImmutableList::size).sum();
+    }
+
+    private synchronized boolean retain() {
+        if(referenceCount == 0) {
+            return false;
+        }
+        referenceCount++;
+        return true;
+    }
+
+    private synchronized void release() {
+        referenceCount--;
+        if(referenceCount == 0) {
+            cache.invalidateAll();
+            try {
+                fileChannel.close();
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Releases the owner's reference to the mapping.  Changes may still be requested after the history has been
+     * closed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if(closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            release();
+        } catch(UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            if(!buffer.hasRemaining()) {
+                return -1;
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        @Override
+        public int read(@Nonnull byte[] b, int off, int len) {
+            if(len == 0) {
+                return 0;
+            }
+            if(!buffer.hasRemaining()) {
+                return -1;
+            }
+            var count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
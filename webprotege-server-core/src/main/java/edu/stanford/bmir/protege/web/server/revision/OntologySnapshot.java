@@ -0,0 +1,53 @@
+package edu.stanford.bmir.protege.web.server.revision;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import edu.stanford.bmir.protege.web.server.change.OntologyChange;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-11-02
+ *
+ * A materialized snapshot of the state of the project ontologies at a given revision.  The state is
+ * represented as a list of changes that only add axioms and ontology annotations.  Applying these changes
+ * to an empty set of ontologies (or an empty set of indexes) reproduces the state of the project at the
+ * snapshot revision.
+ */
+@AutoValue
+public abstract class OntologySnapshot {
+
+    /**
+     * Creates a snapshot
+     * @param revisionNumber The revision number of the revision that the snapshot covers
+     * @param revisionTimestamp The timestamp of the revision that the snapshot covers.  This is used to
+     *                          validate the snapshot against the change history.
+     * @param changes The changes that recreate the state of the project at the revision.
+     */
+    @Nonnull
+    public static OntologySnapshot get(@Nonnull RevisionNumber revisionNumber,
+                                       long revisionTimestamp,
+                                       @Nonnull ImmutableList<OntologyChange> changes) {
+        return new AutoValue_OntologySnapshot(revisionNumber, revisionTimestamp, changes);
+    }
+
+    @Nonnull
+    public abstract RevisionNumber getRevisionNumber();
+
+    public abstract long getRevisionTimestamp();
+
+    @Nonnull
+    public abstract ImmutableList<OntologyChange> getChanges();
+
+    /**
+     * Determines whether this snapshot is consistent with the specified revision.  The snapshot is
+     * consistent if it has the same revision number and timestamp as the revision.
+     */
+    public boolean isSnapshotOf(@Nonnull Revision revision) {
+        return getRevisionNumber().equals(revision.getRevisionNumber())
+                && getRevisionTimestamp() == revision.getTimestamp();
+    }
+}
@@ -0,0 +1,140 @@
+package edu.stanford.bmir.protege.web.server.revision;
+
+import edu.stanford.bmir.protege.web.server.change.OntologyChange;
+import edu.stanford.bmir.protege.web.server.change.OntologyChangeRecordTranslator;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import org.semanticweb.binaryowl.BinaryOWLMetadata;
+import org.semanticweb.binaryowl.BinaryOWLOntologyChangeLog;
+import org.semanticweb.binaryowl.BinaryOWLParseException;
+import org.semanticweb.binaryowl.change.OntologyChangeRecordList;
+import org.semanticweb.binaryowl.chunk.SkipSetting;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static edu.stanford.bmir.protege.web.server.revision.RevisionSerializationVocabulary.*;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-11-02
+ *
+ * Reads and writes {@link OntologySnapshot}s.  Snapshots are stored using the binary OWL change log format
+ * (the same format that is used for the change history) as a single change record list.  The metadata for
+ * the record list holds the snapshot format version, the revision number and timestamp that the snapshot
+ * covers and the number of changes in the snapshot.
+ */
+public class OntologySnapshotSerializer {
+
+    /**
+     * The version of the snapshot format.  This should be incremented if the way that snapshots are
+     * written changes.  Snapshots with a different version are treated as invalid.  Version 2 snapshots include
+     * imports declarations.
+     */
+    public static final int SNAPSHOT_FORMAT_VERSION = 2;
+
+    @Nonnull
+    private final OWLDataFactory dataFactory;
+
+    @Nonnull
+    private final OntologyChangeRecordTranslator changeRecordTranslator;
+
+    @Inject
+    public OntologySnapshotSerializer(@Nonnull OWLDataFactory dataFactory,
+                                      @Nonnull OntologyChangeRecordTranslator changeRecordTranslator) {
+        this.dataFactory = checkNotNull(dataFactory);
+        this.changeRecordTranslator = checkNotNull(changeRecordTranslator);
+    }
+
+    /**
+     * Writes the specified snapshot to the specified file.  The snapshot is first written to a temporary file
+     * which is then moved into place, so that a partially written snapshot is never observed by readers.
+     * @param snapshot The snapshot to write
+     * @param file The file that the snapshot should be written to.  Any existing file will be replaced.
+     * @throws IOException if the snapshot could not be written
+     */
+    public void writeSnapshot(@Nonnull OntologySnapshot snapshot,
+                              @Nonnull File file) throws IOException {
+        checkNotNull(snapshot);
+        checkNotNull(file);
+        var parentDirectory = file.getParentFile();
+        parentDirectory.mkdirs();
+        var metadata = new BinaryOWLMetadata();
+        metadata.setIntAttribute(SNAPSHOT_FORMAT_VERSION_META_DATA_ATTRIBUTE.getVocabularyName(), SNAPSHOT_FORMAT_VERSION);
+        metadata.setLongAttribute(REVISION_META_DATA_ATTRIBUTE.getVocabularyName(), snapshot.getRevisionNumber().getValue());
+        metadata.setLongAttribute(SNAPSHOT_REVISION_TIMESTAMP_META_DATA_ATTRIBUTE.getVocabularyName(), snapshot.getRevisionTimestamp());
+        metadata.setIntAttribute(SNAPSHOT_CHANGE_COUNT_META_DATA_ATTRIBUTE.getVocabularyName(), snapshot.getChanges().size());
+        metadata.setStringAttribute(REVISION_TYPE_META_DATA_ATTRIBUTE.getVocabularyName(), RevisionType.BASELINE.name());
+        var changeRecords = snapshot.getChanges()
+                                    .stream()
+                                    .map(OntologyChange::toOwlOntologyChangeRecord)
+                                    .collect(toImmutableList());
+        var recordList = new OntologyChangeRecordList(snapshot.getRevisionTimestamp(), metadata, changeRecords);
+        var tempFile = File.createTempFile(file.getName(), ".tmp", parentDirectory);
+        try {
+            try(var outputStream = new BufferedOutputStream(Files.newOutputStream(tempFile.toPath()))) {
+                new BinaryOWLOntologyChangeLog().appendChanges(recordList, outputStream);
+            }
+            Files.move(tempFile.toPath(), file.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    /**
+     * Reads a snapshot from the specified file.
+     * @param file The file
+     * @return The snapshot
+     * @throws IOException if the file could not be read, if the file is corrupt or if the file was written
+     * with a different snapshot format version.
+     */
+    @Nonnull
+    public OntologySnapshot readSnapshot(@Nonnull File file) throws IOException {
+        checkNotNull(file);
+        var recordLists = new ArrayList<OntologyChangeRecordList>();
+        try(var inputStream = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+            new BinaryOWLOntologyChangeLog().readChanges(inputStream,
+                                                         dataFactory,
+                                                         (list, skipSetting, filePosition) -> recordLists.add(list),
+                                                         SkipSetting.SKIP_NONE);
+        } catch(BinaryOWLParseException e) {
+            throw new IOException("Corrupt snapshot: " + e.getMessage(), e);
+        }
+        if(recordLists.size() != 1) {
+            throw new IOException("Corrupt snapshot: Expected exactly one change record list but found " + recordLists.size());
+        }
+        var recordList = recordLists.get(0);
+        var metadata = recordList.getMetadata();
+        var formatVersion = metadata.getIntAttribute(SNAPSHOT_FORMAT_VERSION_META_DATA_ATTRIBUTE.getVocabularyName(), -1);
+        if(formatVersion != SNAPSHOT_FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot format version: " + formatVersion);
+        }
+        var revisionNumber = metadata.getLongAttribute(REVISION_META_DATA_ATTRIBUTE.getVocabularyName(), 0L);
+        var revisionTimestamp = metadata.getLongAttribute(SNAPSHOT_REVISION_TIMESTAMP_META_DATA_ATTRIBUTE.getVocabularyName(), 0L);
+        var expectedChangeCount = metadata.getIntAttribute(SNAPSHOT_CHANGE_COUNT_META_DATA_ATTRIBUTE.getVocabularyName(), -1);
+        var changes = recordList.getChangeRecords()
+                                .stream()
+                                .map(changeRecordTranslator::getOntologyChange)
+                                .collect(toImmutableList());
+        if(changes.size() != expectedChangeCount) {
+            throw new IOException(String.format("Corrupt snapshot: Expected %d changes but found %d",
+                                                expectedChangeCount,
+                                                changes.size()));
+        }
+        return OntologySnapshot.get(RevisionNumber.getRevisionNumber(revisionNumber),
+                                    revisionTimestamp,
+                                    changes);
+    }
+}
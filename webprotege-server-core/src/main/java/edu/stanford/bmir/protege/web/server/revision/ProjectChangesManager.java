@@ -3,7 +3,6 @@ package edu.stanford.bmir.protege.web.server.revision;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.*;
 import com.google.gwt.safehtml.shared.SafeHtml;
-import edu.stanford.bmir.protege.web.server.axiom.AxiomIRISubjectProvider;
 import edu.stanford.bmir.protege.web.server.change.OntologyChange;
 import edu.stanford.bmir.protege.web.server.diff.DiffElementRenderer;
 import edu.stanford.bmir.protege.web.server.diff.Revision2DiffElementsTranslator;
@@ -16,7 +15,6 @@ import edu.stanford.bmir.protege.web.shared.pagination.PageRequest;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
 import org.semanticweb.owlapi.model.IRI;
-import org.semanticweb.owlapi.model.OWLAxiom;
 import org.semanticweb.owlapi.model.OWLEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -75,39 +73,32 @@ public class ProjectChangesManager {
     }
 
     private static Optional<IRI> getSubject(OntologyChange change) {
-        if (change.isAxiomChange()) {
-            var axiom = change.getAxiomOrThrow();
-            return getSubject(axiom);
-        }
-        else {
-            return Optional.empty();
-        }
-    }
-
-    private static Optional<IRI> getSubject(OWLAxiom axiom) {
-        AxiomIRISubjectProvider subjectProvider = new AxiomIRISubjectProvider(IRI::compareTo);
-        return subjectProvider.getSubject(axiom);
+        return EntityRevisionIndex.getSubject(change);
     }
 
     public Page<ProjectChange> getProjectChanges(Optional<OWLEntity> subject,
                                                  PageRequest pageRequest) {
-        ImmutableList<Revision> revisions = revisionManager.getRevisions();
         if (subject.isPresent()) {
-            // We need to scan revisions to find the ones containing a particular subject
-            // We ignore the page request here.
-            // This needs reworking really, but the number of changes per entity is usually small
-            // so this works for now.
+            // Look up the revisions that change the subject.  Pages are in reverse order.
+            var revisionNumbers = revisionManager.getRevisionNumbersForSubject(subject.get().getIRI());
             ImmutableList.Builder<ProjectChange> changes = ImmutableList.builder();
-            for (Revision revision : revisions) {
-                getProjectChangesForRevision(revision, subject, changes);
-            }
-            ImmutableList<ProjectChange> theChanges = changes.build();
-            return new Page<>(1, 1, theChanges, theChanges.size());
+            revisionNumbers.reverse().stream()
+                    .skip(pageRequest.getSkip())
+                    .limit(pageRequest.getPageSize())
+                    .map(revisionManager::getRevision)
+                    .flatMap(Optional::stream)
+                    .forEach(revision -> getProjectChangesForRevision(revision, subject, changes));
+            ImmutableList<ProjectChange> changeList = changes.build();
+            int pageCount = getPageCount(revisionNumbers.size(), pageRequest);
+            return new Page<>(pageRequest.getPageNumber(),
+                              pageCount,
+                              changeList, revisionNumbers.size());
         }
         else {
+            List<Revision> revisions = revisionManager.getRevisions();
             // Pages are in reverse order
             ImmutableList.Builder<ProjectChange> changes = ImmutableList.builder();
-            revisions.reverse().stream()
+            Lists.reverse(revisions).stream()
                     .skip(pageRequest.getSkip())
                     .limit(pageRequest.getPageSize())
                     .forEach(revision -> getProjectChangesForRevision(revision, subject, changes));
@@ -119,6 +110,11 @@ public class ProjectChangesManager {
         }
     }
 
+    private static int getPageCount(int elementCount, PageRequest pageRequest) {
+        int pageSize = pageRequest.getPageSize();
+        return Math.max(1, (elementCount + pageSize - 1) / pageSize);
+    }
+
     public ImmutableList<ProjectChange> getProjectChangesForSubjectInRevision(OWLEntity subject, Revision revision) {
         ImmutableList.Builder<ProjectChange> resultBuilder = ImmutableList.builder();
         getProjectChangesForRevision(revision, Optional.of(subject), resultBuilder);
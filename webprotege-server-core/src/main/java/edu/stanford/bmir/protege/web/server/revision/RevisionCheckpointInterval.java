@@ -0,0 +1,15 @@
+package edu.stanford.bmir.protege.web.server.revision;
+
+import javax.inject.Qualifier;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-11-09
+ *
+ * Qualifies the number of revisions between the checkpoints that are used to reconstruct historical revisions
+ */
+@Qualifier
+public @interface RevisionCheckpointInterval {
+
+}
@@ -0,0 +1,268 @@
+package edu.stanford.bmir.protege.web.server.revision;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import edu.stanford.bmir.protege.web.server.change.AddAxiomChange;
+import edu.stanford.bmir.protege.web.server.change.AddImportChange;
+import edu.stanford.bmir.protege.web.server.change.AddOntologyAnnotationChange;
+import edu.stanford.bmir.protege.web.server.change.OntologyChange;
+import edu.stanford.bmir.protege.web.server.inject.RevisionCheckpointDirectoryFactory;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskQueue;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskScheduler;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskType;
+import edu.stanford.bmir.protege.web.shared.inject.ProjectSingleton;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-11-09
+ *
+ * Manages the on-disk checkpoints that are used to reconstruct historical revisions of a project.  A checkpoint
+ * is an {@link OntologySnapshot} of the project ontologies at a revision whose number is a multiple of the
+ * checkpoint interval.  A historical revision can be reconstructed by starting from the nearest checkpoint at or
+ * before the revision and applying the changes in the revisions that follow it.
+ */
+@ProjectSingleton
+public class RevisionCheckpointManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevisionCheckpointManager.class);
+
+    private static final String CHECKPOINT_FILE_NAME_PREFIX = "checkpoint-";
+
+    private static final String CHECKPOINT_FILE_NAME_SUFFIX = ".binary";
+
+    @Nonnull
+    private final ProjectId projectId;
+
+    @Nonnull
+    private final RevisionCheckpointDirectoryFactory checkpointDirectoryFactory;
+
+    @Nonnull
+    private final OntologySnapshotSerializer snapshotSerializer;
+
+    @Nonnull
+    private final RevisionStore revisionStore;
+
+    private final int checkpointInterval;
+
+    @Nonnull
+    private final ProjectTaskQueue checkpointWriterQueue;
+
+    private final Set<RevisionNumber> pendingCheckpoints = ConcurrentHashMap.newKeySet();
+
+    @Inject
+    public RevisionCheckpointManager(@Nonnull ProjectId projectId,
+                                     @Nonnull RevisionCheckpointDirectoryFactory checkpointDirectoryFactory,
+                                     @Nonnull OntologySnapshotSerializer snapshotSerializer,
+                                     @Nonnull RevisionStore revisionStore,
+                                     @RevisionCheckpointInterval int checkpointInterval,
+                                     @Nonnull ProjectTaskScheduler projectTaskScheduler) {
+        this.projectId = checkNotNull(projectId);
+        this.checkpointDirectoryFactory = checkNotNull(checkpointDirectoryFactory);
+        this.snapshotSerializer = checkNotNull(snapshotSerializer);
+        this.revisionStore = checkNotNull(revisionStore);
+        this.checkpointInterval = checkpointInterval;
+        this.checkpointWriterQueue = projectTaskScheduler.createSerialQueue(projectId,
+                                                                            ProjectTaskType.CHECKPOINT_WRITING);
+    }
+
+    /**
+     * Determines whether a checkpoint should exist for the specified revision.
+     * @param revisionNumber The revision number
+     * @return true if checkpoints are enabled and the revision number is a multiple of the checkpoint interval
+     */
+    public boolean isCheckpointRevision(@Nonnull RevisionNumber revisionNumber) {
+        if(checkpointInterval <= 0 || revisionNumber.isHead()) {
+            return false;
+        }
+        var value = revisionNumber.getValue();
+        return value > 0 && value % checkpointInterval == 0;
+    }
+
+    public boolean hasCheckpoint(@Nonnull RevisionNumber revisionNumber) {
+        return getCheckpointFile(revisionNumber).exists();
+    }
+
+    /**
+     * Gets the nearest valid checkpoint at or before the specified revision.  Checkpoints that cannot be read, or
+     * that do not match the corresponding revision in the change history, are discarded.
+     * @param revisionNumber The revision number
+     * @return The nearest checkpoint or empty if there is no such checkpoint
+     */
+    @Nonnull
+    public Optional<OntologySnapshot> getNearestCheckpoint(@Nonnull RevisionNumber revisionNumber) {
+        checkNotNull(revisionNumber);
+        if(checkpointInterval <= 0) {
+            return Optional.empty();
+        }
+        for(var checkpointRevisionNumber : getCheckpointRevisionNumbers()) {
+            if(checkpointRevisionNumber.compareTo(revisionNumber) > 0) {
+                continue;
+            }
+            var checkpoint = readCheckpoint(checkpointRevisionNumber);
+            if(checkpoint.isPresent()) {
+                return checkpoint;
+            }
+        }
+        return Optional.empty();
+    }
+
+    private Optional<OntologySnapshot> readCheckpoint(@Nonnull RevisionNumber revisionNumber) {
+        var checkpointFile = getCheckpointFile(revisionNumber);
+        try {
+            var checkpoint = snapshotSerializer.readSnapshot(checkpointFile);
+            var matchesHistory = revisionStore.getRevision(revisionNumber)
+                                              .map(checkpoint::isSnapshotOf)
+                                              .orElse(false);
+            if(!matchesHistory) {
+                logger.info("{} Revision checkpoint at {} is stale.  Discarding checkpoint.", projectId, revisionNumber);
+                deleteCheckpoint(checkpointFile);
+                return Optional.empty();
+            }
+            return Optional.of(checkpoint);
+        } catch(IOException e) {
+            logger.warn("{} Could not read revision checkpoint at {}.  Discarding checkpoint.  Cause: {}",
+                        projectId,
+                        revisionNumber,
+                        e.getMessage());
+            deleteCheckpoint(checkpointFile);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Saves a checkpoint of the ontologies in the specified manager.
+     * @param revision The revision that the ontologies in the manager correspond to
+     * @param manager The manager that contains the ontologies
+     */
+    public void saveCheckpoint(@Nonnull Revision revision,
+                               @Nonnull OWLOntologyManager manager) {
+        checkNotNull(revision);
+        checkNotNull(manager);
+        writeCheckpoint(revision, getCheckpointChanges(manager));
+    }
+
+    /**
+     * Saves a checkpoint of the ontologies in the specified manager in the background.  The contents of the
+     * ontologies are copied before this method returns, so the manager may be modified as soon as it returns.  Nothing
+     * is saved if a checkpoint for the revision already exists or is already being saved.
+     * @param revision The revision that the ontologies in the manager correspond to
+     * @param manager The manager that contains the ontologies
+     */
+    public void scheduleCheckpoint(@Nonnull Revision revision,
+                                   @Nonnull OWLOntologyManager manager) {
+        checkNotNull(revision);
+        checkNotNull(manager);
+        var revisionNumber = revision.getRevisionNumber();
+        if(!pendingCheckpoints.add(revisionNumber)) {
+            return;
+        }
+        var changes = getCheckpointChanges(manager);
+        checkpointWriterQueue.execute(() -> {
+            try {
+                if(!hasCheckpoint(revisionNumber)) {
+                    writeCheckpoint(revision, changes);
+                }
+            } finally {
+                pendingCheckpoints.remove(revisionNumber);
+            }
+        });
+    }
+
+    private void writeCheckpoint(@Nonnull Revision revision,
+                                 @Nonnull ImmutableList<OntologyChange> changes) {
+        try {
+            var stopwatch = Stopwatch.createStarted();
+            var checkpoint = OntologySnapshot.get(revision.getRevisionNumber(),
+                                                  revision.getTimestamp(),
+                                                  changes);
+            snapshotSerializer.writeSnapshot(checkpoint, getCheckpointFile(revision.getRevisionNumber()));
+            stopwatch.stop();
+            logger.info("{} Saved revision checkpoint at {} ({} changes) in {} ms",
+                        projectId,
+                        checkpoint.getRevisionNumber(),
+                        checkpoint.getChanges().size(),
+                        stopwatch.elapsed().toMillis());
+        } catch(IOException e) {
+            logger.error("{} Could not save revision checkpoint.  Cause: {}", projectId, e.getMessage(), e);
+        }
+    }
+
+    private static ImmutableList<OntologyChange> getCheckpointChanges(@Nonnull OWLOntologyManager manager) {
+        var changes = ImmutableList.<OntologyChange>builder();
+        for(var ontology : manager.getOntologies()) {
+            var ontologyId = ontology.getOntologyID();
+            ontology.getImportsDeclarations()
+                    .forEach(importsDeclaration -> changes.add(AddImportChange.of(ontologyId, importsDeclaration)));
+            ontology.getAnnotations()
+                    .forEach(annotation -> changes.add(AddOntologyAnnotationChange.of(ontologyId, annotation)));
+            ontology.getAxioms()
+                    .forEach(axiom -> changes.add(AddAxiomChange.of(ontologyId, axiom)));
+        }
+        return changes.build();
+    }
+
+    /**
+     * Gets the revision numbers of the checkpoints that exist, in descending order.
+     */
+    private List<RevisionNumber> getCheckpointRevisionNumbers() {
+        var checkpointFiles = getCheckpointsDirectory().listFiles();
+        if(checkpointFiles == null) {
+            return List.of();
+        }
+        return Arrays.stream(checkpointFiles)
+                     .map(File::getName)
+                     .map(RevisionCheckpointManager::parseCheckpointRevisionNumber)
+                     .filter(Objects::nonNull)
+                     .sorted(Comparator.reverseOrder())
+                     .collect(toList());
+    }
+
+    private static RevisionNumber parseCheckpointRevisionNumber(@Nonnull String fileName) {
+        if(!fileName.startsWith(CHECKPOINT_FILE_NAME_PREFIX) || !fileName.endsWith(CHECKPOINT_FILE_NAME_SUFFIX)) {
+            return null;
+        }
+        var value = fileName.substring(CHECKPOINT_FILE_NAME_PREFIX.length(),
+                                       fileName.length() - CHECKPOINT_FILE_NAME_SUFFIX.length());
+        try {
+            return RevisionNumber.getRevisionNumber(Long.parseLong(value));
+        } catch(NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private File getCheckpointsDirectory() {
+        return checkpointDirectoryFactory.getRevisionCheckpointsDirectory(projectId);
+    }
+
+    private File getCheckpointFile(@Nonnull RevisionNumber revisionNumber) {
+        return new File(getCheckpointsDirectory(),
+                        CHECKPOINT_FILE_NAME_PREFIX + revisionNumber.getValue() + CHECKPOINT_FILE_NAME_SUFFIX);
+    }
+
+    private void deleteCheckpoint(@Nonnull File checkpointFile) {
+        if(!checkpointFile.delete()) {
+            logger.warn("{} Could not delete revision checkpoint file {}", projectId, checkpointFile);
+        }
+    }
+}
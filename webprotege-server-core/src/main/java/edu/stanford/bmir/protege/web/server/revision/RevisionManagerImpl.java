@@ -7,12 +7,15 @@ import edu.stanford.bmir.protege.web.shared.inject.ProjectSingleton;
 import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
 import edu.stanford.bmir.protege.web.shared.revision.RevisionSummary;
 import edu.stanford.bmir.protege.web.shared.user.UserId;
+import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyID;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
+import javax.inject.Provider;
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.locks.Lock;
@@ -37,9 +40,17 @@ public class RevisionManagerImpl implements RevisionManager {
 
     private final RevisionStore revisionStore;
 
+    private final RevisionCheckpointManager checkpointManager;
+
+    private final Provider<HeadRevisionOntologyManagerFactory> headRevisionOntologyManagerFactoryProvider;
+
     @Inject
-    public RevisionManagerImpl(@Nonnull RevisionStore revisionStore) {
+    public RevisionManagerImpl(@Nonnull RevisionStore revisionStore,
+                               @Nonnull RevisionCheckpointManager checkpointManager,
+                               @Nonnull Provider<HeadRevisionOntologyManagerFactory> headRevisionOntologyManagerFactoryProvider) {
         this.revisionStore = checkNotNull(revisionStore);
+        this.checkpointManager = checkNotNull(checkpointManager);
+        this.headRevisionOntologyManagerFactoryProvider = checkNotNull(headRevisionOntologyManagerFactoryProvider);
     }
 
     @Nonnull
@@ -65,6 +76,15 @@ public class RevisionManagerImpl implements RevisionManager {
         }
     }
 
+    @Override
+    public void awaitSaved(@Nonnull RevisionNumber revisionNumber) throws IOException {
+        revisionStore.awaitSaved(revisionNumber);
+    }
+
+    @Override
+    public void checkCanSaveRevisions() throws IOException {
+        revisionStore.checkCanSaveRevisions();
+    }
 
     @Nonnull
     @Override
@@ -72,26 +92,35 @@ public class RevisionManagerImpl implements RevisionManager {
         return revisionStore.getCurrentRevisionNumber();
     }
 
+    /**
+     * Gets an ontology manager containing the ontologies at the specified revision.  The head revision is created
+     * directly from the project indexes.  Other revisions are reconstructed by starting from the nearest checkpoint
+     * at or before the revision and applying the changes in the revisions that follow it.  Checkpoints that are
+     * due but missing are saved in the background along the way.
+     */
     @Nonnull
     @Override
     public OWLOntologyManager getOntologyManagerForRevision(@Nonnull RevisionNumber revision) {
         try {
+            if(revision.isHead()) {
+                return headRevisionOntologyManagerFactoryProvider.get().createOntologyManager();
+            }
             OWLOntologyManager manager = WebProtegeOWLManager.createOWLOntologyManager();
             final OWLOntologyID singletonOntologyId = new OWLOntologyID();
+            var checkpoint = checkpointManager.getNearestCheckpoint(revision);
+            if(checkpoint.isPresent()) {
+                applyChanges(manager, checkpoint.get().getChanges(), singletonOntologyId);
+            }
+            var checkpointRevisionNumber = checkpoint.map(OntologySnapshot::getRevisionNumber)
+                                                     .orElse(RevisionNumber.getRevisionNumber(0));
             for(Revision rev : revisionStore.getRevisions()) {
-                if(rev.getRevisionNumber()
-                      .compareTo(revision) <= 0) {
-                    for(OntologyChange record : rev.getChanges()) {
-                        // Anonymous ontologies are not handled nicely at all.
-                        var normalisedChangeRecord = normaliseChangeRecord(record, singletonOntologyId);
-                        var ontologyId = normalisedChangeRecord.getOntologyId();
-                        if(!manager.contains(ontologyId)) {
-                            manager.createOntology(ontologyId);
-                        }
-                        var change = normalisedChangeRecord
-                                .toOwlOntologyChangeRecord()
-                                .createOntologyChange(manager);
-                        manager.applyChange(change);
+                var revisionNumber = rev.getRevisionNumber();
+                if(revisionNumber.compareTo(checkpointRevisionNumber) > 0
+                        && revisionNumber.compareTo(revision) <= 0) {
+                    applyChanges(manager, rev.getChanges(), singletonOntologyId);
+                    if(checkpointManager.isCheckpointRevision(revisionNumber)
+                            && !checkpointManager.hasCheckpoint(revisionNumber)) {
+                        checkpointManager.scheduleCheckpoint(rev, manager);
                     }
                 }
             }
@@ -106,6 +135,23 @@ public class RevisionManagerImpl implements RevisionManager {
         }
     }
 
+    private void applyChanges(@Nonnull OWLOntologyManager manager,
+                              @Nonnull List<OntologyChange> changes,
+                              @Nonnull OWLOntologyID singletonOntologyId) throws OWLOntologyCreationException {
+        for(OntologyChange record : changes) {
+            // Anonymous ontologies are not handled nicely at all.
+            var normalisedChangeRecord = normaliseChangeRecord(record, singletonOntologyId);
+            var ontologyId = normalisedChangeRecord.getOntologyId();
+            if(!manager.contains(ontologyId)) {
+                manager.createOntology(ontologyId);
+            }
+            var change = normalisedChangeRecord
+                    .toOwlOntologyChangeRecord()
+                    .createOntologyChange(manager);
+            manager.applyChange(change);
+        }
+    }
+
     private OntologyChange normaliseChangeRecord(@Nonnull OntologyChange change,
                                                  @Nonnull OWLOntologyID singletonAnonymousId) {
         var ontologyID = change.getOntologyId();
@@ -120,10 +166,16 @@ public class RevisionManagerImpl implements RevisionManager {
 
     @Nonnull
     @Override
-    public ImmutableList<Revision> getRevisions() {
+    public List<Revision> getRevisions() {
         return revisionStore.getRevisions();
     }
 
+    @Nonnull
+    @Override
+    public ImmutableList<RevisionNumber> getRevisionNumbersForSubject(@Nonnull IRI subject) {
+        return revisionStore.getRevisionNumbersForSubject(subject);
+    }
+
     /**
      * Gets the specified revision
      *
@@ -5,11 +5,6 @@ import org.semanticweb.binaryowl.BinaryOWLMetadata;
 import org.semanticweb.binaryowl.BinaryOWLOntologyChangeLog;
 import org.semanticweb.binaryowl.change.OntologyChangeRecordList;
 
-import java.io.File;
-import java.io.IOException;
-import java.util.concurrent.Callable;
-
-import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 
 /**
@@ -18,36 +13,22 @@ import static com.google.common.collect.ImmutableList.toImmutableList;
  * Bio-Medical Informatics Research Group<br>
  * Date: 15/05/2012
  */
-public class RevisionSerializationTask implements Callable<Integer> {
-
-    private final File file;
-
-    private final Revision revision;
-
-    private Runnable savedHook = () -> {};
-
-    public RevisionSerializationTask(File file, Revision revision) {
-        this.file = file;
-        this.revision = revision;
-    }
-
-    public void setSavedHook(Runnable savedHook) {
-        this.savedHook = checkNotNull(savedHook);
-    }
+public class RevisionSerializationTask {
 
-    public Integer call() throws IOException {
+    /**
+     * Creates the change record list that represents the specified revision in a change history file
+     */
+    public static OntologyChangeRecordList toChangeRecordList(Revision revision) {
         BinaryOWLMetadata metadata = new BinaryOWLMetadata();
         metadata.setStringAttribute(RevisionSerializationVocabulary.USERNAME_METADATA_ATTRIBUTE.getVocabularyName(), revision.getUserId().getUserName());
         metadata.setLongAttribute(RevisionSerializationVocabulary.REVISION_META_DATA_ATTRIBUTE.getVocabularyName(), revision.getRevisionNumber().getValue());
         metadata.setStringAttribute(RevisionSerializationVocabulary.DESCRIPTION_META_DATA_ATTRIBUTE.getVocabularyName(), revision.getHighLevelDescription());
         metadata.setStringAttribute(RevisionSerializationVocabulary.REVISION_TYPE_META_DATA_ATTRIBUTE.getVocabularyName(), RevisionType.EDIT.name());
-        BinaryOWLOntologyChangeLog changeLog = new BinaryOWLOntologyChangeLog();
+        metadata.setIntAttribute(RevisionSerializationVocabulary.CHANGE_COUNT_META_DATA_ATTRIBUTE.getVocabularyName(), revision.getSize());
         var changeRecords = revision.getChanges()
                 .stream()
                 .map(OntologyChange::toOwlOntologyChangeRecord)
                 .collect(toImmutableList());
-        changeLog.appendChanges(new OntologyChangeRecordList(revision.getTimestamp(), metadata, changeRecords), file);
-        savedHook.run();
-        return 0;
+        return new OntologyChangeRecordList(revision.getTimestamp(), metadata, changeRecords);
     }
 }
@@ -15,7 +15,15 @@ public enum RevisionSerializationVocabulary {
 
     DESCRIPTION_META_DATA_ATTRIBUTE("description"),
 
-    REVISION_TYPE_META_DATA_ATTRIBUTE("revisionType");
+    REVISION_TYPE_META_DATA_ATTRIBUTE("revisionType"),
+
+    CHANGE_COUNT_META_DATA_ATTRIBUTE("changeCount"),
+
+    SNAPSHOT_FORMAT_VERSION_META_DATA_ATTRIBUTE("snapshotFormatVersion"),
+
+    SNAPSHOT_REVISION_TIMESTAMP_META_DATA_ATTRIBUTE("snapshotRevisionTimestamp"),
+
+    SNAPSHOT_CHANGE_COUNT_META_DATA_ATTRIBUTE("snapshotChangeCount");
 
     private String vocabularyName;
 
@@ -3,8 +3,11 @@ package edu.stanford.bmir.protege.web.server.revision;
 import com.google.common.collect.ImmutableList;
 import edu.stanford.bmir.protege.web.shared.inject.ProjectSingleton;
 import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import org.semanticweb.owlapi.model.IRI;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -17,10 +20,11 @@ public interface RevisionStore {
 
     /**
      * Gets all of the revisions.
-     * @return The revisions in an immutable list.
+     * @return The revisions in an unmodifiable list.  The list is a snapshot and is not affected by revisions
+     * that are subsequently added to this store.
      */
     @Nonnull
-    ImmutableList<Revision> getRevisions();
+    List<Revision> getRevisions();
 
     /**
      * Gets the revision that has the specified revision number.
@@ -38,6 +42,22 @@ public interface RevisionStore {
      */
     void addRevision(@Nonnull Revision revision);
 
+    /**
+     * Waits until the revision that has the specified revision number has been saved to durable storage.
+     * Returns immediately if the revision has already been saved.
+     * @param revisionNumber The revision number.  Not {@code null}.
+     * @throws IOException if the revision could not be saved, or if the current thread was interrupted whilst
+     * waiting for the revision to be saved
+     */
+    void awaitSaved(@Nonnull RevisionNumber revisionNumber) throws IOException;
+
+    /**
+     * Checks that revisions that are added to this store can still be saved to durable storage.
+     * @throws IOException if an earlier revision could not be saved, in which case revisions that are added will
+     * not be saved either
+     */
+    void checkCanSaveRevisions() throws IOException;
+
     /**
      * Gets the revision number of the latest revision.
      * @return The revision number of the latest revision.  If there are no revisions then a revision number
@@ -45,4 +65,13 @@ public interface RevisionStore {
      */
     @Nonnull
     RevisionNumber getCurrentRevisionNumber();
+
+    /**
+     * Gets the numbers of the revisions that contain changes for the specified subject.  The subject of a change
+     * is the subject of the axiom that the change adds or removes.
+     * @param subject The subject.  Not {@code null}.
+     * @return The revision numbers in increasing order.  Not {@code null}.
+     */
+    @Nonnull
+    ImmutableList<RevisionNumber> getRevisionNumbersForSubject(@Nonnull IRI subject);
 }
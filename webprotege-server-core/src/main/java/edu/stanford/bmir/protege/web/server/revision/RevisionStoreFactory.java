@@ -3,6 +3,7 @@ package edu.stanford.bmir.protege.web.server.revision;
 import edu.stanford.bmir.protege.web.server.change.OntologyChangeRecordTranslator;
 import edu.stanford.bmir.protege.web.server.inject.ApplicationDataFactory;
 import edu.stanford.bmir.protege.web.server.inject.ChangeHistoryFileFactory;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskScheduler;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 import org.semanticweb.owlapi.model.OWLDataFactory;
 
@@ -27,13 +28,31 @@ public class RevisionStoreFactory {
     @Nonnull
     private final OntologyChangeRecordTranslator changeRecordTranslator;
 
+    private final boolean lazyLoading;
+
+    private final int changeHistoryCacheSize;
+
+    @Nonnull
+    private final ChangeHistoryGroupCommitWriterFactory changeHistoryWriterFactory;
+
+    @Nonnull
+    private final ProjectTaskScheduler projectTaskScheduler;
+
     @Inject
     public RevisionStoreFactory(@Nonnull ChangeHistoryFileFactory changeHistoryFileFactory,
                                 @ApplicationDataFactory @Nonnull OWLDataFactory dataFactory,
-                                @Nonnull OntologyChangeRecordTranslator changeRecordTranslator) {
+                                @Nonnull OntologyChangeRecordTranslator changeRecordTranslator,
+                                @ChangeHistoryLazyLoading boolean lazyLoading,
+                                @ChangeHistoryCacheSize int changeHistoryCacheSize,
+                                @Nonnull ChangeHistoryGroupCommitWriterFactory changeHistoryWriterFactory,
+                                @Nonnull ProjectTaskScheduler projectTaskScheduler) {
         this.changeHistoryFileFactory = checkNotNull(changeHistoryFileFactory);
         this.dataFactory = checkNotNull(dataFactory);
         this.changeRecordTranslator = checkNotNull(changeRecordTranslator);
+        this.lazyLoading = lazyLoading;
+        this.changeHistoryCacheSize = changeHistoryCacheSize;
+        this.changeHistoryWriterFactory = checkNotNull(changeHistoryWriterFactory);
+        this.projectTaskScheduler = checkNotNull(projectTaskScheduler);
     }
 
     @Nonnull
@@ -42,7 +61,11 @@ public class RevisionStoreFactory {
         var revisionStore = new RevisionStoreImpl(projectId,
                                      changeHistoryFileFactory,
                                      dataFactory,
-                                     changeRecordTranslator);
+                                     changeRecordTranslator,
+                                     lazyLoading,
+                                     changeHistoryCacheSize,
+                                     changeHistoryWriterFactory,
+                                     projectTaskScheduler);
         revisionStore.load();
         return revisionStore;
     }
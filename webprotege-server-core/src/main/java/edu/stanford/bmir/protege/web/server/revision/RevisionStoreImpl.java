@@ -5,28 +5,40 @@ import com.google.auto.factory.Provided;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Interners;
+import com.google.common.io.CountingInputStream;
 import edu.stanford.bmir.protege.web.server.change.OntologyChangeRecordTranslator;
 import edu.stanford.bmir.protege.web.server.inject.ChangeHistoryFileFactory;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskQueue;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskScheduler;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskType;
 import edu.stanford.bmir.protege.web.shared.HasDispose;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
 import edu.stanford.bmir.protege.web.shared.user.UserId;
 import org.semanticweb.binaryowl.BinaryOWLOntologyChangeLog;
+import org.semanticweb.binaryowl.BinaryOWLParseException;
 import org.semanticweb.binaryowl.chunk.SkipSetting;
+import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLDataFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.Collections;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -44,7 +56,14 @@ public class RevisionStoreImpl implements RevisionStore, HasDispose {
 
     private static final Logger logger = LoggerFactory.getLogger(RevisionStoreImpl.class);
 
-    private final ExecutorService changeSerializationExecutor;
+    /**
+     * Runs change serialization tasks for this project in order on the shared project task scheduler
+     */
+    @Nonnull
+    private final ProjectTaskQueue changeSerializationQueue;
+
+    @Nonnull
+    private final ChangeHistoryGroupCommitWriter changeHistoryWriter;
 
     private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
 
@@ -61,78 +80,79 @@ public class RevisionStoreImpl implements RevisionStore, HasDispose {
     @Nonnull
     private final OWLDataFactory dataFactory;
 
-    private ImmutableList<Revision> revisions = ImmutableList.of();
+    /**
+     * The revisions.  Readers access this list without locking.  Appends take place under the write lock.
+     */
+    private volatile AppendOnlyRevisionList revisions = new AppendOnlyRevisionList();
+
+    private EntityRevisionIndex entityRevisionIndex = new EntityRevisionIndex();
+
+    /**
+     * Set when revisions are added to the entity revision index.  This is set under the write lock and cleared by
+     * the save, which only holds the read lock.
+     */
+    private final AtomicBoolean entityRevisionIndexModified = new AtomicBoolean();
 
     @Nonnull
     private final OntologyChangeRecordTranslator changeRecordTranslator;
 
-    private Runnable savedHook = () -> {};
+    private final boolean lazyLoading;
+
+    private final int changeHistoryCacheSize;
+
+    /**
+     * A memory mapped view of the change history file that lazily loaded revisions decode their changes from.  This
+     * is null if the change history has not been lazily loaded.  Closing it does not invalidate the lazy revisions
+     * that have already been handed out.
+     */
+    @Nullable
+    private MappedChangeHistory mappedChangeHistory;
 
     @Inject
     public RevisionStoreImpl(@Nonnull ProjectId projectId,
                              @Nonnull ChangeHistoryFileFactory changeHistoryFileFactory,
                              @Nonnull OWLDataFactory dataFactory,
-                             @Nonnull OntologyChangeRecordTranslator changeRecordTranslator) {
+                             @Nonnull OntologyChangeRecordTranslator changeRecordTranslator,
+                             @ChangeHistoryLazyLoading boolean lazyLoading,
+                             @ChangeHistoryCacheSize int changeHistoryCacheSize,
+                             @Nonnull ChangeHistoryGroupCommitWriterFactory changeHistoryWriterFactory,
+                             @Nonnull ProjectTaskScheduler projectTaskScheduler) {
         this.projectId = checkNotNull(projectId);
         this.changeHistoryFileFactory = changeHistoryFileFactory;
         this.dataFactory = checkNotNull(dataFactory);
         this.changeRecordTranslator = changeRecordTranslator;
-        changeSerializationExecutor = Executors.newSingleThreadExecutor(runnable -> {
-            Thread thread = Executors.defaultThreadFactory().newThread(runnable);
-            thread.setName(thread.getName().replace("thread", "change-serializer-thread"));
-            return thread;
-        });
+        this.lazyLoading = lazyLoading;
+        this.changeHistoryCacheSize = changeHistoryCacheSize;
+        changeSerializationQueue = projectTaskScheduler.createSerialQueue(projectId,
+                                                                          ProjectTaskType.CHANGE_SERIALIZATION);
+        changeHistoryWriter = changeHistoryWriterFactory.create(projectId,
+                                                                changeHistoryFileFactory.getChangeHistoryFile(projectId),
+                                                                changeSerializationQueue);
     }
 
     public void setSavedHook(Runnable savedHook) {
-        this.savedHook = checkNotNull(savedHook);
+        changeHistoryWriter.setSavedHook(checkNotNull(savedHook));
     }
 
     @Nonnull
     @Override
     public Optional<Revision> getRevision(@Nonnull RevisionNumber revisionNumber) {
-        if(revisions.isEmpty()) {
-            return Optional.empty();
-        }
-        int index = getRevisionIndexForRevision(revisionNumber);
-        if(index < 0 || revisions.size() <= index) {
-            return Optional.empty();
-        }
-        else {
-            return Optional.of(revisions.get(index));
-        }
+        return revisions.getRevision(revisionNumber);
     }
 
-    private int getRevisionIndexForRevision(RevisionNumber revision) {
-        try {
-            readLock.lock();
-            if(revisions.isEmpty()) {
-                return -1;
-            }
-            if(revision.isHead()) {
-                return revisions.size() - 1;
-            }
-            var firstRevision = revisions.get(0);
-            if(revision.compareTo(firstRevision.getRevisionNumber()) < 0) {
-                return -1;
-            }
-            var lastRevision = revisions.get(revisions.size() - 1);
-            if(lastRevision.getRevisionNumber() == revision) {
-                return revisions.size() - 1;
-            }
-            var dummyRevision = Revision.createEmptyRevisionWithRevisionNumber(revision);
-            return Collections.binarySearch(revisions, dummyRevision);
-        } finally {
-            readLock.unlock();
-        }
+    @Nonnull
+    @Override
+    public List<Revision> getRevisions() {
+        return revisions.getSnapshot();
     }
 
     @Nonnull
     @Override
-    public ImmutableList<Revision> getRevisions() {
+    public ImmutableList<RevisionNumber> getRevisionNumbersForSubject(@Nonnull IRI subject) {
+        checkNotNull(subject);
         try {
             readLock.lock();
-            return revisions;
+            return entityRevisionIndex.getRevisionNumbers(subject);
         } finally {
             readLock.unlock();
         }
@@ -148,10 +168,9 @@ public class RevisionStoreImpl implements RevisionStore, HasDispose {
                         .getRevisionNumber()
                         .getValue(), getCurrentRevisionNumber().getValue()));
             }
-            var extendedListBuilder = ImmutableList.<Revision>builder();
-            extendedListBuilder.addAll(revisions);
-            extendedListBuilder.add(revision);
-            revisions = extendedListBuilder.build();
+            revisions.append(revision);
+            entityRevisionIndex.add(revision);
+            entityRevisionIndexModified.set(true);
             persistChanges(revision);
         } finally {
             writeLock.unlock();
@@ -162,42 +181,33 @@ public class RevisionStoreImpl implements RevisionStore, HasDispose {
     @Nonnull
     @Override
     public RevisionNumber getCurrentRevisionNumber() {
-        try {
-            readLock.lock();
-            if(revisions.isEmpty()) {
-                return RevisionNumber.getRevisionNumber(0);
-            }
-            return revisions.get(revisions.size() - 1).getRevisionNumber();
-        } finally {
-            readLock.unlock();
-        }
-
+        return revisions.getLastRevisionNumber();
     }
 
     private void persistChanges(Revision revision) {
-        try {
-            writeLock.lock();
-            var changeHistoryFile = changeHistoryFileFactory.getChangeHistoryFile(projectId);
-            var revisionSerializationTask = new RevisionSerializationTask(changeHistoryFile, revision);
-            revisionSerializationTask.setSavedHook(savedHook);
-            if(revisions.size() != 1) {
-                changeSerializationExecutor.submit(revisionSerializationTask);
-            }
-            else {
-                // Save immediately
-                try {
-                    logger.info("{} Saving first revision of project", projectId);
-                    revisionSerializationTask.call();
-                } catch(IOException e) {
-                    logger.error("{} An error occurred whilst saving the first revision of the project.  Cause: {}.", projectId, e
-                            .getMessage(), e);
-                }
+        changeHistoryWriter.submit(revision);
+        if(revisions.size() == 1) {
+            // Wait until the first revision has been saved
+            logger.info("{} Saving first revision of project", projectId);
+            try {
+                changeHistoryWriter.awaitSaved(revision.getRevisionNumber());
+            } catch(IOException e) {
+                logger.error("{} An error occurred whilst saving the first revision of the project.  Cause: {}.", projectId, e
+                        .getMessage(), e);
             }
-        } finally {
-            writeLock.unlock();
         }
     }
 
+    @Override
+    public void awaitSaved(@Nonnull RevisionNumber revisionNumber) throws IOException {
+        changeHistoryWriter.awaitSaved(checkNotNull(revisionNumber));
+    }
+
+    @Override
+    public void checkCanSaveRevisions() throws IOException {
+        changeHistoryWriter.checkCanSave();
+    }
+
     public void load() {
         try {
             writeLock.lock();
@@ -206,35 +216,27 @@ public class RevisionStoreImpl implements RevisionStore, HasDispose {
                 changeHistoryFile.getParentFile().mkdirs();
                 return;
             }
-            var revisionsBuilder = ImmutableList.<Revision>builder();
-            var metadataInterner = Interners.<String>newStrongInterner();
-            var userIdInterner = Interners.<UserId>newStrongInterner();
-
             try {
                 logger.info("{} Loading change history", projectId);
                 var stopwatch = Stopwatch.createStarted();
-                var changeLog = new BinaryOWLOntologyChangeLog();
-                var inputStream = new BufferedInputStream(new FileInputStream(changeHistoryFile));
-                changeLog.readChanges(inputStream, dataFactory, (changeRecordList, skipSetting, l) -> {
-                    var metadata = changeRecordList.getMetadata();
-                    var userName = metadataInterner.intern(metadata.getStringAttribute(USERNAME_METADATA_ATTRIBUTE.getVocabularyName(), ""));
-                    var revisionNumberValue = metadata.getLongAttribute(REVISION_META_DATA_ATTRIBUTE.getVocabularyName(), 0L);
-                    var revisionNumber = RevisionNumber.getRevisionNumber(revisionNumberValue);
-                    var description = metadata.getStringAttribute(DESCRIPTION_META_DATA_ATTRIBUTE.getVocabularyName(), "");
-                    var userId = userIdInterner.intern(UserId.getUserId(userName));
-
-                    var internedChangeRecords = changeRecordList.getChangeRecords()
-                            .stream()
-                            .map(changeRecordTranslator::getOntologyChange)
-                            .collect(toImmutableList());
-                    var revision = new Revision(userId, revisionNumber, internedChangeRecords, changeRecordList.getTimestamp(), description);
-                    revisionsBuilder.add(revision);
-                }, SkipSetting.SKIP_NONE);
-                inputStream.close();
+                var changeHistoryFileLength = changeHistoryFile.length();
+                AppendOnlyRevisionList loadedRevisions;
+                if(lazyLoading && changeHistoryFileLength <= MappedChangeHistory.MAX_MAPPED_FILE_SIZE) {
+                    loadedRevisions = readLazyRevisions(changeHistoryFile, changeHistoryFileLength);
+                }
+                else {
+                    if(lazyLoading) {
+                        logger.warn("{} Change history file is too large to be memory mapped ({} bytes).  Loading change history into memory.",
+                                    projectId,
+                                    changeHistoryFileLength);
+                    }
+                    loadedRevisions = readRevisions(changeHistoryFile);
+                }
                 stopwatch.stop();
-                revisions = revisionsBuilder.build();
+                revisions = loadedRevisions;
                 logger.info("{} Change history loading complete.  Loaded {} revisions in {} ms.", projectId, revisions.size(), stopwatch
                         .elapsed(TimeUnit.MILLISECONDS));
+                loadEntityRevisionIndex();
 
             } catch(Exception e) {
                 logger.error("{} Failed to load change history for project.  Cause: {}", projectId, e.getMessage(), e);
@@ -246,8 +248,213 @@ public class RevisionStoreImpl implements RevisionStore, HasDispose {
 
     }
 
+    private AppendOnlyRevisionList readRevisions(@Nonnull File changeHistoryFile) throws IOException, BinaryOWLParseException {
+        var loadedRevisions = new AppendOnlyRevisionList();
+        var metadataInterner = Interners.<String>newStrongInterner();
+        var userIdInterner = Interners.<UserId>newStrongInterner();
+        var changeLog = new BinaryOWLOntologyChangeLog();
+        try(var inputStream = new BufferedInputStream(new FileInputStream(changeHistoryFile))) {
+            changeLog.readChanges(inputStream, dataFactory, (changeRecordList, skipSetting, l) -> {
+                var metadata = changeRecordList.getMetadata();
+                var userName = metadataInterner.intern(metadata.getStringAttribute(USERNAME_METADATA_ATTRIBUTE.getVocabularyName(), ""));
+                var revisionNumberValue = metadata.getLongAttribute(REVISION_META_DATA_ATTRIBUTE.getVocabularyName(), 0L);
+                var revisionNumber = RevisionNumber.getRevisionNumber(revisionNumberValue);
+                var description = metadata.getStringAttribute(DESCRIPTION_META_DATA_ATTRIBUTE.getVocabularyName(), "");
+                var userId = userIdInterner.intern(UserId.getUserId(userName));
+
+                var internedChangeRecords = changeRecordList.getChangeRecords()
+                        .stream()
+                        .map(changeRecordTranslator::getOntologyChange)
+                        .collect(toImmutableList());
+                var revision = new Revision(userId, revisionNumber, internedChangeRecords, changeRecordList.getTimestamp(), description);
+                loadedRevisions.append(revision);
+            }, SkipSetting.SKIP_NONE);
+        }
+        return loadedRevisions;
+    }
+
+    /**
+     * Reads the revision metadata from the change history file, skipping the change data, and creates revisions whose
+     * changes are decoded on demand from a memory mapped view of the file.  The changes in records that were written
+     * without a change count are decoded once at load time in order to count them.
+     */
+    private AppendOnlyRevisionList readLazyRevisions(@Nonnull File changeHistoryFile,
+                                                     long changeHistoryFileLength) throws IOException, BinaryOWLParseException {
+        var records = new ArrayList<RevisionRecord>();
+        var metadataInterner = Interners.<String>newStrongInterner();
+        var userIdInterner = Interners.<UserId>newStrongInterner();
+        var changeLog = new BinaryOWLOntologyChangeLog();
+        // The file positions that the change log reports are not reliable, so the bytes that it consumes are counted
+        // here.  The count is the end of the record that is being handled.
+        try(var inputStream = new CountingInputStream(new BufferedInputStream(new FileInputStream(changeHistoryFile)))) {
+            changeLog.readChanges(inputStream, dataFactory, (changeRecordList, skipSetting, filePosition) -> {
+                var metadata = changeRecordList.getMetadata();
+                var userName = metadataInterner.intern(metadata.getStringAttribute(USERNAME_METADATA_ATTRIBUTE.getVocabularyName(), ""));
+                var revisionNumberValue = metadata.getLongAttribute(REVISION_META_DATA_ATTRIBUTE.getVocabularyName(), 0L);
+                var description = metadata.getStringAttribute(DESCRIPTION_META_DATA_ATTRIBUTE.getVocabularyName(), "");
+                var changeCount = metadata.getIntAttribute(CHANGE_COUNT_META_DATA_ATTRIBUTE.getVocabularyName(), -1);
+                var start = records.isEmpty() ? 0 : records.get(records.size() - 1).end;
+                records.add(new RevisionRecord(userIdInterner.intern(UserId.getUserId(userName)),
+                                               RevisionNumber.getRevisionNumber(revisionNumberValue),
+                                               changeCount,
+                                               changeRecordList.getTimestamp(),
+                                               description,
+                                               start,
+                                               inputStream.getCount()));
+            }, SkipSetting.SKIP_DATA);
+        }
+        var changeHistory = MappedChangeHistory.map(changeHistoryFile,
+                                                    changeHistoryFileLength,
+                                                    dataFactory,
+                                                    changeRecordTranslator,
+                                                    changeHistoryCacheSize);
+        closeMappedChangeHistory();
+        mappedChangeHistory = changeHistory;
+        var loadedRevisions = new AppendOnlyRevisionList();
+        for(var record : records) {
+            var revisionNumber = record.revisionNumber;
+            var start = record.start;
+            var end = record.end;
+            var changeCount = record.changeCount;
+            if(changeCount < 0) {
+                changeCount = changeHistory.getChanges(revisionNumber, start, end).size();
+            }
+            loadedRevisions.append(Revision.createLazyRevision(record.userId,
+                                                               revisionNumber,
+                                                               changeCount,
+                                                               () -> changeHistory.getChanges(revisionNumber, start, end),
+                                                               record.timestamp,
+                                                               record.description));
+        }
+        return loadedRevisions;
+    }
+
+    private void closeMappedChangeHistory() {
+        if(mappedChangeHistory == null) {
+            return;
+        }
+        try {
+            mappedChangeHistory.close();
+        } catch(IOException e) {
+            logger.warn("{} Could not close the change history file.  Cause: {}", projectId, e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the persisted entity revision index and brings it up to date with the loaded revisions.  If there is no
+     * persisted index, or if the persisted index does not match the change history, then the index is rebuilt from
+     * the loaded revisions.
+     */
+    private void loadEntityRevisionIndex() {
+        var stopwatch = Stopwatch.createStarted();
+        var index = readEntityRevisionIndex().orElseGet(EntityRevisionIndex::new);
+        var indexedRevisionCount = 0;
+        for(var revision : revisions.getSnapshot()) {
+            if(revision.getRevisionNumber().compareTo(index.getLastRevisionNumber()) > 0) {
+                index.add(revision);
+                indexedRevisionCount++;
+            }
+        }
+        entityRevisionIndex = index;
+        logger.info("{} Indexed {} revisions by entity in {} ms",
+                    projectId,
+                    indexedRevisionCount,
+                    stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        if(indexedRevisionCount > 0) {
+            entityRevisionIndexModified.set(true);
+            saveEntityRevisionIndex();
+        }
+    }
+
+    private Optional<EntityRevisionIndex> readEntityRevisionIndex() {
+        var indexFile = changeHistoryFileFactory.getEntityRevisionIndexFile(projectId);
+        if(!indexFile.exists()) {
+            return Optional.empty();
+        }
+        try(var inputStream = new BufferedInputStream(new FileInputStream(indexFile))) {
+            var index = EntityRevisionIndex.read(inputStream);
+            var lastIndexedRevision = getRevision(index.getLastRevisionNumber());
+            var matchesHistory = lastIndexedRevision.map(r -> r.getTimestamp() == index.getLastRevisionTimestamp())
+                                                    .orElse(false);
+            if(!matchesHistory) {
+                logger.info("{} Entity revision index does not match the change history.  Rebuilding index.", projectId);
+                return Optional.empty();
+            }
+            return Optional.of(index);
+        } catch(IOException e) {
+            logger.warn("{} Could not read entity revision index.  Rebuilding index.  Cause: {}", projectId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void saveEntityRevisionIndex() {
+        try {
+            readLock.lock();
+            // Claims the save, so that concurrent saves do not write the same file
+            if(!entityRevisionIndexModified.compareAndSet(true, false)) {
+                return;
+            }
+            var indexFile = changeHistoryFileFactory.getEntityRevisionIndexFile(projectId);
+            var tempFile = new File(indexFile.getParentFile(), indexFile.getName() + ".tmp");
+            try(var outputStream = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+                entityRevisionIndex.write(outputStream);
+            }
+            Files.move(tempFile.toPath(), indexFile.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException e) {
+            entityRevisionIndexModified.set(true);
+            logger.error("{} An error occurred whilst saving the entity revision index.  Cause: {}", projectId, e.getMessage(), e);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     @Override
     public void dispose() {
-        changeSerializationExecutor.shutdown();
+        // Queued after any pending change history writes
+        changeSerializationQueue.execute(this::saveEntityRevisionIndex);
+        try {
+            writeLock.lock();
+            closeMappedChangeHistory();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * The position of a revision's record in the change history file along with the revision's metadata
+     */
+    private static class RevisionRecord {
+
+        private final UserId userId;
+
+        private final RevisionNumber revisionNumber;
+
+        private final int changeCount;
+
+        private final long timestamp;
+
+        private final String description;
+
+        private final long start;
+
+        private final long end;
+
+        private RevisionRecord(UserId userId,
+                               RevisionNumber revisionNumber,
+                               int changeCount,
+                               long timestamp,
+                               String description,
+                               long start,
+                               long end) {
+            this.userId = userId;
+            this.revisionNumber = revisionNumber;
+            this.changeCount = changeCount;
+            this.timestamp = timestamp;
+            this.description = description;
+            this.start = start;
+            this.end = end;
+        }
     }
 }
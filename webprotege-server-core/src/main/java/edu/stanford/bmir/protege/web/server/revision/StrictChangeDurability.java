@@ -0,0 +1,16 @@
+package edu.stanford.bmir.protege.web.server.revision;
+
+import javax.inject.Qualifier;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-03
+ *
+ * Qualifies the flag that specifies whether applying changes waits until the changes have been saved to the
+ * change history
+ */
+@Qualifier
+public @interface StrictChangeDurability {
+
+}
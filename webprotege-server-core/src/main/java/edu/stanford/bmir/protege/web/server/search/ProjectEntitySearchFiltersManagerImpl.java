@@ -43,7 +43,8 @@ public class ProjectEntitySearchFiltersManagerImpl implements ProjectEntitySearc
 
     @Override
     public void setSearchFilters(@Nonnull ImmutableList<EntitySearchFilter> searchFilters) {
+        var previousSearchFilters = repository.getSearchFilters(projectId);
         repository.saveSearchFilters(searchFilters);
-        indexesManager.updateEntitySearchFilterIndexes();
+        indexesManager.updateEntitySearchFilterIndexes(previousSearchFilters, searchFilters);
     }
 }
@@ -1,57 +1,353 @@
 package edu.stanford.bmir.protege.web.server.tag;
 
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import edu.stanford.bmir.protege.web.server.index.EntitiesInProjectSignatureByIriIndex;
+import edu.stanford.bmir.protege.web.server.match.EntityLocality;
 import edu.stanford.bmir.protege.web.server.match.MatchingEngine;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskQueue;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskScheduler;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskType;
+import edu.stanford.bmir.protege.web.server.revision.Revision;
 import edu.stanford.bmir.protege.web.shared.inject.ProjectSingleton;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 import edu.stanford.bmir.protege.web.shared.tag.Tag;
 import edu.stanford.bmir.protege.web.shared.tag.TagId;
+import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static java.util.stream.Collectors.toList;
 
 /**
  * Matthew Horridge
  * Stanford Center for Biomedical Informatics Research
  * 19 Jun 2018
+ * <p>
+ *     Maintains the entities that are tagged by the criteria of each tag.  The membership of each tag is computed
+ *     on first use and is then kept up to date as revisions are committed, so that the tags for an entity, and the
+ *     entities for a tag, are looked up rather than matched.  Tags whose criteria are entity-local are updated by
+ *     re-evaluating the entities that a revision touches.  The membership of other tags is recomputed in the
+ *     background, outside of the processing of changes, and the entities whose tags change are passed to the
+ *     membership changed handler.  Until then, the membership of these tags reflects an earlier revision.  The
+ *     criteria-based tags of the project are cached until the project tags are changed.
+ * </p>
  */
 @ProjectSingleton
 public class CriteriaBasedTagsManager {
 
+    private static final Logger logger = LoggerFactory.getLogger(CriteriaBasedTagsManager.class);
+
+    @Nonnull
+    private final ProjectId projectId;
+
     @Nonnull
     private final TagRepository tagRepository;
 
     @Nonnull
     private final MatchingEngine matchingEngine;
 
+    @Nonnull
+    private final EntitiesInProjectSignatureByIriIndex entitiesInProjectSignatureByIriIndex;
+
+    private final Map<TagId, Set<OWLEntity>> entitiesByTag = new ConcurrentHashMap<>();
+
+    private final Map<OWLEntity, Set<TagId>> tagsByEntity = new ConcurrentHashMap<>();
+
+    @Nonnull
+    private final ProjectTaskQueue taskQueue;
+
+    private volatile boolean built = false;
+
+    /**
+     * The criteria-based tags of the project, or null if they have not been loaded since the project tags last
+     * changed
+     */
+    @Nullable
+    private volatile ImmutableList<Tag> criteriaBasedTags = null;
+
+    /**
+     * The tags whose membership must be recomputed because of revisions that have been handled
+     */
+    private final Set<TagId> staleTagIds = new HashSet<>();
+
+    private boolean recomputeScheduled = false;
+
+    /**
+     * Incremented whenever the members of all tags are recomputed because the project tags changed
+     */
+    private long tagsGeneration = 0;
+
+    private Consumer<ImmutableSet<OWLEntity>> membershipChangedHandler = entities -> {};
+
     @Inject
-    public CriteriaBasedTagsManager(@Nonnull TagRepository tagRepository,
-                                    @Nonnull MatchingEngine matchingEngine) {
+    public CriteriaBasedTagsManager(@Nonnull ProjectId projectId,
+                                    @Nonnull TagRepository tagRepository,
+                                    @Nonnull MatchingEngine matchingEngine,
+                                    @Nonnull EntitiesInProjectSignatureByIriIndex entitiesInProjectSignatureByIriIndex,
+                                    @Nonnull ProjectTaskScheduler projectTaskScheduler) {
+        this.projectId = checkNotNull(projectId);
         this.tagRepository = checkNotNull(tagRepository);
         this.matchingEngine = checkNotNull(matchingEngine);
+        this.entitiesInProjectSignatureByIriIndex = checkNotNull(entitiesInProjectSignatureByIriIndex);
+        this.taskQueue = projectTaskScheduler.createSerialQueue(projectId, ProjectTaskType.TAG_MEMBERSHIP_UPDATE);
+    }
+
+    /**
+     * Sets a handler that is passed the entities whose criteria-based tags have been changed by a background
+     * recomputation of tag membership
+     */
+    public synchronized void setMembershipChangedHandler(@Nonnull Consumer<ImmutableSet<OWLEntity>> membershipChangedHandler) {
+        this.membershipChangedHandler = checkNotNull(membershipChangedHandler);
     }
 
     public Stream<TagId> getTagsForEntity(@Nonnull OWLEntity entity) {
-        return tagRepository.findTags()
-                     .stream()
-                     .map(tag -> {
-                         if(matchingEngine.matchesAny(entity, tag.getCriteria())) {
-                             return tag;
-                         }
-                         else {
-                             return null;
-                         }
-                     })
-                     .filter(Objects::nonNull)
-                     .map(Tag::getTagId);
+        ensureBuilt();
+        return tagsByEntity.getOrDefault(checkNotNull(entity), Collections.emptySet()).stream();
     }
 
     public Stream<OWLEntity> getTaggedEntities(@Nonnull TagId tagId) {
-        return tagRepository.findTagByTagId(tagId)
-                     .map(tag -> matchingEngine.matchAny(tag.getCriteria()))
-                     .orElse(Stream.empty());
+        ensureBuilt();
+        return entitiesByTag.getOrDefault(checkNotNull(tagId), Collections.emptySet()).stream();
+    }
+
+    private void ensureBuilt() {
+        if(!built) {
+            build();
+        }
+    }
+
+    private synchronized void build() {
+        if(built) {
+            return;
+        }
+        var changedEntities = new HashSet<OWLEntity>();
+        for(var tag : getCriteriaBasedTags()) {
+            recomputeMembers(tag, changedEntities);
+        }
+        built = true;
+    }
+
+    /**
+     * Handles a revision that has been committed to the project.  This must be called after the project indexes
+     * have been updated with the changes in the revision.  Only the membership of entity-local tags is updated
+     * before this method returns.  Other tags are recomputed in the background.
+     * @param revision The revision
+     * @return The entities whose entity-local criteria-based tags have changed
+     */
+    @Nonnull
+    public synchronized ImmutableSet<OWLEntity> handleRevision(@Nonnull Revision revision) {
+        if(!built) {
+            // Nothing to maintain.  The membership reflects the revision when it is first used.
+            return ImmutableSet.of();
+        }
+        var touchedIris = EntityLocality.getTouchedIris(revision);
+        var changedEntities = new HashSet<OWLEntity>();
+        for(var tag : getCriteriaBasedTags()) {
+            var entityLocal = tag.getCriteria()
+                                 .stream()
+                                 .allMatch(EntityLocality::isEntityLocal);
+            if(entityLocal && touchedIris.isPresent()) {
+                updateMembers(tag, touchedIris.get(), changedEntities);
+            }
+            else {
+                staleTagIds.add(tag.getTagId());
+            }
+        }
+        if(!staleTagIds.isEmpty() && !recomputeScheduled) {
+            recomputeScheduled = true;
+            taskQueue.execute(this::recomputeStaleTags);
+        }
+        return ImmutableSet.copyOf(changedEntities);
+    }
+
+    private void recomputeStaleTags() {
+        Set<TagId> tagIds;
+        long generation;
+        synchronized (this) {
+            recomputeScheduled = false;
+            generation = tagsGeneration;
+            tagIds = Set.copyOf(staleTagIds);
+            staleTagIds.clear();
+        }
+        try {
+            var stopwatch = Stopwatch.createStarted();
+            // Matched without holding the lock, so that revisions can be handled in the meantime
+            var membersByTag = new HashMap<Tag, ImmutableSet<OWLEntity>>();
+            getCriteriaBasedTags().stream()
+                                  .filter(tag -> tagIds.contains(tag.getTagId()))
+                                  .forEach(tag -> membersByTag.put(tag, matchingEngine.matchAny(tag.getCriteria())
+                                                                                      .collect(toImmutableSet())));
+            var changedEntities = new HashSet<OWLEntity>();
+            Consumer<ImmutableSet<OWLEntity>> handler;
+            synchronized (this) {
+                var currentTags = getCriteriaBasedTags();
+                membersByTag.forEach((tag, members) -> {
+                    // The members are at least as recent as the current members, so they are applied even if the
+                    // tag has been made stale again.  It stays stale, so the recomputation that has been scheduled
+                    // brings it up to date.  Tags that have since been changed, or that have been recomputed
+                    // because the project tags changed, are left as they are.
+                    if(generation == tagsGeneration && currentTags.contains(tag)) {
+                        setMembers(tag.getTagId(), members, changedEntities);
+                    }
+                });
+                handler = membershipChangedHandler;
+            }
+            logger.debug("{} Recomputed the members of {} criteria-based tags in {} ms",
+                         projectId,
+                         membersByTag.size(),
+                         stopwatch.elapsed().toMillis());
+            if(!changedEntities.isEmpty()) {
+                handler.accept(ImmutableSet.copyOf(changedEntities));
+            }
+        } catch (RuntimeException e) {
+            logger.error("{} An error occurred when recomputing the members of criteria-based tags: {}",
+                         projectId,
+                         e.getMessage(),
+                         e);
+        }
+    }
+
+    /**
+     * Handles changes to the tags of the project, which may have added or removed tags, or changed their
+     * criteria.
+     * @return The entities whose criteria-based tags have changed
+     */
+    @Nonnull
+    public synchronized ImmutableSet<OWLEntity> handleProjectTagsChanged() {
+        criteriaBasedTags = null;
+        if(!built) {
+            return ImmutableSet.of();
+        }
+        var changedEntities = new HashSet<OWLEntity>();
+        var tags = getCriteriaBasedTags();
+        // All tags are recomputed below
+        staleTagIds.clear();
+        tagsGeneration++;
+        var tagIds = tags.stream()
+                         .map(Tag::getTagId)
+                         .collect(toImmutableSet());
+        for(var tagId : new ArrayList<>(entitiesByTag.keySet())) {
+            if(!tagIds.contains(tagId)) {
+                setMembers(tagId, Collections.emptySet(), changedEntities);
+            }
+        }
+        for(var tag : tags) {
+            recomputeMembers(tag, changedEntities);
+        }
+        return ImmutableSet.copyOf(changedEntities);
+    }
+
+    @Nonnull
+    private ImmutableList<Tag> getCriteriaBasedTags() {
+        var tags = criteriaBasedTags;
+        if(tags != null) {
+            return tags;
+        }
+        return loadCriteriaBasedTags();
+    }
+
+    /**
+     * Loads the tags whilst holding the lock, so that tags that are loaded before the project tags change are not
+     * cached after they have been invalidated
+     */
+    @Nonnull
+    private synchronized ImmutableList<Tag> loadCriteriaBasedTags() {
+        if(criteriaBasedTags == null) {
+            criteriaBasedTags = tagRepository.findTags()
+                                             .stream()
+                                             .filter(tag -> !tag.getCriteria().isEmpty())
+                                             .collect(toImmutableList());
+        }
+        return criteriaBasedTags;
+    }
+
+    private void recomputeMembers(@Nonnull Tag tag, @Nonnull Set<OWLEntity> changedEntities) {
+        var members = matchingEngine.matchAny(tag.getCriteria())
+                                    .collect(toImmutableSet());
+        setMembers(tag.getTagId(), members, changedEntities);
+    }
+
+    private void updateMembers(@Nonnull Tag tag,
+                               @Nonnull Set<IRI> touchedIris,
+                               @Nonnull Set<OWLEntity> changedEntities) {
+        var tagId = tag.getTagId();
+        var currentMembers = entitiesByTag.getOrDefault(tagId, Collections.emptySet());
+        // Touched entities that are no longer in the signature are removed
+        var touchedMembers = currentMembers.stream()
+                                           .filter(entity -> touchedIris.contains(entity.getIRI()))
+                                           .collect(toList());
+        var touchedEntities = touchedIris.stream()
+                                         .flatMap(entitiesInProjectSignatureByIriIndex::getEntitiesInSignature)
+                                         .collect(toImmutableSet());
+        for(var entity : touchedMembers) {
+            if(!touchedEntities.contains(entity)) {
+                removeMember(tagId, entity, changedEntities);
+            }
+        }
+        for(var entity : touchedEntities) {
+            if(matchingEngine.matchesAny(entity, tag.getCriteria())) {
+                addMember(tagId, entity, changedEntities);
+            }
+            else {
+                removeMember(tagId, entity, changedEntities);
+            }
+        }
+    }
+
+    private void setMembers(@Nonnull TagId tagId,
+                            @Nonnull Set<OWLEntity> members,
+                            @Nonnull Set<OWLEntity> changedEntities) {
+        var currentMembers = new ArrayList<>(entitiesByTag.getOrDefault(tagId, Collections.emptySet()));
+        for(var entity : currentMembers) {
+            if(!members.contains(entity)) {
+                removeMember(tagId, entity, changedEntities);
+            }
+        }
+        for(var entity : members) {
+            addMember(tagId, entity, changedEntities);
+        }
+        if(members.isEmpty()) {
+            entitiesByTag.remove(tagId);
+        }
+    }
+
+    private void addMember(@Nonnull TagId tagId,
+                           @Nonnull OWLEntity entity,
+                           @Nonnull Set<OWLEntity> changedEntities) {
+        var added = entitiesByTag.computeIfAbsent(tagId, t -> ConcurrentHashMap.newKeySet())
+                                 .add(entity);
+        if(added) {
+            tagsByEntity.computeIfAbsent(entity, e -> ConcurrentHashMap.newKeySet())
+                        .add(tagId);
+            changedEntities.add(entity);
+        }
+    }
+
+    private void removeMember(@Nonnull TagId tagId,
+                              @Nonnull OWLEntity entity,
+                              @Nonnull Set<OWLEntity> changedEntities) {
+        var members = entitiesByTag.get(tagId);
+        if(members == null || !members.remove(entity)) {
+            return;
+        }
+        tagsByEntity.computeIfPresent(entity, (e, tagIds) -> {
+            tagIds.remove(tagId);
+            return tagIds.isEmpty() ? null : tagIds;
+        });
+        changedEntities.add(entity);
     }
 }
@@ -2,6 +2,7 @@ package edu.stanford.bmir.protege.web.server.tag;
 
 import com.google.common.collect.Streams;
 import edu.stanford.bmir.protege.web.server.events.HasPostEvents;
+import edu.stanford.bmir.protege.web.server.revision.Revision;
 import edu.stanford.bmir.protege.web.shared.event.ProjectEvent;
 import edu.stanford.bmir.protege.web.shared.inject.ProjectSingleton;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
@@ -65,6 +66,7 @@ public class TagsManager {
         this.criteriaBasedTagsManager = checkNotNull(criteriaBasedTagsManager);
         this.tagRepository = checkNotNull(tagRepository);
         this.eventBus = checkNotNull(eventBus);
+        criteriaBasedTagsManager.setMembershipChangedHandler(this::postEntityTagsChanged);
     }
 
     /**
@@ -197,6 +199,7 @@ public class TagsManager {
         } finally {
             writeLock.unlock();
         }
+        modifiedEntityTags.addAll(criteriaBasedTagsManager.handleProjectTagsChanged());
         Set<Tag> oldProjectTags = new HashSet<>(currentProjectTags);
         Set<Tag> projectTags = new HashSet<>(getProjectTags());
         if (!oldProjectTags.equals(projectTags)) {
@@ -210,6 +213,28 @@ public class TagsManager {
         }
     }
 
+    /**
+     * Handles a revision that has been committed to the project.  Events are posted for the entities whose
+     * entity-local criteria-based tags have been changed by the revision.  Events for other criteria-based tags are
+     * posted when their members have been recomputed in the background.
+     *
+     * @param revision The revision.
+     */
+    public void handleRevision(@Nonnull Revision revision) {
+        postEntityTagsChanged(criteriaBasedTagsManager.handleRevision(revision));
+    }
+
+    private void postEntityTagsChanged(@Nonnull Collection<OWLEntity> modifiedEntityTags) {
+        if (modifiedEntityTags.isEmpty()) {
+            return;
+        }
+        List<ProjectEvent<?>> events = new ArrayList<>();
+        for (OWLEntity entity : modifiedEntityTags) {
+            events.add(new EntityTagsChangedEvent(projectId, entity, getTags(entity)));
+        }
+        eventBus.postEvents(events);
+    }
+
     /**
      * Updates the entity tags for a given entity.  A diff will be performed to compute the changes required.
      *
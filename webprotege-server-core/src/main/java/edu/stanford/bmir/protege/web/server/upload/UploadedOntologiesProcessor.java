@@ -14,7 +14,9 @@ import javax.annotation.Nonnull;
 import javax.inject.Inject;
 import javax.inject.Provider;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.stream.Collectors.toList;
@@ -46,7 +48,23 @@ public class UploadedOntologiesProcessor {
         return loadOntologies(documentId);
     }
 
+    /**
+     * Gets the ontologies in the uploaded document as they were loaded, without copying their contents.  The
+     * ontologies are held by an ontology manager that is not shared, so they may be removed from their manager once
+     * they have been processed, which allows the memory that they use to be reclaimed.
+     */
+    @Nonnull
+    public List<OWLOntology> getUploadedOWLOntologies(@Nonnull DocumentId documentId) throws OWLOntologyCreationException, IOException {
+        return new ArrayList<>(loadOWLOntologies(documentId));
+    }
+
     private Collection<Ontology> loadOntologies(@Nonnull DocumentId documentId) throws IOException, OWLOntologyCreationException {
+        return loadOWLOntologies(documentId).stream()
+                                            .map(this::toOntology)
+                                            .collect(toList());
+    }
+
+    private Collection<OWLOntology> loadOWLOntologies(@Nonnull DocumentId documentId) throws IOException, OWLOntologyCreationException {
         var manager = WebProtegeOWLManager.createOWLOntologyManager();
         var uploadedFile = documentResolver.resolve(documentId).toFile();
         var uploadedProjectSourcesExtractor = uploadedProjectSourcesExtractorProvider.get();
@@ -56,10 +74,7 @@ public class UploadedOntologiesProcessor {
                 .setMissingImportHandlingStrategy(MissingImportHandlingStrategy.SILENT);
         var rawProjectSourcesImporter = new RawProjectSourcesImporter(manager, loaderConfig);
         rawProjectSourcesImporter.importRawProjectSources(rawProjectSources);
-        return manager.getOntologies()
-                      .stream()
-                      .map(this::toOntology)
-                      .collect(toList());
+        return manager.getOntologies();
     }
 
     private Ontology toOntology(OWLOntology ont) {
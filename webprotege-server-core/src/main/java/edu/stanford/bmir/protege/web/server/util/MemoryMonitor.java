@@ -23,6 +23,8 @@ public class MemoryMonitor {
 
     private double percentageUsed;
 
+    private long peakUsedMemoryBytes;
+
 
     public MemoryMonitor(Logger logger) {
         this.logger = logger;
@@ -35,6 +37,7 @@ public class MemoryMonitor {
         long totalMemoryBytes = runtime.totalMemory();
         usedMemoryBytes = totalMemoryBytes - freeMemoryBytes;
         remainingMemoryBytes = maxMemoryBytes - usedMemoryBytes;
+        peakUsedMemoryBytes = Math.max(peakUsedMemoryBytes, usedMemoryBytes);
         percentageUsed = (100.0 * usedMemoryBytes) / maxMemoryBytes;
     }
 
@@ -61,6 +64,16 @@ public class MemoryMonitor {
         printMemoryUsageToLog();
     }
 
+    /**
+     * Logs the highest memory usage that has been seen by this monitor.  Memory usage is sampled each time that
+     * memory usage is monitored or logged.
+     */
+    public void logPeakMemoryUsage() {
+        update();
+        logger.info("Peak Memory Usage: Used {} MB of {} MB",
+                    toMB(peakUsedMemoryBytes), toMB(maxMemoryBytes));
+    }
+
     void printMemoryUsageToLog() {
         logger.info("Memory Usage: Using {} MB of {} MB ({}%) [{} MB free]",
                     toMB(usedMemoryBytes), toMB(maxMemoryBytes), formatPercentageUsed(), toMB(remainingMemoryBytes));
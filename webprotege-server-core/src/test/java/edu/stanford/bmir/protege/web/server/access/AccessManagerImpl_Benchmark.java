@@ -0,0 +1,114 @@
+package edu.stanford.bmir.protege.web.server.access;
+
+import edu.stanford.bmir.protege.web.shared.access.ActionId;
+import edu.stanford.bmir.protege.web.shared.access.BuiltInAction;
+import edu.stanford.bmir.protege.web.shared.access.BuiltInRole;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import org.mongodb.morphia.Datastore;
+import org.mongodb.morphia.query.FieldEnd;
+import org.mongodb.morphia.query.Query;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Measures the number of permission checks per second that the access manager can answer for projects with
+ * increasing numbers of role assignments.  The database is mocked, so after the first check for the project (which
+ * loads its role assignments) this measures the cost of checks that are answered from the materialized role
+ * assignments.  Previously, every denied check, and every first check, was a count query against MongoDb.
+ *
+ * Run with the main method, or via the JMH runner on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class AccessManagerImpl_Benchmark {
+
+    @Param({"10", "1000"})
+    public int assignmentCount;
+
+    private final ProjectResource projectResource = new ProjectResource(ProjectId.get(UUID.randomUUID().toString()));
+
+    private final Subject editor = Subject.forUser("User0");
+
+    private final Subject viewer = Subject.forUser("User1");
+
+    private final Subject unassignedUser = Subject.forUser("Unassigned User");
+
+    private AccessManagerImpl accessManager;
+
+    @SuppressWarnings("unchecked")
+    @Setup(Level.Trial)
+    public void setUp() {
+        var projectId = projectResource.getProjectId().orElseThrow().getId();
+        var assignments = new ArrayList<RoleAssignment>();
+        for(int i = 0; i < assignmentCount; i++) {
+            var role = i == 0 ? BuiltInRole.CAN_EDIT : BuiltInRole.CAN_VIEW;
+            var roleClosure = RoleOracleImpl.get().getRoleClosure(role.getRoleId());
+            assignments.add(new RoleAssignment("User" + i,
+                                               projectId,
+                                               List.of(role.getRoleId().getId()),
+                                               roleClosure.stream()
+                                                          .map(r -> r.getRoleId().getId())
+                                                          .collect(toList()),
+                                               roleClosure.stream()
+                                                          .map(Role::getActions)
+                                                          .flatMap(List::stream)
+                                                          .map(ActionId::getId)
+                                                          .collect(toList())));
+        }
+        var datastore = mock(Datastore.class);
+        Query<RoleAssignment> query = mock(Query.class);
+        FieldEnd<Query<RoleAssignment>> fieldEnd = mock(FieldEnd.class);
+        when(datastore.createQuery(RoleAssignment.class)).thenReturn(query);
+        doReturn(fieldEnd).when(query).field(any());
+        when(fieldEnd.equal(any())).thenReturn(query);
+        when(query.asList()).thenReturn(assignments);
+        accessManager = new AccessManagerImpl(RoleOracleImpl.get(), datastore);
+    }
+
+    @Benchmark
+    public boolean grantedCheck() {
+        return accessManager.hasPermission(editor, projectResource, BuiltInAction.EDIT_ONTOLOGY);
+    }
+
+    @Benchmark
+    public boolean deniedCheckForViewer() {
+        return accessManager.hasPermission(viewer, projectResource, BuiltInAction.EDIT_ONTOLOGY);
+    }
+
+    @Benchmark
+    public boolean deniedCheckForGuest() {
+        return accessManager.hasPermission(Subject.forGuestUser(), projectResource, BuiltInAction.EDIT_ONTOLOGY);
+    }
+
+    @Benchmark
+    public boolean deniedCheckForUnassignedUser() {
+        return accessManager.hasPermission(unassignedUser, projectResource, BuiltInAction.VIEW_PROJECT);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        var options = new OptionsBuilder()
+                .include(AccessManagerImpl_Benchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,133 @@
+package edu.stanford.bmir.protege.web.server.access;
+
+import edu.stanford.bmir.protege.web.shared.access.BuiltInAction;
+import edu.stanford.bmir.protege.web.shared.access.BuiltInRole;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mongodb.morphia.Datastore;
+import org.mongodb.morphia.query.FieldEnd;
+import org.mongodb.morphia.query.Query;
+import org.mongodb.morphia.query.UpdateOperations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ */
+@SuppressWarnings("unchecked")
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class AccessManagerImpl_TestCase {
+
+    private final ProjectResource projectResource = new ProjectResource(ProjectId.get(UUID.randomUUID().toString()));
+
+    private final Subject editor = Subject.forUser("The Editor");
+
+    private final Subject viewer = Subject.forUser("The Viewer");
+
+    private final List<RoleAssignment> storedAssignments = new ArrayList<>();
+
+    @Mock
+    private Datastore datastore;
+
+    @Mock
+    private Query<RoleAssignment> query;
+
+    @Mock
+    private FieldEnd<Query<RoleAssignment>> fieldEnd;
+
+    private AccessManagerImpl manager;
+
+    @Before
+    public void setUp() {
+        when(datastore.createQuery(RoleAssignment.class)).thenReturn(query);
+        doReturn(fieldEnd).when(query).field(any());
+        when(fieldEnd.equal(any())).thenReturn(query);
+        when(query.asList()).thenAnswer(invocation -> new ArrayList<>(storedAssignments));
+        when(datastore.createUpdateOperations(RoleAssignment.class)).thenReturn(mock(UpdateOperations.class, RETURNS_SELF));
+        manager = new AccessManagerImpl(RoleOracleImpl.get(), datastore);
+        storedAssignments.add(new RoleAssignment("The Editor",
+                                                 projectResource.getProjectId().orElseThrow().getId(),
+                                                 List.of("CanEdit"),
+                                                 List.of("CanEdit", "CanView"),
+                                                 List.of(BuiltInAction.EDIT_ONTOLOGY.getActionId().getId(),
+                                                         BuiltInAction.VIEW_PROJECT.getActionId().getId())));
+    }
+
+    @Test
+    public void shouldGrantPermissionInActionClosure() {
+        assertThat(manager.hasPermission(editor, projectResource, BuiltInAction.EDIT_ONTOLOGY), is(true));
+    }
+
+    @Test
+    public void shouldDenyPermissionForSubjectWithoutAssignment() {
+        assertThat(manager.hasPermission(viewer, projectResource, BuiltInAction.EDIT_ONTOLOGY), is(false));
+    }
+
+    @Test
+    public void shouldAnswerRepeatedChecksWithoutQueryingDatabase() {
+        manager.hasPermission(editor, projectResource, BuiltInAction.EDIT_ONTOLOGY);
+        clearInvocations(query);
+        for(int i = 0; i < 10; i++) {
+            manager.hasPermission(editor, projectResource, BuiltInAction.EDIT_ONTOLOGY);
+            manager.hasPermission(viewer, projectResource, BuiltInAction.EDIT_ONTOLOGY);
+            manager.hasPermission(Subject.forGuestUser(), projectResource, BuiltInAction.VIEW_PROJECT);
+        }
+        verify(query, never()).asList();
+    }
+
+    @Test
+    public void shouldGrantPermissionAssignedToAnySignedInUser() {
+        manager.hasPermission(viewer, projectResource, BuiltInAction.VIEW_PROJECT);
+        manager.setAssignedRoles(Subject.forAnySignedInUser(), projectResource, List.of(BuiltInRole.CAN_VIEW.getRoleId()));
+        assertThat(manager.hasPermission(viewer, projectResource, BuiltInAction.VIEW_PROJECT), is(true));
+    }
+
+    @Test
+    public void shouldNotGrantPermissionAssignedToAnySignedInUserToGuest() {
+        manager.setAssignedRoles(Subject.forAnySignedInUser(), projectResource, List.of(BuiltInRole.CAN_VIEW.getRoleId()));
+        assertThat(manager.hasPermission(Subject.forGuestUser(), projectResource, BuiltInAction.VIEW_PROJECT), is(false));
+    }
+
+    @Test
+    public void shouldGrantPermissionAfterRolesAreAssigned() {
+        assertThat(manager.hasPermission(viewer, projectResource, BuiltInAction.VIEW_PROJECT), is(false));
+        manager.setAssignedRoles(viewer, projectResource, List.of(BuiltInRole.CAN_VIEW.getRoleId()));
+        assertThat(manager.hasPermission(viewer, projectResource, BuiltInAction.VIEW_PROJECT), is(true));
+        assertThat(manager.getActionClosure(viewer, projectResource), hasItem(BuiltInAction.VIEW_PROJECT.getActionId()));
+    }
+
+    @Test
+    public void shouldDenyPermissionAfterRolesAreRemoved() {
+        assertThat(manager.hasPermission(editor, projectResource, BuiltInAction.EDIT_ONTOLOGY), is(true));
+        manager.setAssignedRoles(editor, projectResource, List.of(BuiltInRole.CAN_VIEW.getRoleId()));
+        assertThat(manager.hasPermission(editor, projectResource, BuiltInAction.EDIT_ONTOLOGY), is(false));
+        assertThat(manager.getActionClosure(editor, projectResource), not(hasItem(BuiltInAction.EDIT_ONTOLOGY.getActionId())));
+    }
+
+    @Test
+    public void shouldReloadAssignmentsAfterRebuild() {
+        assertThat(manager.hasPermission(viewer, projectResource, BuiltInAction.VIEW_PROJECT), is(false));
+        storedAssignments.add(new RoleAssignment("The Viewer",
+                                                 projectResource.getProjectId().orElseThrow().getId(),
+                                                 List.of("CanView"),
+                                                 List.of("CanView"),
+                                                 List.of(BuiltInAction.VIEW_PROJECT.getActionId().getId())));
+        manager.rebuild();
+        assertThat(manager.hasPermission(viewer, projectResource, BuiltInAction.VIEW_PROJECT), is(true));
+    }
+}
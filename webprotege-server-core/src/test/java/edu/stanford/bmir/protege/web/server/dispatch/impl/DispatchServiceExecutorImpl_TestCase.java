@@ -1,19 +1,35 @@
 package edu.stanford.bmir.protege.web.server.dispatch.impl;
 
+import com.google.common.collect.ImmutableList;
 import edu.stanford.bmir.protege.web.server.app.UserInSessionFactory;
 import edu.stanford.bmir.protege.web.server.dispatch.*;
 import edu.stanford.bmir.protege.web.server.project.ProjectManager;
 import edu.stanford.bmir.protege.web.shared.app.UserInSession;
 import edu.stanford.bmir.protege.web.shared.dispatch.Action;
 import edu.stanford.bmir.protege.web.shared.dispatch.ActionExecutionException;
+import edu.stanford.bmir.protege.web.shared.dispatch.BatchAction;
+import edu.stanford.bmir.protege.web.shared.dispatch.BatchResult;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.dispatch.Result;
 import edu.stanford.bmir.protege.web.shared.permissions.PermissionDeniedException;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
 import static org.mockito.Mockito.*;
 
 /**
@@ -53,15 +69,23 @@ public class DispatchServiceExecutorImpl_TestCase<A extends Action<R>, R extends
     @Mock
     private UserInSession userInSession;
 
+    private ExecutorService batchActionExecutor;
+
     @Before
     public void setUp() throws Exception {
-        executor = new DispatchServiceExecutorImpl(registry, projectManager, userInSessionFactory);
+        batchActionExecutor = Executors.newFixedThreadPool(2);
+        executor = new DispatchServiceExecutorImpl(registry, projectManager, userInSessionFactory, batchActionExecutor);
         when(registry.getActionHandler(action)).thenReturn(actionHandler);
         when(actionHandler.getRequestValidator(action, requestContext)).thenReturn(requestValidator);
         when(requestValidator.validateAction()).thenReturn(RequestValidationResult.getValid());
         when(userInSessionFactory.getUserInSession(any())).thenReturn(userInSession);
     }
 
+    @After
+    public void tearDown() {
+        batchActionExecutor.shutdownNow();
+    }
+
     @Test(expected = ActionExecutionException.class)
     public void shouldThrowActionExecutionException() {
         ExecutionContext executionContext = this.executionContext;
@@ -86,4 +110,83 @@ public class DispatchServiceExecutorImpl_TestCase<A extends Action<R>, R extends
         executor.execute(action, requestContext, executionContext);
         verify(actionHandler, times(1)).execute(action, executionContext);
     }
+
+    @SuppressWarnings("unchecked")
+    private Action<Result> createBatchedAction(boolean readOnly, HandlerBehaviour behaviour) {
+        Action<Result> batchedAction = readOnly ? mock(Action.class, withSettings().extraInterfaces(ReadOnlyAction.class)) : mock(Action.class);
+        ActionHandler<Action<Result>, Result> handler = mock(ActionHandler.class);
+        doReturn(handler).when(registry).getActionHandler(batchedAction);
+        when(handler.getRequestValidator(batchedAction, requestContext)).thenReturn(requestValidator);
+        when(handler.execute(batchedAction, executionContext)).thenAnswer(invocation -> behaviour.execute());
+        return batchedAction;
+    }
+
+    private List<Result> executeBatch(Action<?>... actions) {
+        var container = executor.execute(BatchAction.create(ImmutableList.copyOf(actions)), requestContext, executionContext);
+        return ((BatchResult) container.getResult()).getResults()
+                                                     .stream()
+                                                     .map(result -> result.getResult().orElseThrow().getResult())
+                                                     .collect(toList());
+    }
+
+    @Test
+    public void shouldExecuteReadOnlyActionsInBatchConcurrently() {
+        var latch = new CountDownLatch(3);
+        HandlerBehaviour awaitOthers = () -> {
+            latch.countDown();
+            // Only completes if all three actions are running at the same time
+            if(!latch.await(10, TimeUnit.SECONDS)) {
+                throw new RuntimeException("Actions were not executed concurrently");
+            }
+            return mock(Result.class);
+        };
+        var results = executeBatch(createBatchedAction(true, awaitOthers),
+                                   createBatchedAction(true, awaitOthers),
+                                   createBatchedAction(true, awaitOthers));
+        assertThat(results.size(), is(3));
+    }
+
+    @Test
+    public void shouldReturnResultsInBatchOrder() {
+        var firstResult = mock(Result.class);
+        var secondResult = mock(Result.class);
+        var thirdResult = mock(Result.class);
+        var results = executeBatch(createBatchedAction(true, () -> {
+                                       Thread.sleep(100);
+                                       return firstResult;
+                                   }),
+                                   createBatchedAction(true, () -> secondResult),
+                                   createBatchedAction(false, () -> thirdResult));
+        assertThat(results, contains(firstResult, secondResult, thirdResult));
+    }
+
+    @Test
+    public void shouldNotExecuteReadOnlyActionsConcurrentlyWithOtherActions() {
+        var executionOrder = new CopyOnWriteArrayList<String>();
+        var results = executeBatch(createBatchedAction(true, () -> {
+                                       Thread.sleep(100);
+                                       executionOrder.add("read-before");
+                                       return mock(Result.class);
+                                   }),
+                                   createBatchedAction(true, () -> {
+                                       Thread.sleep(100);
+                                       executionOrder.add("read-before");
+                                       return mock(Result.class);
+                                   }),
+                                   createBatchedAction(false, () -> {
+                                       executionOrder.add("write");
+                                       return mock(Result.class);
+                                   }),
+                                   createBatchedAction(true, () -> {
+                                       executionOrder.add("read-after");
+                                       return mock(Result.class);
+                                   }));
+        assertThat(results.size(), is(4));
+        assertThat(executionOrder, contains("read-before", "read-before", "write", "read-after"));
+    }
+
+    private interface HandlerBehaviour {
+
+        Result execute() throws Exception;
+    }
 }
@@ -0,0 +1,270 @@
+package edu.stanford.bmir.protege.web.server.download;
+
+import com.google.common.collect.ImmutableMap;
+import edu.stanford.bmir.protege.web.server.index.OntologyAnnotationsIndex;
+import edu.stanford.bmir.protege.web.server.index.OntologyAxiomsIndex;
+import edu.stanford.bmir.protege.web.server.index.OntologyImportsIndex;
+import edu.stanford.bmir.protege.web.server.index.ProjectOntologiesIndex;
+import edu.stanford.bmir.protege.web.server.project.PrefixDeclarationsStore;
+import edu.stanford.bmir.protege.web.server.project.chg.ProjectChangeLock;
+import edu.stanford.bmir.protege.web.shared.project.PrefixDeclarations;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.io.StringDocumentSource;
+import org.semanticweb.owlapi.model.*;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toSet;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.*;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class HeadRevisionExporter_TestCase {
+
+    private static final String PREFIX = "http://example.org/";
+
+    /**
+     * More than one chunk of Turtle
+     */
+    private static final int CLASS_COUNT = 12_000;
+
+    private final ProjectId projectId = ProjectId.get(UUID.randomUUID().toString());
+
+    private final OWLOntologyID ontologyId = new OWLOntologyID(IRI.create(PREFIX + "ontology"));
+
+    private final IRI importedOntologyIri = IRI.create(PREFIX + "imported");
+
+    private final OWLAnnotation ontologyAnnotation = Annotation(RDFSComment(), Literal("The ontology"));
+
+    private final OWLAnonymousIndividual anonymousIndividual = AnonymousIndividual();
+
+    private final ProjectChangeLock projectChangeLock = new ProjectChangeLock();
+
+    private final List<OWLAxiom> axioms = new ArrayList<>();
+
+    @Mock
+    private ProjectOntologiesIndex projectOntologiesIndex;
+
+    @Mock
+    private OntologyImportsIndex ontologyImportsIndex;
+
+    @Mock
+    private OntologyAnnotationsIndex ontologyAnnotationsIndex;
+
+    @Mock
+    private OntologyAxiomsIndex ontologyAxiomsIndex;
+
+    @Mock
+    private PrefixDeclarationsStore prefixDeclarationsStore;
+
+    private HeadRevisionExporter exporter;
+
+    @Before
+    public void setUp() {
+        var property = ObjectProperty(IRI.create(PREFIX + "p"));
+        axioms.add(Declaration(property));
+        // The anonymous individual is mentioned in the first and the last chunk of Turtle
+        axioms.add(AnnotationAssertion(RDFSComment(), anonymousIndividual, Literal("Anonymous")));
+        for(int i = 0; i < CLASS_COUNT; i++) {
+            var cls = Class(IRI.create(PREFIX + "C" + i));
+            axioms.add(Declaration(cls));
+            if(i > 0) {
+                axioms.add(SubClassOf(cls, ObjectSomeValuesFrom(property, Class(IRI.create(PREFIX + "C" + (i - 1))))));
+            }
+        }
+        axioms.add(ClassAssertion(Class(IRI.create(PREFIX + "C0")), anonymousIndividual));
+        when(projectOntologiesIndex.getOntologyIds()).thenAnswer(invocation -> Stream.of(ontologyId));
+        when(prefixDeclarationsStore.find(any())).thenReturn(PrefixDeclarations.get(projectId, ImmutableMap.of("ex:", PREFIX)));
+        when(ontologyImportsIndex.getOntologyIds()).thenAnswer(invocation -> Stream.of(ontologyId));
+        when(ontologyImportsIndex.getImportsDeclarations(any())).thenAnswer(invocation -> Stream.empty());
+        when(ontologyImportsIndex.getImportsDeclarations(ontologyId)).thenAnswer(invocation -> Stream.of(ImportsDeclaration(importedOntologyIri)));
+        when(ontologyAxiomsIndex.getAxioms(any())).thenAnswer(invocation -> Stream.empty());
+        when(ontologyAxiomsIndex.getAxioms(ontologyId)).thenAnswer(invocation -> axioms.stream());
+        when(ontologyAnnotationsIndex.getOntologyAnnotations(any())).thenAnswer(invocation -> Stream.empty());
+        when(ontologyAnnotationsIndex.getOntologyAnnotations(ontologyId)).thenAnswer(invocation -> Stream.of(ontologyAnnotation));
+        exporter = new HeadRevisionExporter(projectId,
+                                            projectChangeLock,
+                                            projectOntologiesIndex,
+                                            ontologyImportsIndex,
+                                            ontologyAnnotationsIndex,
+                                            ontologyAxiomsIndex,
+                                            prefixDeclarationsStore);
+    }
+
+    private Map<OWLOntologyID, String> export(DownloadFormat format) throws IOException {
+        var documents = new LinkedHashMap<OWLOntologyID, String>();
+        exporter.exportHeadRevision(format, new HeadRevisionExporter.OntologyDocumentOutput() {
+
+            private OWLOntologyID currentOntologyId;
+
+            private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+            @Nonnull
+            @Override
+            public OutputStream startDocument(@Nonnull OWLOntologyID ontologyId) {
+                currentOntologyId = ontologyId;
+                outputStream.reset();
+                return outputStream;
+            }
+
+            @Override
+            public void endDocument() {
+                documents.put(currentOntologyId, outputStream.toString(UTF_8));
+            }
+        });
+        return documents;
+    }
+
+    private OWLOntology parse(String document) throws OWLOntologyCreationException {
+        var manager = OWLManager.createOWLOntologyManager();
+        var loaderConfiguration = new OWLOntologyLoaderConfiguration().addIgnoredImport(importedOntologyIri);
+        return manager.loadOntologyFromOntologyDocument(new StringDocumentSource(document), loaderConfiguration);
+    }
+
+    private void assertExportedOntologyIsEquivalent(OWLOntology exportedOntology) {
+        assertThat(exportedOntology.getOntologyID(), is(ontologyId));
+        assertThat(exportedOntology.getAnnotations(), contains(ontologyAnnotation));
+        assertThat(exportedOntology.getImportsDeclarations(), contains(ImportsDeclaration(importedOntologyIri)));
+        assertThat(exportedOntology.getAxiomCount(), is(axioms.size()));
+        var namedAxioms = axioms.stream()
+                                .filter(ax -> ax.getAnonymousIndividuals().isEmpty())
+                                .collect(toSet());
+        var exportedNamedAxioms = exportedOntology.getAxioms()
+                                                  .stream()
+                                                  .filter(ax -> ax.getAnonymousIndividuals().isEmpty())
+                                                  .collect(toSet());
+        assertThat(exportedNamedAxioms, is(namedAxioms));
+        // Both axioms that mention the anonymous individual should still mention the same individual
+        var exportedAnonymousIndividuals = new HashSet<OWLAnonymousIndividual>();
+        exportedOntology.getAxioms()
+                        .forEach(ax -> exportedAnonymousIndividuals.addAll(ax.getAnonymousIndividuals()));
+        assertThat(exportedAnonymousIndividuals, hasSize(1));
+    }
+
+    @Test
+    public void shouldExportFunctionalSyntax() throws Exception {
+        var documents = export(DownloadFormat.FUNCTIONAL_SYNTAX);
+        assertThat(documents.keySet(), contains(ontologyId));
+        var document = documents.get(ontologyId);
+        assertThat(document, containsString("Prefix(ex:=<" + PREFIX + ">)"));
+        assertExportedOntologyIsEquivalent(parse(document));
+    }
+
+    @Test
+    public void shouldExportTurtle() throws Exception {
+        var documents = export(DownloadFormat.RDF_TURLE);
+        assertThat(documents.keySet(), contains(ontologyId));
+        var document = documents.get(ontologyId);
+        assertThat(document, containsString("@prefix ex: <" + PREFIX + ">"));
+        assertExportedOntologyIsEquivalent(parse(document));
+    }
+
+    @Test
+    public void shouldNotExportRemovedImports() throws Exception {
+        when(ontologyImportsIndex.getImportsDeclarations(ontologyId)).thenAnswer(invocation -> Stream.empty());
+        var exportedOntology = parse(export(DownloadFormat.FUNCTIONAL_SYNTAX).get(ontologyId));
+        assertThat(exportedOntology.getImportsDeclarations(), is(empty()));
+    }
+
+    @Test
+    public void shouldExportEmptyProjectAsEmptyOntology() throws Exception {
+        when(projectOntologiesIndex.getOntologyIds()).thenAnswer(invocation -> Stream.empty());
+        when(ontologyImportsIndex.getOntologyIds()).thenAnswer(invocation -> Stream.empty());
+        var documents = export(DownloadFormat.FUNCTIONAL_SYNTAX);
+        assertThat(documents.size(), is(1));
+        assertThat(parse(documents.values().iterator().next()).getAxiomCount(), is(0));
+    }
+
+    @Test
+    public void shouldExportOntologyThatOnlyContainsImports() throws Exception {
+        var otherOntologyId = new OWLOntologyID(IRI.create(PREFIX + "other"));
+        when(ontologyImportsIndex.getOntologyIds()).thenAnswer(invocation -> Stream.of(ontologyId, otherOntologyId));
+        when(ontologyImportsIndex.getImportsDeclarations(otherOntologyId)).thenAnswer(invocation -> Stream.of(ImportsDeclaration(importedOntologyIri)));
+        var documents = export(DownloadFormat.FUNCTIONAL_SYNTAX);
+        assertThat(documents.keySet(), contains(ontologyId, otherOntologyId));
+        var exportedOntology = parse(documents.get(otherOntologyId));
+        assertThat(exportedOntology.getImportsDeclarations(), contains(ImportsDeclaration(importedOntologyIri)));
+    }
+
+    @Test
+    public void shouldExportAnonymousOntologiesAsOneTurtleDocument() throws Exception {
+        var anonymousOntologyIdA = new OWLOntologyID();
+        var anonymousOntologyIdB = new OWLOntologyID();
+        when(projectOntologiesIndex.getOntologyIds()).thenAnswer(invocation -> Stream.of(anonymousOntologyIdA, anonymousOntologyIdB));
+        when(ontologyImportsIndex.getOntologyIds()).thenAnswer(invocation -> Stream.of(anonymousOntologyIdB));
+        when(ontologyAxiomsIndex.getAxioms(anonymousOntologyIdA)).thenAnswer(invocation -> axioms.stream());
+        when(ontologyAnnotationsIndex.getOntologyAnnotations(anonymousOntologyIdA)).thenAnswer(invocation -> Stream.of(ontologyAnnotation));
+        when(ontologyImportsIndex.getImportsDeclarations(anonymousOntologyIdB)).thenAnswer(invocation -> Stream.of(ImportsDeclaration(importedOntologyIri)));
+        var documents = export(DownloadFormat.RDF_TURLE);
+        assertThat(documents.size(), is(1));
+        var document = documents.values().iterator().next();
+        assertThat(document.split("owl:Ontology", -1).length - 1, is(1));
+        var exportedOntology = parse(document);
+        assertThat(exportedOntology.getOntologyID().isAnonymous(), is(true));
+        assertThat(exportedOntology.getAnnotations(), contains(ontologyAnnotation));
+        assertThat(exportedOntology.getImportsDeclarations(), contains(ImportsDeclaration(importedOntologyIri)));
+        assertThat(exportedOntology.getAxiomCount(), is(axioms.size()));
+    }
+
+    @Test
+    public void shouldNotBlockChangesWhileWritingDocuments() throws Exception {
+        var changesBlocked = new ArrayList<Boolean>();
+        exporter.exportHeadRevision(DownloadFormat.FUNCTIONAL_SYNTAX, new HeadRevisionExporter.OntologyDocumentOutput() {
+            @Nonnull
+            @Override
+            public OutputStream startDocument(@Nonnull OWLOntologyID ontologyId) {
+                var writeLock = projectChangeLock.writeLock();
+                var acquired = writeLock.tryLock();
+                if(acquired) {
+                    writeLock.unlock();
+                }
+                changesBlocked.add(!acquired);
+                return new ByteArrayOutputStream();
+            }
+
+            @Override
+            public void endDocument() {
+            }
+        });
+        assertThat(changesBlocked, contains(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotExportUnsupportedFormat() throws Exception {
+        export(DownloadFormat.RDF_XML);
+    }
+
+    @Test
+    public void shouldSupportFunctionalSyntaxAndTurtle() {
+        Set<DownloadFormat> supportedFormats = Stream.of(DownloadFormat.values())
+                                                     .filter(HeadRevisionExporter::isSupportedFormat)
+                                                     .collect(toSet());
+        assertThat(supportedFormats, containsInAnyOrder(DownloadFormat.FUNCTIONAL_SYNTAX, DownloadFormat.RDF_TURLE));
+    }
+}
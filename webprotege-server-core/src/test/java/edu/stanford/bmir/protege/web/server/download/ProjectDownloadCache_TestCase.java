@@ -3,15 +3,20 @@ package edu.stanford.bmir.protege.web.server.download;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.Mockito.when;
 
@@ -27,6 +32,13 @@ public class ProjectDownloadCache_TestCase {
 
     private static final long REVISION_NUMBER = 33L;
 
+    private static final int MAX_SIZE_IN_MB = 1;
+
+    private static final int DOWNLOAD_SIZE = 400 * 1024;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private ProjectDownloadCache cache;
 
     @Mock
@@ -47,9 +59,17 @@ public class ProjectDownloadCache_TestCase {
         when(projectId.getId()).thenReturn(THE_PROJECT_ID);
         when(revisionNumber.getValue()).thenReturn(REVISION_NUMBER);
         downloadFormat = DownloadFormat.RDF_XML;
-        root = Paths.get("tmp");
+        root = temporaryFolder.getRoot().toPath();
         when(directorySupplier.get()).thenReturn(root);
-        cache = new ProjectDownloadCache(directorySupplier);
+        cache = new ProjectDownloadCache(directorySupplier, MAX_SIZE_IN_MB);
+    }
+
+    private Path createDownload(DownloadFormat format, int size, long lastModified) throws IOException {
+        var path = cache.getCachedDownloadPath(projectId, revisionNumber, format);
+        Files.createDirectories(path.getParent());
+        Files.write(path, new byte[size]);
+        Files.setLastModifiedTime(path, FileTime.fromMillis(lastModified));
+        return path;
     }
 
     @Test
@@ -58,4 +78,50 @@ public class ProjectDownloadCache_TestCase {
         Path expectedPath = root.resolve(THE_PROJECT_ID).resolve(THE_PROJECT_ID + "-R" + REVISION_NUMBER + "." + downloadFormat.getExtension() + ".zip");
         assertThat(path, is(expectedPath));
     }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedDownloadsWhenCacheIsTooLarge() throws IOException {
+        var oldest = createDownload(DownloadFormat.RDF_XML, DOWNLOAD_SIZE, 1000);
+        var older = createDownload(DownloadFormat.RDF_TURLE, DOWNLOAD_SIZE, 2000);
+        var newest = createDownload(DownloadFormat.OWL_XML, DOWNLOAD_SIZE, 3000);
+        cache.evictIfNecessary(newest);
+        assertThat(Files.exists(oldest), is(false));
+        assertThat(Files.exists(older), is(true));
+        assertThat(Files.exists(newest), is(true));
+    }
+
+    @Test
+    public void shouldNotEvictDownloadsWhenCacheIsNotTooLarge() throws IOException {
+        var older = createDownload(DownloadFormat.RDF_XML, DOWNLOAD_SIZE, 1000);
+        var newer = createDownload(DownloadFormat.RDF_TURLE, DOWNLOAD_SIZE, 2000);
+        cache.evictIfNecessary(newer);
+        assertThat(Files.exists(older), is(true));
+        assertThat(Files.exists(newer), is(true));
+    }
+
+    @Test
+    public void shouldNotEvictRetainedDownload() throws IOException {
+        var retained = createDownload(DownloadFormat.RDF_XML, 3 * DOWNLOAD_SIZE, 1000);
+        var newer = createDownload(DownloadFormat.RDF_TURLE, DOWNLOAD_SIZE, 2000);
+        cache.evictIfNecessary(retained);
+        assertThat(Files.exists(retained), is(true));
+        assertThat(Files.exists(newer), is(false));
+    }
+
+    @Test
+    public void shouldNotEvictDownloadsWhenCacheSizeIsNotLimited() throws IOException {
+        cache = new ProjectDownloadCache(directorySupplier, 0);
+        var oldest = createDownload(DownloadFormat.RDF_XML, DOWNLOAD_SIZE, 1000);
+        createDownload(DownloadFormat.RDF_TURLE, DOWNLOAD_SIZE, 2000);
+        var newest = createDownload(DownloadFormat.OWL_XML, DOWNLOAD_SIZE, 3000);
+        cache.evictIfNecessary(newest);
+        assertThat(Files.exists(oldest), is(true));
+    }
+
+    @Test
+    public void shouldUpdateLastModifiedTimeOfTouchedDownload() throws IOException {
+        var download = createDownload(DownloadFormat.RDF_XML, 1, 1000);
+        cache.touch(download);
+        assertThat(Files.getLastModifiedTime(download).toMillis(), is(greaterThan(1000L)));
+    }
 }
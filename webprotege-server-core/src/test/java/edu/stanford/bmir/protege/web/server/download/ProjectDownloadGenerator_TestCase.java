@@ -0,0 +1,158 @@
+package edu.stanford.bmir.protege.web.server.download;
+
+import edu.stanford.bmir.protege.web.server.project.PrefixDeclarationsStore;
+import edu.stanford.bmir.protege.web.server.project.ProjectDetailsManager;
+import edu.stanford.bmir.protege.web.server.project.ProjectManager;
+import edu.stanford.bmir.protege.web.shared.project.ProjectDetails;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import edu.stanford.bmir.protege.web.shared.user.UserId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class ProjectDownloadGenerator_TestCase {
+
+    private final ProjectId projectId = ProjectId.get(UUID.randomUUID().toString());
+
+    private final UserId userId = UserId.getUserId("The User");
+
+    private final RevisionNumber revisionNumber = RevisionNumber.getRevisionNumber(3);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private ExecutorService executor;
+
+    @Mock
+    private ProjectDetailsManager projectDetailsManager;
+
+    @Mock
+    private ProjectDetails projectDetails;
+
+    @Mock
+    private ProjectDownloadCacheDirectorySupplier directorySupplier;
+
+    @Mock
+    private ProjectManager projectManager;
+
+    private ProjectDownloadCache cache;
+
+    private ProjectDownloadGenerator generator;
+
+    @Before
+    public void setUp() {
+        when(projectDetailsManager.getProjectDetails(projectId)).thenReturn(projectDetails);
+        when(projectDetails.getDisplayName()).thenReturn("The Project");
+        when(directorySupplier.get()).thenReturn(temporaryFolder.getRoot().toPath());
+        cache = new ProjectDownloadCache(directorySupplier, 0);
+        var prefixDeclarationsStore = mock(PrefixDeclarationsStore.class);
+        var createDownloadTaskFactory = new CreateDownloadTaskFactory(() -> projectManager,
+                                                                      () -> new ProjectDownloaderFactory(() -> prefixDeclarationsStore));
+        generator = new ProjectDownloadGenerator(executor, projectDetailsManager, cache, createDownloadTaskFactory);
+    }
+
+    private CompletableFuture<Path> getDownload(DownloadFormat format) {
+        return generator.getDownload(userId, projectId, revisionNumber, revisionNumber, format);
+    }
+
+    private Path getDownloadPath(DownloadFormat format) {
+        return cache.getCachedDownloadPath(projectId, revisionNumber, format);
+    }
+
+    private Runnable getSubmittedGeneration() {
+        var captor = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, atLeastOnce()).execute(captor.capture());
+        return captor.getValue();
+    }
+
+    /**
+     * Simulates the generation of the download by writing the download before the generation task runs.  The
+     * task sees that the download exists and does not recreate it.
+     */
+    private void writeDownload(DownloadFormat format) throws IOException {
+        var path = getDownloadPath(format);
+        Files.createDirectories(path.getParent());
+        Files.write(path, new byte[]{1});
+    }
+
+    @Test
+    public void shouldReturnCachedDownloadWithoutGeneratingIt() throws Exception {
+        writeDownload(DownloadFormat.RDF_XML);
+        var future = getDownload(DownloadFormat.RDF_XML);
+        assertThat(future.isDone(), is(true));
+        assertThat(future.get(), is(getDownloadPath(DownloadFormat.RDF_XML)));
+        verifyZeroInteractions(executor);
+    }
+
+    @Test
+    public void shouldShareInFlightGenerationOfSameDownload() throws Exception {
+        var first = getDownload(DownloadFormat.RDF_XML);
+        var second = getDownload(DownloadFormat.RDF_XML);
+        assertThat(second, is(sameInstance(first)));
+        verify(executor, times(1)).execute(any());
+        assertThat(first.isDone(), is(false));
+        writeDownload(DownloadFormat.RDF_XML);
+        getSubmittedGeneration().run();
+        assertThat(first.get(), is(getDownloadPath(DownloadFormat.RDF_XML)));
+    }
+
+    @Test
+    public void shouldNotShareGenerationOfDownloadsInDifferentFormats() {
+        var rdfXml = getDownload(DownloadFormat.RDF_XML);
+        var turtle = getDownload(DownloadFormat.RDF_TURLE);
+        assertThat(turtle, is(not(sameInstance(rdfXml))));
+        verify(executor, times(2)).execute(any());
+    }
+
+    @Test
+    public void shouldStartNewGenerationAfterGenerationFails() {
+        when(projectManager.getRevisionManager(projectId)).thenThrow(new RuntimeException("Failed"));
+        var first = getDownload(DownloadFormat.RDF_XML);
+        getSubmittedGeneration().run();
+        assertThat(first.isCompletedExceptionally(), is(true));
+        var second = getDownload(DownloadFormat.RDF_XML);
+        assertThat(second, is(not(sameInstance(first))));
+        verify(executor, times(2)).execute(any());
+    }
+
+    @Test
+    public void shouldCompleteExceptionallyIfGenerationIsRejected() throws Exception {
+        doThrow(new RejectedExecutionException()).when(executor).execute(any());
+        var future = getDownload(DownloadFormat.RDF_XML);
+        try {
+            future.get();
+        } catch(ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(RejectedExecutionException.class)));
+        }
+        assertThat(future.isCompletedExceptionally(), is(true));
+        doNothing().when(executor).execute(any());
+        assertThat(getDownload(DownloadFormat.RDF_XML), is(not(sameInstance(future))));
+    }
+}
@@ -0,0 +1,92 @@
+package edu.stanford.bmir.protege.web.server.download;
+
+import edu.stanford.bmir.protege.web.server.revision.Revision;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import edu.stanford.bmir.protege.web.shared.user.UserId;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class ProjectDownloadPregenerator_TestCase {
+
+    private static final int CHANGE_THRESHOLD = 100;
+
+    private final ProjectId projectId = ProjectId.get(UUID.randomUUID().toString());
+
+    private final UserId userId = UserId.getUserId("The User");
+
+    private final RevisionNumber revisionNumber = RevisionNumber.getRevisionNumber(5);
+
+    @Mock
+    private ProjectDownloadGenerator projectDownloadGenerator;
+
+    @Mock
+    private Revision revision;
+
+    private CompletableFuture<Path> generation;
+
+    private ProjectDownloadPregenerator pregenerator;
+
+    @Before
+    public void setUp() {
+        generation = new CompletableFuture<>();
+        when(revision.getUserId()).thenReturn(userId);
+        when(revision.getRevisionNumber()).thenReturn(revisionNumber);
+        when(projectDownloadGenerator.getDownload(any(), any(), any(), any(), any())).thenReturn(generation);
+        pregenerator = new ProjectDownloadPregenerator(projectId, projectDownloadGenerator, CHANGE_THRESHOLD);
+    }
+
+    @Test
+    public void shouldNotGenerateDownloadForSmallRevision() {
+        when(revision.getSize()).thenReturn(CHANGE_THRESHOLD - 1);
+        pregenerator.handleRevision(revision);
+        verifyZeroInteractions(projectDownloadGenerator);
+    }
+
+    @Test
+    public void shouldGenerateDownloadOfRevisionForLargeRevision() {
+        when(revision.getSize()).thenReturn(CHANGE_THRESHOLD);
+        pregenerator.handleRevision(revision);
+        // Later commits may move the head on before the download is generated
+        verify(projectDownloadGenerator).getDownload(userId,
+                                                     projectId,
+                                                     revisionNumber,
+                                                     revisionNumber,
+                                                     DownloadFormat.getDefaultFormat());
+    }
+
+    @Test
+    public void shouldNotGenerateAnotherDownloadWhileGenerationIsInProgress() {
+        when(revision.getSize()).thenReturn(CHANGE_THRESHOLD);
+        pregenerator.handleRevision(revision);
+        pregenerator.handleRevision(revision);
+        verify(projectDownloadGenerator, times(1)).getDownload(any(), any(), any(), any(), any());
+        generation.complete(null);
+        pregenerator.handleRevision(revision);
+        verify(projectDownloadGenerator, times(2)).getDownload(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void shouldNotGenerateDownloadIfThresholdIsZero() {
+        pregenerator = new ProjectDownloadPregenerator(projectId, projectDownloadGenerator, 0);
+        when(revision.getSize()).thenReturn(Integer.MAX_VALUE);
+        pregenerator.handleRevision(revision);
+        verifyZeroInteractions(projectDownloadGenerator);
+    }
+}
@@ -0,0 +1,158 @@
+package edu.stanford.bmir.protege.web.server.events;
+
+import edu.stanford.bmir.protege.web.shared.event.EventTag;
+import edu.stanford.bmir.protege.web.shared.event.ProjectEvent;
+import edu.stanford.bmir.protege.web.shared.event.UserStoppedViewingProjectEvent;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.user.UserId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-07
+ */
+public class EventManager_TestCase {
+
+    private final ProjectId projectId = ProjectId.get(UUID.randomUUID().toString());
+
+    private EventManager<ProjectEvent<?>> eventManager;
+
+    @Before
+    public void setUp() {
+        eventManager = new EventManager<>(EventLifeTime.get(60, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() {
+        eventManager.dispose();
+    }
+
+    private ProjectEvent<?> createEvent() {
+        return new UserStoppedViewingProjectEvent(projectId, UserId.getGuest());
+    }
+
+    @Test
+    public void shouldReturnNextTagAfterPosting() {
+        var tag = eventManager.postEvent(createEvent());
+        assertThat(tag, is(EventTag.getFirst().next()));
+        assertThat(eventManager.getCurrentTag(), is(tag));
+    }
+
+    @Test
+    public void shouldGetEventsFromTag() {
+        var eventA = createEvent();
+        var eventB = createEvent();
+        eventManager.postEvent(eventA);
+        var tagB = eventManager.postEvent(eventB);
+        var eventList = eventManager.getEventsFromTag(tagB);
+        assertThat(eventList.getEvents(), contains(eventB));
+        assertThat(eventList.getEndTag(), is(tagB.next()));
+    }
+
+    @Test
+    public void shouldGetAllEventsFromFirstTag() {
+        var eventA = createEvent();
+        var eventB = createEvent();
+        eventManager.postEvent(eventA);
+        eventManager.postEvent(eventB);
+        var eventList = eventManager.getEventsFromTag(EventTag.getFirst());
+        assertThat(eventList.getEvents(), contains(eventA, eventB));
+    }
+
+    @Test
+    public void shouldNotGetEventsFromFutureTag() {
+        var tag = eventManager.postEvent(createEvent());
+        var eventList = eventManager.getEventsFromTag(tag.next());
+        assertThat(eventList.getEvents(), is(empty()));
+    }
+
+    @Test
+    public void shouldCoalesceDuplicateEvents() {
+        var event = createEvent();
+        eventManager.postEvent(event);
+        eventManager.postEvent(event);
+        var eventList = eventManager.getEventsFromTag(EventTag.getFirst());
+        assertThat(eventList.getEvents(), contains(event));
+    }
+
+    @Test
+    public void shouldNotGetExpiredEvents() throws InterruptedException {
+        eventManager = new EventManager<>(EventLifeTime.getInMilliseconds(1));
+        eventManager.postEvent(createEvent());
+        Thread.sleep(10);
+        var eventList = eventManager.getEventsFromTag(EventTag.getFirst());
+        assertThat(eventList.getEvents(), is(empty()));
+    }
+
+    @Test
+    public void shouldDropExpiredEventsWhenPosting() throws InterruptedException {
+        eventManager = new EventManager<>(EventLifeTime.getInMilliseconds(200));
+        for(int i = 0; i < 1000; i++) {
+            eventManager.postEvent(createEvent());
+        }
+        Thread.sleep(300);
+        var liveEvent = createEvent();
+        var tag = eventManager.postEvent(liveEvent);
+        assertThat(tag.getOrdinal(), is(1001));
+        var eventList = eventManager.getEventsFromTag(EventTag.getFirst());
+        assertThat(eventList.getEvents(), contains(liveEvent));
+    }
+
+    @Test
+    public void shouldRetainLiveEventsBeyondInitialCapacity() {
+        var postedEvents = new ArrayList<ProjectEvent<?>>();
+        for(int i = 0; i < 5000; i++) {
+            var event = createEvent();
+            postedEvents.add(event);
+            eventManager.postEvent(event);
+        }
+        var eventList = eventManager.getEventsFromTag(EventTag.getFirst());
+        assertThat(eventList.getEvents(), hasSize(5000));
+        assertThat(new ArrayList<>(eventList.getEvents()), is(postedEvents));
+    }
+
+    @Test
+    public void shouldNotPostOversizedEventLists() {
+        var events = new ArrayList<ProjectEvent<?>>();
+        for(int i = 0; i < 201; i++) {
+            events.add(createEvent());
+        }
+        var tag = eventManager.postEvents(events);
+        assertThat(tag, is(EventTag.getFirst()));
+        assertThat(eventManager.getEventsFromTag(EventTag.getFirst()).getEvents(), is(empty()));
+    }
+
+    @Test
+    public void shouldNotifyPostedTagListenersAfterPosting() {
+        var notifiedTags = new ArrayList<EventTag>();
+        eventManager.addPostedTagListener(tag -> {
+            assertThat(eventManager.getEventsFromTag(tag).getEvents(), hasSize(1));
+            notifiedTags.add(tag);
+        });
+        var tagA = eventManager.postEvent(createEvent());
+        var tagB = eventManager.postEvent(createEvent());
+        assertThat(notifiedTags, contains(tagA, tagB));
+    }
+
+    @Test
+    public void shouldNotNotifyPostedTagListenersAfterDispose() {
+        var notifiedTags = new ArrayList<EventTag>();
+        eventManager.addPostedTagListener(notifiedTags::add);
+        eventManager.dispose();
+        eventManager.postEvent(createEvent());
+        assertThat(notifiedTags, is(empty()));
+    }
+}
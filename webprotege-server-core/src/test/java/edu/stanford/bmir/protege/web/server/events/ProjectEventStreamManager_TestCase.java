@@ -0,0 +1,154 @@
+package edu.stanford.bmir.protege.web.server.events;
+
+import edu.stanford.bmir.protege.web.shared.event.EventTag;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class ProjectEventStreamManager_TestCase {
+
+    private static final int MAX_CONNECTIONS = 2;
+
+    private static final long HEARTBEAT_INTERVAL = 25_000;
+
+    private final ProjectId projectId = ProjectId.get(UUID.randomUUID().toString());
+
+    private final ProjectId otherProjectId = ProjectId.get(UUID.randomUUID().toString());
+
+    private final EventTag tag = EventTag.get(3);
+
+    @Mock
+    private ScheduledExecutorService streamExecutor;
+
+    @Mock
+    private ProjectEventStream stream;
+
+    @Mock
+    private ProjectEventStream otherStream;
+
+    private ProjectEventStreamManager manager;
+
+    @Before
+    public void setUp() {
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(streamExecutor).execute(any());
+        when(stream.getProjectId()).thenReturn(projectId);
+        when(otherStream.getProjectId()).thenReturn(otherProjectId);
+        manager = new ProjectEventStreamManager(MAX_CONNECTIONS, HEARTBEAT_INTERVAL, streamExecutor);
+    }
+
+    @Test
+    public void shouldNotifyOpenStreamsOfProject() throws IOException {
+        manager.open(stream);
+        manager.open(otherStream);
+        manager.handleEventsPosted(projectId, tag);
+        verify(stream).sendEventTag(tag);
+        verify(otherStream, never()).sendEventTag(any());
+    }
+
+    @Test
+    public void shouldNotNotifyClosedStreams() throws IOException {
+        manager.open(stream);
+        manager.close(stream);
+        manager.handleEventsPosted(projectId, tag);
+        verify(stream, never()).sendEventTag(any());
+        verify(stream).close();
+        assertThat(manager.getConnectionCount(), is(0));
+    }
+
+    @Test
+    public void shouldHaveOpenStreamsUntilStreamsAreClosed() {
+        assertThat(manager.hasOpenStreams(projectId), is(false));
+        manager.open(stream);
+        assertThat(manager.hasOpenStreams(projectId), is(true));
+        assertThat(manager.hasOpenStreams(otherProjectId), is(false));
+        manager.close(stream);
+        assertThat(manager.hasOpenStreams(projectId), is(false));
+    }
+
+    @Test
+    public void shouldRejectStreamsOverMaxConnections() {
+        assertThat(manager.open(stream), is(true));
+        assertThat(manager.open(otherStream), is(true));
+        assertThat(manager.open(mock(ProjectEventStream.class)), is(false));
+        assertThat(manager.getConnectionCount(), is(MAX_CONNECTIONS));
+    }
+
+    @Test
+    public void shouldAcceptStreamAfterStreamIsClosed() {
+        manager.open(stream);
+        manager.open(otherStream);
+        manager.close(stream);
+        var anotherStream = mock(ProjectEventStream.class);
+        when(anotherStream.getProjectId()).thenReturn(projectId);
+        assertThat(manager.open(anotherStream), is(true));
+    }
+
+    @Test
+    public void shouldCloseStreamThatCannotBeWritten() throws IOException {
+        doThrow(new IOException("Broken pipe")).when(stream).sendEventTag(any());
+        manager.open(stream);
+        manager.handleEventsPosted(projectId, tag);
+        verify(stream).close();
+        assertThat(manager.getConnectionCount(), is(0));
+        manager.handleEventsPosted(projectId, tag);
+        verify(stream, times(1)).sendEventTag(any());
+    }
+
+    @Test
+    public void shouldSendHeartbeatsToOpenStreams() throws IOException {
+        manager.start();
+        var captor = ArgumentCaptor.forClass(Runnable.class);
+        verify(streamExecutor).scheduleWithFixedDelay(captor.capture(),
+                                                      eq(HEARTBEAT_INTERVAL),
+                                                      eq(HEARTBEAT_INTERVAL),
+                                                      eq(TimeUnit.MILLISECONDS));
+        manager.open(stream);
+        manager.open(otherStream);
+        captor.getValue().run();
+        verify(stream).sendHeartbeat();
+        verify(otherStream).sendHeartbeat();
+    }
+
+    @Test
+    public void shouldNotAcceptStreamsIfDisabled() {
+        manager = new ProjectEventStreamManager(0, HEARTBEAT_INTERVAL, streamExecutor);
+        manager.start();
+        assertThat(manager.open(stream), is(false));
+        verify(streamExecutor, never()).scheduleWithFixedDelay(any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    public void shouldCloseStreamsOnDispose() {
+        manager.open(stream);
+        manager.open(otherStream);
+        manager.dispose();
+        verify(stream).close();
+        verify(otherStream).close();
+        assertThat(manager.getConnectionCount(), is(0));
+    }
+}
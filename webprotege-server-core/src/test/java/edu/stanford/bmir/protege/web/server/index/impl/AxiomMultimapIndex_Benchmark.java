@@ -0,0 +1,144 @@
+package edu.stanford.bmir.protege.web.server.index.impl;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.SetMultimap;
+import edu.stanford.bmir.protege.web.server.change.AddAxiomChange;
+import edu.stanford.bmir.protege.web.server.change.OntologyChange;
+import edu.stanford.bmir.protege.web.server.change.RemoveAxiomChange;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.Class;
+import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.SubClassOf;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Measures lookups in an {@link AxiomMultimapIndex} by many reader threads whilst one writer thread adds and removes
+ * axioms.  The locking index reproduces the previous read path, where lookups were synchronized with writes and
+ * copied the axioms for the key on every call.
+ *
+ * Run with the main method, or via the JMH runner on the test classpath.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AxiomMultimapIndex_Benchmark {
+
+    private static final int CLASS_COUNT = 10_000;
+
+    private static final int SUPERCLASSES_PER_CLASS = 4;
+
+    private final OWLOntologyID ontologyId = new OWLOntologyID(IRI.create("http://example.org/BenchmarkOntology"));
+
+    private final OWLClass[] classes = new OWLClass[CLASS_COUNT];
+
+    private AxiomMultimapIndex<OWLClass, OWLSubClassOfAxiom> snapshotIndex;
+
+    private LockingIndex lockingIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        snapshotIndex = AxiomMultimapIndex.create(OWLSubClassOfAxiom.class,
+                                                  ax -> ax.getSubClass().isNamed() ? ax.getSubClass().asOWLClass() : null);
+        lockingIndex = new LockingIndex();
+        var changes = ImmutableList.<OntologyChange>builder();
+        for(int i = 0; i < CLASS_COUNT; i++) {
+            classes[i] = Class(IRI.create("http://example.org/C" + i));
+        }
+        for(int i = 0; i < CLASS_COUNT; i++) {
+            for(int j = 1; j <= SUPERCLASSES_PER_CLASS; j++) {
+                changes.add(AddAxiomChange.of(ontologyId, SubClassOf(classes[i], classes[(i + j) % CLASS_COUNT])));
+            }
+        }
+        snapshotIndex.applyChanges(changes.build());
+        lockingIndex.applyChanges(changes.build());
+    }
+
+    private OWLClass randomClass() {
+        return classes[ThreadLocalRandom.current().nextInt(CLASS_COUNT)];
+    }
+
+    private ImmutableList<OntologyChange> createEdit() {
+        // Replaces a superclass with itself, so the index stays the same size
+        var axiom = SubClassOf(randomClass(), randomClass());
+        return ImmutableList.of(AddAxiomChange.of(ontologyId, axiom), RemoveAxiomChange.of(ontologyId, axiom));
+    }
+
+    @Benchmark
+    @Group("snapshotIndex")
+    @GroupThreads(7)
+    public void readSnapshotIndex(Blackhole blackhole) {
+        snapshotIndex.getAxioms(randomClass(), ontologyId).forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    @Group("snapshotIndex")
+    @GroupThreads(1)
+    public void writeSnapshotIndex() {
+        snapshotIndex.applyChanges(createEdit());
+    }
+
+    @Benchmark
+    @Group("lockingIndex")
+    @GroupThreads(7)
+    public void readLockingIndex(Blackhole blackhole) {
+        lockingIndex.getAxioms(randomClass(), ontologyId).forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    @Group("lockingIndex")
+    @GroupThreads(1)
+    public void writeLockingIndex() {
+        lockingIndex.applyChanges(createEdit());
+    }
+
+    /**
+     * The previous implementation of the index read and write paths
+     */
+    private static class LockingIndex {
+
+        private final SetMultimap<Key<OWLClass>, OWLSubClassOfAxiom> backingMap = HashMultimap.create();
+
+        public synchronized Stream<OWLSubClassOfAxiom> getAxioms(OWLClass cls, OWLOntologyID ontologyId) {
+            return ImmutableList.copyOf(backingMap.get(Key.get(ontologyId, cls))).stream();
+        }
+
+        public synchronized void applyChanges(ImmutableList<OntologyChange> changes) {
+            for(var change : changes) {
+                var axiom = (OWLSubClassOfAxiom) change.getAxiomOrThrow();
+                var key = Key.get(change.getOntologyId(), axiom.getSubClass().asOWLClass());
+                if(change.isAddAxiom()) {
+                    backingMap.put(key, axiom);
+                }
+                else {
+                    backingMap.remove(key, axiom);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        var options = new OptionsBuilder()
+                .include(AxiomMultimapIndex_Benchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
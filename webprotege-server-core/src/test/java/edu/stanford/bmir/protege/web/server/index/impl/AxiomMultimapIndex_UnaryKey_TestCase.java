@@ -13,6 +13,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.semanticweb.owlapi.model.*;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -132,4 +133,47 @@ public class AxiomMultimapIndex_UnaryKey_TestCase {
         assertThat(index.getAxioms(subCls, ontologyId)
                         .count(), is(0L));
     }
+
+    @Test
+    public void shouldGetAxiomAfterAdd() {
+        index.applyChanges(ImmutableList.of(AddAxiomChange.of(ontologyId, axiom)));
+        assertThat(getAxioms(), contains(axiom));
+    }
+
+    @Test
+    public void shouldGetChangesMadeAfterAxiomsWereRead() {
+        index.applyChanges(ImmutableList.of(AddAxiomChange.of(ontologyId, axiom)));
+        assertThat(getAxioms(), contains(axiom));
+        index.applyChanges(ImmutableList.of(RemoveAxiomChange.of(ontologyId, axiom)));
+        assertThat(getAxioms(), is(empty()));
+    }
+
+    @Test
+    public void shouldNotAddDuplicatesAcrossBatchesIfFlagIsSet() {
+        var chg = AddAxiomChange.of(ontologyId, axiom);
+        index.setAllowDuplicates(false);
+        index.applyChanges(ImmutableList.of(chg));
+        index.applyChanges(ImmutableList.of(chg));
+        assertThat(getAxioms(), hasSize(1));
+    }
+
+    @Test
+    public void shouldApplyQueuedChangesOnReadIfLazy() {
+        index.setLazy(true);
+        index.applyChanges(ImmutableList.of(AddAxiomChange.of(ontologyId, axiom)));
+        assertThat(backingMap.size(), is(0));
+        assertThat(getAxioms(), contains(axiom));
+    }
+
+    @Test
+    public void shouldNotChangePreviouslyReturnedAxioms() {
+        index.applyChanges(ImmutableList.of(AddAxiomChange.of(ontologyId, axiom)));
+        var axiomsStream = index.getAxioms(subCls, ontologyId);
+        index.applyChanges(ImmutableList.of(RemoveAxiomChange.of(ontologyId, axiom)));
+        assertThat(axiomsStream.collect(Collectors.toList()), contains(axiom));
+    }
+
+    private List<OWLSubClassOfAxiom> getAxioms() {
+        return index.getAxioms(subCls, ontologyId).collect(Collectors.toList());
+    }
 }
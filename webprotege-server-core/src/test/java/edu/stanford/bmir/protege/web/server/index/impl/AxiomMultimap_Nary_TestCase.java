@@ -13,6 +13,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.semanticweb.owlapi.model.*;
 
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -131,4 +132,20 @@ public class AxiomMultimap_Nary_TestCase {
         assertThat(index.getAxioms(indA, ontologyId)
                         .count(), is(0L));
     }
+
+    @Test
+    public void shouldGetAxiomForAllKeyValues() {
+        index.applyChanges(ImmutableList.of(AddAxiomChange.of(ontologyId, axiom)));
+        assertThat(index.getAxioms(indA, ontologyId).collect(Collectors.toList()), contains(axiom));
+        assertThat(index.getAxioms(indB, ontologyId).collect(Collectors.toList()), contains(axiom));
+    }
+
+    @Test
+    public void shouldGetChangesMadeAfterAxiomsWereRead() {
+        index.applyChanges(ImmutableList.of(AddAxiomChange.of(ontologyId, axiom)));
+        assertThat(index.getAxioms(indA, ontologyId).count(), is(1L));
+        index.applyChanges(ImmutableList.of(RemoveAxiomChange.of(ontologyId, axiom)));
+        assertThat(index.getAxioms(indA, ontologyId).count(), is(0L));
+        assertThat(index.getAxioms(indB, ontologyId).count(), is(0L));
+    }
 }
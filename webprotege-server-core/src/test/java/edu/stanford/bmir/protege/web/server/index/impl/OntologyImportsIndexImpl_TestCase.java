@@ -0,0 +1,64 @@
+package edu.stanford.bmir.protege.web.server.index.impl;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.bmir.protege.web.server.change.AddImportChange;
+import edu.stanford.bmir.protege.web.server.change.RemoveImportChange;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.semanticweb.owlapi.model.*;
+
+import static java.util.stream.Collectors.toSet;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.mock;
+import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.ImportsDeclaration;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class OntologyImportsIndexImpl_TestCase {
+
+    private OntologyImportsIndexImpl impl;
+
+    @Mock
+    private OWLOntologyID ontologyId;
+
+    private OWLImportsDeclaration importsDeclaration;
+
+    @Before
+    public void setUp() {
+        importsDeclaration = ImportsDeclaration(mock(IRI.class));
+        impl = new OntologyImportsIndexImpl();
+        impl.applyChanges(ImmutableList.of(AddImportChange.of(ontologyId, importsDeclaration)));
+    }
+
+    @Test
+    public void shouldGetImportsDeclarations() {
+        var importsDeclarations = impl.getImportsDeclarations(ontologyId).collect(toSet());
+        assertThat(importsDeclarations, contains(importsDeclaration));
+    }
+
+    @Test
+    public void shouldGetOntologyIds() {
+        assertThat(impl.getOntologyIds().collect(toSet()), contains(ontologyId));
+    }
+
+    @Test
+    public void shouldGetEmptyStreamForUnknownOntology() {
+        var importsDeclarations = impl.getImportsDeclarations(mock(OWLOntologyID.class));
+        assertThat(importsDeclarations.count(), is(0L));
+    }
+
+    @Test
+    public void shouldHandleRemoveImport() {
+        impl.applyChanges(ImmutableList.of(RemoveImportChange.of(ontologyId, importsDeclaration)));
+        assertThat(impl.getImportsDeclarations(ontologyId).count(), is(0L));
+        assertThat(impl.getOntologyIds().count(), is(0L));
+    }
+}
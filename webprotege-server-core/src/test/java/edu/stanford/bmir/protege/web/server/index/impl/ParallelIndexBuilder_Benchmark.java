@@ -0,0 +1,124 @@
+package edu.stanford.bmir.protege.web.server.index.impl;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimap;
+import edu.stanford.bmir.protege.web.server.change.AddAxiomChange;
+import edu.stanford.bmir.protege.web.server.change.OntologyChange;
+import edu.stanford.bmir.protege.web.server.change.RemoveAxiomChange;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
+
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.*;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-10
+ *
+ * Measures the time taken to build a set of indexes, including the slow {@link AxiomsByEntityReferenceIndexImpl},
+ * for a large generated project.  The project has a class hierarchy in which each class has a declaration, a
+ * superclass and a label, and a history in which a proportion of the labels are edited.  The parallel build is
+ * measured against the number of threads in the fork-join pool.  The serial build builds each index on its own
+ * thread, which is what the index updater does when parallel builds are disabled.
+ *
+ * Run with the main method, or via the JMH runner on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx6g"})
+public class ParallelIndexBuilder_Benchmark {
+
+    private static final int CHANGES_PER_REVISION = 100;
+
+    @Param({"200000"})
+    public int classCount;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private final OWLDataFactoryImpl dataFactory = new OWLDataFactoryImpl();
+
+    private final OWLOntologyID ontologyId = new OWLOntologyID(IRI.create("http://example.org/BenchmarkOntology"));
+
+    private ImmutableList<ImmutableList<OntologyChange>> revisions;
+
+    private ForkJoinPool pool;
+
+    private Multimap<Integer, UpdatableIndex> rankedIndexes;
+
+    @Setup(Level.Trial)
+    public void setUpProject() {
+        var changes = new ArrayList<OntologyChange>();
+        for(int i = 0; i < classCount; i++) {
+            var cls = Class(IRI.create("http://example.org/C" + i));
+            var superCls = Class(IRI.create("http://example.org/C" + (i / 10)));
+            changes.add(AddAxiomChange.of(ontologyId, Declaration(cls)));
+            changes.add(AddAxiomChange.of(ontologyId, SubClassOf(cls, superCls)));
+            var label = AnnotationAssertion(RDFSLabel(), cls.getIRI(), Literal("Class " + i));
+            changes.add(AddAxiomChange.of(ontologyId, label));
+            if(i % 5 == 0) {
+                changes.add(RemoveAxiomChange.of(ontologyId, label));
+                changes.add(AddAxiomChange.of(ontologyId, AnnotationAssertion(RDFSLabel(), cls.getIRI(), Literal("Edited class " + i))));
+            }
+        }
+        var revisionsBuilder = ImmutableList.<ImmutableList<OntologyChange>>builder();
+        for(int start = 0; start < changes.size(); start += CHANGES_PER_REVISION) {
+            revisionsBuilder.add(ImmutableList.copyOf(changes.subList(start, Math.min(start + CHANGES_PER_REVISION, changes.size()))));
+        }
+        revisions = revisionsBuilder.build();
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownPool() {
+        pool.shutdown();
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpIndexes() {
+        rankedIndexes = HashMultimap.create();
+        rankedIndexes.put(0, new AxiomsByEntityReferenceIndexImpl(dataFactory));
+        rankedIndexes.put(0, new AxiomsByTypeIndexImpl());
+        rankedIndexes.put(0, new SubClassOfAxiomsBySubClassIndexImpl());
+        rankedIndexes.put(0, new AnnotationAssertionAxiomsBySubjectIndexImpl());
+    }
+
+    @Benchmark
+    public Multimap<Integer, UpdatableIndex> buildInParallel() {
+        new ParallelIndexBuilder(ProjectId.get(UUID.randomUUID().toString()), pool).buildIndexes(rankedIndexes, revisions);
+        return rankedIndexes;
+    }
+
+    @Benchmark
+    public Multimap<Integer, UpdatableIndex> buildSerially() {
+        var builds = rankedIndexes.values()
+                                  .stream()
+                                  .map(index -> CompletableFuture.runAsync(() -> revisions.forEach(index::applyChanges), pool))
+                                  .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(builds).join();
+        return rankedIndexes;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        var options = new OptionsBuilder()
+                .include(ParallelIndexBuilder_Benchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
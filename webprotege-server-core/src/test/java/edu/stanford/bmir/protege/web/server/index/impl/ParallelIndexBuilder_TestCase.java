@@ -0,0 +1,197 @@
+package edu.stanford.bmir.protege.web.server.index.impl;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import edu.stanford.bmir.protege.web.server.change.AddAxiomChange;
+import edu.stanford.bmir.protege.web.server.change.AddOntologyAnnotationChange;
+import edu.stanford.bmir.protege.web.server.change.OntologyChange;
+import edu.stanford.bmir.protege.web.server.change.RemoveAxiomChange;
+import edu.stanford.bmir.protege.web.server.change.RemoveOntologyAnnotationChange;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toSet;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.*;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-10
+ */
+public class ParallelIndexBuilder_TestCase {
+
+    private final OWLOntologyID ontologyId = new OWLOntologyID(IRI.create("http://example.org/OntA"));
+
+    private final OWLDataFactoryImpl dataFactory = new OWLDataFactoryImpl();
+
+    private ForkJoinPool pool;
+
+    private ParallelIndexBuilder builder;
+
+    @Before
+    public void setUp() {
+        pool = new ForkJoinPool(4);
+        builder = new ParallelIndexBuilder(ProjectId.get(UUID.randomUUID().toString()), pool);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private static OWLClass cls(int i) {
+        return Class(IRI.create("http://example.org/C" + i));
+    }
+
+    private List<OntologyChange> getNetAdditions(List<ImmutableList<OntologyChange>> revisions) {
+        var additions = new ArrayList<OntologyChange>();
+        builder.getNetAdditions(ImmutableList.copyOf(revisions)).forEach(additions::addAll);
+        return additions;
+    }
+
+    @Test
+    public void shouldKeepAdditions() {
+        var addA = AddAxiomChange.of(ontologyId, Declaration(cls(1)));
+        var addB = AddAxiomChange.of(ontologyId, Declaration(cls(2)));
+        var additions = getNetAdditions(List.of(ImmutableList.of(addA), ImmutableList.of(addB)));
+        assertThat(additions, containsInAnyOrder(addA, addB));
+    }
+
+    @Test
+    public void shouldDropAxiomThatIsRemovedAfterItIsAdded() {
+        var axiom = Declaration(cls(1));
+        var additions = getNetAdditions(List.of(ImmutableList.of(AddAxiomChange.of(ontologyId, axiom)),
+                                                ImmutableList.of(RemoveAxiomChange.of(ontologyId, axiom))));
+        assertThat(additions, is(empty()));
+    }
+
+    @Test
+    public void shouldKeepAxiomThatIsAddedAgainAfterItIsRemoved() {
+        var axiom = Declaration(cls(1));
+        var reAdd = AddAxiomChange.of(ontologyId, axiom);
+        var additions = getNetAdditions(List.of(ImmutableList.of(AddAxiomChange.of(ontologyId, axiom)),
+                                                ImmutableList.of(RemoveAxiomChange.of(ontologyId, axiom)),
+                                                ImmutableList.of(reAdd)));
+        assertThat(additions, containsInAnyOrder(reAdd));
+    }
+
+    @Test
+    public void shouldTreatSameAxiomInDifferentOntologiesAsDifferentFacts() {
+        var axiom = Declaration(cls(1));
+        var otherOntologyId = new OWLOntologyID(IRI.create("http://example.org/OntB"));
+        var addToOther = AddAxiomChange.of(otherOntologyId, axiom);
+        var additions = getNetAdditions(List.of(ImmutableList.of(AddAxiomChange.of(ontologyId, axiom), addToOther),
+                                                ImmutableList.of(RemoveAxiomChange.of(ontologyId, axiom))));
+        assertThat(additions, containsInAnyOrder(addToOther));
+    }
+
+    @Test
+    public void shouldReduceOntologyAnnotationChanges() {
+        var annotation = Annotation(RDFSComment(), Literal("Comment"));
+        var additions = getNetAdditions(List.of(ImmutableList.of(AddOntologyAnnotationChange.of(ontologyId, annotation)),
+                                                ImmutableList.of(RemoveOntologyAnnotationChange.of(ontologyId, annotation))));
+        assertThat(additions, is(empty()));
+    }
+
+    @Test
+    public void shouldReduceChangesThatSpanManyChunks() {
+        var revisions = new ArrayList<ImmutableList<OntologyChange>>();
+        var expected = new ArrayList<OntologyChange>();
+        for(int i = 0; i < 50_000; i++) {
+            var axiom = Declaration(cls(i));
+            var add = AddAxiomChange.of(ontologyId, axiom);
+            revisions.add(ImmutableList.of(add));
+            if(i % 3 == 0) {
+                revisions.add(ImmutableList.of(RemoveAxiomChange.of(ontologyId, axiom)));
+            }
+            else {
+                expected.add(add);
+            }
+        }
+        assertThat(getNetAdditions(revisions), containsInAnyOrder(expected.toArray()));
+    }
+
+    @Test
+    public void shouldBuildIndexesThatMatchSerialBuild() {
+        var revisions = ImmutableList.<ImmutableList<OntologyChange>>builder();
+        for(int i = 0; i < 1000; i++) {
+            var subClassOf = SubClassOf(cls(i), cls(i / 10));
+            var declaration = Declaration(cls(i));
+            revisions.add(ImmutableList.of(AddAxiomChange.of(ontologyId, declaration),
+                                           AddAxiomChange.of(ontologyId, subClassOf)));
+            if(i % 7 == 0) {
+                revisions.add(ImmutableList.of(RemoveAxiomChange.of(ontologyId, subClassOf)));
+            }
+        }
+        var parallelReferenceIndex = new AxiomsByEntityReferenceIndexImpl(dataFactory);
+        var parallelTypeIndex = new AxiomsByTypeIndexImpl();
+        var rankedIndexes = HashMultimap.<Integer, UpdatableIndex>create();
+        rankedIndexes.put(0, parallelReferenceIndex);
+        rankedIndexes.put(0, parallelTypeIndex);
+        builder.buildIndexes(rankedIndexes, revisions.build());
+
+        var serialReferenceIndex = new AxiomsByEntityReferenceIndexImpl(dataFactory);
+        var serialTypeIndex = new AxiomsByTypeIndexImpl();
+        revisions.build().forEach(serialReferenceIndex::applyChanges);
+        revisions.build().forEach(serialTypeIndex::applyChanges);
+
+        for(int i = 0; i < 1000; i++) {
+            assertThat(parallelReferenceIndex.getReferencingAxioms(cls(i), ontologyId).collect(toSet()),
+                       is(serialReferenceIndex.getReferencingAxioms(cls(i), ontologyId).collect(toSet())));
+        }
+        assertThat(parallelTypeIndex.getAxiomsByType(AxiomType.SUBCLASS_OF, ontologyId).collect(toSet()),
+                   is(serialTypeIndex.getAxiomsByType(AxiomType.SUBCLASS_OF, ontologyId).collect(toSet())));
+    }
+
+    @Test
+    public void shouldBuildIndexesFromWorkerOfPool() throws Exception {
+        var singleThreadPool = new ForkJoinPool(1);
+        try {
+            var singleThreadBuilder = new ParallelIndexBuilder(ProjectId.get(UUID.randomUUID().toString()), singleThreadPool);
+            var index = new AxiomsByTypeIndexImpl();
+            var rankedIndexes = HashMultimap.<Integer, UpdatableIndex>create();
+            rankedIndexes.put(0, index);
+            var axiom = SubClassOf(cls(1), cls(2));
+            var revisions = ImmutableList.of(ImmutableList.<OntologyChange>of(AddAxiomChange.of(ontologyId, axiom)));
+            // The only worker of the pool builds the indexes, so it must not block waiting for other workers
+            singleThreadPool.submit(() -> singleThreadBuilder.buildIndexes(rankedIndexes, revisions))
+                            .get(10, TimeUnit.SECONDS);
+            assertThat(index.getAxiomsByType(AxiomType.SUBCLASS_OF, ontologyId).collect(toSet()),
+                       containsInAnyOrder(axiom));
+        } finally {
+            singleThreadPool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldMergeShards() {
+        var index = new AxiomsByEntityReferenceIndexImpl(dataFactory);
+        var shardA = index.createShard();
+        var shardB = index.createShard();
+        OWLAxiom axiomA = SubClassOf(cls(1), cls(2));
+        OWLAxiom axiomB = SubClassOf(cls(1), cls(3));
+        shardA.applyChanges(ImmutableList.of(AddAxiomChange.of(ontologyId, axiomA)));
+        shardB.applyChanges(ImmutableList.of(AddAxiomChange.of(ontologyId, axiomB)));
+        index.mergeShards(List.of(shardA, shardB));
+        assertThat(index.getReferencingAxioms(cls(1), ontologyId).collect(toSet()),
+                   containsInAnyOrder(axiomA, axiomB));
+    }
+}
@@ -0,0 +1,170 @@
+package edu.stanford.bmir.protege.web.server.index.impl;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.bmir.protege.web.server.change.AddAxiomChange;
+import edu.stanford.bmir.protege.web.server.change.AddImportChange;
+import edu.stanford.bmir.protege.web.server.change.AddOntologyAnnotationChange;
+import edu.stanford.bmir.protege.web.server.change.OntologyChangeRecordTranslatorImpl;
+import edu.stanford.bmir.protege.web.server.index.OntologyAnnotationsIndex;
+import edu.stanford.bmir.protege.web.server.index.OntologyAxiomsIndex;
+import edu.stanford.bmir.protege.web.server.index.OntologyImportsIndex;
+import edu.stanford.bmir.protege.web.server.inject.IndexSnapshotFileFactory;
+import edu.stanford.bmir.protege.web.server.revision.OntologySnapshotSerializer;
+import edu.stanford.bmir.protege.web.server.revision.Revision;
+import edu.stanford.bmir.protege.web.server.revision.RevisionManager;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import edu.stanford.bmir.protege.web.shared.user.UserId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.semanticweb.owlapi.model.*;
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.*;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-11-02
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class RootIndexSnapshotManager_TestCase {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private RootIndexSnapshotManager manager;
+
+    @Mock
+    private IndexSnapshotFileFactory indexSnapshotFileFactory;
+
+    @Mock
+    private ProjectOntologiesIndexImpl projectOntologiesIndex;
+
+    @Mock
+    private OntologyAxiomsIndex ontologyAxiomsIndex;
+
+    @Mock
+    private OntologyAnnotationsIndex ontologyAnnotationsIndex;
+
+    @Mock
+    private OntologyImportsIndex ontologyImportsIndex;
+
+    @Mock
+    private RevisionManager revisionManager;
+
+    private File snapshotFile;
+
+    private OWLOntologyID ontologyId;
+
+    private OWLAxiom axiom;
+
+    private OWLAnnotation annotation;
+
+    private OWLImportsDeclaration importsDeclaration;
+
+    private Revision revision;
+
+    @Before
+    public void setUp() throws IOException {
+        var projectId = ProjectId.get(UUID.randomUUID().toString());
+        snapshotFile = new File(temporaryFolder.newFolder(), "snapshot.binary");
+        when(indexSnapshotFileFactory.getRootIndexSnapshotFile(projectId))
+                .thenReturn(snapshotFile);
+        ontologyId = new OWLOntologyID(IRI.create("http://example.org/OntA"));
+        axiom = SubClassOf(Class(IRI.create("http://example.org/A")), Class(IRI.create("http://example.org/B")));
+        annotation = Annotation(RDFSComment(), Literal("Comment"));
+        importsDeclaration = ImportsDeclaration(IRI.create("http://example.org/OntB"));
+        when(projectOntologiesIndex.getOntologyIds())
+                .thenAnswer(invocation -> Stream.of(ontologyId));
+        when(ontologyAxiomsIndex.getAxioms(ontologyId))
+                .thenAnswer(invocation -> Stream.of(axiom));
+        when(ontologyAnnotationsIndex.getOntologyAnnotations(ontologyId))
+                .thenAnswer(invocation -> Stream.of(annotation));
+        when(ontologyImportsIndex.getOntologyIds())
+                .thenAnswer(invocation -> Stream.of(ontologyId));
+        when(ontologyImportsIndex.getImportsDeclarations(ontologyId))
+                .thenAnswer(invocation -> Stream.of(importsDeclaration));
+        var serializer = new OntologySnapshotSerializer(new OWLDataFactoryImpl(),
+                                                        new OntologyChangeRecordTranslatorImpl());
+        manager = new RootIndexSnapshotManager(projectId,
+                                               indexSnapshotFileFactory,
+                                               serializer,
+                                               projectOntologiesIndex,
+                                               ontologyAxiomsIndex,
+                                               ontologyAnnotationsIndex,
+                                               ontologyImportsIndex);
+        revision = createRevision(5, 500L);
+        when(revisionManager.getCurrentRevision())
+                .thenReturn(RevisionNumber.getRevisionNumber(10));
+        when(revisionManager.getRevision(revision.getRevisionNumber()))
+                .thenReturn(Optional.of(revision));
+    }
+
+    @Test
+    public void shouldReturnEmptyIfThereIsNoSnapshot() {
+        var snapshot = manager.loadSnapshot(revisionManager);
+        assertThat(snapshot.isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldSaveAndLoadSnapshot() {
+        manager.saveSnapshot(revision);
+        var snapshot = manager.loadSnapshot(revisionManager);
+        assertThat(snapshot.isPresent(), is(true));
+        assertThat(snapshot.get().getRevisionNumber(), is(revision.getRevisionNumber()));
+        assertThat(snapshot.get().getChanges(), containsInAnyOrder(AddAxiomChange.of(ontologyId, axiom),
+                                                                   AddOntologyAnnotationChange.of(ontologyId, annotation),
+                                                                   AddImportChange.of(ontologyId, importsDeclaration)));
+    }
+
+    @Test
+    public void shouldReturnEmptyIfSnapshotIsBeyondHeadRevision() {
+        manager.saveSnapshot(revision);
+        when(revisionManager.getCurrentRevision())
+                .thenReturn(RevisionNumber.getRevisionNumber(4));
+        var snapshot = manager.loadSnapshot(revisionManager);
+        assertThat(snapshot.isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldReturnEmptyIfSnapshotDoesNotMatchRevision() {
+        manager.saveSnapshot(revision);
+        when(revisionManager.getRevision(revision.getRevisionNumber()))
+                .thenReturn(Optional.of(createRevision(5, 999L)));
+        var snapshot = manager.loadSnapshot(revisionManager);
+        assertThat(snapshot.isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldReturnEmptyAndDeleteCorruptSnapshot() throws IOException {
+        Files.write(snapshotFile.toPath(), new byte[]{1, 2, 3, 4});
+        var snapshot = manager.loadSnapshot(revisionManager);
+        assertThat(snapshot.isEmpty(), is(true));
+        assertThat(snapshotFile.exists(), is(false));
+    }
+
+    private static Revision createRevision(long revisionNumber, long timestamp) {
+        return new Revision(UserId.getGuest(),
+                            RevisionNumber.getRevisionNumber(revisionNumber),
+                            ImmutableList.of(),
+                            timestamp,
+                            "");
+    }
+}
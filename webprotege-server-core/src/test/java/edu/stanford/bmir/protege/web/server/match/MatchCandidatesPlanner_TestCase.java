@@ -0,0 +1,210 @@
+package edu.stanford.bmir.protege.web.server.match;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import edu.stanford.bmir.protege.web.server.hierarchy.ClassHierarchyProvider;
+import edu.stanford.bmir.protege.web.server.index.*;
+import edu.stanford.bmir.protege.web.shared.match.AnnotationPresence;
+import edu.stanford.bmir.protege.web.shared.match.criteria.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.semanticweb.owlapi.model.*;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.*;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class MatchCandidatesPlanner_TestCase {
+
+    private final OWLOntologyID ontologyId = new OWLOntologyID(IRI.create("http://example.org/ontology"));
+
+    private final OWLClass clsA = Class(IRI.create("http://example.org/A"));
+
+    private final OWLClass clsB = Class(IRI.create("http://example.org/B"));
+
+    private final OWLClass clsC = Class(IRI.create("http://example.org/C"));
+
+    private final OWLNamedIndividual individual = NamedIndividual(IRI.create("http://example.org/i"));
+
+    private final IRI valueIri = IRI.create("http://example.org/value");
+
+    private final OWLAnnotationProperty property = AnnotationProperty(IRI.create("http://example.org/property"));
+
+    @Mock
+    private ProjectOntologiesIndex projectOntologiesIndex;
+
+    @Mock
+    private EntitiesInProjectSignatureIndex entitiesInProjectSignatureIndex;
+
+    @Mock
+    private EntitiesInProjectSignatureByIriIndex entitiesInProjectSignatureByIriIndex;
+
+    @Mock
+    private AxiomsByEntityReferenceIndex axiomsByEntityReferenceIndex;
+
+    @Mock
+    private AnnotationAssertionAxiomsByValueIndex annotationAssertionAxiomsByValueIndex;
+
+    @Mock
+    private ClassAssertionAxiomsByClassIndex classAssertionAxiomsByClassIndex;
+
+    @Mock
+    private ClassHierarchyProvider classHierarchyProvider;
+
+    private MatchCandidatesPlanner planner;
+
+    @Before
+    public void setUp() {
+        when(projectOntologiesIndex.getOntologyIds()).thenAnswer(invocation -> Stream.of(ontologyId));
+        when(entitiesInProjectSignatureByIriIndex.getEntitiesInSignature(any())).thenAnswer(invocation -> Stream.empty());
+        when(entitiesInProjectSignatureByIriIndex.getEntitiesInSignature(clsA.getIRI())).thenAnswer(invocation -> Stream.of(clsA));
+        when(entitiesInProjectSignatureByIriIndex.getEntitiesInSignature(clsB.getIRI())).thenAnswer(invocation -> Stream.of(clsB));
+        when(classHierarchyProvider.getChildren(clsA)).thenReturn(Set.of(clsB));
+        when(classHierarchyProvider.getDescendants(clsA)).thenReturn(Set.of(clsB, clsC));
+        planner = new MatchCandidatesPlanner(projectOntologiesIndex,
+                                             entitiesInProjectSignatureIndex,
+                                             entitiesInProjectSignatureByIriIndex,
+                                             axiomsByEntityReferenceIndex,
+                                             annotationAssertionAxiomsByValueIndex,
+                                             classAssertionAxiomsByClassIndex,
+                                             classHierarchyProvider);
+    }
+
+    private static RootCriteria allOf(RootCriteria... criteria) {
+        return CompositeRootCriteria.get(ImmutableList.copyOf(criteria), MultiMatchType.ALL);
+    }
+
+    private static RootCriteria anyOf(RootCriteria... criteria) {
+        return CompositeRootCriteria.get(ImmutableList.copyOf(criteria), MultiMatchType.ANY);
+    }
+
+    private static RootCriteria notPlannable() {
+        return EntityTypeIsOneOfCriteria.get(ImmutableSet.of(EntityType.CLASS));
+    }
+
+    @Test
+    public void shouldPlanEntityInSignature() {
+        when(entitiesInProjectSignatureIndex.containsEntityInSignature(clsA)).thenReturn(true);
+        var candidates = planner.getCandidates(EntityIsCriteria.get(clsA));
+        assertThat(candidates, is(Optional.of(Set.of(clsA))));
+    }
+
+    @Test
+    public void shouldPlanNoCandidatesForEntityNotInSignature() {
+        var candidates = planner.getCandidates(EntityIsCriteria.get(clsA));
+        assertThat(candidates, is(Optional.of(Set.of())));
+    }
+
+    @Test
+    public void shouldPlanDirectSubClassesFromChildren() {
+        var candidates = planner.getCandidates(SubClassOfCriteria.get(clsA, HierarchyFilterType.DIRECT));
+        assertThat(candidates, is(Optional.of(Set.of(clsB))));
+    }
+
+    @Test
+    public void shouldPlanSubClassesFromDescendants() {
+        var candidates = planner.getCandidates(SubClassOfCriteria.get(clsA, HierarchyFilterType.ALL));
+        assertThat(candidates, is(Optional.of(Set.of(clsB, clsC))));
+    }
+
+    @Test
+    public void shouldNotPlanSubClassesOfOwlThing() {
+        var candidates = planner.getCandidates(SubClassOfCriteria.get(OWLThing(), HierarchyFilterType.ALL));
+        assertThat(candidates, is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldPlanInstancesFromClassAssertions() {
+        when(classAssertionAxiomsByClassIndex.getClassAssertionAxioms(clsB, ontologyId))
+                .thenAnswer(invocation -> Stream.of(ClassAssertion(clsB, individual)));
+        when(classAssertionAxiomsByClassIndex.getClassAssertionAxioms(clsA, ontologyId))
+                .thenAnswer(invocation -> Stream.empty());
+        when(classAssertionAxiomsByClassIndex.getClassAssertionAxioms(clsC, ontologyId))
+                .thenAnswer(invocation -> Stream.empty());
+        assertThat(planner.getCandidates(InstanceOfCriteria.get(clsA, HierarchyFilterType.ALL)),
+                   is(Optional.of(Set.of(individual))));
+        assertThat(planner.getCandidates(InstanceOfCriteria.get(clsA, HierarchyFilterType.DIRECT)),
+                   is(Optional.of(Set.of())));
+    }
+
+    @Test
+    public void shouldPlanDeprecatedEntitiesFromDeprecationAnnotations() {
+        var deprecated = AnnotationProperty(IRI.create("http://www.w3.org/2002/07/owl#deprecated"));
+        when(axiomsByEntityReferenceIndex.getReferencingAxioms(deprecated, ontologyId))
+                .thenAnswer(invocation -> Stream.of(AnnotationAssertion(deprecated, clsA.getIRI(), Literal(true)),
+                                                    Declaration(deprecated)));
+        var candidates = planner.getCandidates(EntityIsDeprecatedCriteria.get());
+        assertThat(candidates, is(Optional.of(Set.of(clsA))));
+    }
+
+    @Test
+    public void shouldPlanAnnotationValueFromValueIndex() {
+        when(annotationAssertionAxiomsByValueIndex.getAxiomsByValue(valueIri, ontologyId))
+                .thenAnswer(invocation -> Stream.of(AnnotationAssertion(property, clsB.getIRI(), valueIri)));
+        var candidates = planner.getCandidates(EntityAnnotationCriteria.get(AnyAnnotationPropertyCriteria.get(),
+                                                                            IriEqualsCriteria.get(valueIri)));
+        assertThat(candidates, is(Optional.of(Set.of(clsB))));
+    }
+
+    @Test
+    public void shouldPlanAnnotationPropertyFromReferencingAxioms() {
+        var otherProperty = AnnotationProperty(IRI.create("http://example.org/otherProperty"));
+        when(axiomsByEntityReferenceIndex.getReferencingAxioms(property, ontologyId))
+                .thenAnswer(invocation -> Stream.of(AnnotationAssertion(property, clsA.getIRI(), Literal("A")),
+                                                    AnnotationAssertion(otherProperty, clsB.getIRI(), property.getIRI())));
+        var candidates = planner.getCandidates(EntityAnnotationCriteria.get(IriEqualsCriteria.get(property),
+                                                                            AnyAnnotationValueCriteria.get()));
+        assertThat(candidates, is(Optional.of(Set.of(clsA))));
+    }
+
+    @Test
+    public void shouldNotPlanAbsentAnnotations() {
+        var criteria = EntityAnnotationCriteria.get(AnnotationComponentsCriteria.get(IriEqualsCriteria.get(property),
+                                                                                     AnyAnnotationValueCriteria.get()),
+                                                    AnnotationPresence.AT_MOST_ONE);
+        assertThat(planner.getCandidates(criteria), is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldIntersectPlannedCandidatesOfAllCriteria() {
+        var candidates = planner.getCandidates(allOf(SubClassOfCriteria.get(clsA, HierarchyFilterType.ALL),
+                                                     notPlannable(),
+                                                     SubClassOfCriteria.get(clsA, HierarchyFilterType.DIRECT)));
+        assertThat(candidates, is(Optional.of(Set.of(clsB))));
+    }
+
+    @Test
+    public void shouldNotPlanAllCriteriaIfNoneArePlannable() {
+        assertThat(planner.getCandidates(allOf(notPlannable())), is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldUnionPlannedCandidatesOfAnyCriteria() {
+        when(entitiesInProjectSignatureIndex.containsEntityInSignature(clsA)).thenReturn(true);
+        var candidates = planner.getCandidates(anyOf(EntityIsCriteria.get(clsA),
+                                                     SubClassOfCriteria.get(clsA, HierarchyFilterType.DIRECT)));
+        assertThat(candidates, is(Optional.of(Set.of(clsA, clsB))));
+    }
+
+    @Test
+    public void shouldNotPlanAnyCriteriaIfOneIsNotPlannable() {
+        var candidates = planner.getCandidates(anyOf(SubClassOfCriteria.get(clsA, HierarchyFilterType.DIRECT),
+                                                     notPlannable()));
+        assertThat(candidates, is(Optional.empty()));
+    }
+}
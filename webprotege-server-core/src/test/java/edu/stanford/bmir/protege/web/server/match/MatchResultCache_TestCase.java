@@ -0,0 +1,171 @@
+package edu.stanford.bmir.protege.web.server.match;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import edu.stanford.bmir.protege.web.server.change.AddAxiomChange;
+import edu.stanford.bmir.protege.web.server.change.AddOntologyAnnotationChange;
+import edu.stanford.bmir.protege.web.server.change.OntologyChange;
+import edu.stanford.bmir.protege.web.server.index.EntitiesInProjectSignatureByIriIndex;
+import edu.stanford.bmir.protege.web.server.revision.Revision;
+import edu.stanford.bmir.protege.web.shared.match.criteria.EntityIsDeprecatedCriteria;
+import edu.stanford.bmir.protege.web.shared.match.criteria.HierarchyFilterType;
+import edu.stanford.bmir.protege.web.shared.match.criteria.RootCriteria;
+import edu.stanford.bmir.protege.web.shared.match.criteria.SubClassOfCriteria;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import edu.stanford.bmir.protege.web.shared.user.UserId;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.semanticweb.owlapi.model.*;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.*;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class MatchResultCache_TestCase {
+
+    private final OWLOntologyID ontologyId = new OWLOntologyID(IRI.create("http://example.org/ontology"));
+
+    private final OWLClass clsA = Class(IRI.create("http://example.org/A"));
+
+    private final OWLClass clsB = Class(IRI.create("http://example.org/B"));
+
+    private final OWLAnnotationProperty deprecated = AnnotationProperty(IRI.create("http://www.w3.org/2002/07/owl#deprecated"));
+
+    private final ImmutableList<RootCriteria> localCriteria = ImmutableList.of(EntityIsDeprecatedCriteria.get());
+
+    private final ImmutableList<RootCriteria> hierarchyCriteria = ImmutableList.of(SubClassOfCriteria.get(clsA, HierarchyFilterType.ALL));
+
+    private final RevisionNumber revisionOne = RevisionNumber.getRevisionNumber(1);
+
+    private final RevisionNumber revisionTwo = RevisionNumber.getRevisionNumber(2);
+
+    private final Set<OWLEntity> deprecatedEntities = new HashSet<>();
+
+    @Mock
+    private MatcherFactory matcherFactory;
+
+    @Mock
+    private EntitiesInProjectSignatureByIriIndex entitiesInProjectSignatureByIriIndex;
+
+    private MatchResultCache cache;
+
+    @Before
+    public void setUp() {
+        when(matcherFactory.getMatcher(any(RootCriteria.class))).thenReturn(deprecatedEntities::contains);
+        when(entitiesInProjectSignatureByIriIndex.getEntitiesInSignature(any())).thenAnswer(invocation -> Stream.empty());
+        when(entitiesInProjectSignatureByIriIndex.getEntitiesInSignature(clsA.getIRI())).thenAnswer(invocation -> Stream.of(clsA));
+        when(entitiesInProjectSignatureByIriIndex.getEntitiesInSignature(clsB.getIRI())).thenAnswer(invocation -> Stream.of(clsB));
+        cache = new MatchResultCache(matcherFactory, entitiesInProjectSignatureByIriIndex);
+    }
+
+    private Revision revisionTwo(OntologyChange change) {
+        return new Revision(UserId.getGuest(), revisionTwo, ImmutableList.of(change), 0L, "");
+    }
+
+    private OntologyChange deprecate(OWLEntity entity) {
+        deprecatedEntities.add(entity);
+        return AddAxiomChange.of(ontologyId, AnnotationAssertion(deprecated, entity.getIRI(), Literal(true)));
+    }
+
+    @Test
+    public void shouldGetMatchesForRevision() {
+        cache.put(localCriteria, revisionOne, ImmutableSet.of(clsA));
+        assertThat(cache.get(localCriteria, revisionOne), is(Optional.of(ImmutableSet.of(clsA))));
+    }
+
+    @Test
+    public void shouldNotGetMatchesForOtherRevision() {
+        cache.put(localCriteria, revisionOne, ImmutableSet.of(clsA));
+        assertThat(cache.get(localCriteria, revisionTwo), is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldAddTouchedEntitiesThatMatch() {
+        deprecatedEntities.add(clsA);
+        cache.put(localCriteria, revisionOne, ImmutableSet.of(clsA));
+        cache.handleRevision(revisionTwo(deprecate(clsB)));
+        assertThat(cache.get(localCriteria, revisionTwo), is(Optional.of(ImmutableSet.of(clsA, clsB))));
+    }
+
+    @Test
+    public void shouldRemoveTouchedEntitiesThatNoLongerMatch() {
+        cache.put(localCriteria, revisionOne, ImmutableSet.of(clsA, clsB));
+        var change = AddAxiomChange.of(ontologyId, Declaration(clsB));
+        deprecatedEntities.add(clsA);
+        cache.handleRevision(revisionTwo(change));
+        assertThat(cache.get(localCriteria, revisionTwo), is(Optional.of(ImmutableSet.of(clsA))));
+    }
+
+    @Test
+    public void shouldDiscardMatchesForHierarchyCriteria() {
+        cache.put(hierarchyCriteria, revisionOne, ImmutableSet.of(clsB));
+        cache.handleRevision(revisionTwo(deprecate(clsB)));
+        assertThat(cache.get(hierarchyCriteria, revisionOne), is(Optional.empty()));
+        assertThat(cache.get(hierarchyCriteria, revisionTwo), is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldDiscardMatchesThatAreNotForPreviousRevision() {
+        cache.put(localCriteria, RevisionNumber.getRevisionNumber(0), ImmutableSet.of(clsA));
+        cache.handleRevision(revisionTwo(deprecate(clsB)));
+        assertThat(cache.get(localCriteria, revisionTwo), is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldNotEvaluateCriteriaWhenRevisionIsCommitted() {
+        cache.put(localCriteria, revisionOne, ImmutableSet.of(clsA));
+        cache.handleRevision(revisionTwo(deprecate(clsB)));
+        verify(matcherFactory, never()).getMatcher(any());
+        verify(entitiesInProjectSignatureByIriIndex, never()).getEntitiesInSignature(any());
+    }
+
+    @Test
+    public void shouldBringMatchesUpToDateWithSeveralRevisions() {
+        cache.put(localCriteria, revisionOne, ImmutableSet.of(clsA));
+        cache.handleRevision(revisionTwo(deprecate(clsB)));
+        var revisionThree = RevisionNumber.getRevisionNumber(3);
+        deprecatedEntities.remove(clsA);
+        var change = AddAxiomChange.of(ontologyId, Declaration(clsA));
+        cache.handleRevision(new Revision(UserId.getGuest(), revisionThree, ImmutableList.of(change), 0L, ""));
+        assertThat(cache.get(localCriteria, revisionThree), is(Optional.of(ImmutableSet.of(clsB))));
+        verify(matcherFactory, times(1)).getMatcher(any());
+    }
+
+    @Test
+    public void shouldNotGetMatchesForEarlierRevisionAfterRevisionIsCommitted() {
+        cache.put(localCriteria, revisionOne, ImmutableSet.of(clsA));
+        cache.handleRevision(revisionTwo(deprecate(clsB)));
+        assertThat(cache.get(localCriteria, revisionOne), is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldDiscardMatchesCachedForRevisionBeforeUnrecordedRevision() {
+        cache.handleRevision(revisionTwo(deprecate(clsB)));
+        cache.put(localCriteria, revisionOne, ImmutableSet.of(clsA));
+        assertThat(cache.get(localCriteria, revisionTwo), is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldDiscardMatchesForNonAxiomChanges() {
+        cache.put(localCriteria, revisionOne, ImmutableSet.of(clsA));
+        var change = AddOntologyAnnotationChange.of(ontologyId, Annotation(deprecated, Literal(true)));
+        cache.handleRevision(revisionTwo(change));
+        assertThat(cache.get(localCriteria, revisionTwo), is(Optional.empty()));
+    }
+}
@@ -4,7 +4,9 @@ package edu.stanford.bmir.protege.web.server.owlapi.change;
 import com.google.common.collect.ImmutableList;
 import edu.stanford.bmir.protege.web.server.change.AddAxiomChange;
 import edu.stanford.bmir.protege.web.server.change.OntologyChange;
+import edu.stanford.bmir.protege.web.server.revision.HeadRevisionOntologyManagerFactory;
 import edu.stanford.bmir.protege.web.server.revision.Revision;
+import edu.stanford.bmir.protege.web.server.revision.RevisionCheckpointManager;
 import edu.stanford.bmir.protege.web.server.revision.RevisionManagerImpl;
 import edu.stanford.bmir.protege.web.server.revision.RevisionStore;
 import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
@@ -20,6 +22,7 @@ import org.semanticweb.owlapi.change.AddAxiomData;
 import org.semanticweb.owlapi.change.OWLOntologyChangeRecord;
 import org.semanticweb.owlapi.model.OWLAxiom;
 import org.semanticweb.owlapi.model.OWLOntologyID;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -43,6 +46,12 @@ public class RevisionManagerImpl_TestCase {
     @Mock
     private RevisionStore revisionStore;
 
+    @Mock
+    private RevisionCheckpointManager checkpointManager;
+
+    @Mock
+    private HeadRevisionOntologyManagerFactory headRevisionOntologyManagerFactory;
+
     @Mock
     private UserId userId;
 
@@ -57,7 +66,7 @@ public class RevisionManagerImpl_TestCase {
 
     @Before
     public void setUp() throws Exception {
-        manager = new RevisionManagerImpl(revisionStore);
+        manager = new RevisionManagerImpl(revisionStore, checkpointManager, () -> headRevisionOntologyManagerFactory);
         when(revisionStore.getCurrentRevisionNumber()).thenReturn(revisionNumber);
         when(revisionStore.getRevision(revisionNumber)).thenReturn(java.util.Optional.of(revision));
         when(revisionStore.getRevisions()).thenReturn(ImmutableList.of(revision));
@@ -71,7 +80,7 @@ public class RevisionManagerImpl_TestCase {
 
     @Test(expected = NullPointerException.class)
     public void shouldThrowNullPointerExceptionIf_revisionStore_IsNull() {
-        new RevisionManagerImpl(null);
+        new RevisionManagerImpl(null, checkpointManager, () -> headRevisionOntologyManagerFactory);
     }
 
     @Test
@@ -142,4 +151,12 @@ public class RevisionManagerImpl_TestCase {
         assertThat(addedRevision.getHighLevelDescription(), is(HIGHLEVEL_DESC));
         assertThat(addedRevision.getRevisionNumber(), is(nextRevisionNumber));
     }
+
+    @Test
+    public void shouldCreateHeadRevisionFromProjectIndexes() throws Exception {
+        OWLOntologyManager ontologyManager = mock(OWLOntologyManager.class);
+        when(headRevisionOntologyManagerFactory.createOntologyManager()).thenReturn(ontologyManager);
+        assertThat(manager.getOntologyManagerForRevision(RevisionNumber.getHeadRevisionNumber()), is(ontologyManager));
+        verify(checkpointManager, never()).getNearestCheckpoint(any());
+    }
 }
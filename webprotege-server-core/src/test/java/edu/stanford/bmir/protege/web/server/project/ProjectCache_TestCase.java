@@ -0,0 +1,337 @@
+package edu.stanford.bmir.protege.web.server.project;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import edu.stanford.bmir.protege.web.server.dispatch.impl.ProjectActionHandlerRegistry;
+import edu.stanford.bmir.protege.web.server.events.ProjectEventStreamManager;
+import edu.stanford.bmir.protege.web.server.inject.ChangeHistoryFileFactory;
+import edu.stanford.bmir.protege.web.server.inject.ProjectComponent;
+import edu.stanford.bmir.protege.web.server.revision.RevisionManager;
+import edu.stanford.bmir.protege.web.server.upload.DocumentResolver;
+import edu.stanford.bmir.protege.web.server.upload.UploadedOntologiesProcessor;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.project.ProjectLoadingException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class ProjectCache_TestCase {
+
+    private static final long DORMANT_PROJECT_TIME = 60_000;
+
+    private final ProjectId projectId = getProjectId();
+
+    @Mock
+    private ProjectComponentFactory projectComponentFactory;
+
+    @Mock
+    private UploadedOntologiesProcessor uploadedOntologiesProcessor;
+
+    @Mock
+    private DocumentResolver documentResolver;
+
+    @Mock
+    private ChangeHistoryFileFactory changeHistoryFileFactory;
+
+    private ProjectImporterFactory projectImporterFactory;
+
+    @Mock
+    private ExecutorService projectLoaderExecutor;
+
+    @Mock
+    private ProjectComponent projectComponent;
+
+    @Mock
+    private ProjectActionHandlerRegistry actionHandlerRegistry;
+
+    @Mock
+    private RevisionManager revisionManager;
+
+    @Mock
+    private ProjectHeapFootprintEstimator heapFootprintEstimator;
+
+    @Mock
+    private ProjectEventStreamManager projectEventStreamManager;
+
+    private ProjectCache projectCache;
+
+    private static ProjectId getProjectId() {
+        return ProjectId.get(UUID.randomUUID().toString());
+    }
+
+    @Before
+    public void setUp() {
+        when(projectComponent.getProjectId()).thenReturn(projectId);
+        when(projectComponent.getActionHandlerRegistry()).thenReturn(actionHandlerRegistry);
+        when(projectComponent.getRevisionManager()).thenReturn(revisionManager);
+        when(projectComponent.getHeapFootprintEstimator()).thenReturn(heapFootprintEstimator);
+        when(heapFootprintEstimator.estimateHeapFootprint()).thenReturn(ProjectHeapFootprint.get(projectId, 0, 0, 0, 0));
+        when(projectComponentFactory.createProjectComponent(any())).thenReturn(projectComponent);
+        projectImporterFactory = new ProjectImporterFactory(() -> uploadedOntologiesProcessor,
+                                                            () -> documentResolver,
+                                                            () -> changeHistoryFileFactory,
+                                                            () -> 1);
+        projectCache = new ProjectCache(projectComponentFactory,
+                                        projectImporterFactory,
+                                        DORMANT_PROJECT_TIME,
+                                        projectLoaderExecutor,
+                                        0,
+                                        0,
+                                        projectEventStreamManager);
+    }
+
+    private void runScheduledLoads() {
+        var captor = ArgumentCaptor.forClass(Runnable.class);
+        verify(projectLoaderExecutor, atLeastOnce()).execute(captor.capture());
+        captor.getAllValues().forEach(Runnable::run);
+    }
+
+    private void assertProjectIsLoading() {
+        try {
+            projectCache.getActionHandlerRegistry(projectId);
+            fail("Expected ProjectLoadingException");
+        } catch (ProjectLoadingException e) {
+            assertThat(e.getProjectId(), is(projectId));
+        }
+    }
+
+    @Test
+    public void shouldThrowProjectLoadingExceptionWhileProjectIsLoading() {
+        assertProjectIsLoading();
+        verifyZeroInteractions(projectComponentFactory);
+    }
+
+    @Test
+    public void shouldReturnActionHandlerRegistryOnceProjectIsLoaded() {
+        assertProjectIsLoading();
+        runScheduledLoads();
+        assertThat(projectCache.getActionHandlerRegistry(projectId), is(actionHandlerRegistry));
+        verify(projectComponent).init();
+        assertThat(projectCache.isActive(projectId), is(true));
+    }
+
+    @Test
+    public void shouldLoadProjectOnceForConcurrentRequests() {
+        assertProjectIsLoading();
+        assertProjectIsLoading();
+        runScheduledLoads();
+        projectCache.getActionHandlerRegistry(projectId);
+        verify(projectComponentFactory, times(1)).createProjectComponent(projectId);
+    }
+
+    @Test
+    public void shouldReportLoadFailureAndThenStartNewLoad() {
+        var failure = new RuntimeException("Load failed");
+        when(projectComponentFactory.createProjectComponent(projectId)).thenThrow(failure);
+        assertProjectIsLoading();
+        runScheduledLoads();
+        try {
+            projectCache.getActionHandlerRegistry(projectId);
+            fail("Expected load failure");
+        } catch (RuntimeException e) {
+            assertThat(e, is(sameInstance(failure)));
+        }
+        assertProjectIsLoading();
+        verify(projectLoaderExecutor, times(2)).execute(any());
+    }
+
+    @Test
+    public void shouldLoadPrewarmedProjectsInBackground() {
+        var otherProjectId = getProjectId();
+        projectCache.prewarm(List.of(projectId, otherProjectId));
+        verifyZeroInteractions(projectComponentFactory);
+        runScheduledLoads();
+        verify(projectComponentFactory).createProjectComponent(projectId);
+        verify(projectComponentFactory).createProjectComponent(otherProjectId);
+        assertThat(projectCache.isActive(projectId), is(true));
+        assertThat(projectCache.isActive(otherProjectId), is(true));
+    }
+
+    @Test
+    public void shouldNotPurgePrewarmedProjectsBeforeTheyAreAccessed() throws Exception {
+        when(projectComponent.getDisposablesManager()).thenReturn(mock(ProjectDisposablesManager.class));
+        projectCache = new ProjectCache(projectComponentFactory,
+                                        projectImporterFactory,
+                                        0,
+                                        MoreExecutors.newDirectExecutorService(),
+                                        0,
+                                        0,
+                                        projectEventStreamManager);
+        projectCache.prewarm(List.of(projectId));
+        Thread.sleep(10);
+        projectCache.purgeDormantProjects();
+        assertThat(projectCache.isActive(projectId), is(true));
+        projectCache.getRevisionManager(projectId);
+        Thread.sleep(10);
+        projectCache.purgeDormantProjects();
+        assertThat(projectCache.isActive(projectId), is(false));
+    }
+
+    @Test
+    public void shouldNotPurgeProjectsWithOpenEventStreams() throws Exception {
+        when(projectComponent.getDisposablesManager()).thenReturn(mock(ProjectDisposablesManager.class));
+        projectCache = new ProjectCache(projectComponentFactory,
+                                        projectImporterFactory,
+                                        0,
+                                        MoreExecutors.newDirectExecutorService(),
+                                        0,
+                                        0,
+                                        projectEventStreamManager);
+        projectCache.getRevisionManager(projectId);
+        when(projectEventStreamManager.hasOpenStreams(projectId)).thenReturn(true);
+        Thread.sleep(10);
+        projectCache.purgeDormantProjects();
+        assertThat(projectCache.isActive(projectId), is(true));
+        when(projectEventStreamManager.hasOpenStreams(projectId)).thenReturn(false);
+        Thread.sleep(10);
+        projectCache.purgeDormantProjects();
+        assertThat(projectCache.isActive(projectId), is(false));
+    }
+
+    @Test
+    public void shouldWaitForLazyLoadOfProject() {
+        projectCache = new ProjectCache(projectComponentFactory,
+                                        projectImporterFactory,
+                                        DORMANT_PROJECT_TIME,
+                                        MoreExecutors.newDirectExecutorService(),
+                                        0,
+                                        0,
+                                        projectEventStreamManager);
+        assertThat(projectCache.getRevisionManager(projectId), is(revisionManager));
+        verify(projectComponent, never()).init();
+    }
+
+    @Test
+    public void shouldLoadRequestedProjectsBeforePrewarmedProjects() throws Exception {
+        var executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>());
+        try {
+            // Occupy the only loader thread so that loads are queued
+            var blocker = new CountDownLatch(1);
+            executor.execute(() -> {
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            List<ProjectId> loadOrder = Collections.synchronizedList(new ArrayList<>());
+            when(projectComponentFactory.createProjectComponent(any())).thenAnswer(invocation -> {
+                loadOrder.add(invocation.getArgument(0));
+                return projectComponent;
+            });
+            projectCache = new ProjectCache(projectComponentFactory,
+                                            projectImporterFactory,
+                                            DORMANT_PROJECT_TIME,
+                                            executor,
+                                            0,
+                                        0,
+                                        projectEventStreamManager);
+            var firstPrewarmedProjectId = getProjectId();
+            var secondPrewarmedProjectId = getProjectId();
+            projectCache.prewarm(List.of(firstPrewarmedProjectId, secondPrewarmedProjectId));
+            assertProjectIsLoading();
+            blocker.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS), is(true));
+            assertThat(loadOrder, contains(projectId, firstPrewarmedProjectId, secondPrewarmedProjectId));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ProjectComponent loadProjectWithFootprint(ProjectId projectId, long estimatedHeapMb) {
+        var projectComponent = mock(ProjectComponent.class);
+        var estimator = mock(ProjectHeapFootprintEstimator.class);
+        when(projectComponent.getProjectId()).thenReturn(projectId);
+        when(projectComponent.getHeapFootprintEstimator()).thenReturn(estimator);
+        when(projectComponent.getDisposablesManager()).thenReturn(mock(ProjectDisposablesManager.class));
+        when(estimator.estimateHeapFootprint()).thenReturn(ProjectHeapFootprint.get(projectId, 0, 0, 0, estimatedHeapMb * 1024 * 1024));
+        when(projectComponentFactory.createProjectComponent(projectId)).thenReturn(projectComponent);
+        projectCache.getRevisionManager(projectId);
+        return projectComponent;
+    }
+
+    private ProjectCache createProjectCacheWithHeapBudget(int maxHeapMb) {
+        return new ProjectCache(projectComponentFactory,
+                                projectImporterFactory,
+                                DORMANT_PROJECT_TIME,
+                                MoreExecutors.newDirectExecutorService(),
+                                0,
+                                maxHeapMb,
+                                projectEventStreamManager);
+    }
+
+    @Test
+    public void shouldGetHeapFootprintsOfLoadedProjectsLargestFirst() {
+        projectCache = createProjectCacheWithHeapBudget(0);
+        var smallProjectId = getProjectId();
+        var largeProjectId = getProjectId();
+        loadProjectWithFootprint(smallProjectId, 10);
+        loadProjectWithFootprint(largeProjectId, 100);
+        var footprints = projectCache.getHeapFootprints();
+        assertThat(footprints, hasSize(2));
+        assertThat(footprints.get(0).getProjectId(), is(largeProjectId));
+        assertThat(footprints.get(1).getProjectId(), is(smallProjectId));
+    }
+
+    @Test
+    public void shouldNotPurgeProjectsWithinHeapBudget() {
+        projectCache = createProjectCacheWithHeapBudget(100);
+        var firstProjectId = getProjectId();
+        var secondProjectId = getProjectId();
+        loadProjectWithFootprint(firstProjectId, 40);
+        loadProjectWithFootprint(secondProjectId, 60);
+        projectCache.purgeDormantProjects();
+        assertThat(projectCache.isActive(firstProjectId), is(true));
+        assertThat(projectCache.isActive(secondProjectId), is(true));
+    }
+
+    @Test
+    public void shouldPurgeLargestProjectsToStayWithinHeapBudget() {
+        projectCache = createProjectCacheWithHeapBudget(100);
+        var smallProjectId = getProjectId();
+        var largeProjectId = getProjectId();
+        loadProjectWithFootprint(smallProjectId, 10);
+        loadProjectWithFootprint(largeProjectId, 80);
+        var loadedProjectId = getProjectId();
+        var loadedProjectComponent = loadProjectWithFootprint(loadedProjectId, 30);
+        assertThat(projectCache.isActive(largeProjectId), is(false));
+        assertThat(projectCache.isActive(smallProjectId), is(true));
+        assertThat(projectCache.isActive(loadedProjectId), is(true));
+        verify(loadedProjectComponent, never()).getDisposablesManager();
+    }
+
+    @Test
+    public void shouldPurgeLeastRecentlyUsedProjectOfSameSize() throws Exception {
+        projectCache = createProjectCacheWithHeapBudget(100);
+        var recentlyUsedProjectId = getProjectId();
+        var leastRecentlyUsedProjectId = getProjectId();
+        loadProjectWithFootprint(recentlyUsedProjectId, 50);
+        loadProjectWithFootprint(leastRecentlyUsedProjectId, 50);
+        Thread.sleep(500);
+        projectCache.getRevisionManager(recentlyUsedProjectId);
+        loadProjectWithFootprint(getProjectId(), 20);
+        assertThat(projectCache.isActive(recentlyUsedProjectId), is(true));
+        assertThat(projectCache.isActive(leastRecentlyUsedProjectId), is(false));
+    }
+}
@@ -0,0 +1,93 @@
+package edu.stanford.bmir.protege.web.server.project;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.bmir.protege.web.server.change.AddAxiomChange;
+import edu.stanford.bmir.protege.web.server.change.OntologyChange;
+import edu.stanford.bmir.protege.web.server.index.impl.AxiomsByTypeIndexImpl;
+import edu.stanford.bmir.protege.web.server.revision.Revision;
+import edu.stanford.bmir.protege.web.server.revision.RevisionManager;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import edu.stanford.bmir.protege.web.shared.user.UserId;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+
+import java.util.List;
+import java.util.UUID;
+
+import static edu.stanford.bmir.protege.web.server.project.ProjectHeapFootprintEstimator.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.*;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class ProjectHeapFootprintEstimator_TestCase {
+
+    private final ProjectId projectId = ProjectId.get(UUID.randomUUID().toString());
+
+    private final UserId userId = UserId.getUserId("The User");
+
+    private final OWLOntologyID ontologyId = new OWLOntologyID(IRI.create("http://example.org/ontology"));
+
+    @Mock
+    private RevisionManager revisionManager;
+
+    private AxiomsByTypeIndexImpl axiomsByTypeIndex;
+
+    private ImmutableList<OntologyChange> changes;
+
+    private ProjectHeapFootprintEstimator estimator;
+
+    @Before
+    public void setUp() {
+        axiomsByTypeIndex = new AxiomsByTypeIndexImpl();
+        changes = ImmutableList.of(
+                AddAxiomChange.of(ontologyId, Declaration(Class(IRI.create("http://example.org/A")))),
+                AddAxiomChange.of(ontologyId, SubClassOf(Class(IRI.create("http://example.org/A")),
+                                                         Class(IRI.create("http://example.org/B")))),
+                AddAxiomChange.of(ontologyId, Declaration(Class(IRI.create("http://example.org/B")))));
+        axiomsByTypeIndex.applyChanges(changes);
+        estimator = new ProjectHeapFootprintEstimator(projectId, axiomsByTypeIndex, revisionManager);
+    }
+
+    @Test
+    public void shouldEstimateFootprintFromIndexedAxiomsAndHeldChanges() {
+        var revision = new Revision(userId, RevisionNumber.getRevisionNumber(1), changes, 0L, "");
+        when(revisionManager.getRevisions()).thenReturn(List.of(revision));
+        var footprint = estimator.estimateHeapFootprint();
+        assertThat(footprint.getProjectId(), is(projectId));
+        assertThat(footprint.getIndexedAxiomCount(), is(3L));
+        assertThat(footprint.getRevisionCount(), is(1L));
+        assertThat(footprint.getHeldChangeCount(), is(3L));
+        assertThat(footprint.getEstimatedHeapBytes(), is(3 * BYTES_PER_INDEXED_AXIOM
+                                                                 + 3 * BYTES_PER_HELD_CHANGE
+                                                                 + BYTES_PER_REVISION));
+    }
+
+    @Test
+    public void shouldNotCountChangesOfLazyRevisions() {
+        var revision = Revision.createLazyRevision(userId, RevisionNumber.getRevisionNumber(1), 3, () -> changes, 0L, "");
+        when(revisionManager.getRevisions()).thenReturn(List.of(revision));
+        var footprint = estimator.estimateHeapFootprint();
+        assertThat(footprint.getHeldChangeCount(), is(0L));
+        assertThat(footprint.getEstimatedHeapBytes(), is(3 * BYTES_PER_INDEXED_AXIOM + BYTES_PER_REVISION));
+    }
+
+    @Test
+    public void shouldNotCountRemovedAxioms() {
+        axiomsByTypeIndex.applyChanges(ImmutableList.of(changes.get(0).getInverseChange()));
+        when(revisionManager.getRevisions()).thenReturn(List.of());
+        assertThat(estimator.estimateHeapFootprint().getIndexedAxiomCount(), is(2L));
+    }
+}
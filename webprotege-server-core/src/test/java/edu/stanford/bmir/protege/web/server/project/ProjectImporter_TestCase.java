@@ -0,0 +1,213 @@
+package edu.stanford.bmir.protege.web.server.project;
+
+import edu.stanford.bmir.protege.web.server.inject.ChangeHistoryFileFactory;
+import edu.stanford.bmir.protege.web.server.upload.DocumentResolver;
+import edu.stanford.bmir.protege.web.server.upload.UploadedOntologiesProcessor;
+import edu.stanford.bmir.protege.web.shared.csv.DocumentId;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.user.UserId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.semanticweb.binaryowl.BinaryOWLOntologyChangeLog;
+import org.semanticweb.binaryowl.chunk.SkipSetting;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.change.*;
+import org.semanticweb.owlapi.model.*;
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static edu.stanford.bmir.protege.web.server.revision.RevisionSerializationVocabulary.DESCRIPTION_META_DATA_ATTRIBUTE;
+import static edu.stanford.bmir.protege.web.server.revision.RevisionSerializationVocabulary.REVISION_META_DATA_ATTRIBUTE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.when;
+import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.*;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class ProjectImporter_TestCase {
+
+    private static final int CHUNK_SIZE = 10;
+
+    private static final int CLASS_COUNT = 25;
+
+    private final ProjectId projectId = ProjectId.get(UUID.randomUUID().toString());
+
+    private final DocumentId documentId = new DocumentId(UUID.randomUUID().toString());
+
+    private final UserId owner = UserId.getUserId("The Owner");
+
+    private final OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private UploadedOntologiesProcessor uploadedOntologiesProcessor;
+
+    @Mock
+    private DocumentResolver documentResolver;
+
+    @Mock
+    private ChangeHistoryFileFactory changeHistoryFileFactory;
+
+    private File changeHistoryFile;
+
+    private Path sourceFile;
+
+    private OWLOntology ontology;
+
+    private ProjectImporter importer;
+
+    @Before
+    public void setUp() throws Exception {
+        changeHistoryFile = new File(temporaryFolder.getRoot(), "project/change-data/change-data.binary");
+        sourceFile = temporaryFolder.newFile("upload.owl").toPath();
+        when(changeHistoryFileFactory.getChangeHistoryFile(projectId)).thenReturn(changeHistoryFile);
+        when(documentResolver.resolve(documentId)).thenReturn(sourceFile);
+        ontology = manager.createOntology(IRI.create("http://example.org/ontology"));
+        when(uploadedOntologiesProcessor.getUploadedOWLOntologies(documentId)).thenAnswer(invocation -> new ArrayList<>(manager.getOntologies()));
+        importer = new ProjectImporter(projectId,
+                                       uploadedOntologiesProcessor,
+                                       documentResolver,
+                                       changeHistoryFileFactory,
+                                       CHUNK_SIZE);
+    }
+
+    private void addClasses() {
+        for(int i = 0; i < CLASS_COUNT; i++) {
+            manager.addAxiom(ontology, Declaration(Class(IRI.create("http://example.org/C" + i))));
+        }
+        manager.applyChange(new AddOntologyAnnotation(ontology, Annotation(RDFSComment(), Literal("The ontology"))));
+        manager.applyChange(new AddImport(ontology, ImportsDeclaration(IRI.create("http://example.org/imported"))));
+    }
+
+    private List<WrittenRevision> readWrittenRevisions() throws Exception {
+        var revisions = new ArrayList<WrittenRevision>();
+        try(var inputStream = new BufferedInputStream(new FileInputStream(changeHistoryFile))) {
+            new BinaryOWLOntologyChangeLog().readChanges(inputStream, new OWLDataFactoryImpl(), (list, skipSetting, filePosition) -> {
+                var metadata = list.getMetadata();
+                revisions.add(new WrittenRevision(metadata.getLongAttribute(REVISION_META_DATA_ATTRIBUTE.getVocabularyName(), 0L),
+                                                  metadata.getStringAttribute(DESCRIPTION_META_DATA_ATTRIBUTE.getVocabularyName(), ""),
+                                                  list.getChangeRecords()));
+            }, SkipSetting.SKIP_NONE);
+        }
+        return revisions;
+    }
+
+    @Test
+    public void shouldWriteInitialChangesInRevisionsOfAtMostChunkSize() throws Exception {
+        addClasses();
+        importer.createProjectFromSources(documentId, owner);
+        var revisions = readWrittenRevisions();
+        assertThat(revisions, hasSize(3));
+        assertThat(revisions.get(0).revisionNumber, is(1L));
+        assertThat(revisions.get(1).revisionNumber, is(2L));
+        assertThat(revisions.get(2).revisionNumber, is(3L));
+        assertThat(revisions.get(0).changeRecords, hasSize(CHUNK_SIZE));
+        assertThat(revisions.get(1).changeRecords, hasSize(CHUNK_SIZE));
+        assertThat(revisions.get(2).changeRecords, hasSize(CLASS_COUNT + 2 - 2 * CHUNK_SIZE));
+        assertThat(revisions.get(0).description, is("Initial import (part 1 of 3)"));
+        assertThat(revisions.get(2).description, is("Initial import (part 3 of 3)"));
+    }
+
+    @Test
+    public void shouldWriteEveryAxiomAnnotationAndImport() throws Exception {
+        addClasses();
+        var expectedAxioms = new HashSet<>(ontology.getAxioms());
+        var expectedAnnotations = new HashSet<>(ontology.getAnnotations());
+        var expectedImports = new HashSet<>(ontology.getImportsDeclarations());
+        importer.createProjectFromSources(documentId, owner);
+        Set<OWLAxiom> writtenAxioms = new HashSet<>();
+        Set<OWLAnnotation> writtenAnnotations = new HashSet<>();
+        Set<OWLImportsDeclaration> writtenImports = new HashSet<>();
+        for(var revision : readWrittenRevisions()) {
+            for(var changeRecord : revision.changeRecords) {
+                var changeData = changeRecord.getData();
+                if(changeData instanceof AddAxiomData) {
+                    writtenAxioms.add(((AddAxiomData) changeData).getAxiom());
+                }
+                else if(changeData instanceof AddOntologyAnnotationData) {
+                    writtenAnnotations.add(((AddOntologyAnnotationData) changeData).getAnnotation());
+                }
+                else if(changeData instanceof AddImportData) {
+                    writtenImports.add(((AddImportData) changeData).getDeclaration());
+                }
+            }
+        }
+        assertThat(writtenAxioms, is(expectedAxioms));
+        assertThat(writtenAnnotations, is(expectedAnnotations));
+        assertThat(writtenImports, is(expectedImports));
+    }
+
+    @Test
+    public void shouldWriteSingleInitialRevisionForSmallImport() throws Exception {
+        manager.addAxiom(ontology, Declaration(Class(IRI.create("http://example.org/A"))));
+        importer.createProjectFromSources(documentId, owner);
+        var revisions = readWrittenRevisions();
+        assertThat(revisions, hasSize(1));
+        assertThat(revisions.get(0).description, is("Initial import"));
+    }
+
+    @Test
+    public void shouldWriteInitialRevisionForEmptyOntology() throws Exception {
+        importer.createProjectFromSources(documentId, owner);
+        var revisions = readWrittenRevisions();
+        assertThat(revisions, hasSize(1));
+        assertThat(revisions.get(0).changeRecords, is(empty()));
+    }
+
+    @Test
+    public void shouldReleaseImportedOntologies() throws Exception {
+        addClasses();
+        importer.createProjectFromSources(documentId, owner);
+        assertThat(manager.getOntologies(), is(empty()));
+    }
+
+    @Test
+    public void shouldDeleteSourceFile() throws Exception {
+        importer.createProjectFromSources(documentId, owner);
+        assertThat(Files.exists(sourceFile), is(false));
+    }
+
+    @Test
+    public void shouldNotLeaveTemporaryFiles() throws Exception {
+        addClasses();
+        importer.createProjectFromSources(documentId, owner);
+        assertThat(changeHistoryFile.getParentFile().list(), is(arrayContaining(changeHistoryFile.getName())));
+    }
+
+    private static class WrittenRevision {
+
+        private final long revisionNumber;
+
+        private final String description;
+
+        private final List<OWLOntologyChangeRecord> changeRecords;
+
+        private WrittenRevision(long revisionNumber, String description, List<OWLOntologyChangeRecord> changeRecords) {
+            this.revisionNumber = revisionNumber;
+            this.description = description;
+            this.changeRecords = changeRecords;
+        }
+    }
+}
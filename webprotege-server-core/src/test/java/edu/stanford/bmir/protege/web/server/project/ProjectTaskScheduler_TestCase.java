@@ -0,0 +1,188 @@
+package edu.stanford.bmir.protege.web.server.project;
+
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-08
+ */
+public class ProjectTaskScheduler_TestCase {
+
+    private final ProjectId projectId = ProjectId.get(UUID.randomUUID().toString());
+
+    private ExecutorService workerPool;
+
+    private ScheduledExecutorService timer;
+
+    private ProjectTaskScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        workerPool = Executors.newFixedThreadPool(4);
+        timer = Executors.newSingleThreadScheduledExecutor();
+        scheduler = new ProjectTaskScheduler(workerPool, timer);
+    }
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+        workerPool.shutdownNow();
+    }
+
+    private ProjectTaskStats getStats(ProjectTaskType taskType) {
+        return scheduler.getStats()
+                        .stream()
+                        .filter(stats -> stats.getTaskType() == taskType)
+                        .findFirst()
+                        .orElseThrow();
+    }
+
+    @Test
+    public void shouldRunSerialQueueTasksInSubmissionOrder() throws InterruptedException {
+        var queue = scheduler.createSerialQueue(projectId, ProjectTaskType.CHANGE_SERIALIZATION);
+        var ranTasks = Collections.synchronizedList(new ArrayList<Integer>());
+        var done = new CountDownLatch(1000);
+        for(int i = 0; i < 1000; i++) {
+            var taskNumber = i;
+            queue.execute(() -> {
+                ranTasks.add(taskNumber);
+                done.countDown();
+            });
+        }
+        assertThat(done.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(ranTasks, is(IntStream.range(0, 1000).boxed().collect(Collectors.toList())));
+    }
+
+    @Test
+    public void shouldNotRunSerialQueueTasksConcurrently() throws InterruptedException {
+        var queue = scheduler.createSerialQueue(projectId, ProjectTaskType.CHANGE_SERIALIZATION);
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        var done = new CountDownLatch(200);
+        for(int i = 0; i < 200; i++) {
+            queue.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+        assertThat(done.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(maxRunning.get(), is(1));
+    }
+
+    @Test
+    public void shouldRunScheduledTaskAfterTasksThatWereQueuedBeforeItWasDue() throws InterruptedException {
+        var queue = scheduler.createSerialQueue(projectId, ProjectTaskType.CHANGE_SERIALIZATION);
+        List<String> ranTasks = Collections.synchronizedList(new ArrayList<>());
+        var done = new CountDownLatch(2);
+        queue.schedule(() -> {
+            ranTasks.add("delayed");
+            done.countDown();
+        }, 50, TimeUnit.MILLISECONDS);
+        queue.execute(() -> {
+            ranTasks.add("immediate");
+            done.countDown();
+        });
+        assertThat(done.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(ranTasks, is(List.of("immediate", "delayed")));
+    }
+
+    @Test
+    public void shouldKeepRunningSerialQueueAfterTaskFails() throws InterruptedException {
+        var queue = scheduler.createSerialQueue(projectId, ProjectTaskType.CHANGE_SERIALIZATION);
+        var done = new CountDownLatch(1);
+        queue.execute(() -> {
+            throw new RuntimeException("Failed task");
+        });
+        queue.execute(done::countDown);
+        assertThat(done.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(getStats(ProjectTaskType.CHANGE_SERIALIZATION).getFailedCount(), is(1L));
+    }
+
+    @Test
+    public void shouldRunQueuedTasksOnCallingThreadAfterShutdown() {
+        workerPool.shutdown();
+        var queue = scheduler.createSerialQueue(projectId, ProjectTaskType.CHANGE_SERIALIZATION);
+        var ran = new AtomicInteger();
+        queue.execute(ran::incrementAndGet);
+        queue.execute(ran::incrementAndGet);
+        assertThat(ran.get(), is(2));
+    }
+
+    @Test
+    public void shouldCompleteSubmittedTask() throws Exception {
+        var ran = new AtomicInteger();
+        scheduler.submit(projectId, ProjectTaskType.INDEX_UPDATE, ran::incrementAndGet).get(10, TimeUnit.SECONDS);
+        assertThat(ran.get(), is(1));
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void shouldCompleteSubmittedTaskExceptionallyIfItFails() throws Exception {
+        scheduler.submit(projectId, ProjectTaskType.INDEX_UPDATE, () -> {
+            throw new RuntimeException("Failed task");
+        }).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void shouldRecordStatsForEachTaskType() throws Exception {
+        for(int i = 0; i < 3; i++) {
+            scheduler.submit(projectId, ProjectTaskType.INDEX_UPDATE, () -> {
+                try {
+                    Thread.sleep(5);
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }).get(10, TimeUnit.SECONDS);
+        }
+        var stats = getStats(ProjectTaskType.INDEX_UPDATE);
+        assertThat(stats.getCompletedCount(), is(3L));
+        assertThat(stats.getQueueDepth(), is(0L));
+        assertThat(stats.getRunningCount(), is(0L));
+        assertThat(stats.getMeanRunTime().toMillis(), is(greaterThanOrEqualTo(5L)));
+        assertThat(getStats(ProjectTaskType.CHANGE_SERIALIZATION).getCompletedCount(), is(0L));
+    }
+
+    @Test
+    public void shouldReportQueueDepthOfWaitingTasks() throws InterruptedException {
+        var queue = scheduler.createSerialQueue(projectId, ProjectTaskType.CHANGE_SERIALIZATION);
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        queue.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        queue.execute(() -> {});
+        queue.execute(() -> {});
+        assertThat(started.await(10, TimeUnit.SECONDS), is(true));
+        var stats = getStats(ProjectTaskType.CHANGE_SERIALIZATION);
+        assertThat(stats.getQueueDepth(), is(2L));
+        assertThat(stats.getRunningCount(), is(1L));
+        release.countDown();
+    }
+}
@@ -0,0 +1,197 @@
+package edu.stanford.bmir.protege.web.server.project.chg;
+
+import edu.stanford.bmir.protege.web.server.access.AccessManager;
+import edu.stanford.bmir.protege.web.server.access.Resource;
+import edu.stanford.bmir.protege.web.server.access.Subject;
+import edu.stanford.bmir.protege.web.server.app.UserInSessionFactory;
+import edu.stanford.bmir.protege.web.server.change.ChangeListGenerator;
+import edu.stanford.bmir.protege.web.server.crud.EntityCrudContextFactory;
+import edu.stanford.bmir.protege.web.server.crud.ProjectEntityCrudKitHandlerCache;
+import edu.stanford.bmir.protege.web.server.download.ProjectDownloadPregenerator;
+import edu.stanford.bmir.protege.web.server.events.EventManager;
+import edu.stanford.bmir.protege.web.server.events.EventTranslatorManager;
+import edu.stanford.bmir.protege.web.server.hierarchy.AnnotationPropertyHierarchyProviderImpl;
+import edu.stanford.bmir.protege.web.server.hierarchy.ClassHierarchyProviderImpl;
+import edu.stanford.bmir.protege.web.server.hierarchy.DataPropertyHierarchyProviderImpl;
+import edu.stanford.bmir.protege.web.server.hierarchy.ObjectPropertyHierarchyProviderImpl;
+import edu.stanford.bmir.protege.web.server.index.RootIndex;
+import edu.stanford.bmir.protege.web.server.index.impl.IndexUpdater;
+import edu.stanford.bmir.protege.web.server.lang.ActiveLanguagesManager;
+import edu.stanford.bmir.protege.web.server.match.MatchResultCache;
+import edu.stanford.bmir.protege.web.server.owlapi.RenameMapFactory;
+import edu.stanford.bmir.protege.web.server.project.BuiltInPrefixDeclarations;
+import edu.stanford.bmir.protege.web.server.project.DefaultOntologyIdManager;
+import edu.stanford.bmir.protege.web.server.project.PrefixDeclarationsStore;
+import edu.stanford.bmir.protege.web.server.project.ProjectDetailsRepository;
+import edu.stanford.bmir.protege.web.server.renderer.RenderingManager;
+import edu.stanford.bmir.protege.web.server.revision.RevisionManager;
+import edu.stanford.bmir.protege.web.server.shortform.DictionaryManager;
+import edu.stanford.bmir.protege.web.server.shortform.DictionaryUpdatesProcessor;
+import edu.stanford.bmir.protege.web.server.tag.TagsManager;
+import edu.stanford.bmir.protege.web.server.util.IriReplacerFactory;
+import edu.stanford.bmir.protege.web.server.webhook.ProjectChangedWebhookInvoker;
+import edu.stanford.bmir.protege.web.shared.access.BuiltInAction;
+import edu.stanford.bmir.protege.web.shared.event.ProjectEvent;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.user.UserId;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+
+import javax.inject.Provider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.UUID;
+
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class ChangeManager_TestCase {
+
+    private final ProjectId projectId = ProjectId.get(UUID.randomUUID().toString());
+
+    private final UserId userId = UserId.getUserId("The User");
+
+    @Mock
+    private OWLDataFactory dataFactory;
+
+    @Mock
+    private DictionaryUpdatesProcessor dictionaryUpdatesProcessor;
+
+    @Mock
+    private ActiveLanguagesManager activeLanguagesManager;
+
+    @Mock
+    private AccessManager accessManager;
+
+    @Mock
+    private PrefixDeclarationsStore prefixDeclarationsStore;
+
+    @Mock
+    private ProjectDetailsRepository projectDetailsRepository;
+
+    @Mock
+    private ProjectChangedWebhookInvoker projectChangedWebhookInvoker;
+
+    @Mock
+    private EventManager<ProjectEvent<?>> projectEventManager;
+
+    @Mock
+    private Provider<EventTranslatorManager> eventTranslatorManagerProvider;
+
+    @Mock
+    private ProjectEntityCrudKitHandlerCache entityCrudKitHandlerCache;
+
+    @Mock
+    private RevisionManager revisionManager;
+
+    @Mock
+    private RootIndex rootIndex;
+
+    @Mock
+    private DictionaryManager dictionaryManager;
+
+    @Mock
+    private ClassHierarchyProviderImpl classHierarchyProvider;
+
+    @Mock
+    private ObjectPropertyHierarchyProviderImpl objectPropertyHierarchyProvider;
+
+    @Mock
+    private DataPropertyHierarchyProviderImpl dataPropertyHierarchyProvider;
+
+    @Mock
+    private AnnotationPropertyHierarchyProviderImpl annotationPropertyHierarchyProvider;
+
+    @Mock
+    private UserInSessionFactory userInSessionFactory;
+
+    @Mock
+    private RenderingManager renderingManager;
+
+    @Mock
+    private BuiltInPrefixDeclarations builtInPrefixDeclarations;
+
+    @Mock
+    private IndexUpdater indexUpdater;
+
+    @Mock
+    private DefaultOntologyIdManager defaultOntologyIdManager;
+
+    @Mock
+    private ProjectDownloadPregenerator projectDownloadPregenerator;
+
+    @Mock
+    private MatchResultCache matchResultCache;
+
+    @Mock
+    private TagsManager tagsManager;
+
+    @Mock
+    private ChangeListGenerator<Boolean> changeListGenerator;
+
+    private ChangeManager changeManager;
+
+    @Before
+    public void setUp() {
+        when(accessManager.hasPermission(any(Subject.class), any(Resource.class), any(BuiltInAction.class))).thenReturn(true);
+        // Revisions are not awaited, so a failure to save is not noticed by the change that caused it
+        var strictDurability = false;
+        changeManager = new ChangeManager(projectId,
+                                          dataFactory,
+                                          dictionaryUpdatesProcessor,
+                                          activeLanguagesManager,
+                                          accessManager,
+                                          prefixDeclarationsStore,
+                                          projectDetailsRepository,
+                                          projectChangedWebhookInvoker,
+                                          projectEventManager,
+                                          eventTranslatorManagerProvider,
+                                          entityCrudKitHandlerCache,
+                                          revisionManager,
+                                          rootIndex,
+                                          dictionaryManager,
+                                          classHierarchyProvider,
+                                          objectPropertyHierarchyProvider,
+                                          dataPropertyHierarchyProvider,
+                                          annotationPropertyHierarchyProvider,
+                                          userInSessionFactory,
+                                          new EntityCrudContextFactory(() -> projectId, () -> projectDetailsRepository),
+                                          new RenameMapFactory(() -> dataFactory, () -> renderingManager),
+                                          builtInPrefixDeclarations,
+                                          indexUpdater,
+                                          defaultOntologyIdManager,
+                                          new IriReplacerFactory(() -> dataFactory),
+                                          new ProjectChangeLock(),
+                                          projectDownloadPregenerator,
+                                          matchResultCache,
+                                          tagsManager,
+                                          strictDurability);
+    }
+
+    @Test
+    public void shouldRejectChangesAfterRevisionCouldNotBeSaved() throws IOException {
+        doThrow(new IOException("No space left on device")).when(revisionManager).checkCanSaveRevisions();
+        try {
+            changeManager.applyChanges(userId, changeListGenerator);
+            fail("Expected the changes to be rejected");
+        } catch(UncheckedIOException e) {
+            // Expected
+        }
+        verify(changeListGenerator, never()).generateChanges(any());
+        verifyZeroInteractions(rootIndex, indexUpdater, projectEventManager, matchResultCache, tagsManager);
+        verify(revisionManager, never()).addRevision(any(), any(), any());
+        verify(projectDetailsRepository, never()).setModified(any(), anyLong(), any());
+    }
+}
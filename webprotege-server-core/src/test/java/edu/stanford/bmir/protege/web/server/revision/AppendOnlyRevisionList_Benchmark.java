@@ -0,0 +1,93 @@
+package edu.stanford.bmir.protege.web.server.revision;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import edu.stanford.bmir.protege.web.shared.user.UserId;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-11-23
+ *
+ * Measures the latency of appending a revision to the revision list for histories of increasing length.  The
+ * append-only list should have a flat latency, whereas rebuilding an immutable list (which is what the revision
+ * store used to do) grows linearly with the length of the history.
+ *
+ * Run with the main method, or via the JMH runner on the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AppendOnlyRevisionList_Benchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int revisionCount;
+
+    private AppendOnlyRevisionList appendOnlyRevisionList;
+
+    private ImmutableList<Revision> immutableRevisionList;
+
+    private long nextRevisionNumber;
+
+    private final UserId userId = UserId.getUserId("The User");
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        appendOnlyRevisionList = new AppendOnlyRevisionList();
+        var immutableListBuilder = ImmutableList.<Revision>builder();
+        for(int i = 1; i <= revisionCount; i++) {
+            var revision = createRevision(i);
+            appendOnlyRevisionList.append(revision);
+            immutableListBuilder.add(revision);
+        }
+        immutableRevisionList = immutableListBuilder.build();
+        nextRevisionNumber = revisionCount + 1;
+    }
+
+    @Benchmark
+    public AppendOnlyRevisionList appendToAppendOnlyList() {
+        appendOnlyRevisionList.append(createRevision(nextRevisionNumber));
+        nextRevisionNumber++;
+        return appendOnlyRevisionList;
+    }
+
+    @Benchmark
+    public ImmutableList<Revision> rebuildImmutableList() {
+        // This is what RevisionStoreImpl.addRevision used to do
+        var extendedListBuilder = ImmutableList.<Revision>builder();
+        extendedListBuilder.addAll(immutableRevisionList);
+        extendedListBuilder.add(createRevision(nextRevisionNumber));
+        nextRevisionNumber++;
+        immutableRevisionList = extendedListBuilder.build();
+        return immutableRevisionList;
+    }
+
+    @Benchmark
+    public Object getRevisionFromAppendOnlyList() {
+        return appendOnlyRevisionList.getRevision(RevisionNumber.getRevisionNumber(revisionCount / 2));
+    }
+
+    private Revision createRevision(long revisionNumber) {
+        return new Revision(userId,
+                            RevisionNumber.getRevisionNumber(revisionNumber),
+                            ImmutableList.of(),
+                            revisionNumber,
+                            "");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        var options = new OptionsBuilder()
+                .include(AppendOnlyRevisionList_Benchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
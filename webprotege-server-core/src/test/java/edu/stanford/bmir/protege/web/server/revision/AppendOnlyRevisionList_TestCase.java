@@ -0,0 +1,117 @@
+package edu.stanford.bmir.protege.web.server.revision;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import edu.stanford.bmir.protege.web.shared.user.UserId;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-11-23
+ */
+public class AppendOnlyRevisionList_TestCase {
+
+    private AppendOnlyRevisionList list;
+
+    @Before
+    public void setUp() {
+        list = new AppendOnlyRevisionList();
+    }
+
+    @Test
+    public void shouldBeEmptyAtStart() {
+        assertThat(list.getSnapshot(), is(empty()));
+        assertThat(list.size(), is(0));
+    }
+
+    @Test
+    public void shouldHaveZeroLastRevisionNumberAtStart() {
+        assertThat(list.getLastRevisionNumber(), is(RevisionNumber.getRevisionNumber(0)));
+    }
+
+    @Test
+    public void shouldAppendRevisions() {
+        var revision1 = createRevision(1);
+        var revision2 = createRevision(2);
+        list.append(revision1);
+        list.append(revision2);
+        assertThat(list.getSnapshot(), contains(revision1, revision2));
+        assertThat(list.getLastRevisionNumber(), is(RevisionNumber.getRevisionNumber(2)));
+    }
+
+    @Test
+    public void shouldNotChangeSnapshotOnAppend() {
+        var revision1 = createRevision(1);
+        list.append(revision1);
+        var snapshot = list.getSnapshot();
+        list.append(createRevision(2));
+        assertThat(snapshot, contains(revision1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowIllegalArgumentExceptionIfRevisionIsOutOfOrder() {
+        list.append(createRevision(2));
+        list.append(createRevision(2));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldNotAllowModificationOfSnapshot() {
+        list.append(createRevision(1));
+        list.getSnapshot().remove(0);
+    }
+
+    @Test
+    public void shouldStoreRevisionsAcrossChunks() {
+        var expected = new ArrayList<Revision>();
+        for(int i = 1; i <= 5000; i++) {
+            var revision = createRevision(i);
+            expected.add(revision);
+            list.append(revision);
+        }
+        assertThat(list.getSnapshot(), is(expected));
+        assertThat(list.getRevision(RevisionNumber.getRevisionNumber(3333)), is(Optional.of(expected.get(3332))));
+    }
+
+    @Test
+    public void shouldGetRevision() {
+        var revision2 = createRevision(2);
+        list.append(createRevision(1));
+        list.append(revision2);
+        list.append(createRevision(3));
+        assertThat(list.getRevision(RevisionNumber.getRevisionNumber(2)), is(Optional.of(revision2)));
+    }
+
+    @Test
+    public void shouldGetLastRevisionForHeadRevisionNumber() {
+        var revision2 = createRevision(2);
+        list.append(createRevision(1));
+        list.append(revision2);
+        assertThat(list.getRevision(RevisionNumber.getHeadRevisionNumber()), is(Optional.of(revision2)));
+    }
+
+    @Test
+    public void shouldNotGetMissingRevision() {
+        list.append(createRevision(1));
+        list.append(createRevision(3));
+        assertThat(list.getRevision(RevisionNumber.getRevisionNumber(2)), is(Optional.empty()));
+        assertThat(list.getRevision(RevisionNumber.getRevisionNumber(4)), is(Optional.empty()));
+    }
+
+    private static Revision createRevision(long revisionNumber) {
+        return new Revision(UserId.getGuest(),
+                            RevisionNumber.getRevisionNumber(revisionNumber),
+                            ImmutableList.of(),
+                            revisionNumber,
+                            "");
+    }
+}
@@ -0,0 +1,247 @@
+package edu.stanford.bmir.protege.web.server.revision;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskScheduler;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskType;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import edu.stanford.bmir.protege.web.shared.user.UserId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.binaryowl.BinaryOWLOntologyChangeLog;
+import org.semanticweb.binaryowl.chunk.SkipSetting;
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static edu.stanford.bmir.protege.web.server.revision.RevisionSerializationVocabulary.REVISION_META_DATA_ATTRIBUTE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-03
+ */
+public class ChangeHistoryGroupCommitWriter_TestCase {
+
+    private static final long ONE_HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final ProjectId projectId = ProjectId.get(UUID.randomUUID().toString());
+
+    private ExecutorService workerPool;
+
+    private ScheduledExecutorService timer;
+
+    private ProjectTaskScheduler projectTaskScheduler;
+
+    private File changeHistoryFile;
+
+    @Before
+    public void setUp() throws IOException {
+        workerPool = Executors.newFixedThreadPool(2);
+        timer = Executors.newSingleThreadScheduledExecutor();
+        projectTaskScheduler = new ProjectTaskScheduler(workerPool, timer);
+        changeHistoryFile = temporaryFolder.newFile();
+    }
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+        workerPool.shutdownNow();
+    }
+
+    private ChangeHistoryGroupCommitWriter createWriter(long maxLatency, int maxBatchSize) {
+        return new ChangeHistoryGroupCommitWriter(projectId,
+                                                  changeHistoryFile,
+                                                  projectTaskScheduler.createSerialQueue(projectId, ProjectTaskType.CHANGE_SERIALIZATION),
+                                                  maxLatency,
+                                                  maxBatchSize);
+    }
+
+    private static Revision createRevision(long revisionNumber) {
+        return new Revision(UserId.getUserId("The User"),
+                            RevisionNumber.getRevisionNumber(revisionNumber),
+                            ImmutableList.of(),
+                            revisionNumber,
+                            "Revision " + revisionNumber);
+    }
+
+    private List<Long> readRevisionNumbers() throws Exception {
+        var revisionNumbers = new ArrayList<Long>();
+        try(var inputStream = new BufferedInputStream(new FileInputStream(changeHistoryFile))) {
+            new BinaryOWLOntologyChangeLog().readChanges(inputStream, new OWLDataFactoryImpl(), (list, skipSetting, filePosition) -> {
+                revisionNumbers.add(list.getMetadata().getLongAttribute(REVISION_META_DATA_ATTRIBUTE.getVocabularyName(), 0L));
+            }, SkipSetting.SKIP_DATA);
+        }
+        return revisionNumbers;
+    }
+
+    @Test
+    public void shouldWriteBatchWhenMaxLatencyIsReached() throws Exception {
+        var writer = createWriter(10, 100);
+        writer.submit(createRevision(1));
+        writer.awaitSaved(RevisionNumber.getRevisionNumber(1));
+        assertThat(readRevisionNumbers(), contains(1L));
+    }
+
+    @Test
+    public void shouldWriteBatchWhenBatchSizeIsReached() throws Exception {
+        var writer = createWriter(ONE_HOUR, 3);
+        writer.submit(createRevision(1));
+        writer.submit(createRevision(2));
+        var saved = writer.submit(createRevision(3));
+        saved.get(10, TimeUnit.SECONDS);
+        assertThat(readRevisionNumbers(), contains(1L, 2L, 3L));
+    }
+
+    @Test
+    public void shouldWriteRevisionsInSubmissionOrder() throws Exception {
+        var writer = createWriter(0, 2);
+        for(int i = 1; i <= 9; i++) {
+            writer.submit(createRevision(i));
+        }
+        writer.awaitSaved(RevisionNumber.getRevisionNumber(9));
+        assertThat(readRevisionNumbers(), contains(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L));
+    }
+
+    @Test
+    public void shouldRunSavedHookForEachRevision() throws Exception {
+        var writer = createWriter(ONE_HOUR, 2);
+        var savedCount = new int[1];
+        writer.setSavedHook(() -> savedCount[0]++);
+        writer.submit(createRevision(1));
+        writer.submit(createRevision(2)).get(10, TimeUnit.SECONDS);
+        assertThat(savedCount[0], is(2));
+    }
+
+    @Test
+    public void shouldReturnImmediatelyForRevisionThatWasNotSubmitted() throws IOException {
+        var writer = createWriter(ONE_HOUR, 100);
+        writer.awaitSaved(RevisionNumber.getRevisionNumber(1));
+    }
+
+    /**
+     * Creates a revision that cannot be written, because its changes cannot be loaded
+     */
+    private static Revision createUnwritableRevision(long revisionNumber) {
+        return Revision.createLazyRevision(UserId.getUserId("The User"),
+                                           RevisionNumber.getRevisionNumber(revisionNumber),
+                                           1,
+                                           () -> {
+                                               throw new IllegalStateException("Changes cannot be loaded");
+                                           },
+                                           revisionNumber,
+                                           "Revision " + revisionNumber);
+    }
+
+    @Test
+    public void shouldTruncatePartiallyWrittenBatch() throws Exception {
+        var writer = createWriter(ONE_HOUR, 1);
+        writer.submit(createRevision(1)).get(10, TimeUnit.SECONDS);
+        var lengthAfterFirstRevision = changeHistoryFile.length();
+        writer = createWriter(ONE_HOUR, 2);
+        // Large enough for part of the batch to reach the file before the second revision fails
+        writer.submit(new Revision(UserId.getUserId("The User"),
+                                   RevisionNumber.getRevisionNumber(2),
+                                   ImmutableList.of(),
+                                   2,
+                                   "x".repeat(60_000)));
+        var saved = writer.submit(createUnwritableRevision(3));
+        try {
+            saved.get(10, TimeUnit.SECONDS);
+            fail("Expected the batch to fail");
+        } catch(ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(IllegalStateException.class)));
+        }
+        assertThat(changeHistoryFile.length(), is(lengthAfterFirstRevision));
+        assertThat(readRevisionNumbers(), contains(1L));
+    }
+
+    @Test
+    public void shouldFailLaterRevisionsAfterFailedRevision() throws Exception {
+        var writer = createWriter(ONE_HOUR, 1);
+        try {
+            writer.submit(createUnwritableRevision(1)).get(10, TimeUnit.SECONDS);
+            fail("Expected the revision to fail");
+        } catch(ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(IllegalStateException.class)));
+        }
+        var saved = writer.submit(createRevision(2));
+        assertThat(saved.isCompletedExceptionally(), is(true));
+        assertThat(readRevisionNumbers(), is(empty()));
+    }
+
+    @Test
+    public void shouldBeAbleToSaveBeforeFailedRevision() throws Exception {
+        var writer = createWriter(ONE_HOUR, 1);
+        writer.submit(createRevision(1)).get(10, TimeUnit.SECONDS);
+        writer.checkCanSave();
+    }
+
+    @Test
+    public void shouldNotBeAbleToSaveAfterFailedRevision() throws Exception {
+        var writer = createWriter(ONE_HOUR, 1);
+        try {
+            writer.submit(createUnwritableRevision(1)).get(10, TimeUnit.SECONDS);
+        } catch(ExecutionException e) {
+            // Expected
+        }
+        try {
+            writer.checkCanSave();
+            fail("Expected an IOException");
+        } catch(IOException e) {
+            assertThat(e.getCause(), is(instanceOf(IllegalStateException.class)));
+        }
+    }
+
+    @Test
+    public void shouldThrowIOExceptionForLateWaiterOnFailedRevision() throws Exception {
+        var writer = createWriter(ONE_HOUR, 1);
+        try {
+            writer.submit(createUnwritableRevision(1)).get(10, TimeUnit.SECONDS);
+        } catch(ExecutionException e) {
+            // Expected
+        }
+        try {
+            writer.awaitSaved(RevisionNumber.getRevisionNumber(1));
+            fail("Expected an IOException");
+        } catch(IOException e) {
+            assertThat(e.getCause(), is(instanceOf(IllegalStateException.class)));
+        }
+    }
+
+    @Test
+    public void shouldWriteQueuedRevisionWhenAwaited() throws Exception {
+        var writer = createWriter(ONE_HOUR, 100);
+        writer.submit(createRevision(1));
+        writer.awaitSaved(RevisionNumber.getRevisionNumber(1));
+        assertThat(readRevisionNumbers(), contains(1L));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldThrowIOExceptionIfRevisionCouldNotBeSaved() throws IOException {
+        changeHistoryFile = temporaryFolder.newFolder();
+        var writer = createWriter(0, 100);
+        writer.submit(createRevision(1));
+        writer.awaitSaved(RevisionNumber.getRevisionNumber(1));
+    }
+}
@@ -0,0 +1,124 @@
+package edu.stanford.bmir.protege.web.server.revision;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.bmir.protege.web.server.change.AddAxiomChange;
+import edu.stanford.bmir.protege.web.server.change.AddOntologyAnnotationChange;
+import edu.stanford.bmir.protege.web.server.change.OntologyChange;
+import edu.stanford.bmir.protege.web.server.change.RemoveAxiomChange;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import edu.stanford.bmir.protege.web.shared.user.UserId;
+import org.junit.Before;
+import org.junit.Test;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.*;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-11-16
+ */
+public class EntityRevisionIndex_TestCase {
+
+    private EntityRevisionIndex index;
+
+    private OWLOntologyID ontologyId;
+
+    private IRI iriA, iriB, iriC;
+
+    @Before
+    public void setUp() {
+        index = new EntityRevisionIndex();
+        ontologyId = new OWLOntologyID(IRI.create("http://example.org/OntA"));
+        iriA = IRI.create("http://example.org/A");
+        iriB = IRI.create("http://example.org/B");
+        iriC = IRI.create("http://example.org/C");
+    }
+
+    @Test
+    public void shouldReturnEmptyListForUnknownSubject() {
+        assertThat(index.getRevisionNumbers(iriA), is(empty()));
+    }
+
+    @Test
+    public void shouldIndexRevisionsBySubject() {
+        index.add(createRevision(1, AddAxiomChange.of(ontologyId, SubClassOf(Class(iriA), Class(iriB)))));
+        index.add(createRevision(2, AddAxiomChange.of(ontologyId, SubClassOf(Class(iriB), Class(iriC)))));
+        index.add(createRevision(3, RemoveAxiomChange.of(ontologyId, SubClassOf(Class(iriA), Class(iriB)))));
+        assertThat(index.getRevisionNumbers(iriA), contains(revisionNumber(1), revisionNumber(3)));
+        assertThat(index.getRevisionNumbers(iriB), contains(revisionNumber(2)));
+        assertThat(index.getRevisionNumbers(iriC), is(empty()));
+    }
+
+    @Test
+    public void shouldIndexRevisionOnceForSubjectWithSeveralChanges() {
+        index.add(createRevision(1,
+                                 AddAxiomChange.of(ontologyId, SubClassOf(Class(iriA), Class(iriB))),
+                                 AddAxiomChange.of(ontologyId, SubClassOf(Class(iriA), Class(iriC)))));
+        assertThat(index.getRevisionNumbers(iriA), contains(revisionNumber(1)));
+    }
+
+    @Test
+    public void shouldRecordLastRevision() {
+        index.add(createRevision(7, AddAxiomChange.of(ontologyId, SubClassOf(Class(iriA), Class(iriB)))));
+        assertThat(index.getLastRevisionNumber(), is(revisionNumber(7)));
+        assertThat(index.getLastRevisionTimestamp(), is(7000L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowIllegalArgumentExceptionIfRevisionIsOutOfOrder() {
+        index.add(createRevision(2, AddAxiomChange.of(ontologyId, SubClassOf(Class(iriA), Class(iriB)))));
+        index.add(createRevision(1, AddAxiomChange.of(ontologyId, SubClassOf(Class(iriA), Class(iriB)))));
+    }
+
+    @Test
+    public void shouldNotHaveSubjectForOntologyAnnotationChange() {
+        var change = AddOntologyAnnotationChange.of(ontologyId, Annotation(RDFSComment(), Literal("x")));
+        assertThat(EntityRevisionIndex.getSubject(change), is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldWriteAndReadIndex() throws IOException {
+        index.add(createRevision(1, AddAxiomChange.of(ontologyId, SubClassOf(Class(iriA), Class(iriB)))));
+        index.add(createRevision(2, AddAxiomChange.of(ontologyId, SubClassOf(Class(iriB), Class(iriC)))));
+        index.add(createRevision(3, AddAxiomChange.of(ontologyId, SubClassOf(Class(iriA), Class(iriC)))));
+        var outputStream = new ByteArrayOutputStream();
+        index.write(outputStream);
+        var readIndex = EntityRevisionIndex.read(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertThat(readIndex.getRevisionNumbers(iriA), contains(revisionNumber(1), revisionNumber(3)));
+        assertThat(readIndex.getRevisionNumbers(iriB), contains(revisionNumber(2)));
+        assertThat(readIndex.getLastRevisionNumber(), is(revisionNumber(3)));
+        assertThat(readIndex.getLastRevisionTimestamp(), is(3000L));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldThrowIOExceptionForTruncatedIndex() throws IOException {
+        index.add(createRevision(1, AddAxiomChange.of(ontologyId, SubClassOf(Class(iriA), Class(iriB)))));
+        var outputStream = new ByteArrayOutputStream();
+        index.write(outputStream);
+        var bytes = outputStream.toByteArray();
+        EntityRevisionIndex.read(new ByteArrayInputStream(bytes, 0, bytes.length - 4));
+    }
+
+    private static RevisionNumber revisionNumber(long value) {
+        return RevisionNumber.getRevisionNumber(value);
+    }
+
+    private static Revision createRevision(long revisionNumber, OntologyChange... changes) {
+        return new Revision(UserId.getGuest(),
+                            RevisionNumber.getRevisionNumber(revisionNumber),
+                            ImmutableList.copyOf(changes),
+                            revisionNumber * 1000,
+                            "");
+    }
+}
@@ -0,0 +1,138 @@
+package edu.stanford.bmir.protege.web.server.revision;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.bmir.protege.web.server.change.AddAxiomChange;
+import edu.stanford.bmir.protege.web.server.change.OntologyChange;
+import edu.stanford.bmir.protege.web.server.change.OntologyChangeRecordTranslatorImpl;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.binaryowl.BinaryOWLMetadata;
+import org.semanticweb.binaryowl.BinaryOWLOntologyChangeLog;
+import org.semanticweb.binaryowl.change.OntologyChangeRecordList;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.Class;
+import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.Declaration;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-11-30
+ */
+public class MappedChangeHistory_TestCase {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final OWLOntologyID ontologyId = new OWLOntologyID(IRI.create("http://example.org/OntA"));
+
+    private final OntologyChange changeA = AddAxiomChange.of(ontologyId, Declaration(Class(IRI.create("http://example.org/A"))));
+
+    private final OntologyChange changeB = AddAxiomChange.of(ontologyId, Declaration(Class(IRI.create("http://example.org/B"))));
+
+    private File changeHistoryFile;
+
+    private long endOfFirstRecord;
+
+    private MappedChangeHistory changeHistory;
+
+    @Before
+    public void setUp() throws IOException {
+        changeHistoryFile = temporaryFolder.newFile();
+        appendRecord(changeA);
+        endOfFirstRecord = changeHistoryFile.length();
+        appendRecord(changeB);
+        changeHistory = mapChangeHistory(10);
+    }
+
+    private void appendRecord(OntologyChange change) throws IOException {
+        var recordList = new OntologyChangeRecordList(1L,
+                                                      new BinaryOWLMetadata(),
+                                                      ImmutableList.of(change.toOwlOntologyChangeRecord()));
+        new BinaryOWLOntologyChangeLog().appendChanges(recordList, changeHistoryFile);
+    }
+
+    private MappedChangeHistory mapChangeHistory(int cacheSize) throws IOException {
+        return MappedChangeHistory.map(changeHistoryFile,
+                                       changeHistoryFile.length(),
+                                       new OWLDataFactoryImpl(),
+                                       new OntologyChangeRecordTranslatorImpl(),
+                                       cacheSize);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        changeHistory.close();
+    }
+
+    @Test
+    public void shouldDecodeFirstRecord() {
+        var changes = changeHistory.getChanges(RevisionNumber.getRevisionNumber(1), 0, endOfFirstRecord);
+        assertThat(changes, contains(changeA));
+    }
+
+    @Test
+    public void shouldDecodeLastRecord() {
+        var changes = changeHistory.getChanges(RevisionNumber.getRevisionNumber(2),
+                                               endOfFirstRecord,
+                                               changeHistoryFile.length());
+        assertThat(changes, contains(changeB));
+    }
+
+    @Test
+    public void shouldCacheDecodedChanges() {
+        changeHistory.getChanges(RevisionNumber.getRevisionNumber(1), 0, endOfFirstRecord);
+        assertThat(changeHistory.getCachedChangeCount(), is(1L));
+    }
+
+    @Test
+    public void shouldNotCacheDecodedChangesIfCacheSizeIsZero() throws IOException {
+        changeHistory.close();
+        changeHistory = mapChangeHistory(0);
+        var changes = changeHistory.getChanges(RevisionNumber.getRevisionNumber(1), 0, endOfFirstRecord);
+        assertThat(changes, contains(changeA));
+        assertThat(changeHistory.getCachedChangeCount(), is(0L));
+    }
+
+    @Test
+    public void shouldDecodeChangesAfterClose() throws IOException {
+        changeHistory.close();
+        var changes = changeHistory.getChanges(RevisionNumber.getRevisionNumber(2),
+                                               endOfFirstRecord,
+                                               changeHistoryFile.length());
+        assertThat(changes, contains(changeB));
+    }
+
+    @Test
+    public void shouldNotCacheDecodedChangesAfterClose() throws IOException {
+        changeHistory.getChanges(RevisionNumber.getRevisionNumber(1), 0, endOfFirstRecord);
+        changeHistory.close();
+        changeHistory.getChanges(RevisionNumber.getRevisionNumber(1), 0, endOfFirstRecord);
+        assertThat(changeHistory.getCachedChangeCount(), is(0L));
+    }
+
+    @Test
+    public void shouldAllowCloseToBeCalledMoreThanOnce() throws IOException {
+        changeHistory.close();
+        changeHistory.close();
+        var changes = changeHistory.getChanges(RevisionNumber.getRevisionNumber(1), 0, endOfFirstRecord);
+        assertThat(changes, contains(changeA));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowIllegalArgumentExceptionForNegativeLength() throws IOException {
+        MappedChangeHistory.map(changeHistoryFile, -1, new OWLDataFactoryImpl(), new OntologyChangeRecordTranslatorImpl(), 10);
+    }
+}
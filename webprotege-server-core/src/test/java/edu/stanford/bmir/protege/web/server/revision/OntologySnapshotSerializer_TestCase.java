@@ -0,0 +1,107 @@
+package edu.stanford.bmir.protege.web.server.revision;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.bmir.protege.web.server.change.AddAxiomChange;
+import edu.stanford.bmir.protege.web.server.change.AddOntologyAnnotationChange;
+import edu.stanford.bmir.protege.web.server.change.OntologyChange;
+import edu.stanford.bmir.protege.web.server.change.OntologyChangeRecordTranslatorImpl;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import edu.stanford.bmir.protege.web.shared.user.UserId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.*;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-11-02
+ */
+public class OntologySnapshotSerializer_TestCase {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private OntologySnapshotSerializer serializer;
+
+    private OntologySnapshot snapshot;
+
+    private File snapshotFile;
+
+    @Before
+    public void setUp() throws IOException {
+        var dataFactory = new OWLDataFactoryImpl();
+        serializer = new OntologySnapshotSerializer(dataFactory, new OntologyChangeRecordTranslatorImpl());
+        var ontologyId = new OWLOntologyID(IRI.create("http://example.org/OntA"));
+        var clsA = Class(IRI.create("http://example.org/A"));
+        var clsB = Class(IRI.create("http://example.org/B"));
+        var changes = ImmutableList.<OntologyChange>of(
+                AddAxiomChange.of(ontologyId, SubClassOf(clsA, clsB)),
+                AddOntologyAnnotationChange.of(ontologyId, Annotation(RDFSComment(), Literal("Comment")))
+        );
+        snapshot = OntologySnapshot.get(RevisionNumber.getRevisionNumber(33), 1234L, changes);
+        snapshotFile = new File(temporaryFolder.newFolder(), "snapshot.binary");
+    }
+
+    @Test
+    public void shouldRoundTripSnapshot() throws IOException {
+        serializer.writeSnapshot(snapshot, snapshotFile);
+        var readSnapshot = serializer.readSnapshot(snapshotFile);
+        assertThat(readSnapshot, is(snapshot));
+    }
+
+    @Test
+    public void shouldReplaceExistingSnapshot() throws IOException {
+        serializer.writeSnapshot(OntologySnapshot.get(RevisionNumber.getRevisionNumber(1), 1L, ImmutableList.of()),
+                                 snapshotFile);
+        serializer.writeSnapshot(snapshot, snapshotFile);
+        var readSnapshot = serializer.readSnapshot(snapshotFile);
+        assertThat(readSnapshot, is(snapshot));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldThrowIOExceptionForTruncatedSnapshot() throws IOException {
+        serializer.writeSnapshot(snapshot, snapshotFile);
+        var bytes = Files.readAllBytes(snapshotFile.toPath());
+        var truncated = new byte[bytes.length / 2];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        Files.write(snapshotFile.toPath(), truncated);
+        serializer.readSnapshot(snapshotFile);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldThrowIOExceptionForMissingSnapshot() throws IOException {
+        serializer.readSnapshot(new File(temporaryFolder.getRoot(), "missing.binary"));
+    }
+
+    @Test
+    public void shouldBeSnapshotOfRevisionWithSameNumberAndTimestamp() {
+        var revision = createRevision(1234L);
+        assertThat(snapshot.isSnapshotOf(revision), is(true));
+    }
+
+    @Test
+    public void shouldNotBeSnapshotOfRevisionWithDifferentTimestamp() {
+        var revision = createRevision(5678L);
+        assertThat(snapshot.isSnapshotOf(revision), is(false));
+    }
+
+    private static Revision createRevision(long timestamp) {
+        return new Revision(UserId.getGuest(),
+                            RevisionNumber.getRevisionNumber(33),
+                            ImmutableList.of(),
+                            timestamp,
+                            "");
+    }
+}
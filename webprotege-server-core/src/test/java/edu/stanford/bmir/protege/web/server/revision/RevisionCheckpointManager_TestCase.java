@@ -0,0 +1,220 @@
+package edu.stanford.bmir.protege.web.server.revision;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import edu.stanford.bmir.protege.web.server.change.AddAxiomChange;
+import edu.stanford.bmir.protege.web.server.change.AddImportChange;
+import edu.stanford.bmir.protege.web.server.change.AddOntologyAnnotationChange;
+import edu.stanford.bmir.protege.web.server.change.OntologyChangeRecordTranslatorImpl;
+import edu.stanford.bmir.protege.web.server.inject.RevisionCheckpointDirectoryFactory;
+import edu.stanford.bmir.protege.web.server.owlapi.WebProtegeOWLManager;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskScheduler;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import edu.stanford.bmir.protege.web.shared.user.UserId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.semanticweb.owlapi.model.*;
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.*;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-11-09
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class RevisionCheckpointManager_TestCase {
+
+    private static final int CHECKPOINT_INTERVAL = 10;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private RevisionCheckpointManager checkpointManager;
+
+    @Mock
+    private RevisionCheckpointDirectoryFactory checkpointDirectoryFactory;
+
+    @Mock
+    private RevisionStore revisionStore;
+
+    @Mock
+    private ScheduledExecutorService timer;
+
+    private ProjectTaskScheduler projectTaskScheduler;
+
+    private File checkpointsDirectory;
+
+    private OWLOntologyManager ontologyManager;
+
+    private OWLOntologyID ontologyId;
+
+    private OWLAxiom axiom;
+
+    private OWLAnnotation annotation;
+
+    private OWLImportsDeclaration importsDeclaration;
+
+    private Revision revision10, revision20;
+
+    @Before
+    public void setUp() throws Exception {
+        var projectId = ProjectId.get(UUID.randomUUID().toString());
+        checkpointsDirectory = temporaryFolder.newFolder();
+        when(checkpointDirectoryFactory.getRevisionCheckpointsDirectory(projectId))
+                .thenReturn(checkpointsDirectory);
+        var serializer = new OntologySnapshotSerializer(new OWLDataFactoryImpl(),
+                                                        new OntologyChangeRecordTranslatorImpl());
+        // Run background tasks on the calling thread
+        projectTaskScheduler = new ProjectTaskScheduler(MoreExecutors.newDirectExecutorService(), timer);
+        checkpointManager = new RevisionCheckpointManager(projectId,
+                                                          checkpointDirectoryFactory,
+                                                          serializer,
+                                                          revisionStore,
+                                                          CHECKPOINT_INTERVAL,
+                                                          projectTaskScheduler);
+        ontologyId = new OWLOntologyID(IRI.create("http://example.org/OntA"));
+        axiom = SubClassOf(Class(IRI.create("http://example.org/A")), Class(IRI.create("http://example.org/B")));
+        annotation = Annotation(RDFSComment(), Literal("Comment"));
+        importsDeclaration = ImportsDeclaration(IRI.create("http://example.org/OntB"));
+        ontologyManager = WebProtegeOWLManager.createOWLOntologyManager();
+        var ontology = ontologyManager.createOntology(ontologyId);
+        ontologyManager.addAxiom(ontology, axiom);
+        ontologyManager.applyChange(new AddOntologyAnnotation(ontology, annotation));
+        ontologyManager.applyChange(new AddImport(ontology, importsDeclaration));
+        revision10 = createRevision(10, 1000L);
+        revision20 = createRevision(20, 2000L);
+        when(revisionStore.getRevision(revision10.getRevisionNumber()))
+                .thenReturn(Optional.of(revision10));
+        when(revisionStore.getRevision(revision20.getRevisionNumber()))
+                .thenReturn(Optional.of(revision20));
+    }
+
+    @Test
+    public void shouldBeCheckpointRevisionForMultipleOfInterval() {
+        assertThat(checkpointManager.isCheckpointRevision(RevisionNumber.getRevisionNumber(20)), is(true));
+    }
+
+    @Test
+    public void shouldNotBeCheckpointRevisionForNonMultipleOfInterval() {
+        assertThat(checkpointManager.isCheckpointRevision(RevisionNumber.getRevisionNumber(21)), is(false));
+    }
+
+    @Test
+    public void shouldNotBeCheckpointRevisionForRevisionZero() {
+        assertThat(checkpointManager.isCheckpointRevision(RevisionNumber.getRevisionNumber(0)), is(false));
+    }
+
+    @Test
+    public void shouldNotBeCheckpointRevisionForHeadRevision() {
+        assertThat(checkpointManager.isCheckpointRevision(RevisionNumber.getHeadRevisionNumber()), is(false));
+    }
+
+    @Test
+    public void shouldNotBeCheckpointRevisionIfCheckpointsAreDisabled() {
+        var disabledCheckpointManager = new RevisionCheckpointManager(ProjectId.get(UUID.randomUUID().toString()),
+                                                                      checkpointDirectoryFactory,
+                                                                      new OntologySnapshotSerializer(new OWLDataFactoryImpl(),
+                                                                                                     new OntologyChangeRecordTranslatorImpl()),
+                                                                      revisionStore,
+                                                                      0,
+                                                                      projectTaskScheduler);
+        assertThat(disabledCheckpointManager.isCheckpointRevision(RevisionNumber.getRevisionNumber(20)), is(false));
+    }
+
+    @Test
+    public void shouldReturnEmptyIfThereAreNoCheckpoints() {
+        var checkpoint = checkpointManager.getNearestCheckpoint(RevisionNumber.getRevisionNumber(25));
+        assertThat(checkpoint.isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldSaveCheckpointWithImportsAnnotationsAndAxioms() {
+        checkpointManager.saveCheckpoint(revision10, ontologyManager);
+        assertThat(checkpointManager.hasCheckpoint(revision10.getRevisionNumber()), is(true));
+        var checkpoint = checkpointManager.getNearestCheckpoint(revision10.getRevisionNumber());
+        assertThat(checkpoint.isPresent(), is(true));
+        assertThat(checkpoint.get().getChanges(), containsInAnyOrder(AddImportChange.of(ontologyId, importsDeclaration),
+                                                                     AddOntologyAnnotationChange.of(ontologyId, annotation),
+                                                                     AddAxiomChange.of(ontologyId, axiom)));
+    }
+
+    @Test
+    public void shouldSaveScheduledCheckpoint() {
+        checkpointManager.scheduleCheckpoint(revision10, ontologyManager);
+        var checkpoint = checkpointManager.getNearestCheckpoint(revision10.getRevisionNumber());
+        assertThat(checkpoint.isPresent(), is(true));
+        assertThat(checkpoint.get().getChanges(), containsInAnyOrder(AddImportChange.of(ontologyId, importsDeclaration),
+                                                                     AddOntologyAnnotationChange.of(ontologyId, annotation),
+                                                                     AddAxiomChange.of(ontologyId, axiom)));
+    }
+
+    @Test
+    public void shouldGetNearestCheckpointAtOrBeforeRevision() {
+        checkpointManager.saveCheckpoint(revision10, ontologyManager);
+        checkpointManager.saveCheckpoint(revision20, ontologyManager);
+        var checkpoint = checkpointManager.getNearestCheckpoint(RevisionNumber.getRevisionNumber(19));
+        assertThat(checkpoint.map(OntologySnapshot::getRevisionNumber), is(Optional.of(revision10.getRevisionNumber())));
+    }
+
+    @Test
+    public void shouldGetCheckpointAtRevision() {
+        checkpointManager.saveCheckpoint(revision10, ontologyManager);
+        checkpointManager.saveCheckpoint(revision20, ontologyManager);
+        var checkpoint = checkpointManager.getNearestCheckpoint(RevisionNumber.getRevisionNumber(20));
+        assertThat(checkpoint.map(OntologySnapshot::getRevisionNumber), is(Optional.of(revision20.getRevisionNumber())));
+    }
+
+    @Test
+    public void shouldDiscardStaleCheckpointAndFallBackToEarlierCheckpoint() {
+        checkpointManager.saveCheckpoint(revision10, ontologyManager);
+        checkpointManager.saveCheckpoint(revision20, ontologyManager);
+        when(revisionStore.getRevision(revision20.getRevisionNumber()))
+                .thenReturn(Optional.of(createRevision(20, 9999L)));
+        var checkpoint = checkpointManager.getNearestCheckpoint(RevisionNumber.getRevisionNumber(25));
+        assertThat(checkpoint.map(OntologySnapshot::getRevisionNumber), is(Optional.of(revision10.getRevisionNumber())));
+        assertThat(checkpointManager.hasCheckpoint(revision20.getRevisionNumber()), is(false));
+    }
+
+    @Test
+    public void shouldDiscardCorruptCheckpoint() throws IOException {
+        var checkpointFile = new File(checkpointsDirectory, "checkpoint-10.binary");
+        Files.write(checkpointFile.toPath(), new byte[]{1, 2, 3, 4});
+        var checkpoint = checkpointManager.getNearestCheckpoint(RevisionNumber.getRevisionNumber(15));
+        assertThat(checkpoint.isEmpty(), is(true));
+        assertThat(checkpointFile.exists(), is(false));
+    }
+
+    @Test
+    public void shouldIgnoreUnrelatedFiles() throws IOException {
+        Files.write(new File(checkpointsDirectory, "notes.txt").toPath(), new byte[]{1});
+        var checkpoint = checkpointManager.getNearestCheckpoint(RevisionNumber.getRevisionNumber(15));
+        assertThat(checkpoint.isEmpty(), is(true));
+    }
+
+    private static Revision createRevision(long revisionNumber, long timestamp) {
+        return new Revision(UserId.getGuest(),
+                            RevisionNumber.getRevisionNumber(revisionNumber),
+                            ImmutableList.of(),
+                            timestamp,
+                            "");
+    }
+}
@@ -5,6 +5,7 @@ import edu.stanford.bmir.protege.web.server.change.AddAxiomChange;
 import edu.stanford.bmir.protege.web.server.change.OntologyChange;
 import edu.stanford.bmir.protege.web.server.change.OntologyChangeRecordTranslatorImpl;
 import edu.stanford.bmir.protege.web.server.inject.ChangeHistoryFileFactory;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskScheduler;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
 import edu.stanford.bmir.protege.web.shared.user.UserId;
@@ -16,14 +17,21 @@ import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.semanticweb.binaryowl.BinaryOWLMetadata;
+import org.semanticweb.binaryowl.BinaryOWLOntologyChangeLog;
+import org.semanticweb.binaryowl.change.OntologyChangeRecordList;
 import org.semanticweb.owlapi.model.*;
 import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -47,8 +55,12 @@ public class RevisionStoreImpl_IT {
 
     private OWLAxiom axiom;
 
+    private IRI axiomSubject;
+
     private File changeHistoryFile;
 
+    private File entityRevisionIndexFile;
+
     private ProjectId projectId;
 
     private OWLDataFactoryImpl dataFactory;
@@ -57,6 +69,12 @@ public class RevisionStoreImpl_IT {
 
     private CountDownLatch countDownLatch = new CountDownLatch(1);
 
+    private ExecutorService workerPool;
+
+    private ScheduledExecutorService timer;
+
+    private ProjectTaskScheduler projectTaskScheduler;
+
     @Mock
     private ChangeHistoryFileFactory changeHistoryFileFactory;
 
@@ -68,18 +86,29 @@ public class RevisionStoreImpl_IT {
         changeHistoryFile = temporaryFolder.newFile();
         when(changeHistoryFileFactory.getChangeHistoryFile(projectId))
                 .thenReturn(changeHistoryFile);
+        entityRevisionIndexFile = new File(changeHistoryFile.getParentFile(), "entity-revision-index.binary");
+        when(changeHistoryFileFactory.getEntityRevisionIndexFile(projectId))
+                .thenReturn(entityRevisionIndexFile);
         dataFactory = new OWLDataFactoryImpl();
         changeRecordTranslator = new OntologyChangeRecordTranslatorImpl();
+        workerPool = Executors.newFixedThreadPool(2);
+        timer = Executors.newSingleThreadScheduledExecutor();
+        projectTaskScheduler = new ProjectTaskScheduler(workerPool, timer);
 
         ontologyId = new OWLOntologyID(IRI.create("http://example.org/OntA"));
         var clsA = dataFactory.getOWLClass(IRI.create("http://example.org/A"));
         var clsB = dataFactory.getOWLClass(IRI.create("http://example.org/A"));
         axiom = SubClassOf(clsA, clsB);
+        axiomSubject = clsA.getIRI();
 
         store = new RevisionStoreImpl(projectId,
                                       changeHistoryFileFactory,
                                       dataFactory,
-                                      changeRecordTranslator);
+                                      changeRecordTranslator,
+                                      false,
+                                      1000,
+                                      createChangeHistoryWriterFactory(),
+                                      projectTaskScheduler);
     }
 
     @Test
@@ -158,13 +187,114 @@ public class RevisionStoreImpl_IT {
     public void shouldLoadSavedRevision() {
         var revision = createRevision();
         store.addRevision(revision);
-        var otherStore = new RevisionStoreImpl(projectId, changeHistoryFileFactory, dataFactory, changeRecordTranslator);
+        var otherStore = createOtherStore(false);
         otherStore.load();
         var revisions = store.getRevisions();
         assertThat(revisions, contains(revision));
         otherStore.dispose();
     }
 
+    @Test
+    public void shouldGetRevisionNumbersForSubject() {
+        store.addRevision(createRevision(RevisionNumber.getRevisionNumber(1)));
+        store.addRevision(createRevision(RevisionNumber.getRevisionNumber(2)));
+        var revisionNumbers = store.getRevisionNumbersForSubject(axiomSubject);
+        assertThat(revisionNumbers, contains(RevisionNumber.getRevisionNumber(1), RevisionNumber.getRevisionNumber(2)));
+    }
+
+    @Test
+    public void shouldBuildEntityRevisionIndexOnLoad() {
+        store.addRevision(createRevision());
+        var otherStore = createOtherStore(false);
+        otherStore.load();
+        assertThat(entityRevisionIndexFile.exists(), is(true));
+        var revisionNumbers = otherStore.getRevisionNumbersForSubject(axiomSubject);
+        assertThat(revisionNumbers, contains(RevisionNumber.getRevisionNumber(1)));
+        otherStore.dispose();
+    }
+
+    @Test
+    public void shouldRebuildEntityRevisionIndexIfItDoesNotMatchChangeHistory() throws IOException {
+        store.addRevision(createRevision());
+        var staleIndex = new EntityRevisionIndex();
+        staleIndex.add(new Revision(UserId.getGuest(), RevisionNumber.getRevisionNumber(1), ImmutableList.of(), 1L, ""));
+        try(var outputStream = new FileOutputStream(entityRevisionIndexFile)) {
+            staleIndex.write(outputStream);
+        }
+        var otherStore = createOtherStore(false);
+        otherStore.load();
+        var revisionNumbers = otherStore.getRevisionNumbersForSubject(axiomSubject);
+        assertThat(revisionNumbers, contains(RevisionNumber.getRevisionNumber(1)));
+        otherStore.dispose();
+    }
+
+    @Test
+    public void shouldLazilyLoadSavedRevisions() throws InterruptedException {
+        var savedLatch = new CountDownLatch(2);
+        var revision1 = createRevision(RevisionNumber.getRevisionNumber(1));
+        store.addRevision(revision1);
+        store.setSavedHook(savedLatch::countDown);
+        var revision2 = createRevision(RevisionNumber.getRevisionNumber(2));
+        store.addRevision(revision2);
+        var revision3 = createRevision(RevisionNumber.getRevisionNumber(3));
+        store.addRevision(revision3);
+        savedLatch.await();
+        var otherStore = createOtherStore(true);
+        otherStore.load();
+        var revisions = otherStore.getRevisions();
+        assertThat(revisions, contains(revision1, revision2, revision3));
+        assertThat(revisions.get(1).getSize(), is(1));
+        assertThat(revisions.get(1).getChanges(), is(revision2.getChanges()));
+        otherStore.dispose();
+    }
+
+    @Test
+    public void shouldLazilyLoadRevisionsThatDoNotHaveChangeCount() throws IOException {
+        var metadata = new BinaryOWLMetadata();
+        metadata.setStringAttribute(RevisionSerializationVocabulary.USERNAME_METADATA_ATTRIBUTE.getVocabularyName(), "The User");
+        metadata.setLongAttribute(RevisionSerializationVocabulary.REVISION_META_DATA_ATTRIBUTE.getVocabularyName(), 1L);
+        var changeRecords = ImmutableList.of(AddAxiomChange.of(ontologyId, axiom).toOwlOntologyChangeRecord());
+        new BinaryOWLOntologyChangeLog().appendChanges(new OntologyChangeRecordList(33L, metadata, changeRecords),
+                                                       changeHistoryFile);
+        var otherStore = createOtherStore(true);
+        otherStore.load();
+        var revision = otherStore.getRevision(RevisionNumber.getRevisionNumber(1)).orElseThrow();
+        assertThat(revision.getSize(), is(1));
+        assertThat(revision.getChanges(), contains(AddAxiomChange.of(ontologyId, axiom)));
+        assertThat(revision.getTimestamp(), is(33L));
+        otherStore.dispose();
+    }
+
+    @Test
+    public void shouldBuildEntityRevisionIndexOnLazyLoad() {
+        store.addRevision(createRevision());
+        var otherStore = createOtherStore(true);
+        otherStore.load();
+        var revisionNumbers = otherStore.getRevisionNumbersForSubject(axiomSubject);
+        assertThat(revisionNumbers, contains(RevisionNumber.getRevisionNumber(1)));
+        otherStore.dispose();
+    }
+
+    @Test
+    public void shouldAddRevisionAfterLazyLoad() {
+        store.addRevision(createRevision(RevisionNumber.getRevisionNumber(1)));
+        var otherStore = createOtherStore(true);
+        otherStore.load();
+        var revision = createRevision(RevisionNumber.getRevisionNumber(2));
+        otherStore.addRevision(revision);
+        assertThat(otherStore.getRevisions().size(), is(2));
+        assertThat(otherStore.getRevision(RevisionNumber.getRevisionNumber(2)), is(Optional.of(revision)));
+        otherStore.dispose();
+    }
+
+    private RevisionStoreImpl createOtherStore(boolean lazyLoading) {
+        return new RevisionStoreImpl(projectId, changeHistoryFileFactory, dataFactory, changeRecordTranslator, lazyLoading, 1000, createChangeHistoryWriterFactory(), projectTaskScheduler);
+    }
+
+    private static ChangeHistoryGroupCommitWriterFactory createChangeHistoryWriterFactory() {
+        return new ChangeHistoryGroupCommitWriterFactory(() -> 0L, () -> 100);
+    }
+
     private Revision createRevision() {
         var revisionNumber = RevisionNumber.getRevisionNumber(1);
         return createRevision(revisionNumber);
@@ -187,5 +317,7 @@ public class RevisionStoreImpl_IT {
     @After
     public void tearDown() throws Exception {
         store.dispose();
+        timer.shutdown();
+        workerPool.shutdown();
     }
 }
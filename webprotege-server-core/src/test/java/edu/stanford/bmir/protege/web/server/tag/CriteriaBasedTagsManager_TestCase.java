@@ -0,0 +1,242 @@
+package edu.stanford.bmir.protege.web.server.tag;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import edu.stanford.bmir.protege.web.server.change.AddAxiomChange;
+import edu.stanford.bmir.protege.web.server.index.EntitiesInProjectSignatureByIriIndex;
+import edu.stanford.bmir.protege.web.server.match.MatchingEngine;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskScheduler;
+import edu.stanford.bmir.protege.web.server.revision.Revision;
+import edu.stanford.bmir.protege.web.shared.color.Color;
+import edu.stanford.bmir.protege.web.shared.match.criteria.EntityIsDeprecatedCriteria;
+import edu.stanford.bmir.protege.web.shared.match.criteria.HierarchyFilterType;
+import edu.stanford.bmir.protege.web.shared.match.criteria.RootCriteria;
+import edu.stanford.bmir.protege.web.shared.match.criteria.SubClassOfCriteria;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import edu.stanford.bmir.protege.web.shared.tag.Tag;
+import edu.stanford.bmir.protege.web.shared.tag.TagId;
+import edu.stanford.bmir.protege.web.shared.user.UserId;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.semanticweb.owlapi.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toSet;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.*;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class CriteriaBasedTagsManager_TestCase {
+
+    private final ProjectId projectId = ProjectId.get(UUID.randomUUID().toString());
+
+    private final OWLOntologyID ontologyId = new OWLOntologyID(IRI.create("http://example.org/ontology"));
+
+    private final OWLClass clsA = Class(IRI.create("http://example.org/A"));
+
+    private final OWLClass clsB = Class(IRI.create("http://example.org/B"));
+
+    private final OWLAnnotationProperty deprecated = AnnotationProperty(IRI.create("http://www.w3.org/2002/07/owl#deprecated"));
+
+    private final ImmutableList<RootCriteria> deprecatedCriteria = ImmutableList.of(EntityIsDeprecatedCriteria.get());
+
+    private final ImmutableList<RootCriteria> subClassCriteria = ImmutableList.of(SubClassOfCriteria.get(clsA, HierarchyFilterType.ALL));
+
+    private final TagId deprecatedTagId = TagId.createTagId();
+
+    private final TagId subClassTagId = TagId.createTagId();
+
+    @Mock
+    private TagRepository tagRepository;
+
+    @Mock
+    private MatchingEngine matchingEngine;
+
+    @Mock
+    private EntitiesInProjectSignatureByIriIndex entitiesInProjectSignatureByIriIndex;
+
+    @Mock
+    private Color color;
+
+    @Mock
+    private ExecutorService workerPool;
+
+    @Mock
+    private ScheduledExecutorService timer;
+
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    private final List<ImmutableSet<OWLEntity>> membershipChanges = new ArrayList<>();
+
+    private CriteriaBasedTagsManager manager;
+
+    @Before
+    public void setUp() {
+        var deprecatedTag = Tag.get(deprecatedTagId, projectId, "Deprecated", "", color, color, deprecatedCriteria);
+        var subClassTag = Tag.get(subClassTagId, projectId, "Sub class", "", color, color, subClassCriteria);
+        when(tagRepository.findTags()).thenReturn(List.of(deprecatedTag, subClassTag));
+        when(matchingEngine.matchAny(deprecatedCriteria)).thenAnswer(invocation -> Stream.of(clsA));
+        when(matchingEngine.matchAny(subClassCriteria)).thenAnswer(invocation -> Stream.of(clsB));
+        when(entitiesInProjectSignatureByIriIndex.getEntitiesInSignature(any())).thenAnswer(invocation -> Stream.empty());
+        when(entitiesInProjectSignatureByIriIndex.getEntitiesInSignature(clsA.getIRI())).thenAnswer(invocation -> Stream.of(clsA));
+        when(entitiesInProjectSignatureByIriIndex.getEntitiesInSignature(clsB.getIRI())).thenAnswer(invocation -> Stream.of(clsB));
+        doAnswer(invocation -> tasks.add(invocation.getArgument(0))).when(workerPool).execute(any());
+        manager = new CriteriaBasedTagsManager(projectId,
+                                               tagRepository,
+                                               matchingEngine,
+                                               entitiesInProjectSignatureByIriIndex,
+                                               new ProjectTaskScheduler(workerPool, timer));
+        manager.setMembershipChangedHandler(membershipChanges::add);
+    }
+
+    private void runTasks() {
+        while(!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private Revision deprecate(OWLEntity entity) {
+        var change = AddAxiomChange.of(ontologyId, AnnotationAssertion(deprecated, entity.getIRI(), Literal(true)));
+        return new Revision(UserId.getGuest(), RevisionNumber.getRevisionNumber(2), ImmutableList.of(change), 0L, "");
+    }
+
+    @Test
+    public void shouldGetTagsForEntity() {
+        assertThat(manager.getTagsForEntity(clsA).collect(toSet()), contains(deprecatedTagId));
+        assertThat(manager.getTagsForEntity(clsB).collect(toSet()), contains(subClassTagId));
+    }
+
+    @Test
+    public void shouldGetTaggedEntities() {
+        assertThat(manager.getTaggedEntities(deprecatedTagId).collect(toSet()), contains(clsA));
+    }
+
+    @Test
+    public void shouldMatchTagsOnceForRepeatedReads() {
+        manager.getTagsForEntity(clsA);
+        manager.getTagsForEntity(clsB);
+        manager.getTaggedEntities(subClassTagId);
+        verify(matchingEngine, times(1)).matchAny(deprecatedCriteria);
+        verify(matchingEngine, times(1)).matchAny(subClassCriteria);
+        verify(matchingEngine, never()).matchesAny(any(), any());
+    }
+
+    @Test
+    public void shouldNotHandleRevisionBeforeFirstUse() {
+        var changedEntities = manager.handleRevision(deprecate(clsB));
+        assertThat(changedEntities, is(empty()));
+        verifyZeroInteractions(matchingEngine);
+    }
+
+    @Test
+    public void shouldAddTouchedEntitiesToEntityLocalTags() {
+        manager.getTagsForEntity(clsA);
+        when(matchingEngine.matchesAny(eq(clsB), eq(deprecatedCriteria))).thenReturn(true);
+        var changedEntities = manager.handleRevision(deprecate(clsB));
+        assertThat(changedEntities, is(ImmutableSet.of(clsB)));
+        assertThat(manager.getTagsForEntity(clsB).collect(toSet()), containsInAnyOrder(deprecatedTagId, subClassTagId));
+        verify(matchingEngine, times(1)).matchAny(deprecatedCriteria);
+    }
+
+    @Test
+    public void shouldRemoveTouchedEntitiesFromEntityLocalTags() {
+        manager.getTagsForEntity(clsA);
+        when(matchingEngine.matchesAny(eq(clsA), eq(deprecatedCriteria))).thenReturn(false);
+        var changedEntities = manager.handleRevision(deprecate(clsA));
+        assertThat(changedEntities, is(ImmutableSet.of(clsA)));
+        assertThat(manager.getTaggedEntities(deprecatedTagId).collect(toSet()), is(empty()));
+    }
+
+    @Test
+    public void shouldRecomputeOtherTagsInBackground() {
+        manager.getTagsForEntity(clsA);
+        when(matchingEngine.matchAny(subClassCriteria)).thenAnswer(invocation -> Stream.of(clsA));
+        var changedEntities = manager.handleRevision(deprecate(clsA));
+        assertThat(changedEntities, is(ImmutableSet.of(clsA)));
+        assertThat(manager.getTaggedEntities(subClassTagId).collect(toSet()), contains(clsB));
+        verify(matchingEngine, times(1)).matchAny(subClassCriteria);
+        runTasks();
+        assertThat(membershipChanges, contains(ImmutableSet.of(clsA, clsB)));
+        assertThat(manager.getTaggedEntities(subClassTagId).collect(toSet()), contains(clsA));
+    }
+
+    @Test
+    public void shouldRecomputeOtherTagsOnceForSeveralRevisions() {
+        manager.getTagsForEntity(clsA);
+        manager.handleRevision(deprecate(clsA));
+        manager.handleRevision(deprecate(clsB));
+        runTasks();
+        verify(matchingEngine, times(2)).matchAny(subClassCriteria);
+    }
+
+    @Test
+    public void shouldApplyRecomputedMembersOfTagMadeStaleDuringRecomputation() {
+        manager.getTagsForEntity(clsA);
+        manager.handleRevision(deprecate(clsA));
+        when(matchingEngine.matchAny(subClassCriteria)).thenAnswer(invocation -> {
+            // A revision is handled whilst the members are being recomputed
+            manager.handleRevision(deprecate(clsB));
+            return Stream.of(clsA);
+        }).thenAnswer(invocation -> Stream.of(clsA, clsB));
+        runTasks();
+        // The members from the first recomputation were applied, and the tag was recomputed again because it
+        // was still stale
+        assertThat(membershipChanges, contains(ImmutableSet.of(clsA, clsB), ImmutableSet.of(clsB)));
+        assertThat(manager.getTaggedEntities(subClassTagId).collect(toSet()), containsInAnyOrder(clsA, clsB));
+        verify(matchingEngine, times(3)).matchAny(subClassCriteria);
+    }
+
+    @Test
+    public void shouldNotApplyRecomputedMembersOfChangedTag() {
+        manager.getTagsForEntity(clsA);
+        manager.handleRevision(deprecate(clsA));
+        when(matchingEngine.matchAny(subClassCriteria)).thenAnswer(invocation -> {
+            // The tags change whilst the members are being recomputed
+            when(tagRepository.findTags()).thenReturn(List.of());
+            manager.handleProjectTagsChanged();
+            return Stream.of(clsA);
+        });
+        runTasks();
+        assertThat(manager.getTaggedEntities(subClassTagId).collect(toSet()), is(empty()));
+    }
+
+    @Test
+    public void shouldFindTagsOnceUntilProjectTagsChange() {
+        manager.getTagsForEntity(clsA);
+        manager.handleRevision(deprecate(clsA));
+        manager.handleRevision(deprecate(clsB));
+        runTasks();
+        verify(tagRepository, times(1)).findTags();
+        manager.handleProjectTagsChanged();
+        verify(tagRepository, times(2)).findTags();
+    }
+
+    @Test
+    public void shouldRemoveMembersOfDeletedTags() {
+        manager.getTagsForEntity(clsA);
+        var deprecatedTag = Tag.get(deprecatedTagId, projectId, "Deprecated", "", color, color, deprecatedCriteria);
+        when(tagRepository.findTags()).thenReturn(List.of(deprecatedTag));
+        var changedEntities = manager.handleProjectTagsChanged();
+        assertThat(changedEntities, is(ImmutableSet.of(clsB)));
+        assertThat(manager.getTagsForEntity(clsB).collect(toSet()), is(empty()));
+    }
+}
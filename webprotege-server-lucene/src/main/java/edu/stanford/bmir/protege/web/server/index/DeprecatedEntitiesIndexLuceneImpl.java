@@ -3,6 +3,7 @@ package edu.stanford.bmir.protege.web.server.index;
 import edu.stanford.bmir.protege.web.server.pagination.PageCollector;
 import edu.stanford.bmir.protege.web.server.shortform.EntityDocumentFieldNames;
 import edu.stanford.bmir.protege.web.server.shortform.LuceneEntityDocumentTranslator;
+import edu.stanford.bmir.protege.web.server.shortform.LuceneIndexRefresher;
 import edu.stanford.bmir.protege.web.shared.pagination.Page;
 import edu.stanford.bmir.protege.web.shared.pagination.PageRequest;
 import org.apache.lucene.index.Term;
@@ -33,11 +34,16 @@ public class DeprecatedEntitiesIndexLuceneImpl implements DeprecatedEntitiesInde
     @Nonnull
     private final LuceneEntityDocumentTranslator documentTranslator;
 
+    @Nonnull
+    private final LuceneIndexRefresher indexRefresher;
+
     @Inject
     public DeprecatedEntitiesIndexLuceneImpl(@Nonnull SearcherManager searcherManager,
-                                             @Nonnull LuceneEntityDocumentTranslator documentTranslator) {
+                                             @Nonnull LuceneEntityDocumentTranslator documentTranslator,
+                                             @Nonnull LuceneIndexRefresher indexRefresher) {
         this.searcherManager = checkNotNull(searcherManager);
         this.documentTranslator = checkNotNull(documentTranslator);
+        this.indexRefresher = checkNotNull(indexRefresher);
     }
 
     @Nonnull
@@ -55,6 +61,7 @@ public class DeprecatedEntitiesIndexLuceneImpl implements DeprecatedEntitiesInde
                                         @Nonnull PageRequest pageRequest) throws IOException {
         var deprecatedTrueQuery = new TermQuery(new Term(EntityDocumentFieldNames.DEPRECATED, EntityDocumentFieldNames.DEPRECATED_TRUE));
         var deprecatedEntitiesQuery = getQueryForEntityTypes(entityTypes, deprecatedTrueQuery);
+        indexRefresher.refreshIfStale();
         var indexSearcher = searcherManager.acquire();
         try {
             TopDocs topDocs = indexSearcher.search(deprecatedEntitiesQuery, Integer.MAX_VALUE);
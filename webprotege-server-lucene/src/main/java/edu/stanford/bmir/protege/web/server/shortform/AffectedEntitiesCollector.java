@@ -0,0 +1,65 @@
+package edu.stanford.bmir.protege.web.server.shortform;
+
+import edu.stanford.bmir.protege.web.server.change.OntologyChange;
+import edu.stanford.bmir.protege.web.server.index.EntitiesInProjectSignatureByIriIndex;
+import edu.stanford.bmir.protege.web.server.revision.RevisionManager;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLEntity;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Collects the entities whose index documents are affected by the changes in a range of revisions.
+ */
+public class AffectedEntitiesCollector {
+
+    @Nonnull
+    private final EntitiesInProjectSignatureByIriIndex entitiesInProjectSignatureByIriIndex;
+
+    @Inject
+    public AffectedEntitiesCollector(@Nonnull EntitiesInProjectSignatureByIriIndex entitiesInProjectSignatureByIriIndex) {
+        this.entitiesInProjectSignatureByIriIndex = checkNotNull(entitiesInProjectSignatureByIriIndex);
+    }
+
+    /**
+     * Gets the entities that are affected by the revisions after the specified revision, up to and including the
+     * specified head revision.
+     */
+    @Nonnull
+    public Set<OWLEntity> getEntitiesAffectedByRevisions(@Nonnull RevisionManager revisionManager,
+                                                         @Nonnull RevisionNumber afterRevision,
+                                                         @Nonnull RevisionNumber headRevision) {
+        var affectedEntities = new HashSet<OWLEntity>();
+        for(var revisionNumber = afterRevision.getNextRevisionNumber();
+            revisionNumber.compareTo(headRevision) <= 0;
+            revisionNumber = revisionNumber.getNextRevisionNumber()) {
+            revisionManager.getRevision(revisionNumber)
+                           .ifPresent(revision -> revision.getChanges()
+                                                          .forEach(change -> addAffectedEntities(change, affectedEntities)));
+        }
+        return affectedEntities;
+    }
+
+    private void addAffectedEntities(@Nonnull OntologyChange change, @Nonnull Set<OWLEntity> affectedEntities) {
+        affectedEntities.addAll(change.getSignature());
+        // Catches annotations on entities whose signature is not changed
+        if(change.isAxiomChange() && change.getAxiomOrThrow() instanceof OWLAnnotationAssertionAxiom) {
+            var subject = ((OWLAnnotationAssertionAxiom) change.getAxiomOrThrow()).getSubject();
+            if(subject instanceof IRI) {
+                entitiesInProjectSignatureByIriIndex.getEntitiesInSignature((IRI) subject)
+                                                    .forEach(affectedEntities::add);
+            }
+        }
+    }
+}
@@ -30,11 +30,16 @@ public class DeprecatedEntitiesByEntityIndexLuceneImpl implements DeprecatedEnti
     @Nonnull
     private final LuceneEntityDocumentTranslator luceneEntityDocumentTranslator;
 
+    @Nonnull
+    private final LuceneIndexRefresher indexRefresher;
+
     @Inject
     public DeprecatedEntitiesByEntityIndexLuceneImpl(@Nonnull SearcherManager searcherManager,
-                                                     @Nonnull LuceneEntityDocumentTranslator luceneEntityDocumentTranslator) {
+                                                     @Nonnull LuceneEntityDocumentTranslator luceneEntityDocumentTranslator,
+                                                     @Nonnull LuceneIndexRefresher indexRefresher) {
         this.searcherManager = checkNotNull(searcherManager);
         this.luceneEntityDocumentTranslator = checkNotNull(luceneEntityDocumentTranslator);
+        this.indexRefresher = checkNotNull(indexRefresher);
     }
 
     @Override
@@ -47,6 +52,7 @@ public class DeprecatedEntitiesByEntityIndexLuceneImpl implements DeprecatedEnti
     }
 
     private boolean isDeprecatedEntity(@Nonnull OWLEntity entity) throws IOException {
+        indexRefresher.refreshIfStale();
         var indexSearcher = searcherManager.acquire();
         try {
             var entityQuery = luceneEntityDocumentTranslator.getEntityDocumentQuery(entity);
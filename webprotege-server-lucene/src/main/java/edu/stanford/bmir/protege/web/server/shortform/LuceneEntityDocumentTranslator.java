@@ -11,6 +11,7 @@ import org.semanticweb.owlapi.model.OWLEntity;
 import javax.annotation.Nonnull;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Matthew Horridge
@@ -43,6 +44,16 @@ public interface LuceneEntityDocumentTranslator {
     EntityDictionaryLanguageValues getDictionaryLanguageValues(@Nonnull Document document,
                                                                @Nonnull List<DictionaryLanguage> dictionaryLanguages);
 
+    /**
+     * Gets the names of the stored fields that need to be loaded from a Lucene document in order to extract the
+     * entity and the values for the specified dictionary languages.
+     *
+     * @param dictionaryLanguages The list of dictionary languages for which values will be retrieved
+     * @return The names of the stored fields.  Other stored fields do not need to be loaded.
+     */
+    @Nonnull
+    Set<String> getStoredFieldNames(@Nonnull List<DictionaryLanguage> dictionaryLanguages);
+
     /**
      * Gets a Lucene document for the specified entity
      *
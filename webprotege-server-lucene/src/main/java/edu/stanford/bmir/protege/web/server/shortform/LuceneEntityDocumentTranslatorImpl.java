@@ -14,7 +14,9 @@ import org.semanticweb.owlapi.model.*;
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -114,6 +116,18 @@ public class LuceneEntityDocumentTranslatorImpl implements LuceneEntityDocumentT
         return EntityDictionaryLanguageValues.get(entity, valuesBuilder.build());
     }
 
+    @Nonnull
+    @Override
+    public Set<String> getStoredFieldNames(@Nonnull List<DictionaryLanguage> dictionaryLanguages) {
+        var fieldNames = new HashSet<String>();
+        fieldNames.add(EntityDocumentFieldNames.IRI);
+        fieldNames.add(ENTITY_TYPE);
+        dictionaryLanguages.stream()
+                           .map(fieldNameTranslator::getNonTokenizedFieldName)
+                           .forEach(fieldNames::add);
+        return fieldNames;
+    }
+
     @Nonnull
     private Stream<String> getValues(@Nonnull Document document, @Nonnull DictionaryLanguage dictionaryLanguage) {
         var fieldName = fieldNameTranslator.getNonTokenizedFieldName(dictionaryLanguage);
@@ -1,7 +1,9 @@
 package edu.stanford.bmir.protege.web.server.shortform;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import edu.stanford.bmir.protege.web.server.pagination.PageCollector;
 import edu.stanford.bmir.protege.web.shared.pagination.Page;
 import edu.stanford.bmir.protege.web.shared.pagination.PageRequest;
 import edu.stanford.bmir.protege.web.shared.search.EntitySearchFilter;
@@ -18,13 +20,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
+import static com.google.common.base.Preconditions.checkNotNull;
 import static dagger.internal.codegen.DaggerStreams.toImmutableList;
 import static java.util.stream.Collectors.*;
 
@@ -32,6 +36,11 @@ import static java.util.stream.Collectors.*;
  * Matthew Horridge
  * Stanford Center for Biomedical Informatics Research
  * 2020-07-07
+ *
+ * Searches are paged in the index.  Only the hits for the requested page are collected, and only the stored fields
+ * that are needed for the requested dictionary languages are loaded from their documents.  The last hit of each page
+ * is retained as a cursor, so that the following page can be collected with searchAfter, for as long as the index
+ * is not refreshed.
  */
 public class LuceneIndexImpl implements LuceneIndex {
 
@@ -39,6 +48,23 @@ public class LuceneIndexImpl implements LuceneIndex {
 
     public static final int ENTITY_TYPE_COUNT = EntityType.values().size();
 
+    /**
+     * The number of hits that are loaded at a time when finding entities by their short forms
+     */
+    private static final int FIND_ENTITIES_BATCH_SIZE = 100;
+
+    /**
+     * The maximum number of search cursors that are retained.  A cursor is the last hit of a page of results.
+     */
+    private static final int MAX_SEARCH_CURSORS = 1000;
+
+    private static final int SEARCH_CURSOR_EXPIRY_MINUTES = 10;
+
+    @Nonnull
+    private final Cache<SearchCursorKey, ScoreDoc> searchCursors = CacheBuilder.newBuilder()
+                                                                               .maximumSize(MAX_SEARCH_CURSORS)
+                                                                               .expireAfterAccess(SEARCH_CURSOR_EXPIRY_MINUTES, TimeUnit.MINUTES)
+                                                                               .build();
 
     @Nonnull
     private final LuceneEntityDocumentTranslator luceneEntityDocumentTranslator;
@@ -55,17 +81,22 @@ public class LuceneIndexImpl implements LuceneIndex {
     @Nonnull
     private final QueryAnalyzerFactory queryAnalyzerFactory;
 
+    @Nonnull
+    private final LuceneIndexRefresher indexRefresher;
+
     @Inject
     public LuceneIndexImpl(@Nonnull LuceneEntityDocumentTranslator luceneEntityDocumentTranslator,
                            @Nonnull SearcherManager searcherManager,
                            @Nonnull LuceneQueryFactory queryFactory,
                            @Nonnull LuceneDictionaryLanguageValuesMatcher luceneDictionaryLanguageValuesMatcher,
-                           @Nonnull QueryAnalyzerFactory queryAnalyzerFactory) {
+                           @Nonnull QueryAnalyzerFactory queryAnalyzerFactory,
+                           @Nonnull LuceneIndexRefresher indexRefresher) {
         this.luceneEntityDocumentTranslator = luceneEntityDocumentTranslator;
         this.searcherManager = searcherManager;
         this.queryFactory = queryFactory;
         this.luceneDictionaryLanguageValuesMatcher = luceneDictionaryLanguageValuesMatcher;
         this.queryAnalyzerFactory = queryAnalyzerFactory;
+        this.indexRefresher = checkNotNull(indexRefresher);
     }
 
     @Nonnull
@@ -79,6 +110,7 @@ public class LuceneIndexImpl implements LuceneIndex {
         var query = new BooleanQuery.Builder().add(iriTermQuery, BooleanClause.Occur.MUST)
                                               .add(entityTypeQuery, BooleanClause.Occur.MUST)
                                               .build();
+        indexRefresher.refreshIfStale();
         var indexSearcher = searcherManager.acquire();
         try {
             var topDocs = indexSearcher.search(query, ENTITY_TYPE_COUNT);
@@ -109,6 +141,7 @@ public class LuceneIndexImpl implements LuceneIndex {
                                                          @Nonnull List<EntitySearchFilter> searchFilters,
                                                          @Nonnull Set<EntityType<?>> entityTypes,
                                                          @Nonnull PageRequest pageRequest) throws IOException, ParseException {
+        indexRefresher.refreshIfStale();
         var indexSearcher = searcherManager.acquire();
         //        indexSearcher.setSimilarity(new EntityBasedSimilarity());
         try {
@@ -139,26 +172,75 @@ public class LuceneIndexImpl implements LuceneIndex {
                 queryBuilder.add(searchFiltersQueryBuilder.build(), BooleanClause.Occur.MUST);
             }
             var query = queryBuilder.build();
-
-            var topDocs = indexSearcher.search(query, Integer.MAX_VALUE);
+            var pageNumber = pageRequest.getPageNumber();
+            var pageSize = pageRequest.getPageSize();
+            var topDocs = searchForPage(indexSearcher, query, pageNumber, pageSize);
             explain(query, topDocs, indexSearcher);
+            var totalHits = topDocs.totalHits.value;
+            var pageCount = (int) ((totalHits + pageSize - 1) / pageSize);
+            if(pageNumber > pageCount) {
+                return Optional.empty();
+            }
             var languagesSet = ImmutableSet.copyOf(dictionaryLanguages);
-            var page = getDictionaryLanguageValues(dictionaryLanguages,
-                                                   indexSearcher,
-                                                   topDocs).collect(PageCollector.toPage(pageRequest.getPageNumber(),
-                                                                                         pageRequest.getPageSize()));
-            return page.map(pg -> pg.transform(entityShortForms -> {
+            var pageElements = getDictionaryLanguageValues(dictionaryLanguages,
+                                                           indexSearcher,
+                                                           topDocs).map(entityShortForms -> {
                 var matches = luceneDictionaryLanguageValuesMatcher.getShortFormMatches(entityShortForms,
                                                                                         languagesSet,
                                                                                         searchStrings)
                                                                    .collect(toImmutableList());
                 return EntityShortFormMatches.get(entityShortForms.getEntity(), matches);
-            }));
+            }).collect(toImmutableList());
+            return Optional.of(new Page<>(pageNumber, pageCount, pageElements, totalHits));
         } finally {
             searcherManager.release(indexSearcher);
         }
     }
 
+    /**
+     * Collects the hits for the specified page.  If the last hit of the previous page is known, for the same view of
+     * the index, then collection starts after that hit, so only a page of hits is retained.  Otherwise all hits up
+     * to the end of the page are retained.  Either way, all matching documents are counted, but no documents are
+     * loaded.
+     * @return The top docs for the page.  The total hits are the total hits for the query.
+     */
+    @Nonnull
+    private TopDocs searchForPage(@Nonnull IndexSearcher indexSearcher,
+                                  @Nonnull Query query,
+                                  int pageNumber,
+                                  int pageSize) throws IOException {
+        var indexReader = indexSearcher.getIndexReader();
+        var cacheHelper = indexReader.getReaderCacheHelper();
+        var readerKey = cacheHelper != null ? cacheHelper.getKey() : null;
+        var after = getSearchCursor(readerKey, query, pageNumber - 1, pageSize);
+        var skip = 0L;
+        if(pageNumber > 1 && after == null) {
+            skip = (long) (pageNumber - 1) * pageSize;
+        }
+        // Collecting hits costs memory in proportion to the number of hits, so never collect more than there are
+        var numHits = (int) Math.max(1, Math.min(skip + pageSize, indexReader.maxDoc()));
+        var collector = TopScoreDocCollector.create(numHits, after, Integer.MAX_VALUE);
+        indexSearcher.search(query, collector);
+        var topDocs = collector.topDocs();
+        var scoreDocs = topDocs.scoreDocs;
+        if(skip > 0) {
+            var from = (int) Math.min(skip, scoreDocs.length);
+            scoreDocs = Arrays.copyOfRange(scoreDocs, from, scoreDocs.length);
+        }
+        if(readerKey != null && scoreDocs.length > 0) {
+            searchCursors.put(SearchCursorKey.get(readerKey, query, pageNumber, pageSize), scoreDocs[scoreDocs.length - 1]);
+        }
+        return new TopDocs(topDocs.totalHits, scoreDocs);
+    }
+
+    @Nullable
+    private ScoreDoc getSearchCursor(@Nullable Object readerKey, @Nonnull Query query, int pageNumber, int pageSize) {
+        if(readerKey == null || pageNumber < 1) {
+            return null;
+        }
+        return searchCursors.getIfPresent(SearchCursorKey.get(readerKey, query, pageNumber, pageSize));
+    }
+
     private void explain(Query query, TopDocs topDocs, IndexSearcher indexSearcher) {
         if(!logger.isDebugEnabled()) {
             return;
@@ -188,14 +270,21 @@ public class LuceneIndexImpl implements LuceneIndex {
                                           List<DictionaryLanguage> languages) throws ParseException, IOException {
         var searchStrings = SearchString.parseSearchString(shortForm);
         var query = getQuery(Collections.singletonList(searchStrings), languages, true);
+        indexRefresher.refreshIfStale();
         var indexSearcher = searcherManager.acquire();
         try {
-            var topDocs = indexSearcher.search(query, Integer.MAX_VALUE);
-            return getDictionaryLanguageValues(languages, indexSearcher, topDocs).filter(values -> {
-                var shortForms = values.getValues();
-                return languages.stream().map(shortForms::get).anyMatch(sf -> sf.contains(shortForm));
-            }).map(EntityDictionaryLanguageValues::getEntity).collect(Collectors.toList()).stream();
-
+            var entities = ImmutableList.<OWLEntity>builder();
+            ScoreDoc after = null;
+            do {
+                var topDocs = indexSearcher.searchAfter(after, query, FIND_ENTITIES_BATCH_SIZE);
+                getDictionaryLanguageValues(languages, indexSearcher, topDocs).filter(values -> {
+                    var shortForms = values.getValues();
+                    return languages.stream().map(shortForms::get).anyMatch(sf -> sf.contains(shortForm));
+                }).map(EntityDictionaryLanguageValues::getEntity).forEach(entities::add);
+                var scoreDocs = topDocs.scoreDocs;
+                after = scoreDocs.length == FIND_ENTITIES_BATCH_SIZE ? scoreDocs[scoreDocs.length - 1] : null;
+            } while(after != null);
+            return entities.build().stream();
         } finally {
             searcherManager.release(indexSearcher);
         }
@@ -204,15 +293,16 @@ public class LuceneIndexImpl implements LuceneIndex {
     private Stream<EntityDictionaryLanguageValues> getDictionaryLanguageValues(@Nonnull List<DictionaryLanguage> dictionaryLanguages,
                                                                                @Nonnull IndexSearcher indexSearcher,
                                                                                @Nonnull TopDocs topDocs) {
+        var fieldsToLoad = luceneEntityDocumentTranslator.getStoredFieldNames(dictionaryLanguages);
         return Arrays.stream(topDocs.scoreDocs)
                      .map(scoreDoc -> scoreDoc.doc)
-                     .map(docId -> getDoc(indexSearcher, docId))
+                     .map(docId -> getDoc(indexSearcher, docId, fieldsToLoad))
                      .map(doc -> luceneEntityDocumentTranslator.getDictionaryLanguageValues(doc, dictionaryLanguages));
     }
 
-    public Document getDoc(IndexSearcher indexSearcher, Integer docId) {
+    public Document getDoc(IndexSearcher indexSearcher, Integer docId, Set<String> fieldsToLoad) {
         try {
-            return indexSearcher.doc(docId);
+            return indexSearcher.doc(docId, fieldsToLoad);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
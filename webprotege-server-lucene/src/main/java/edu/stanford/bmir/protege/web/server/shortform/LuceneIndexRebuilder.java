@@ -0,0 +1,423 @@
+package edu.stanford.bmir.protege.web.server.shortform;
+
+import com.google.common.base.Stopwatch;
+import edu.stanford.bmir.protege.web.server.index.BuiltInOwlEntitiesIndex;
+import edu.stanford.bmir.protege.web.server.index.EntitiesInProjectSignatureIndex;
+import edu.stanford.bmir.protege.web.server.index.ProjectSignatureIndex;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskExecutor;
+import edu.stanford.bmir.protege.web.server.revision.RevisionManager;
+import edu.stanford.bmir.protege.web.shared.inject.ProjectSingleton;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.IOUtils;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Rebuilds a project's Lucene index in the background, without disturbing searches against the existing index.
+ * The rebuilt index is written to a separate rebuild directory in chunks of entities, in IRI order.  Documents for
+ * each chunk are translated in parallel and each chunk is committed with the last entity that it contains, so a
+ * rebuild that is interrupted, for example by the server stopping, is resumed from the last committed chunk when the
+ * project is next loaded.  When all chunks have been written the rebuilt index replaces the contents of the existing
+ * index.  Entities that are updated whilst the rebuild is in progress are reindexed as part of the replacement.
+ */
+@ProjectSingleton
+public class LuceneIndexRebuilder {
+
+    private static final Logger logger = LoggerFactory.getLogger(LuceneIndexRebuilder.class);
+
+    private static final int CHUNK_SIZE = 5_000;
+
+    /**
+     * The key in the rebuild commit user data for the last entity that has been written to the rebuilt index
+     */
+    public static final String LAST_ENTITY_COMMIT_DATA_KEY = "rebuild.lastEntity";
+
+    /**
+     * The key in the rebuild commit user data for the revision that the project was at when the rebuild started
+     */
+    public static final String START_REVISION_COMMIT_DATA_KEY = "rebuild.startRevision";
+
+    private static final Comparator<OWLEntity> ENTITY_ORDER = Comparator.comparing(LuceneIndexRebuilder::getEntityKey);
+
+    @Nonnull
+    private final ProjectId projectId;
+
+    @Nonnull
+    private final ProjectLuceneDirectoryPathSupplier directoryPathSupplier;
+
+    @Nonnull
+    private final Provider<IndexWriterConfig> indexWriterConfigProvider;
+
+    @Nonnull
+    private final Provider<LuceneEntityDocumentTranslator> documentTranslatorProvider;
+
+    @Nonnull
+    private final ProjectSignatureIndex projectSignatureIndex;
+
+    @Nonnull
+    private final EntitiesInProjectSignatureIndex entitiesInProjectSignatureIndex;
+
+    @Nonnull
+    private final BuiltInOwlEntitiesIndex builtInOwlEntitiesIndex;
+
+    @Nonnull
+    private final IndexWriter indexWriter;
+
+    @Nonnull
+    private final LuceneIndexRefresher indexRefresher;
+
+    @Nonnull
+    private final ProjectTaskExecutor taskExecutor;
+
+    @Nonnull
+    private final Optional<RevisionManager> revisionManager;
+
+    @Nonnull
+    private final AffectedEntitiesCollector affectedEntitiesCollector;
+
+    /**
+     * Incremented each time a rebuild is started, so that a rebuild that is superseded by a later one stops
+     */
+    private int rebuildGeneration = 0;
+
+    /**
+     * The entities that have been updated since the current rebuild started, or null if there is no rebuild in
+     * progress
+     */
+    @Nullable
+    private Set<OWLEntity> entitiesUpdatedDuringRebuild = null;
+
+    @Inject
+    public LuceneIndexRebuilder(@Nonnull ProjectId projectId,
+                                @Nonnull ProjectLuceneDirectoryPathSupplier directoryPathSupplier,
+                                @Nonnull Provider<IndexWriterConfig> indexWriterConfigProvider,
+                                @Nonnull Provider<LuceneEntityDocumentTranslator> documentTranslatorProvider,
+                                @Nonnull ProjectSignatureIndex projectSignatureIndex,
+                                @Nonnull EntitiesInProjectSignatureIndex entitiesInProjectSignatureIndex,
+                                @Nonnull BuiltInOwlEntitiesIndex builtInOwlEntitiesIndex,
+                                @Nonnull IndexWriter indexWriter,
+                                @Nonnull LuceneIndexRefresher indexRefresher,
+                                @Nonnull @LuceneIndexTaskExecutor ProjectTaskExecutor taskExecutor,
+                                @Nonnull Optional<RevisionManager> revisionManager,
+                                @Nonnull AffectedEntitiesCollector affectedEntitiesCollector) {
+        this.projectId = checkNotNull(projectId);
+        this.directoryPathSupplier = checkNotNull(directoryPathSupplier);
+        this.indexWriterConfigProvider = checkNotNull(indexWriterConfigProvider);
+        this.documentTranslatorProvider = checkNotNull(documentTranslatorProvider);
+        this.projectSignatureIndex = checkNotNull(projectSignatureIndex);
+        this.entitiesInProjectSignatureIndex = checkNotNull(entitiesInProjectSignatureIndex);
+        this.builtInOwlEntitiesIndex = checkNotNull(builtInOwlEntitiesIndex);
+        this.indexWriter = checkNotNull(indexWriter);
+        this.indexRefresher = checkNotNull(indexRefresher);
+        this.taskExecutor = checkNotNull(taskExecutor);
+        this.revisionManager = checkNotNull(revisionManager);
+        this.affectedEntitiesCollector = checkNotNull(affectedEntitiesCollector);
+    }
+
+    /**
+     * Starts a rebuild of the index.  Any rebuild that is already in progress is abandoned.
+     */
+    public void startRebuild() {
+        var generation = beginTrackingUpdatedEntities();
+        taskExecutor.execute(() -> {
+            if(isSuperseded(generation)) {
+                return;
+            }
+            try {
+                var rebuild = new Rebuild(generation,
+                                          getEntitiesInOrder(),
+                                          0,
+                                          revisionManager.map(RevisionManager::getCurrentRevision));
+                logger.info("{} Rebuilding lucene index ({} entities)", projectId, rebuild.entities.size());
+                IOUtils.rm(getRebuildPath());
+                writeChunk(rebuild, List.of(), "");
+                executeNextStep(rebuild);
+            } catch (IOException e) {
+                handleRebuildFailed(generation, e);
+            }
+        });
+    }
+
+    /**
+     * Resumes a rebuild that was interrupted before the rebuilt index replaced the existing index
+     */
+    public void resumeInterruptedRebuild() {
+        var rebuildPath = getRebuildPath();
+        if(!Files.exists(rebuildPath)) {
+            return;
+        }
+        try {
+            var commitData = readRebuildCommitData(rebuildPath);
+            var lastEntityKey = commitData.get(LAST_ENTITY_COMMIT_DATA_KEY);
+            if(lastEntityKey == null) {
+                logger.info("{} Discarding incomplete lucene index rebuild", projectId);
+                IOUtils.rm(rebuildPath);
+                return;
+            }
+            var startRevision = Optional.ofNullable(commitData.get(START_REVISION_COMMIT_DATA_KEY))
+                                        .map(Long::parseLong)
+                                        .map(RevisionNumber::getRevisionNumber);
+            var generation = beginTrackingUpdatedEntities();
+            taskExecutor.execute(() -> {
+                if(isSuperseded(generation)) {
+                    return;
+                }
+                var entities = getEntitiesInOrder();
+                var position = 0;
+                while(position < entities.size() && getEntityKey(entities.get(position)).compareTo(lastEntityKey) <= 0) {
+                    position++;
+                }
+                var rebuild = new Rebuild(generation, entities, position, startRevision);
+                logger.info("{} Resuming lucene index rebuild at {} of {} entities",
+                            projectId,
+                            position,
+                            entities.size());
+                executeNextStep(rebuild);
+            });
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("{} Could not resume lucene index rebuild.  Discarding rebuild.  Cause: {}",
+                        projectId,
+                        e.getMessage());
+            try {
+                IOUtils.rm(rebuildPath);
+            } catch (IOException rmException) {
+                logger.error("{} Could not delete lucene index rebuild directory", projectId, rmException);
+            }
+        }
+    }
+
+    /**
+     * Handles an update to the index for the specified entities.  This must be called before the index is updated.
+     */
+    public synchronized void handleEntitiesUpdated(@Nonnull Collection<OWLEntity> entities) {
+        if(entitiesUpdatedDuringRebuild != null) {
+            entitiesUpdatedDuringRebuild.addAll(entities);
+        }
+    }
+
+    private synchronized int beginTrackingUpdatedEntities() {
+        rebuildGeneration++;
+        // Entities updated during a superseded rebuild are kept, in case the superseded rebuild is replacing the
+        // index as this rebuild starts
+        if(entitiesUpdatedDuringRebuild == null) {
+            entitiesUpdatedDuringRebuild = new HashSet<>();
+        }
+        return rebuildGeneration;
+    }
+
+    @Nonnull
+    private synchronized Set<OWLEntity> endTrackingUpdatedEntities(int generation) {
+        var updatedEntities = entitiesUpdatedDuringRebuild == null ? Set.<OWLEntity>of() : Set.copyOf(entitiesUpdatedDuringRebuild);
+        if(generation == rebuildGeneration) {
+            entitiesUpdatedDuringRebuild = null;
+        }
+        return updatedEntities;
+    }
+
+    private synchronized boolean isSuperseded(int generation) {
+        if(generation != rebuildGeneration) {
+            return true;
+        }
+        if(!indexWriter.isOpen()) {
+            // The project has been disposed of.  The rebuild resumes when the project is next loaded.
+            entitiesUpdatedDuringRebuild = null;
+            return true;
+        }
+        return false;
+    }
+
+    @Nonnull
+    private Path getRebuildPath() {
+        var indexPath = directoryPathSupplier.get();
+        return indexPath.resolveSibling(indexPath.getFileName() + ".rebuild");
+    }
+
+    @Nonnull
+    private List<OWLEntity> getEntitiesInOrder() {
+        var builtInEntities = builtInOwlEntitiesIndex.getBuiltInEntities()
+                                                     .filter(entity -> !entitiesInProjectSignatureIndex.containsEntityInSignature(entity));
+        return Stream.concat(projectSignatureIndex.getSignature(), builtInEntities)
+                     .sorted(ENTITY_ORDER)
+                     .collect(toList());
+    }
+
+    /**
+     * Gets a key that orders entities by IRI and then by type.  IRIs cannot contain spaces, so the ordering of keys
+     * is the same as the ordering of IRIs.
+     */
+    @Nonnull
+    private static String getEntityKey(@Nonnull OWLEntity entity) {
+        return entity.getIRI().toString() + " " + entity.getEntityType().getName();
+    }
+
+    private void executeNextStep(@Nonnull Rebuild rebuild) {
+        if(rebuild.position < rebuild.entities.size()) {
+            taskExecutor.execute(() -> buildNextChunk(rebuild));
+        }
+        else {
+            taskExecutor.execute(() -> replaceIndex(rebuild));
+        }
+    }
+
+    private void buildNextChunk(@Nonnull Rebuild rebuild) {
+        if(isSuperseded(rebuild.generation)) {
+            return;
+        }
+        try {
+            var end = Math.min(rebuild.position + CHUNK_SIZE, rebuild.entities.size());
+            var chunk = rebuild.entities.subList(rebuild.position, end);
+            writeChunk(rebuild, chunk, getEntityKey(chunk.get(chunk.size() - 1)));
+            rebuild.position = end;
+            logger.info("{} Rebuilding lucene index: {} of {} entities ({}%)",
+                        projectId,
+                        rebuild.position,
+                        rebuild.entities.size(),
+                        rebuild.position * 100 / rebuild.entities.size());
+            executeNextStep(rebuild);
+        } catch (IOException e) {
+            handleRebuildFailed(rebuild.generation, e);
+        }
+    }
+
+    private void writeChunk(@Nonnull Rebuild rebuild,
+                            @Nonnull List<OWLEntity> chunk,
+                            @Nonnull String lastEntityKey) throws IOException {
+        // Translating entities to documents is the expensive part of building the index
+        var documents = chunk.parallelStream()
+                             .map(rebuild.documentTranslator::getLuceneDocument)
+                             .collect(toList());
+        var commitData = new HashMap<String, String>();
+        commitData.put(LAST_ENTITY_COMMIT_DATA_KEY, lastEntityKey);
+        rebuild.startRevision.ifPresent(revision -> commitData.put(START_REVISION_COMMIT_DATA_KEY,
+                                                                   Long.toString(revision.getValue())));
+        var config = indexWriterConfigProvider.get()
+                                              .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        try (var directory = FSDirectory.open(getRebuildPath());
+             var rebuildWriter = new IndexWriter(directory, config)) {
+            rebuildWriter.addDocuments(documents);
+            rebuildWriter.setLiveCommitData(commitData.entrySet());
+            rebuildWriter.commit();
+        }
+    }
+
+    private void replaceIndex(@Nonnull Rebuild rebuild) {
+        if(isSuperseded(rebuild.generation)) {
+            return;
+        }
+        try (var rebuiltDirectory = FSDirectory.open(getRebuildPath())) {
+            var reindexedEntityCount = new int[1];
+            indexRefresher.replaceIndex(writer -> {
+                writer.deleteAll();
+                writer.addIndexes(rebuiltDirectory);
+                // Entities that were updated whilst the rebuild was in progress may be out of date in the rebuilt
+                // index.  Updates after this point are made directly to the replaced index.
+                var entitiesToReindex = new HashSet<>(endTrackingUpdatedEntities(rebuild.generation));
+                entitiesToReindex.addAll(getEntitiesAffectedByRevisionsSinceStart(rebuild));
+                var deleteQueries = entitiesToReindex.stream()
+                                                     .map(rebuild.documentTranslator::getEntityDocumentQuery)
+                                                     .toArray(Query[]::new);
+                writer.deleteDocuments(deleteQueries);
+                writer.addDocuments(entitiesToReindex.stream()
+                                                     .map(rebuild.documentTranslator::getLuceneDocument)
+                                                     .collect(toList()));
+                reindexedEntityCount[0] = entitiesToReindex.size();
+            });
+            IOUtils.rm(getRebuildPath());
+            logger.info("{} Rebuilt lucene index in {} ms ({} entities were reindexed after being updated during the rebuild)",
+                        projectId,
+                        rebuild.stopwatch.elapsed().toMillis(),
+                        reindexedEntityCount[0]);
+        } catch (AlreadyClosedException e) {
+            logger.info("{} Lucene index was closed before the rebuilt index could replace it.  The rebuild will be resumed when the project is next loaded.", projectId);
+        } catch (IOException e) {
+            handleRebuildFailed(rebuild.generation, e);
+        }
+    }
+
+    @Nonnull
+    private Set<OWLEntity> getEntitiesAffectedByRevisionsSinceStart(@Nonnull Rebuild rebuild) {
+        if(revisionManager.isEmpty() || rebuild.startRevision.isEmpty()) {
+            return Set.of();
+        }
+        var headRevision = revisionManager.get().getCurrentRevision();
+        return affectedEntitiesCollector.getEntitiesAffectedByRevisions(revisionManager.get(),
+                                                                        rebuild.startRevision.get(),
+                                                                        headRevision);
+    }
+
+    private void handleRebuildFailed(int generation, @Nonnull IOException e) {
+        endTrackingUpdatedEntities(generation);
+        logger.error("{} An error occurred when rebuilding the lucene index: {}", projectId, e.getMessage(), e);
+    }
+
+    @Nonnull
+    private static Map<String, String> readRebuildCommitData(@Nonnull Path rebuildPath) throws IOException {
+        try (var directory = FSDirectory.open(rebuildPath)) {
+            if(!DirectoryReader.indexExists(directory)) {
+                return Map.of();
+            }
+            return SegmentInfos.readLatestCommit(directory).getUserData();
+        }
+    }
+
+    /**
+     * The state of a rebuild that is in progress.  This is only accessed from the task executor.
+     */
+    private class Rebuild {
+
+        private final int generation;
+
+        private final List<OWLEntity> entities;
+
+        private final Optional<RevisionNumber> startRevision;
+
+        private final LuceneEntityDocumentTranslator documentTranslator = documentTranslatorProvider.get();
+
+        private final Stopwatch stopwatch = Stopwatch.createStarted();
+
+        private int position;
+
+        private Rebuild(int generation,
+                        @Nonnull List<OWLEntity> entities,
+                        int position,
+                        @Nonnull Optional<RevisionNumber> startRevision) {
+            this.generation = generation;
+            this.entities = entities;
+            this.position = position;
+            this.startRevision = startRevision;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package edu.stanford.bmir.protege.web.server.shortform;
+
+import com.google.auto.value.AutoValue;
+
+import javax.annotation.Nonnull;
+import java.time.Duration;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Specifies how often updates to a project's Lucene index are made visible to searches and committed to disk.
+ */
+@AutoValue
+public abstract class LuceneIndexRefreshSettings {
+
+    /**
+     * Gets settings for a near-real-time index.
+     * @param refreshInterval The maximum time between an update and the update being visible to searches that are
+     *                        not preceded by a request for a fresh view of the index.  Zero refreshes as soon as the
+     *                        update has been made.
+     * @param commitInterval The maximum time between an update and the update being committed.  Zero commits
+     *                       every update.
+     * @param commitMaxDocuments The maximum number of updated documents that may be held before they are committed.
+     */
+    @Nonnull
+    public static LuceneIndexRefreshSettings get(@Nonnull Duration refreshInterval,
+                                                 @Nonnull Duration commitInterval,
+                                                 int commitMaxDocuments) {
+        checkArgument(!refreshInterval.isNegative(), "The refresh interval must not be negative");
+        checkArgument(!commitInterval.isNegative(), "The commit interval must not be negative");
+        checkArgument(commitMaxDocuments > 0, "The maximum number of documents must be greater than zero");
+        return new AutoValue_LuceneIndexRefreshSettings(refreshInterval, commitInterval, commitMaxDocuments);
+    }
+
+    /**
+     * Gets settings that commit and refresh the index after every update
+     */
+    @Nonnull
+    public static LuceneIndexRefreshSettings getCommitEveryUpdate() {
+        return get(Duration.ZERO, Duration.ZERO, 1);
+    }
+
+    @Nonnull
+    public abstract Duration getRefreshInterval();
+
+    @Nonnull
+    public abstract Duration getCommitInterval();
+
+    public abstract int getCommitMaxDocuments();
+
+    /**
+     * Determines whether updates are batched before they are committed
+     */
+    public boolean isNearRealTime() {
+        return !getCommitInterval().isZero();
+    }
+}
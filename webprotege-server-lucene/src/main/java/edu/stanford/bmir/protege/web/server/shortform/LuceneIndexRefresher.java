@@ -0,0 +1,315 @@
+package edu.stanford.bmir.protege.web.server.shortform;
+
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskExecutor;
+import edu.stanford.bmir.protege.web.server.revision.RevisionManager;
+import edu.stanford.bmir.protege.web.shared.inject.ProjectSingleton;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Makes updates to a project's Lucene index visible to searches and commits them to disk.  In near-real-time mode
+ * updates are not committed individually.  Instead, searchers are refreshed from the index writer, either when the
+ * refresh interval elapses or when a search finds that there are updates that it cannot see, and updates are
+ * committed in batches, when the commit interval elapses or when enough documents have been updated.  Each commit
+ * records the revision that the index is up to date with, so that updates that are lost in a crash can be replayed
+ * from the change history.
+ *
+ * The contents of the index may also be replaced wholesale, for example by a rebuilt index.  Searchers are not
+ * refreshed whilst this happens, so searches see either the complete old index or the complete new index.  Updates
+ * wait for the replacement to finish so that they are not lost.  A replacement that fails is rolled back to the last
+ * commit, which closes the index until the project is next loaded.
+ */
+@ProjectSingleton
+public class LuceneIndexRefresher {
+
+    private static final Logger logger = LoggerFactory.getLogger(LuceneIndexRefresher.class);
+
+    /**
+     * The key in the commit user data for the revision that the index is up to date with
+     */
+    public static final String REVISION_COMMIT_DATA_KEY = "revision";
+
+    @Nonnull
+    private final ProjectId projectId;
+
+    @Nonnull
+    private final IndexWriter indexWriter;
+
+    @Nonnull
+    private final SearcherManager searcherManager;
+
+    @Nonnull
+    private final LuceneIndexRefreshSettings settings;
+
+    @Nonnull
+    private final ProjectTaskExecutor taskExecutor;
+
+    @Nonnull
+    private final Optional<RevisionManager> revisionManager;
+
+    /**
+     * Incremented after each update to the index
+     */
+    private final AtomicLong updateGeneration = new AtomicLong();
+
+    /**
+     * The latest update that is visible to searches
+     */
+    private final AtomicLong refreshedGeneration = new AtomicLong();
+
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+    /**
+     * Held for writing whilst the contents of the index are replaced.  Updates, refreshes and commits hold it for
+     * reading.
+     */
+    private final ReadWriteLock indexReplacementLock = new ReentrantReadWriteLock();
+
+    private int uncommittedDocuments = 0;
+
+    private boolean commitScheduled = false;
+
+    private boolean commitQueued = false;
+
+    @Inject
+    public LuceneIndexRefresher(@Nonnull ProjectId projectId,
+                                @Nonnull IndexWriter indexWriter,
+                                @Nonnull SearcherManager searcherManager,
+                                @Nonnull LuceneIndexRefreshSettings settings,
+                                @Nonnull @LuceneIndexTaskExecutor ProjectTaskExecutor taskExecutor,
+                                @Nonnull Optional<RevisionManager> revisionManager) {
+        this.projectId = checkNotNull(projectId);
+        this.indexWriter = checkNotNull(indexWriter);
+        this.searcherManager = checkNotNull(searcherManager);
+        this.settings = checkNotNull(settings);
+        this.taskExecutor = checkNotNull(taskExecutor);
+        this.revisionManager = checkNotNull(revisionManager);
+    }
+
+    /**
+     * Makes an update to the index writer.  The update waits whilst the contents of the index are being replaced.
+     * @param update The update, which returns the number of documents that it updated
+     */
+    public void updateIndex(@Nonnull IndexUpdate update) throws IOException {
+        int documentCount;
+        indexReplacementLock.readLock().lock();
+        try {
+            documentCount = update.update(indexWriter);
+        } catch (AlreadyClosedException e) {
+            // The index was closed by a failed replacement, or the project is being disposed of.  The update is
+            // replayed from the change history when the project is next loaded.
+            logger.debug("{} Not updating the Lucene index because it has been closed", projectId);
+            return;
+        } finally {
+            indexReplacementLock.readLock().unlock();
+        }
+        handleIndexUpdated(documentCount);
+    }
+
+    /**
+     * Handles an update that has been made to the index writer.  When this method returns the update is visible to
+     * any search that calls {@link #refreshIfStale()} first.
+     * @param documentCount The number of documents that were updated
+     */
+    public void handleIndexUpdated(int documentCount) {
+        var generation = updateGeneration.incrementAndGet();
+        if(!settings.isNearRealTime()) {
+            commit();
+            refresh(generation);
+            return;
+        }
+        handleUncommittedDocuments(documentCount);
+        if(settings.getRefreshInterval().isZero()) {
+            refresh(generation);
+        }
+        else if(refreshScheduled.compareAndSet(false, true)) {
+            taskExecutor.schedule(() -> {
+                refreshScheduled.set(false);
+                refreshIfStale();
+            }, settings.getRefreshInterval().toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void handleUncommittedDocuments(int documentCount) {
+        uncommittedDocuments += documentCount;
+        if(uncommittedDocuments >= settings.getCommitMaxDocuments()) {
+            if(!commitQueued) {
+                commitQueued = true;
+                taskExecutor.execute(this::commitIfUncommitted);
+            }
+        }
+        else if(!commitScheduled) {
+            commitScheduled = true;
+            taskExecutor.schedule(this::commitIfUncommitted,
+                                  settings.getCommitInterval().toMillis(),
+                                  TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Refreshes searchers if there are updates that they cannot see.  Searches should call this before acquiring a
+     * searcher so that they see the effects of edits that have just been made.
+     */
+    public void refreshIfStale() {
+        var generation = updateGeneration.get();
+        if(refreshedGeneration.get() < generation) {
+            refresh(generation);
+        }
+    }
+
+    private void refresh(long generation) {
+        // Searches carry on with the current searcher whilst the index is being replaced.  The generation is not
+        // marked as refreshed, so the next search after the replacement refreshes.
+        if(!indexReplacementLock.readLock().tryLock()) {
+            return;
+        }
+        try {
+            searcherManager.maybeRefreshBlocking();
+            refreshedGeneration.accumulateAndGet(generation, Math::max);
+        } catch (AlreadyClosedException e) {
+            logger.debug("{} Not refreshing the Lucene index because it has been closed", projectId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            indexReplacementLock.readLock().unlock();
+        }
+    }
+
+    private void commitIfUncommitted() {
+        synchronized (this) {
+            commitScheduled = false;
+            commitQueued = false;
+            if(uncommittedDocuments == 0) {
+                return;
+            }
+        }
+        commit();
+    }
+
+    /**
+     * Commits all updates that have been made to the index writer
+     */
+    public void commit() {
+        synchronized (this) {
+            uncommittedDocuments = 0;
+        }
+        // Do not commit a partially replaced index
+        indexReplacementLock.readLock().lock();
+        try {
+            commitWithRevision();
+        } catch (AlreadyClosedException e) {
+            logger.debug("{} Not committing the Lucene index because it has been closed", projectId);
+        } catch (IOException e) {
+            logger.error("{} An error occurred when committing the Lucene index: {}", projectId, e.getMessage(), e);
+        } finally {
+            indexReplacementLock.readLock().unlock();
+        }
+    }
+
+    private void commitWithRevision() throws IOException {
+        // Read the revision before committing.  The index is updated before the revision is added, so any
+        // revision that has been added by now is included in the commit.
+        revisionManager.map(RevisionManager::getCurrentRevision)
+                       .ifPresent(this::setCommitRevision);
+        indexWriter.commit();
+    }
+
+    /**
+     * Replaces the contents of the index.  Searchers are not refreshed, and updates are neither made nor committed,
+     * until the replacement is complete.  The replacement is then committed and made visible to searches in one
+     * refresh.  If the replacement fails then the index writer is rolled back to the commit that is made before the
+     * replacement starts, so that the partially replaced index is never committed.  Rolling back closes the index
+     * writer.
+     * @param replacement The replacement, which is applied to the index writer
+     */
+    public void replaceIndex(@Nonnull IndexReplacement replacement) throws IOException {
+        indexReplacementLock.writeLock().lock();
+        try {
+            // Commit the updates made so far, so that a rollback only discards the replacement
+            commitWithRevision();
+            try {
+                replacement.replace(indexWriter);
+            } catch (IOException | RuntimeException e) {
+                rollback(e);
+                throw e;
+            }
+            updateGeneration.incrementAndGet();
+            commit();
+            var generation = updateGeneration.get();
+            searcherManager.maybeRefreshBlocking();
+            refreshedGeneration.accumulateAndGet(generation, Math::max);
+        } finally {
+            indexReplacementLock.writeLock().unlock();
+        }
+    }
+
+    private void rollback(@Nonnull Exception cause) {
+        try {
+            indexWriter.rollback();
+        } catch (IOException | RuntimeException e) {
+            cause.addSuppressed(e);
+        }
+        logger.error("{} The contents of the Lucene index could not be replaced.  The index has been rolled back to its last commit and is closed until the project is next loaded.", projectId);
+    }
+
+    private void setCommitRevision(@Nonnull RevisionNumber revisionNumber) {
+        var commitData = Map.of(REVISION_COMMIT_DATA_KEY, Long.toString(revisionNumber.getValue()));
+        indexWriter.setLiveCommitData(commitData.entrySet());
+    }
+
+    /**
+     * Gets the revision that the last commit before the index writer was opened is up to date with
+     * @return The revision, or empty if the commit did not record a revision
+     */
+    @Nonnull
+    public Optional<RevisionNumber> getCommittedRevision() {
+        var commitData = indexWriter.getLiveCommitData();
+        if(commitData == null) {
+            return Optional.empty();
+        }
+        for(var entry : commitData) {
+            if(entry.getKey().equals(REVISION_COMMIT_DATA_KEY)) {
+                try {
+                    return Optional.of(RevisionNumber.getRevisionNumber(Long.parseLong(entry.getValue())));
+                } catch (NumberFormatException e) {
+                    logger.warn("{} Malformed revision in Lucene index commit data: {}", projectId, entry.getValue());
+                    return Optional.empty();
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    public interface IndexUpdate {
+
+        int update(@Nonnull IndexWriter indexWriter) throws IOException;
+    }
+
+    public interface IndexReplacement {
+
+        void replace(@Nonnull IndexWriter indexWriter) throws IOException;
+    }
+}
@@ -0,0 +1,17 @@
+package edu.stanford.bmir.protege.web.server.shortform;
+
+import javax.inject.Qualifier;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Qualifies the executor that commits and refreshes a project's Lucene index in the background
+ */
+@Qualifier
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LuceneIndexTaskExecutor {
+}
@@ -1,9 +1,6 @@
 package edu.stanford.bmir.protege.web.server.shortform;
 
-import org.apache.lucene.document.Document;
-import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.search.Query;
-import org.apache.lucene.search.SearcherManager;
 import org.semanticweb.owlapi.model.OWLEntity;
 
 import javax.annotation.Nonnull;
@@ -14,6 +11,7 @@ import java.io.UncheckedIOException;
 import java.util.Collection;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toList;
 
 /**
  * Matthew Horridge
@@ -23,46 +21,41 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class LuceneIndexUpdaterImpl implements LuceneIndexUpdater {
 
     @Nonnull
-    private final IndexWriter indexWriter;
+    private final Provider<LuceneEntityDocumentTranslator> documentTranslatorProvider;
 
     @Nonnull
-    private final Provider<LuceneEntityDocumentTranslator> documentTranslatorProvider;
+    private final LuceneIndexRefresher indexRefresher;
 
     @Nonnull
-    private final SearcherManager searcherManager;
+    private final LuceneIndexRebuilder indexRebuilder;
 
     @Inject
-    public LuceneIndexUpdaterImpl(@Nonnull IndexWriter indexWriter,
-                                  @Nonnull Provider<LuceneEntityDocumentTranslator> documentTranslatorProvider,
-                                  @Nonnull SearcherManager searcherManager) {
-        this.indexWriter = checkNotNull(indexWriter);
+    public LuceneIndexUpdaterImpl(@Nonnull Provider<LuceneEntityDocumentTranslator> documentTranslatorProvider,
+                                  @Nonnull LuceneIndexRefresher indexRefresher,
+                                  @Nonnull LuceneIndexRebuilder indexRebuilder) {
         this.documentTranslatorProvider = checkNotNull(documentTranslatorProvider);
-        this.searcherManager = checkNotNull(searcherManager);
+        this.indexRefresher = checkNotNull(indexRefresher);
+        this.indexRebuilder = checkNotNull(indexRebuilder);
     }
 
     @Override
     public void updateIndexForEntities(@Nonnull Collection<OWLEntity> entities) {
         try {
+            // Must be called before the index is updated so that a rebuild in progress cannot miss the update
+            indexRebuilder.handleEntitiesUpdated(entities);
             var documentTranslator = documentTranslatorProvider.get();
             var deleteQueries = entities.stream()
                     .map(documentTranslator::getEntityDocumentQuery)
                     .toArray(Query[]::new);
-
-            indexWriter.deleteDocuments(deleteQueries);
-
-            entities.stream()
+            var documents = entities.stream()
                     .map(documentTranslator::getLuceneDocument)
-                    .forEach(this::addDocument);
-            indexWriter.commit();
-            searcherManager.maybeRefresh();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-    }
-
-    private void addDocument(@Nonnull Document document) {
-        try {
-            indexWriter.addDocument(document);
+                    .collect(toList());
+            // The update waits for a replacement of the index contents to finish, so that it is not overwritten
+            indexRefresher.updateIndex(indexWriter -> {
+                indexWriter.deleteDocuments(deleteQueries);
+                indexWriter.addDocuments(documents);
+                return entities.size();
+            });
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
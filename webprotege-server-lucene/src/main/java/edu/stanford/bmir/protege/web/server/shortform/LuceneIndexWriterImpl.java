@@ -4,7 +4,7 @@ import com.google.common.base.Stopwatch;
 import edu.stanford.bmir.protege.web.server.index.BuiltInOwlEntitiesIndex;
 import edu.stanford.bmir.protege.web.server.index.EntitiesInProjectSignatureIndex;
 import edu.stanford.bmir.protege.web.server.index.ProjectSignatureIndex;
-import edu.stanford.bmir.protege.web.server.search.EntitySearchFilterIndexesManager;
+import edu.stanford.bmir.protege.web.server.revision.RevisionManager;
 import edu.stanford.bmir.protege.web.shared.HasDispose;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 import org.apache.lucene.document.Document;
@@ -21,6 +21,7 @@ import javax.inject.Provider;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.Optional;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -29,7 +30,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Stanford Center for Biomedical Informatics Research
  * 2020-07-07
  */
-public class LuceneIndexWriterImpl implements LuceneIndexWriter, HasDispose, EntitySearchFilterIndexesManager {
+public class LuceneIndexWriterImpl implements LuceneIndexWriter, HasDispose {
 
     private static final Logger logger = LoggerFactory.getLogger(LuceneIndexWriterImpl.class);
 
@@ -57,6 +58,20 @@ public class LuceneIndexWriterImpl implements LuceneIndexWriter, HasDispose, Ent
     @Nonnull
     private BuiltInOwlEntitiesIndex builtInOwlEntitiesIndex;
 
+    @Nonnull
+    private final AffectedEntitiesCollector affectedEntitiesCollector;
+
+    @Nonnull
+    private final LuceneIndexUpdater luceneIndexUpdater;
+
+    @Nonnull
+    private final LuceneIndexRefresher indexRefresher;
+
+    @Nonnull
+    private final Optional<RevisionManager> revisionManager;
+
+    @Nonnull
+    private final LuceneIndexRebuilder indexRebuilder;
 
     @Inject
     public LuceneIndexWriterImpl(@Nonnull ProjectId projectId,
@@ -66,7 +81,12 @@ public class LuceneIndexWriterImpl implements LuceneIndexWriter, HasDispose, Ent
                                  @Nonnull EntitiesInProjectSignatureIndex entitiesInProjectSignatureIndex,
                                  @Nonnull IndexWriter indexWriter,
                                  @Nonnull SearcherManager searcherManager,
-                                 @Nonnull BuiltInOwlEntitiesIndex builtInOwlEntitiesIndex) {
+                                 @Nonnull BuiltInOwlEntitiesIndex builtInOwlEntitiesIndex,
+                                 @Nonnull AffectedEntitiesCollector affectedEntitiesCollector,
+                                 @Nonnull LuceneIndexUpdater luceneIndexUpdater,
+                                 @Nonnull LuceneIndexRefresher indexRefresher,
+                                 @Nonnull Optional<RevisionManager> revisionManager,
+                                 @Nonnull LuceneIndexRebuilder indexRebuilder) {
         this.projectId = projectId;
         this.luceneDirectory = luceneDirectory;
         this.luceneEntityDocumentTranslator = luceneEntityDocumentTranslator;
@@ -75,21 +95,20 @@ public class LuceneIndexWriterImpl implements LuceneIndexWriter, HasDispose, Ent
         this.indexWriter = indexWriter;
         this.searcherManager = searcherManager;
         this.builtInOwlEntitiesIndex = checkNotNull(builtInOwlEntitiesIndex);
+        this.affectedEntitiesCollector = checkNotNull(affectedEntitiesCollector);
+        this.luceneIndexUpdater = checkNotNull(luceneIndexUpdater);
+        this.indexRefresher = checkNotNull(indexRefresher);
+        this.revisionManager = checkNotNull(revisionManager);
+        this.indexRebuilder = checkNotNull(indexRebuilder);
     }
 
-    @Override
-    public void updateEntitySearchFilterIndexes() {
-        try {
-            rebuildIndex();
-        } catch (IOException e) {
-            logger.error("An error occurred while rebuilding the entity search filter index", e);
-        }
-    }
-
+    /**
+     * Starts rebuilding the index in the background.  Searches use the existing index until the rebuilt index
+     * replaces it.
+     */
     @Override
     public void rebuildIndex() throws IOException {
-        indexWriter.deleteAll();
-        buildAndWriteIndex();
+        indexRebuilder.startRebuild();
     }
 
     @Override
@@ -97,6 +116,8 @@ public class LuceneIndexWriterImpl implements LuceneIndexWriter, HasDispose, Ent
 
         if(DirectoryReader.indexExists(luceneDirectory)) {
             logger.info("{} Lucene index already exists", projectId);
+            replayRevisionsAfterLastCommit();
+            indexRebuilder.resumeInterruptedRebuild();
             return;
         }
         buildAndWriteIndex();
@@ -114,11 +135,43 @@ public class LuceneIndexWriterImpl implements LuceneIndexWriter, HasDispose, Ent
                                .filter(entity -> !entitiesInProjectSignatureIndex.containsEntityInSignature(entity))
                                .map(docTranslator::getLuceneDocument)
                                .forEach(this::addDocumentToIndex);
-        indexWriter.commit();
+        indexRefresher.commit();
         searcherManager.maybeRefreshBlocking();
         logger.info("{} Built lucene based dictionary in {} ms", projectId, stopwatch.elapsed().toMillis());
     }
 
+    /**
+     * Updates the index for the entities that are affected by revisions that were added after the last commit.
+     * Updates to the index are committed in batches, so the updates for these revisions are lost if the server
+     * stops without closing the index.
+     */
+    private void replayRevisionsAfterLastCommit() {
+        if(revisionManager.isEmpty()) {
+            return;
+        }
+        // Indexes that do not record a revision were committed after every update
+        var committedRevision = indexRefresher.getCommittedRevision();
+        if(committedRevision.isEmpty()) {
+            return;
+        }
+        var headRevision = revisionManager.get().getCurrentRevision();
+        if(committedRevision.get().compareTo(headRevision) >= 0) {
+            return;
+        }
+        var stopwatch = Stopwatch.createStarted();
+        var affectedEntities = affectedEntitiesCollector.getEntitiesAffectedByRevisions(revisionManager.get(),
+                                                                                        committedRevision.get(),
+                                                                                        headRevision);
+        luceneIndexUpdater.updateIndexForEntities(affectedEntities);
+        indexRefresher.commit();
+        logger.info("{} Replayed revisions {} to {} into the lucene index ({} entities) in {} ms",
+                    projectId,
+                    committedRevision.get().getNextRevisionNumber().getValue(),
+                    headRevision.getValue(),
+                    affectedEntities.size(),
+                    stopwatch.elapsed().toMillis());
+    }
+
     public void addDocumentToIndex(Document doc) {
         try {
             indexWriter.addDocument(doc);
@@ -25,7 +25,7 @@ import java.io.UncheckedIOException;
  * Stanford Center for Biomedical Informatics Research
  * 2020-07-08
  */
-@Module
+@Module(includes = LuceneRevisionModule.class)
 public class LuceneModule {
 
     private static final Logger logger = LoggerFactory.getLogger(LuceneModule.class);
@@ -0,0 +1,21 @@
+package edu.stanford.bmir.protege.web.server.shortform;
+
+import dagger.BindsOptionalOf;
+import dagger.Module;
+import edu.stanford.bmir.protege.web.server.revision.RevisionManager;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Projects that have a change history bind a {@link RevisionManager}, which is used to record the revision that a
+ * Lucene index commit is up to date with, and to replay later revisions into the index after a crash.  Uploaded
+ * projects do not have a change history.
+ */
+@Module
+public abstract class LuceneRevisionModule {
+
+    @BindsOptionalOf
+    abstract RevisionManager bindOptionalRevisionManager();
+}
@@ -0,0 +1,158 @@
+package edu.stanford.bmir.protege.web.server.shortform;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
+import edu.stanford.bmir.protege.web.server.match.MatchingEngine;
+import edu.stanford.bmir.protege.web.server.search.EntitySearchFilterIndexesManager;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.search.EntitySearchFilter;
+import edu.stanford.bmir.protege.web.shared.search.EntitySearchFilterId;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Maintains search filter membership in a project's Lucene index when the project's search filters change.  Rather
+ * than rebuilding the index, the criteria of each added, removed or modified filter are evaluated using the
+ * {@link MatchingEngine} and compared with the entities that the index records as members of the filter.  Only
+ * entities whose membership has changed are reindexed.  Filters whose criteria are unchanged, for example filters
+ * that have only been relabelled, do not cause any reindexing.
+ */
+public class LuceneSearchFilterIndexesManager implements EntitySearchFilterIndexesManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(LuceneSearchFilterIndexesManager.class);
+
+    private static final int REINDEX_BATCH_SIZE = 1_000;
+
+    private static final Set<String> MEMBER_FIELDS_TO_LOAD = Set.of(EntityDocumentFieldNames.IRI,
+                                                                    EntityDocumentFieldNames.ENTITY_TYPE);
+
+    @Nonnull
+    private final ProjectId projectId;
+
+    @Nonnull
+    private final MatchingEngine matchingEngine;
+
+    @Nonnull
+    private final SearcherManager searcherManager;
+
+    @Nonnull
+    private final LuceneIndexRefresher indexRefresher;
+
+    @Nonnull
+    private final Provider<LuceneEntityDocumentTranslator> documentTranslatorProvider;
+
+    @Nonnull
+    private final LuceneIndexUpdater luceneIndexUpdater;
+
+    @Inject
+    public LuceneSearchFilterIndexesManager(@Nonnull ProjectId projectId,
+                                            @Nonnull MatchingEngine matchingEngine,
+                                            @Nonnull SearcherManager searcherManager,
+                                            @Nonnull LuceneIndexRefresher indexRefresher,
+                                            @Nonnull Provider<LuceneEntityDocumentTranslator> documentTranslatorProvider,
+                                            @Nonnull LuceneIndexUpdater luceneIndexUpdater) {
+        this.projectId = checkNotNull(projectId);
+        this.matchingEngine = checkNotNull(matchingEngine);
+        this.searcherManager = checkNotNull(searcherManager);
+        this.indexRefresher = checkNotNull(indexRefresher);
+        this.documentTranslatorProvider = checkNotNull(documentTranslatorProvider);
+        this.luceneIndexUpdater = checkNotNull(luceneIndexUpdater);
+    }
+
+    @Override
+    public void updateEntitySearchFilterIndexes(@Nonnull ImmutableList<EntitySearchFilter> previousSearchFilters,
+                                                @Nonnull ImmutableList<EntitySearchFilter> searchFilters) {
+        var stopwatch = Stopwatch.createStarted();
+        var previousFiltersById = getFiltersById(previousSearchFilters);
+        var filtersById = getFiltersById(searchFilters);
+        var entitiesToReindex = new HashSet<OWLEntity>();
+        var changedFilterCount = 0;
+        for(var filterId : Sets.union(previousFiltersById.keySet(), filtersById.keySet())) {
+            var previousFilter = previousFiltersById.get(filterId);
+            var filter = filtersById.get(filterId);
+            if(previousFilter != null && filter != null
+                    && Objects.equals(previousFilter.getEntityMatchCriteria(), filter.getEntityMatchCriteria())) {
+                continue;
+            }
+            changedFilterCount++;
+            var indexedMembers = getIndexedMembers(filterId);
+            var members = filter == null ? Set.<OWLEntity>of() : getMembers(filter);
+            Sets.symmetricDifference(indexedMembers, members).copyInto(entitiesToReindex);
+        }
+        if(changedFilterCount == 0) {
+            return;
+        }
+        // Documents are rebuilt with the new filters, which have already been saved
+        for(var batch : Iterables.partition(entitiesToReindex, REINDEX_BATCH_SIZE)) {
+            luceneIndexUpdater.updateIndexForEntities(batch);
+        }
+        logger.info("{} Updated search filter memberships for {} changed search filters ({} entities reindexed) in {} ms",
+                    projectId,
+                    changedFilterCount,
+                    entitiesToReindex.size(),
+                    stopwatch.elapsed().toMillis());
+    }
+
+    @Nonnull
+    private static Map<EntitySearchFilterId, EntitySearchFilter> getFiltersById(@Nonnull ImmutableList<EntitySearchFilter> searchFilters) {
+        return searchFilters.stream()
+                            .collect(toMap(EntitySearchFilter::getId, Function.identity(), (left, right) -> right));
+    }
+
+    @Nonnull
+    private Set<OWLEntity> getMembers(@Nonnull EntitySearchFilter filter) {
+        return matchingEngine.match(filter.getEntityMatchCriteria())
+                             .collect(toSet());
+    }
+
+    @Nonnull
+    private Set<OWLEntity> getIndexedMembers(@Nonnull EntitySearchFilterId filterId) {
+        try {
+            indexRefresher.refreshIfStale();
+            var indexSearcher = searcherManager.acquire();
+            try {
+                var query = new TermQuery(new Term(EntityDocumentFieldNames.SEARCH_FILTER_MATCHES, filterId.getId()));
+                var memberCount = indexSearcher.count(query);
+                if(memberCount == 0) {
+                    return Set.of();
+                }
+                var documentTranslator = documentTranslatorProvider.get();
+                var members = new HashSet<OWLEntity>();
+                for(var scoreDoc : indexSearcher.search(query, memberCount).scoreDocs) {
+                    var document = indexSearcher.doc(scoreDoc.doc, MEMBER_FIELDS_TO_LOAD);
+                    members.add(documentTranslator.getEntity(document));
+                }
+                return members;
+            } finally {
+                searcherManager.release(indexSearcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package edu.stanford.bmir.protege.web.server.shortform;
+
+import com.google.auto.value.AutoValue;
+import org.apache.lucene.search.Query;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ *
+ * Identifies a page of search results for a query that was run against a specific point-in-time view of the index.
+ * Document ids are only stable within a point-in-time view, so the reader key is the cache key of the index reader
+ * that the query was run against.
+ */
+@AutoValue
+public abstract class SearchCursorKey {
+
+    @Nonnull
+    public static SearchCursorKey get(@Nonnull Object readerKey,
+                                      @Nonnull Query query,
+                                      int pageNumber,
+                                      int pageSize) {
+        return new AutoValue_SearchCursorKey(readerKey, query, pageNumber, pageSize);
+    }
+
+    @Nonnull
+    public abstract Object getReaderKey();
+
+    @Nonnull
+    public abstract Query getQuery();
+
+    public abstract int getPageNumber();
+
+    public abstract int getPageSize();
+}
@@ -0,0 +1,214 @@
+package edu.stanford.bmir.protege.web.server.shortform;
+
+import com.google.common.collect.ImmutableSetMultimap;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskExecutor;
+import edu.stanford.bmir.protege.web.shared.pagination.Page;
+import edu.stanford.bmir.protege.web.shared.pagination.PageRequest;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.shortform.DictionaryLanguage;
+import edu.stanford.bmir.protege.web.shared.shortform.LocalNameDictionaryLanguage;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.Class;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LuceneIndexImpl_TestCase {
+
+    private static final int DOCUMENT_COUNT = 250;
+
+    private static final String TEXT = "text";
+
+    private static final String UNREQUESTED = "unrequested";
+
+    private final List<DictionaryLanguage> languages = List.of(LocalNameDictionaryLanguage.get());
+
+    private final List<SearchString> searchStrings = List.of(SearchString.parseSearchString("match"));
+
+    @Mock
+    private LuceneEntityDocumentTranslator translator;
+
+    @Mock
+    private LuceneQueryFactory queryFactory;
+
+    @Mock
+    private LuceneDictionaryLanguageValuesMatcher matcher;
+
+    @Mock
+    private QueryAnalyzerFactory queryAnalyzerFactory;
+
+    @Mock
+    private ProjectTaskExecutor taskExecutor;
+
+    private ByteBuffersDirectory directory;
+
+    private IndexWriter indexWriter;
+
+    private SearcherManager searcherManager;
+
+    private LuceneIndexImpl index;
+
+    private final List<Document> loadedDocuments = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        directory = new ByteBuffersDirectory();
+        indexWriter = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()));
+        for(int i = 0; i < DOCUMENT_COUNT; i++) {
+            var document = new Document();
+            document.add(new StringField(EntityDocumentFieldNames.IRI, getIri(i), Field.Store.YES));
+            // Vary the number of matching terms so that hits have different scores
+            document.add(new TextField(TEXT, "match ".repeat(1 + i % 7) + "other", Field.Store.NO));
+            document.add(new StringField(UNREQUESTED, "value", Field.Store.YES));
+            indexWriter.addDocument(document);
+        }
+        var nonMatchingDocument = new Document();
+        nonMatchingDocument.add(new TextField(TEXT, "other", Field.Store.NO));
+        indexWriter.addDocument(nonMatchingDocument);
+        indexWriter.commit();
+        searcherManager = new SearcherManager(indexWriter, new SearcherFactory());
+        var query = new TermQuery(new Term(TEXT, "match"));
+        when(queryFactory.createQuery(any(), any())).thenReturn(query);
+        when(queryFactory.createQueryForExactOriginalMatch(any(), any())).thenReturn(query);
+        when(translator.getStoredFieldNames(languages)).thenReturn(Set.of(EntityDocumentFieldNames.IRI));
+        when(translator.getDictionaryLanguageValues(any(), any())).thenAnswer(invocation -> {
+            Document document = invocation.getArgument(0);
+            loadedDocuments.add(document);
+            var iri = document.get(EntityDocumentFieldNames.IRI);
+            return EntityDictionaryLanguageValues.get(Class(IRI.create(iri)),
+                                                      ImmutableSetMultimap.of(LocalNameDictionaryLanguage.get(), "match"));
+        });
+        when(matcher.getShortFormMatches(any(), any(), any())).thenAnswer(invocation -> Stream.empty());
+        var indexRefresher = new LuceneIndexRefresher(ProjectId.get(UUID.randomUUID().toString()),
+                                                      indexWriter,
+                                                      searcherManager,
+                                                      LuceneIndexRefreshSettings.getCommitEveryUpdate(),
+                                                      taskExecutor,
+                                                      Optional.empty());
+        index = new LuceneIndexImpl(translator, searcherManager, queryFactory, matcher, queryAnalyzerFactory, indexRefresher);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        searcherManager.close();
+        indexWriter.close();
+        directory.close();
+    }
+
+    private static String getIri(int i) {
+        return "http://example.org/C" + i;
+    }
+
+    private Page<EntityShortFormMatches> search(int pageNumber, int pageSize) throws Exception {
+        return index.search(searchStrings, languages, List.of(), Set.of(), PageRequest.requestPageWithSize(pageNumber, pageSize))
+                    .orElseThrow();
+    }
+
+    private static List<OWLEntity> getEntities(Page<EntityShortFormMatches> page) {
+        return page.getPageElements()
+                   .stream()
+                   .map(EntityShortFormMatches::getEntity)
+                   .collect(toList());
+    }
+
+    @Test
+    public void shouldReturnPageWithTotalHitCount() throws Exception {
+        var page = search(1, 20);
+        assertThat(page.getPageElements(), hasSize(20));
+        assertThat(page.getTotalElements(), is((long) DOCUMENT_COUNT));
+        assertThat(page.getPageCount(), is(13));
+    }
+
+    @Test
+    public void shouldOnlyLoadDocumentsForRequestedPage() throws Exception {
+        search(3, 20);
+        assertThat(loadedDocuments, hasSize(20));
+    }
+
+    @Test
+    public void shouldOnlyLoadRequestedStoredFields() throws Exception {
+        search(1, 20);
+        assertThat(loadedDocuments.get(0).get(EntityDocumentFieldNames.IRI), is(notNullValue()));
+        assertThat(loadedDocuments.get(0).get(UNREQUESTED), is(nullValue()));
+    }
+
+    @Test
+    public void shouldPageThroughAllHitsInScoreOrder() throws Exception {
+        var allHits = getEntities(search(1, DOCUMENT_COUNT));
+        var pagedHits = new ArrayList<OWLEntity>();
+        for(int pageNumber = 1; pageNumber <= 13; pageNumber++) {
+            pagedHits.addAll(getEntities(search(pageNumber, 20)));
+        }
+        assertThat(pagedHits, is(allHits));
+        assertThat(Set.copyOf(pagedHits), hasSize(DOCUMENT_COUNT));
+    }
+
+    @Test
+    public void shouldReturnSamePageWithAndWithoutCursor() throws Exception {
+        var pageWithoutCursor = getEntities(search(3, 20));
+        search(2, 20);
+        var pageWithCursor = getEntities(search(3, 20));
+        assertThat(pageWithCursor, is(pageWithoutCursor));
+    }
+
+    @Test
+    public void shouldReturnPartialLastPage() throws Exception {
+        var page = search(13, 20);
+        assertThat(page.getPageElements(), hasSize(10));
+    }
+
+    @Test
+    public void shouldReturnEmptyForPageAfterLastPage() throws Exception {
+        var page = index.search(searchStrings, languages, List.of(), Set.of(), PageRequest.requestPageWithSize(14, 20));
+        assertThat(page.isPresent(), is(false));
+    }
+
+    @Test
+    public void shouldReturnPageForMaximumPageSize() throws Exception {
+        var page = search(1, PageRequest.MAX_PAGE_SIZE);
+        assertThat(page.getPageElements(), hasSize(DOCUMENT_COUNT));
+        assertThat(page.getPageCount(), is(1));
+    }
+
+    @Test
+    public void shouldFindAllEntitiesAcrossBatches() throws Exception {
+        var entities = index.findEntities("match", languages).collect(toList());
+        assertThat(entities, hasSize(DOCUMENT_COUNT));
+        assertThat(Set.copyOf(entities), hasSize(DOCUMENT_COUNT));
+    }
+}
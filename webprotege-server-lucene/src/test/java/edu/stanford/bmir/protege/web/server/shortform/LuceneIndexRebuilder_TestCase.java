@@ -0,0 +1,301 @@
+package edu.stanford.bmir.protege.web.server.shortform;
+
+import edu.stanford.bmir.protege.web.server.index.BuiltInOwlEntitiesIndex;
+import edu.stanford.bmir.protege.web.server.index.EntitiesInProjectSignatureIndex;
+import edu.stanford.bmir.protege.web.server.index.ProjectSignatureIndex;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskExecutor;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.util.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLEntity;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.Class;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class LuceneIndexRebuilder_TestCase {
+
+    /**
+     * More than one chunk
+     */
+    private static final int ENTITY_COUNT = 6_000;
+
+    private static final String VERSION = "version";
+
+    private final ProjectId projectId = ProjectId.get(UUID.randomUUID().toString());
+
+    private final List<OWLEntity> entities = IntStream.range(0, ENTITY_COUNT)
+                                                      .mapToObj(i -> (OWLEntity) Class(IRI.create("http://example.org/C" + i)))
+                                                      .collect(toList());
+
+    /**
+     * The version of the document that the translator produces for each entity
+     */
+    private final Map<OWLEntity, String> entityVersions = new ConcurrentHashMap<>();
+
+    @Mock
+    private LuceneEntityDocumentTranslator translator;
+
+    @Mock
+    private ProjectSignatureIndex projectSignatureIndex;
+
+    @Mock
+    private EntitiesInProjectSignatureIndex entitiesInProjectSignatureIndex;
+
+    @Mock
+    private BuiltInOwlEntitiesIndex builtInOwlEntitiesIndex;
+
+    @Mock
+    private AffectedEntitiesCollector affectedEntitiesCollector;
+
+    private Path luceneIndexesDirectory;
+
+    private ByteBuffersDirectory directory;
+
+    private IndexWriter indexWriter;
+
+    private SearcherManager searcherManager;
+
+    private LuceneIndexRefresher indexRefresher;
+
+    private QueuedTaskExecutor taskExecutor;
+
+    @Before
+    public void setUp() throws IOException {
+        luceneIndexesDirectory = Files.createTempDirectory("lucene-indexes");
+        directory = new ByteBuffersDirectory();
+        indexWriter = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()));
+        searcherManager = new SearcherManager(indexWriter, new SearcherFactory());
+        taskExecutor = new QueuedTaskExecutor();
+        indexRefresher = new LuceneIndexRefresher(projectId,
+                                                  indexWriter,
+                                                  searcherManager,
+                                                  LuceneIndexRefreshSettings.getCommitEveryUpdate(),
+                                                  taskExecutor,
+                                                  Optional.empty());
+        when(projectSignatureIndex.getSignature()).thenAnswer(invocation -> entities.stream());
+        when(builtInOwlEntitiesIndex.getBuiltInEntities()).thenAnswer(invocation -> Stream.empty());
+        when(translator.getLuceneDocument(any())).thenAnswer(invocation -> {
+            OWLEntity entity = invocation.getArgument(0);
+            var document = new Document();
+            document.add(new StringField(EntityDocumentFieldNames.IRI, entity.getIRI().toString(), Field.Store.YES));
+            document.add(new StringField(VERSION, entityVersions.getOrDefault(entity, "original"), Field.Store.YES));
+            return document;
+        });
+        when(translator.getEntityDocumentQuery(any())).thenAnswer(invocation -> {
+            OWLEntity entity = invocation.getArgument(0);
+            return new TermQuery(new Term(EntityDocumentFieldNames.IRI, entity.getIRI().toString()));
+        });
+        for(var entity : entities.subList(0, 10)) {
+            indexWriter.addDocument(translator.getLuceneDocument(entity));
+        }
+        indexRefresher.commit();
+        searcherManager.maybeRefreshBlocking();
+        entities.forEach(entity -> entityVersions.put(entity, "rebuilt"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        searcherManager.close();
+        indexWriter.close();
+        directory.close();
+        IOUtils.rm(luceneIndexesDirectory);
+    }
+
+    private LuceneIndexRebuilder createRebuilder() {
+        return new LuceneIndexRebuilder(projectId,
+                                        new ProjectLuceneDirectoryPathSupplier(luceneIndexesDirectory, projectId),
+                                        () -> new IndexWriterConfig(new StandardAnalyzer()),
+                                        () -> translator,
+                                        projectSignatureIndex,
+                                        entitiesInProjectSignatureIndex,
+                                        builtInOwlEntitiesIndex,
+                                        indexWriter,
+                                        indexRefresher,
+                                        taskExecutor,
+                                        Optional.empty(),
+                                        affectedEntitiesCollector);
+    }
+
+    private int countDocuments(String version) throws IOException {
+        indexRefresher.refreshIfStale();
+        var searcher = searcherManager.acquire();
+        try {
+            return searcher.count(new TermQuery(new Term(VERSION, version)));
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private int countAllDocuments() throws IOException {
+        indexRefresher.refreshIfStale();
+        var searcher = searcherManager.acquire();
+        try {
+            return searcher.count(new MatchAllDocsQuery());
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private String getVersion(OWLEntity entity) throws IOException {
+        indexRefresher.refreshIfStale();
+        var searcher = searcherManager.acquire();
+        try {
+            var topDocs = searcher.search(new TermQuery(new Term(EntityDocumentFieldNames.IRI, entity.getIRI().toString())), 10);
+            assertThat(topDocs.totalHits.value, is(1L));
+            return searcher.doc(topDocs.scoreDocs[0].doc).get(VERSION);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    @Test
+    public void shouldReplaceIndexWithRebuiltIndex() throws IOException {
+        createRebuilder().startRebuild();
+        taskExecutor.runAllTasks();
+        assertThat(countAllDocuments(), is(ENTITY_COUNT));
+        assertThat(countDocuments("rebuilt"), is(ENTITY_COUNT));
+    }
+
+    @Test
+    public void shouldSearchExistingIndexUntilRebuildIsComplete() throws IOException {
+        createRebuilder().startRebuild();
+        // Starts the rebuild and writes the first chunk
+        taskExecutor.runNextTask();
+        taskExecutor.runNextTask();
+        assertThat(countAllDocuments(), is(10));
+        assertThat(countDocuments("original"), is(10));
+    }
+
+    @Test
+    public void shouldDeleteRebuildDirectoryWhenComplete() throws IOException {
+        createRebuilder().startRebuild();
+        taskExecutor.runAllTasks();
+        try (var files = Files.list(luceneIndexesDirectory)) {
+            assertThat(files.count(), is(0L));
+        }
+    }
+
+    @Test
+    public void shouldReindexEntitiesThatAreUpdatedDuringRebuild() throws IOException {
+        var rebuilder = createRebuilder();
+        rebuilder.startRebuild();
+        taskExecutor.runNextTask();
+        taskExecutor.runNextTask();
+        // An entity in the first chunk, which has already been written to the rebuilt index
+        var updatedEntity = entities.get(0);
+        entityVersions.put(updatedEntity, "updated");
+        rebuilder.handleEntitiesUpdated(List.of(updatedEntity));
+        indexWriter.updateDocument(new Term(EntityDocumentFieldNames.IRI, updatedEntity.getIRI().toString()),
+                                   translator.getLuceneDocument(updatedEntity));
+        taskExecutor.runAllTasks();
+        assertThat(countAllDocuments(), is(ENTITY_COUNT));
+        assertThat(getVersion(updatedEntity), is("updated"));
+    }
+
+    @Test
+    public void shouldResumeInterruptedRebuild() throws IOException {
+        createRebuilder().startRebuild();
+        taskExecutor.runNextTask();
+        taskExecutor.runNextTask();
+        // Simulate the server stopping
+        taskExecutor.clear();
+        var resumedRebuilder = createRebuilder();
+        resumedRebuilder.resumeInterruptedRebuild();
+        taskExecutor.runAllTasks();
+        assertThat(countAllDocuments(), is(ENTITY_COUNT));
+        assertThat(countDocuments("rebuilt"), is(ENTITY_COUNT));
+    }
+
+    @Test
+    public void shouldNotResumeWhenThereIsNoInterruptedRebuild() {
+        createRebuilder().resumeInterruptedRebuild();
+        assertThat(taskExecutor.getTaskCount(), is(0));
+    }
+
+    @Test
+    public void shouldAbandonSupersededRebuild() throws IOException {
+        var rebuilder = createRebuilder();
+        rebuilder.startRebuild();
+        taskExecutor.runNextTask();
+        rebuilder.startRebuild();
+        taskExecutor.runAllTasks();
+        assertThat(countAllDocuments(), is(ENTITY_COUNT));
+        assertThat(countDocuments("rebuilt"), is(ENTITY_COUNT));
+    }
+
+    private static class QueuedTaskExecutor implements ProjectTaskExecutor {
+
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void schedule(@Nonnull Runnable task, long delay, @Nonnull TimeUnit unit) {
+            tasks.add(task);
+        }
+
+        @Override
+        public void execute(@Nonnull Runnable task) {
+            tasks.add(task);
+        }
+
+        public int getTaskCount() {
+            return tasks.size();
+        }
+
+        public void runNextTask() {
+            tasks.remove().run();
+        }
+
+        public void runAllTasks() {
+            while(!tasks.isEmpty()) {
+                runNextTask();
+            }
+        }
+
+        public void clear() {
+            tasks.clear();
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package edu.stanford.bmir.protege.web.server.shortform;
+
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskExecutor;
+import edu.stanford.bmir.protege.web.server.revision.RevisionManager;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.revision.RevisionNumber;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class LuceneIndexRefresher_TestCase {
+
+    private static final Duration REFRESH_INTERVAL = Duration.ofSeconds(1);
+
+    private static final Duration COMMIT_INTERVAL = Duration.ofSeconds(30);
+
+    private static final int COMMIT_MAX_DOCUMENTS = 10;
+
+    private final ProjectId projectId = ProjectId.get(UUID.randomUUID().toString());
+
+    @Mock
+    private RevisionManager revisionManager;
+
+    private ByteBuffersDirectory directory;
+
+    private IndexWriter indexWriter;
+
+    private SearcherManager searcherManager;
+
+    private RecordingTaskExecutor taskExecutor;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = new ByteBuffersDirectory();
+        indexWriter = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()));
+        indexWriter.commit();
+        searcherManager = new SearcherManager(indexWriter, new SearcherFactory());
+        taskExecutor = new RecordingTaskExecutor();
+        when(revisionManager.getCurrentRevision()).thenReturn(RevisionNumber.getRevisionNumber(33));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        searcherManager.close();
+        indexWriter.close();
+        directory.close();
+    }
+
+    private LuceneIndexRefresher createRefresher(LuceneIndexRefreshSettings settings) {
+        return new LuceneIndexRefresher(projectId,
+                                        indexWriter,
+                                        searcherManager,
+                                        settings,
+                                        taskExecutor,
+                                        Optional.of(revisionManager));
+    }
+
+    private LuceneIndexRefresher createNearRealTimeRefresher() {
+        return createRefresher(LuceneIndexRefreshSettings.get(REFRESH_INTERVAL, COMMIT_INTERVAL, COMMIT_MAX_DOCUMENTS));
+    }
+
+    private void addDocuments(LuceneIndexRefresher refresher, int count) throws IOException {
+        for(int i = 0; i < count; i++) {
+            var document = new Document();
+            document.add(new StringField(EntityDocumentFieldNames.IRI, "http://example.org/C" + i, Field.Store.YES));
+            indexWriter.addDocument(document);
+        }
+        refresher.handleIndexUpdated(count);
+    }
+
+    private int getSearchableDocumentCount() throws IOException {
+        var searcher = searcherManager.acquire();
+        try {
+            return searcher.getIndexReader().numDocs();
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private int getCommittedDocumentCount() throws IOException {
+        try(var reader = DirectoryReader.open(directory)) {
+            return reader.numDocs();
+        }
+    }
+
+    @Test
+    public void shouldCommitAndRefreshEveryUpdate() throws IOException {
+        var refresher = createRefresher(LuceneIndexRefreshSettings.getCommitEveryUpdate());
+        addDocuments(refresher, 1);
+        assertThat(getCommittedDocumentCount(), is(1));
+        assertThat(getSearchableDocumentCount(), is(1));
+        assertThat(taskExecutor.getTaskCount(), is(0));
+    }
+
+    @Test
+    public void shouldNotCommitNearRealTimeUpdate() throws IOException {
+        var refresher = createNearRealTimeRefresher();
+        addDocuments(refresher, 1);
+        assertThat(getCommittedDocumentCount(), is(0));
+    }
+
+    @Test
+    public void shouldMakeNearRealTimeUpdateVisibleWhenStale() throws IOException {
+        var refresher = createNearRealTimeRefresher();
+        addDocuments(refresher, 1);
+        refresher.refreshIfStale();
+        assertThat(getSearchableDocumentCount(), is(1));
+        assertThat(getCommittedDocumentCount(), is(0));
+    }
+
+    @Test
+    public void shouldScheduleRefreshAndCommitOnce() throws IOException {
+        var refresher = createNearRealTimeRefresher();
+        addDocuments(refresher, 1);
+        addDocuments(refresher, 1);
+        assertThat(taskExecutor.getDelays(), containsInAnyOrder(REFRESH_INTERVAL.toMillis(), COMMIT_INTERVAL.toMillis()));
+    }
+
+    @Test
+    public void shouldRefreshAndCommitWhenScheduledTasksRun() throws IOException {
+        var refresher = createNearRealTimeRefresher();
+        addDocuments(refresher, 2);
+        taskExecutor.runTasks();
+        assertThat(getSearchableDocumentCount(), is(2));
+        assertThat(getCommittedDocumentCount(), is(2));
+    }
+
+    @Test
+    public void shouldCommitImmediatelyWhenMaxDocumentsReached() throws IOException {
+        var refresher = createNearRealTimeRefresher();
+        addDocuments(refresher, COMMIT_MAX_DOCUMENTS);
+        assertThat(taskExecutor.getDelays(), containsInAnyOrder(0L, REFRESH_INTERVAL.toMillis()));
+        taskExecutor.runTasks();
+        assertThat(getCommittedDocumentCount(), is(COMMIT_MAX_DOCUMENTS));
+    }
+
+    @Test
+    public void shouldRecordRevisionInCommit() throws IOException {
+        var refresher = createNearRealTimeRefresher();
+        addDocuments(refresher, 1);
+        refresher.commit();
+        var userData = SegmentInfos.readLatestCommit(directory).getUserData();
+        assertThat(userData, hasEntry(LuceneIndexRefresher.REVISION_COMMIT_DATA_KEY, "33"));
+    }
+
+    @Test
+    public void shouldGetCommittedRevisionWhenReopened() throws IOException {
+        var refresher = createNearRealTimeRefresher();
+        addDocuments(refresher, 1);
+        refresher.commit();
+        searcherManager.close();
+        indexWriter.close();
+        indexWriter = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()));
+        searcherManager = new SearcherManager(indexWriter, new SearcherFactory());
+        var reopenedRefresher = createNearRealTimeRefresher();
+        assertThat(reopenedRefresher.getCommittedRevision(), is(Optional.of(RevisionNumber.getRevisionNumber(33))));
+    }
+
+    @Test
+    public void shouldNotGetCommittedRevisionIfNotRecorded() {
+        var refresher = createNearRealTimeRefresher();
+        assertThat(refresher.getCommittedRevision(), is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldNotMakePartiallyReplacedIndexVisible() throws Exception {
+        var refresher = createNearRealTimeRefresher();
+        addDocuments(refresher, 3);
+        refresher.refreshIfStale();
+        var searchableDuringReplacement = new int[1];
+        refresher.replaceIndex(writer -> {
+            writer.deleteAll();
+            refresher.handleIndexUpdated(3);
+            // Searches run on other threads
+            searchableDuringReplacement[0] = CompletableFuture.supplyAsync(() -> {
+                try {
+                    refresher.refreshIfStale();
+                    return getSearchableDocumentCount();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).join();
+            var document = new Document();
+            document.add(new StringField(EntityDocumentFieldNames.IRI, "http://example.org/Replacement", Field.Store.YES));
+            writer.addDocument(document);
+        });
+        assertThat(searchableDuringReplacement[0], is(3));
+        assertThat(getSearchableDocumentCount(), is(1));
+        assertThat(getCommittedDocumentCount(), is(1));
+    }
+
+    @Test
+    public void shouldRollBackFailedReplacement() throws Exception {
+        var refresher = createNearRealTimeRefresher();
+        addDocuments(refresher, 3);
+        try {
+            refresher.replaceIndex(writer -> {
+                writer.deleteAll();
+                throw new IOException("Replacement failed");
+            });
+            fail("Expected the replacement to fail");
+        } catch (IOException e) {
+            assertThat(e.getMessage(), is("Replacement failed"));
+        }
+        assertThat(indexWriter.isOpen(), is(false));
+        // Updates made before the replacement are kept
+        assertThat(getCommittedDocumentCount(), is(3));
+    }
+
+    @Test
+    public void shouldNotUpdateClosedIndex() throws Exception {
+        var refresher = createNearRealTimeRefresher();
+        indexWriter.close();
+        refresher.updateIndex(writer -> {
+            writer.addDocument(new Document());
+            return 1;
+        });
+        assertThat(taskExecutor.getTaskCount(), is(0));
+    }
+
+    @Test
+    public void shouldMakeUpdatesWaitForReplacement() throws Exception {
+        var refresher = createNearRealTimeRefresher();
+        addDocuments(refresher, 3);
+        var update = new CompletableFuture[1];
+        var updatedDuringReplacement = new boolean[1];
+        refresher.replaceIndex(writer -> {
+            writer.deleteAll();
+            update[0] = CompletableFuture.runAsync(() -> {
+                try {
+                    refresher.updateIndex(updateWriter -> {
+                        var document = new Document();
+                        document.add(new StringField(EntityDocumentFieldNames.IRI, "http://example.org/Update", Field.Store.YES));
+                        updateWriter.addDocument(document);
+                        return 1;
+                    });
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            updatedDuringReplacement[0] = update[0].isDone();
+        });
+        update[0].join();
+        refresher.refreshIfStale();
+        assertThat(updatedDuringReplacement[0], is(false));
+        assertThat(getSearchableDocumentCount(), is(1));
+    }
+
+    /**
+     * Records tasks so that they can be run by the test
+     */
+    private static class RecordingTaskExecutor implements ProjectTaskExecutor {
+
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        private final List<Long> delays = new ArrayList<>();
+
+        @Override
+        public void schedule(@Nonnull Runnable task, long delay, @Nonnull TimeUnit unit) {
+            tasks.add(task);
+            delays.add(unit.toMillis(delay));
+        }
+
+        @Override
+        public void execute(@Nonnull Runnable task) {
+            schedule(task, 0, TimeUnit.MILLISECONDS);
+        }
+
+        public int getTaskCount() {
+            return tasks.size();
+        }
+
+        public List<Long> getDelays() {
+            return delays;
+        }
+
+        public void runTasks() {
+            var tasksToRun = new ArrayList<>(tasks);
+            tasks.clear();
+            tasksToRun.forEach(Runnable::run);
+        }
+    }
+}
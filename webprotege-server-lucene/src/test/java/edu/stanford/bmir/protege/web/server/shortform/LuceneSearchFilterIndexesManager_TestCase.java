@@ -0,0 +1,190 @@
+package edu.stanford.bmir.protege.web.server.shortform;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.bmir.protege.web.server.match.MatchingEngine;
+import edu.stanford.bmir.protege.web.server.project.ProjectTaskExecutor;
+import edu.stanford.bmir.protege.web.shared.lang.LanguageMap;
+import edu.stanford.bmir.protege.web.shared.match.criteria.EntityMatchCriteria;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.search.EntitySearchFilter;
+import edu.stanford.bmir.protege.web.shared.search.EntitySearchFilterId;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLEntity;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.Class;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class LuceneSearchFilterIndexesManager_TestCase {
+
+    private final ProjectId projectId = ProjectId.get(UUID.randomUUID().toString());
+
+    private final OWLEntity entityA = Class(IRI.create("http://example.org/A"));
+
+    private final OWLEntity entityB = Class(IRI.create("http://example.org/B"));
+
+    private final OWLEntity entityC = Class(IRI.create("http://example.org/C"));
+
+    private final EntitySearchFilterId filterId = EntitySearchFilterId.createFilterId();
+
+    private final EntitySearchFilterId otherFilterId = EntitySearchFilterId.createFilterId();
+
+    @Mock
+    private EntityMatchCriteria criteria;
+
+    @Mock
+    private EntityMatchCriteria modifiedCriteria;
+
+    @Mock
+    private EntityMatchCriteria otherCriteria;
+
+    @Mock
+    private MatchingEngine matchingEngine;
+
+    @Mock
+    private LuceneEntityDocumentTranslator translator;
+
+    @Mock
+    private LuceneIndexUpdater luceneIndexUpdater;
+
+    @Mock
+    private ProjectTaskExecutor taskExecutor;
+
+    private ByteBuffersDirectory directory;
+
+    private IndexWriter indexWriter;
+
+    private SearcherManager searcherManager;
+
+    private LuceneSearchFilterIndexesManager manager;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = new ByteBuffersDirectory();
+        indexWriter = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()));
+        // A and B are indexed as members of the filter, C is not a member
+        addDocument(entityA, filterId);
+        addDocument(entityB, filterId);
+        addDocument(entityC, otherFilterId);
+        indexWriter.commit();
+        searcherManager = new SearcherManager(indexWriter, new SearcherFactory());
+        when(translator.getEntity(any())).thenAnswer(invocation -> {
+            Document document = invocation.getArgument(0);
+            return Class(IRI.create(document.get(EntityDocumentFieldNames.IRI)));
+        });
+        var indexRefresher = new LuceneIndexRefresher(projectId,
+                                                      indexWriter,
+                                                      searcherManager,
+                                                      LuceneIndexRefreshSettings.getCommitEveryUpdate(),
+                                                      taskExecutor,
+                                                      Optional.empty());
+        manager = new LuceneSearchFilterIndexesManager(projectId,
+                                                       matchingEngine,
+                                                       searcherManager,
+                                                       indexRefresher,
+                                                       () -> translator,
+                                                       luceneIndexUpdater);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        searcherManager.close();
+        indexWriter.close();
+        directory.close();
+    }
+
+    private void addDocument(OWLEntity entity, EntitySearchFilterId memberOf) throws IOException {
+        var document = new Document();
+        document.add(new StringField(EntityDocumentFieldNames.IRI, entity.getIRI().toString(), Field.Store.YES));
+        document.add(new StringField(EntityDocumentFieldNames.SEARCH_FILTER_MATCHES, memberOf.getId(), Field.Store.NO));
+        indexWriter.addDocument(document);
+    }
+
+    private EntitySearchFilter getFilter(EntitySearchFilterId id, String label, EntityMatchCriteria criteria) {
+        return EntitySearchFilter.get(id, projectId, LanguageMap.of("en", label), criteria);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<OWLEntity> getReindexedEntities() {
+        var captor = ArgumentCaptor.forClass(Collection.class);
+        verify(luceneIndexUpdater, atLeast(0)).updateIndexForEntities(captor.capture());
+        var reindexed = new HashSet<OWLEntity>();
+        captor.getAllValues().forEach(reindexed::addAll);
+        return List.copyOf(reindexed);
+    }
+
+    @Test
+    public void shouldReindexOnlyEntitiesWhoseMembershipChanged() {
+        when(matchingEngine.match(modifiedCriteria)).thenAnswer(invocation -> Stream.of(entityB, entityC));
+        manager.updateEntitySearchFilterIndexes(ImmutableList.of(getFilter(filterId, "Filter", criteria)),
+                                                ImmutableList.of(getFilter(filterId, "Filter", modifiedCriteria)));
+        assertThat(getReindexedEntities(), containsInAnyOrder(entityA, entityC));
+    }
+
+    @Test
+    public void shouldReindexMatchingEntitiesForAddedFilter() {
+        var addedFilterId = EntitySearchFilterId.createFilterId();
+        when(matchingEngine.match(criteria)).thenAnswer(invocation -> Stream.of(entityC));
+        manager.updateEntitySearchFilterIndexes(ImmutableList.of(),
+                                                ImmutableList.of(getFilter(addedFilterId, "Added", criteria)));
+        assertThat(getReindexedEntities(), containsInAnyOrder(entityC));
+    }
+
+    @Test
+    public void shouldReindexIndexedMembersOfRemovedFilter() {
+        manager.updateEntitySearchFilterIndexes(ImmutableList.of(getFilter(filterId, "Filter", criteria)),
+                                                ImmutableList.of());
+        assertThat(getReindexedEntities(), containsInAnyOrder(entityA, entityB));
+        verify(matchingEngine, never()).match(any());
+    }
+
+    @Test
+    public void shouldNotReindexForRelabelledFilter() {
+        manager.updateEntitySearchFilterIndexes(ImmutableList.of(getFilter(filterId, "Filter", criteria)),
+                                                ImmutableList.of(getFilter(filterId, "Renamed filter", criteria)));
+        verifyZeroInteractions(luceneIndexUpdater, matchingEngine);
+    }
+
+    @Test
+    public void shouldNotEvaluateUnchangedFilters() {
+        when(matchingEngine.match(modifiedCriteria)).thenAnswer(invocation -> Stream.of(entityA, entityB));
+        manager.updateEntitySearchFilterIndexes(ImmutableList.of(getFilter(filterId, "Filter", criteria),
+                                                                 getFilter(otherFilterId, "Other", otherCriteria)),
+                                                ImmutableList.of(getFilter(filterId, "Filter", modifiedCriteria),
+                                                                 getFilter(otherFilterId, "Other", otherCriteria)));
+        verify(matchingEngine, never()).match(otherCriteria);
+        assertThat(getReindexedEntities(), containsInAnyOrder());
+    }
+}
@@ -5,6 +5,7 @@ import edu.stanford.bmir.protege.web.server.access.AccessManager;
 import edu.stanford.bmir.protege.web.server.api.ApiModule;
 import edu.stanford.bmir.protege.web.server.dispatch.DispatchServlet;
 import edu.stanford.bmir.protege.web.server.download.ProjectDownloadServlet;
+import edu.stanford.bmir.protege.web.server.events.ProjectEventStreamServlet;
 import edu.stanford.bmir.protege.web.server.inject.*;
 import edu.stanford.bmir.protege.web.server.inject.project.ProjectModule;
 import edu.stanford.bmir.protege.web.server.project.ProjectCacheManager;
@@ -49,6 +50,8 @@ public interface ServerComponent {
 
     ProjectDownloadServlet getProjectDownloadServlet();
 
+    ProjectEventStreamServlet getProjectEventStreamServlet();
+
     DispatchServlet getDispatchServlet();
 
     WebProtegeSessionListener getSessionListener();
@@ -3,6 +3,7 @@ package edu.stanford.bmir.protege.web.server.app;
 import ch.qos.logback.classic.LoggerContext;
 import edu.stanford.bmir.protege.web.server.filter.WebProtegeWebAppFilter;
 import edu.stanford.bmir.protege.web.server.init.WebProtegeConfigurationException;
+import edu.stanford.bmir.protege.web.shared.event.ProjectEventStreamConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,6 +40,11 @@ public class WebProtegeServletContextListener implements ServletContextListener
             servletContext.addServlet("ProjectDownloadServlet", serverComponent.getProjectDownloadServlet())
                           .addMapping("/download");
 
+            var projectEventStreamServlet = servletContext.addServlet("ProjectEventStreamServlet",
+                                                                      serverComponent.getProjectEventStreamServlet());
+            projectEventStreamServlet.setAsyncSupported(true);
+            projectEventStreamServlet.addMapping("/" + ProjectEventStreamConstants.PATH);
+
             servletContext.addServlet("FileUploadServlet", serverComponent.getFileUploadServlet())
                           .addMapping("/webprotege/submitfile");
 
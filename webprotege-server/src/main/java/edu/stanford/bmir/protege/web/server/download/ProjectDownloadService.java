@@ -1,7 +1,6 @@
 package edu.stanford.bmir.protege.web.server.download;
 
 import com.google.common.base.Stopwatch;
-import com.google.common.util.concurrent.Striped;
 import edu.stanford.bmir.protege.web.server.app.ApplicationNameSupplier;
 import edu.stanford.bmir.protege.web.server.project.ProjectDetailsManager;
 import edu.stanford.bmir.protege.web.server.project.ProjectManager;
@@ -17,14 +16,12 @@ import javax.annotation.Nonnull;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.locks.Lock;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
@@ -54,23 +51,22 @@ public class ProjectDownloadService {
     @Nonnull
     private final HeadRevisionNumberFinder headRevisionNumberFinder;
 
-    private final Striped<Lock> lockStripes = Striped.lazyWeakLock(10);
-
     @Nonnull
-    private final CreateDownloadTaskFactory createDownloadTaskFactory;
+    private final ProjectDownloadGenerator projectDownloadGenerator;
 
     @Inject
     public ProjectDownloadService(@Nonnull @DownloadGeneratorExecutor ExecutorService downloadGeneratorExecutor,
                                   @Nonnull @FileTransferExecutor ExecutorService fileTransferExecutor,
                                   @Nonnull ProjectDetailsManager projectDetailsManager,
                                   @Nonnull ProjectDownloadCache projectDownloadCache,
-                                  @Nonnull HeadRevisionNumberFinder headRevisionNumberFinder, @Nonnull CreateDownloadTaskFactory createDownloadTaskFactory) {
+                                  @Nonnull HeadRevisionNumberFinder headRevisionNumberFinder,
+                                  @Nonnull ProjectDownloadGenerator projectDownloadGenerator) {
         this.downloadGeneratorExecutor = checkNotNull(downloadGeneratorExecutor);
         this.fileTransferExecutor = checkNotNull(fileTransferExecutor);
         this.projectDetailsManager = checkNotNull(projectDetailsManager);
         this.projectDownloadCache = checkNotNull(projectDownloadCache);
         this.headRevisionNumberFinder = checkNotNull(headRevisionNumberFinder);
-        this.createDownloadTaskFactory = checkNotNull(createDownloadTaskFactory);
+        this.projectDownloadGenerator = checkNotNull(projectDownloadGenerator);
     }
 
     public void downloadProject(@Nonnull UserId requester,
@@ -92,8 +88,8 @@ public class ProjectDownloadService {
         createDownloadIfNecessary(requester,
                                   projectId,
                                   revisionNumber,
-                                  downloadFormat,
-                                  downloadPath);
+                                  realRevisionNumber,
+                                  downloadFormat);
 
         transferFileToClient(projectId,
                              requester,
@@ -106,53 +102,33 @@ public class ProjectDownloadService {
     private void createDownloadIfNecessary(@Nonnull UserId requester,
                                            @Nonnull ProjectId projectId,
                                            @Nonnull RevisionNumber revisionNumber,
-                                           @Nonnull DownloadFormat downloadFormat,
-                                           @Nonnull Path downloadPath) {
-        // This thing always returns the same lock for the same project.
-        // This means that we won't create the *same* download more than once.  It
-        // does mean that multiple *different* downloads could possibly be created at the same time
-        Lock lock = lockStripes.get(projectId);
+                                           @Nonnull RevisionNumber realRevisionNumber,
+                                           @Nonnull DownloadFormat downloadFormat) {
+        // Requests for the same project revision in the same format share a single generation of the download.
+        // Requests for other revisions or formats of the project do not wait for it.
         try {
-            lock.lock();
-            if (Files.exists(downloadPath)) {
-                logger.info("{} {} Download for the requested revision already exists.  Using cached download.",
-                            projectId,
-                            requester);
-                return;
-            }
-            CreateDownloadTask task = createDownloadTaskFactory.create(projectId,
-                                                                       requester,
-                                                                       getProjectDisplayName(projectId),
-                                                                       revisionNumber,
-                                                                       downloadFormat,
-                                                                       downloadPath);
-            try {
-                var futureOfCreateDownload = downloadGeneratorExecutor.submit(task);
-                logger.info("{} {} Submitted request to create download to queue", projectId, requester);
-                var stopwatch = Stopwatch.createStarted();
-                logger.info("{} {} Waiting for download to be created", projectId, requester);
-                futureOfCreateDownload.get();
-                logger.info("{} {} Created download after {} ms", projectId, requester, stopwatch.elapsed(MILLISECONDS));
-            } catch(RejectedExecutionException e) {
+            var stopwatch = Stopwatch.createStarted();
+            logger.info("{} {} Waiting for download to be created", projectId, requester);
+            projectDownloadGenerator.getDownload(requester,
+                                                 projectId,
+                                                 revisionNumber,
+                                                 realRevisionNumber,
+                                                 downloadFormat)
+                                    .get();
+            logger.info("{} {} Download available after {} ms", projectId, requester, stopwatch.elapsed(MILLISECONDS));
+        } catch (InterruptedException e) {
+            logger.info("{} {} The download of this project was interrupted.", projectId, requester);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RejectedExecutionException) {
                 logger.info("{} {} Generate download request rejected", projectId, requester);
-            } catch (InterruptedException e) {
-                logger.info("{} {} The download of this project was interrupted.", projectId, requester);
-            } catch (ExecutionException e) {
-                logger.info("{} {} An execution exception occurred whilst creating the download.  Cause: {}",
-                            projectId,
-                            requester,
-                            Optional.ofNullable(e.getCause()).map(Throwable::getMessage).orElse(""),
-                            e.getCause());
+                return;
             }
+            logger.info("{} {} An execution exception occurred whilst creating the download.  Cause: {}",
+                        projectId,
+                        requester,
+                        Optional.ofNullable(e.getCause()).map(Throwable::getMessage).orElse(""),
+                        e.getCause());
         }
-        finally {
-            lock.unlock();
-        }
-    }
-
-    private String getProjectDisplayName(@Nonnull ProjectId projectId) {
-        return projectDetailsManager.getProjectDetails(projectId)
-                                    .getDisplayName();
     }
 
     private void transferFileToClient(@Nonnull ProjectId projectId,
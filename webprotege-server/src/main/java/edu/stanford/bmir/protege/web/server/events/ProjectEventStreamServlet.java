@@ -0,0 +1,206 @@
+package edu.stanford.bmir.protege.web.server.events;
+
+import com.google.common.base.Ticker;
+import edu.stanford.bmir.protege.web.server.access.AccessManager;
+import edu.stanford.bmir.protege.web.server.access.ProjectResource;
+import edu.stanford.bmir.protege.web.server.access.Subject;
+import edu.stanford.bmir.protege.web.server.project.ProjectManager;
+import edu.stanford.bmir.protege.web.server.session.WebProtegeSessionImpl;
+import edu.stanford.bmir.protege.web.shared.access.BuiltInAction;
+import edu.stanford.bmir.protege.web.shared.event.EventTag;
+import edu.stanford.bmir.protege.web.shared.inject.ApplicationSingleton;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import edu.stanford.bmir.protege.web.shared.project.ProjectIdFormatException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static edu.stanford.bmir.protege.web.server.logging.RequestFormatter.formatAddr;
+import static edu.stanford.bmir.protege.web.shared.event.ProjectEventStreamConstants.PROJECT;
+import static edu.stanford.bmir.protege.web.shared.event.ProjectEventStreamConstants.SINCE;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ * <p>
+ *     A servlet that holds open a stream of Server-Sent Events that notifies a client whenever events are posted
+ *     to a project.  The client then retrieves the events in the usual way, so clients with open streams do not
+ *     have to poll for events.  Streams are held open for a limited time, after which browsers reconnect and
+ *     resume from the last tag that they were notified of.  If the stream cannot be opened then the client polls
+ *     for events.  The response headers are sent before the stream is opened, so a client whose stream is rejected
+ *     is told to poll by a poll event on the stream.
+ * </p>
+ */
+@ApplicationSingleton
+public class ProjectEventStreamServlet extends HttpServlet {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProjectEventStreamServlet.class);
+
+    private static final long STREAM_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final long RECONNECTION_DELAY_MS = 3000;
+
+    /**
+     * The time that notifications may wait for a slow client to catch up before its stream is closed
+     */
+    private static final long WRITE_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+    @Nonnull
+    private final AccessManager accessManager;
+
+    @Nonnull
+    private final ProjectManager projectManager;
+
+    @Nonnull
+    private final ProjectEventStreamManager streamManager;
+
+    @Nonnull
+    private final Ticker ticker;
+
+    @Inject
+    public ProjectEventStreamServlet(@Nonnull AccessManager accessManager,
+                                     @Nonnull ProjectManager projectManager,
+                                     @Nonnull ProjectEventStreamManager streamManager,
+                                     @Nonnull Ticker ticker) {
+        this.accessManager = checkNotNull(accessManager);
+        this.projectManager = checkNotNull(projectManager);
+        this.streamManager = checkNotNull(streamManager);
+        this.ticker = checkNotNull(ticker);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        var userId = new WebProtegeSessionImpl(req.getSession()).getUserInSession();
+        var projectId = parseProjectId(req.getParameter(PROJECT));
+        if(projectId == null) {
+            logger.info("Bad project event stream request from {} at {}.  Query String: {}",
+                        userId,
+                        formatAddr(req),
+                        req.getQueryString());
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        if(!accessManager.hasPermission(Subject.forUser(userId),
+                                        new ProjectResource(projectId),
+                                        BuiltInAction.VIEW_PROJECT)) {
+            resp.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        if(!req.isAsyncSupported()) {
+            resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        resp.setContentType("text/event-stream");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Cache-Control", "no-cache");
+        // Prevents proxies from buffering the stream
+        resp.setHeader("X-Accel-Buffering", "no");
+        var asyncContext = req.startAsync();
+        asyncContext.setTimeout(STREAM_TIMEOUT_MS);
+        // Sends the headers before any notification can be written to the stream
+        resp.flushBuffer();
+        var stream = new ServletProjectEventStream(projectId, asyncContext, WRITE_TIMEOUT_MS, ticker);
+        stream.start();
+        if(!streamManager.open(stream)) {
+            // The client falls back to polling
+            try {
+                stream.sendPollRequest();
+            } finally {
+                stream.close();
+            }
+            return;
+        }
+        asyncContext.addListener(new StreamClosingListener(stream));
+        try {
+            stream.sendReconnectionDelay(RECONNECTION_DELAY_MS);
+            // The stream is opened before checking for missed events, so events that are posted in between are
+            // notified rather than lost
+            var resumeTag = getResumeTag(req);
+            if(resumeTag.isPresent()) {
+                var eventList = projectManager.getProjectEventsSinceTag(projectId, EventTag.get(resumeTag.getAsInt()));
+                if(!eventList.isEmpty()) {
+                    stream.sendEventTag(EventTag.get(eventList.getEndTag().getOrdinal() - 1));
+                }
+            }
+        } catch(IOException e) {
+            streamManager.close(stream);
+        }
+    }
+
+    @Nullable
+    private static ProjectId parseProjectId(@Nullable String projectIdParameter) {
+        if(projectIdParameter == null) {
+            return null;
+        }
+        try {
+            return ProjectId.get(projectIdParameter);
+        } catch(ProjectIdFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the ordinal of the tag that the client has not yet been notified of.  Browsers that reconnect send the
+     * last notified tag in the Last-Event-ID header.  Otherwise, the client specifies the tag that it will next
+     * retrieve events from.
+     */
+    private static OptionalInt getResumeTag(HttpServletRequest req) {
+        try {
+            var lastEventId = req.getHeader(LAST_EVENT_ID_HEADER);
+            if(lastEventId != null) {
+                return OptionalInt.of(Integer.parseInt(lastEventId.trim()) + 1);
+            }
+            var since = req.getParameter(SINCE);
+            if(since != null) {
+                return OptionalInt.of(Integer.parseInt(since.trim()));
+            }
+        } catch(NumberFormatException e) {
+            logger.debug("Malformed project event stream resume tag: {}", e.getMessage());
+        }
+        return OptionalInt.empty();
+    }
+
+    private class StreamClosingListener implements AsyncListener {
+
+        private final ProjectEventStream stream;
+
+        private StreamClosingListener(ProjectEventStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            streamManager.close(stream);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            streamManager.close(stream);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            streamManager.close(stream);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package edu.stanford.bmir.protege.web.server.events;
+
+import com.google.common.base.Ticker;
+import edu.stanford.bmir.protege.web.shared.event.EventTag;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static edu.stanford.bmir.protege.web.shared.event.ProjectEventStreamConstants.POLL_EVENT;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ * <p>
+ *     A {@link ProjectEventStream} that writes Server-Sent Events to an asynchronous servlet response.  Each
+ *     notification is an event whose id and data are the ordinal of the posted event tag, so that browsers
+ *     that reconnect send the last tag that they were notified of in the Last-Event-ID header.
+ * </p>
+ * <p>
+ *     The response is written using non-blocking IO so that a slow client never blocks the thread that notifies
+ *     it.  Messages that cannot be written yet are held until the client catches up.  Only the most recent tag is
+ *     held, because clients retrieve all of the events since the last tag that they retrieved, and heartbeats are
+ *     not held at all.  If the held messages cannot be written within the write timeout then the next notification
+ *     fails so that the stream is closed.
+ * </p>
+ */
+public class ServletProjectEventStream implements ProjectEventStream {
+
+    @Nonnull
+    private final ProjectId projectId;
+
+    @Nonnull
+    private final AsyncContext asyncContext;
+
+    private final long writeTimeoutNanos;
+
+    @Nonnull
+    private final Ticker ticker;
+
+    @Nullable
+    private ServletOutputStream outputStream = null;
+
+    /**
+     * Messages, other than the tag, that are waiting to be written
+     */
+    private final StringBuilder pendingMessages = new StringBuilder();
+
+    /**
+     * The most recent tag that is waiting to be written
+     */
+    @Nullable
+    private EventTag pendingTag = null;
+
+    /**
+     * The time at which the oldest pending message started waiting to be written
+     */
+    private long pendingSince = 0;
+
+    private boolean closed = false;
+
+    public ServletProjectEventStream(@Nonnull ProjectId projectId,
+                                     @Nonnull AsyncContext asyncContext,
+                                     long writeTimeout,
+                                     @Nonnull Ticker ticker) {
+        this.projectId = checkNotNull(projectId);
+        this.asyncContext = checkNotNull(asyncContext);
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeout);
+        this.ticker = checkNotNull(ticker);
+    }
+
+    @Nonnull
+    @Override
+    public ProjectId getProjectId() {
+        return projectId;
+    }
+
+    /**
+     * Switches the response to non-blocking IO.  This must be called before anything is sent.
+     */
+    public synchronized void start() throws IOException {
+        outputStream = asyncContext.getResponse().getOutputStream();
+        outputStream.setWriteListener(new StreamWriteListener());
+    }
+
+    /**
+     * Sets the delay that browsers wait before reconnecting if the stream is closed
+     * @param reconnectionDelay The delay in milliseconds
+     */
+    public void sendReconnectionDelay(long reconnectionDelay) throws IOException {
+        send("retry: " + reconnectionDelay + "\n\n");
+    }
+
+    /**
+     * Tells the client to poll for events instead of reading this stream
+     */
+    public void sendPollRequest() throws IOException {
+        send("event: " + POLL_EVENT + "\ndata: \n\n");
+    }
+
+    @Override
+    public synchronized void sendEventTag(@Nonnull EventTag tag) throws IOException {
+        checkNotNull(tag);
+        checkWritable();
+        markPending();
+        pendingTag = tag;
+        flushPending();
+    }
+
+    @Override
+    public synchronized void sendHeartbeat() throws IOException {
+        checkWritable();
+        if(isPending()) {
+            // The pending messages keep the connection alive when they are written
+            return;
+        }
+        send(": heartbeat\n\n");
+    }
+
+    private synchronized void send(String message) throws IOException {
+        checkWritable();
+        markPending();
+        pendingMessages.append(message);
+        flushPending();
+    }
+
+    private void checkWritable() throws IOException {
+        if(closed) {
+            throw new IOException("Stream is closed");
+        }
+        if(outputStream == null) {
+            throw new IllegalStateException("Stream has not been started");
+        }
+        if(isPending() && ticker.read() - pendingSince > writeTimeoutNanos) {
+            throw new IOException("Timed out writing to stream");
+        }
+    }
+
+    private boolean isPending() {
+        return pendingMessages.length() > 0 || pendingTag != null;
+    }
+
+    private void markPending() {
+        if(!isPending()) {
+            pendingSince = ticker.read();
+        }
+    }
+
+    /**
+     * Writes the pending messages, provided that the client has received everything that was previously written
+     */
+    private synchronized void flushPending() throws IOException {
+        if(closed || outputStream == null || !outputStream.isReady()) {
+            return;
+        }
+        if(!isPending()) {
+            return;
+        }
+        var messages = pendingMessages.toString();
+        pendingMessages.setLength(0);
+        if(pendingTag != null) {
+            var ordinal = pendingTag.getOrdinal();
+            messages += "id: " + ordinal + "\ndata: " + ordinal + "\n\n";
+            pendingTag = null;
+        }
+        outputStream.write(messages.getBytes(StandardCharsets.UTF_8));
+        if(outputStream.isReady()) {
+            outputStream.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        pendingMessages.setLength(0);
+        pendingTag = null;
+        try {
+            asyncContext.complete();
+        } catch(IllegalStateException e) {
+            // Already completed by the container
+        }
+    }
+
+    private class StreamWriteListener implements WriteListener {
+
+        @Override
+        public void onWritePossible() throws IOException {
+            flushPending();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            close();
+        }
+    }
+}
@@ -33,11 +33,16 @@ public class ProjectCacheManager implements HasDispose {
     @Nonnull
     private final ApplicationDisposablesManager disposablesManager;
 
+    @Nonnull
+    private final ProjectPrewarmer projectPrewarmer;
+
     @Inject
     public ProjectCacheManager(@Nonnull ProjectCache projectCache,
-                               @Nonnull ApplicationDisposablesManager disposablesManager) {
+                               @Nonnull ApplicationDisposablesManager disposablesManager,
+                               @Nonnull ProjectPrewarmer projectPrewarmer) {
         this.projectCache = checkNotNull(projectCache);
         this.disposablesManager = checkNotNull(disposablesManager);
+        this.projectPrewarmer = checkNotNull(projectPrewarmer);
         this.purgeService = Executors.newSingleThreadScheduledExecutor(runnable -> {
             Thread thread = Executors.defaultThreadFactory().newThread(runnable);
             thread.setName(thread.getName().replace("thread", "project-purge-service-thread"));
@@ -52,6 +57,7 @@ public class ProjectCacheManager implements HasDispose {
                                          PROJECT_PURGE_CHECK_INTERVAL_MS,
                                          TimeUnit.MILLISECONDS);
         logger.info("Started project purge service with check interval of {} ms", PROJECT_PURGE_CHECK_INTERVAL_MS);
+        projectPrewarmer.prewarmProjects();
     }
 
     public void dispose() {
@@ -0,0 +1,146 @@
+package edu.stanford.bmir.protege.web.server.events;
+
+import com.google.common.base.Ticker;
+import edu.stanford.bmir.protege.web.shared.event.EventTag;
+import edu.stanford.bmir.protege.web.shared.project.ProjectId;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class ServletProjectEventStream_TestCase {
+
+    private static final long WRITE_TIMEOUT = 30_000;
+
+    private final ProjectId projectId = ProjectId.get(UUID.randomUUID().toString());
+
+    private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+    @Mock
+    private AsyncContext asyncContext;
+
+    @Mock
+    private ServletResponse response;
+
+    @Mock
+    private ServletOutputStream outputStream;
+
+    @Mock
+    private Ticker ticker;
+
+    private boolean ready = true;
+
+    private WriteListener writeListener;
+
+    private ServletProjectEventStream stream;
+
+    @Before
+    public void setUp() throws IOException {
+        when(asyncContext.getResponse()).thenReturn(response);
+        when(response.getOutputStream()).thenReturn(outputStream);
+        when(outputStream.isReady()).thenAnswer(invocation -> ready);
+        doAnswer(invocation -> {
+            written.write(invocation.<byte[]>getArgument(0));
+            return null;
+        }).when(outputStream).write(any(byte[].class));
+        stream = new ServletProjectEventStream(projectId, asyncContext, WRITE_TIMEOUT, ticker);
+        stream.start();
+        var captor = ArgumentCaptor.forClass(WriteListener.class);
+        verify(outputStream).setWriteListener(captor.capture());
+        writeListener = captor.getValue();
+    }
+
+    private String getWritten() {
+        return written.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void shouldWriteEventTag() throws IOException {
+        stream.sendEventTag(EventTag.get(3));
+        assertThat(getWritten(), is("id: 3\ndata: 3\n\n"));
+        verify(outputStream).flush();
+    }
+
+    @Test
+    public void shouldHoldMessagesUntilClientCatchesUp() throws IOException {
+        ready = false;
+        stream.sendReconnectionDelay(3000);
+        stream.sendEventTag(EventTag.get(3));
+        assertThat(getWritten(), is(""));
+        ready = true;
+        writeListener.onWritePossible();
+        assertThat(getWritten(), is("retry: 3000\n\nid: 3\ndata: 3\n\n"));
+    }
+
+    @Test
+    public void shouldOnlyHoldMostRecentTag() throws IOException {
+        ready = false;
+        stream.sendEventTag(EventTag.get(3));
+        stream.sendHeartbeat();
+        stream.sendEventTag(EventTag.get(4));
+        ready = true;
+        writeListener.onWritePossible();
+        assertThat(getWritten(), is("id: 4\ndata: 4\n\n"));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailWhenMessagesAreHeldForLongerThanWriteTimeout() throws IOException {
+        ready = false;
+        stream.sendEventTag(EventTag.get(3));
+        when(ticker.read()).thenReturn(TimeUnit.MILLISECONDS.toNanos(WRITE_TIMEOUT + 1));
+        stream.sendHeartbeat();
+    }
+
+    @Test
+    public void shouldNotFailWhenMessagesAreWrittenWithinWriteTimeout() throws IOException {
+        ready = false;
+        stream.sendEventTag(EventTag.get(3));
+        ready = true;
+        writeListener.onWritePossible();
+        when(ticker.read()).thenReturn(TimeUnit.MILLISECONDS.toNanos(WRITE_TIMEOUT + 1));
+        stream.sendHeartbeat();
+        assertThat(getWritten(), is("id: 3\ndata: 3\n\n: heartbeat\n\n"));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailAfterClose() throws IOException {
+        stream.close();
+        stream.sendHeartbeat();
+    }
+
+    @Test
+    public void shouldCompleteOnClose() {
+        stream.close();
+        stream.close();
+        verify(asyncContext, times(1)).complete();
+    }
+
+    @Test
+    public void shouldCloseOnWriteError() {
+        writeListener.onError(new IOException("Broken pipe"));
+        verify(asyncContext).complete();
+    }
+}
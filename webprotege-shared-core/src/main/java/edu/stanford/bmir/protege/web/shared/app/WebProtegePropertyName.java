@@ -51,7 +51,73 @@ public enum WebProtegePropertyName {
     PROJECT_DORMANT_TIME("project.dormant.time", PropertyValue.ofInteger(180_000)),
 
     @WebProtegePropertiesDocumentation(description = "The edge limit for the entity graph", example = "1000")
-    ENTITY_GRAPH_EDGE_LIMIT("entitygraph.edgelimit", PropertyValue.ofInteger(1_000));
+    ENTITY_GRAPH_EDGE_LIMIT("entitygraph.edgelimit", PropertyValue.ofInteger(1_000)),
+
+    @WebProtegePropertiesDocumentation(description = "The number of revisions between the checkpoints that are used to reconstruct historical revisions of a project.  A value of zero disables checkpoints.", example = "500")
+    REVISION_CHECKPOINT_INTERVAL("revision.checkpoint.interval", PropertyValue.ofInteger(500)),
+
+    @WebProtegePropertiesDocumentation(description = "Specifies whether the changes in the change history of a project are loaded on demand from the change history file, rather than being held in memory", example = "true")
+    CHANGE_HISTORY_LAZY_LOADING("change.history.lazy.loading", PropertyValue.ofBoolean(false)),
+
+    @WebProtegePropertiesDocumentation(description = "The maximum number of changes that are cached per project when the change history is lazily loaded", example = "100000")
+    CHANGE_HISTORY_CACHE_SIZE("change.history.cache.size", PropertyValue.ofInteger(100_000)),
+
+    @WebProtegePropertiesDocumentation(description = "The maximum time in milliseconds that a revision waits to be grouped with other revisions before the group is written to the change history.  A value of zero writes revisions as soon as the change history writer is free.", example = "10")
+    CHANGE_HISTORY_GROUP_COMMIT_MAX_LATENCY("change.history.group.commit.max.latency", PropertyValue.ofInteger(0)),
+
+    @WebProtegePropertiesDocumentation(description = "The maximum number of revisions that are written to the change history in a single group", example = "100")
+    CHANGE_HISTORY_GROUP_COMMIT_BATCH_SIZE("change.history.group.commit.batch.size", PropertyValue.ofInteger(100)),
+
+    @WebProtegePropertiesDocumentation(description = "Specifies whether applying changes to a project waits until the changes have been saved to durable storage", example = "true")
+    CHANGE_HISTORY_STRICT_DURABILITY("change.history.strict.durability", PropertyValue.ofBoolean(false)),
+
+    @WebProtegePropertiesDocumentation(description = "The number of worker threads that are shared by the background tasks, such as saving changes and updating indexes, of all loaded projects", example = "16")
+    PROJECT_TASK_SCHEDULER_THREADS("project.task.scheduler.threads", PropertyValue.ofInteger(16)),
+
+    @WebProtegePropertiesDocumentation(description = "The number of threads that are used to build the indexes for a project when the project is loaded.  Zero builds each index on a single thread.", example = "8")
+    INDEX_BUILD_PARALLELISM("index.build.parallelism", PropertyValue.ofInteger(0)),
+
+    @WebProtegePropertiesDocumentation(description = "The maximum time, in milliseconds, between an update to the search index of a project and the update being visible to searches that do not follow an edit.  Zero refreshes searches as soon as the update has been made.", example = "1000")
+    SEARCH_INDEX_REFRESH_INTERVAL_MS("search.index.refresh.interval.ms", PropertyValue.ofInteger(1000)),
+
+    @WebProtegePropertiesDocumentation(description = "The maximum time, in milliseconds, between an update to the search index of a project and the update being committed to disk.  Zero commits every update.", example = "30000")
+    SEARCH_INDEX_COMMIT_INTERVAL_MS("search.index.commit.interval.ms", PropertyValue.ofInteger(30000)),
+
+    @WebProtegePropertiesDocumentation(description = "The maximum number of documents that may be updated in the search index of a project before the updates are committed to disk", example = "10000")
+    SEARCH_INDEX_COMMIT_MAX_DOCUMENTS("search.index.commit.max.documents", PropertyValue.ofInteger(10000)),
+
+    @WebProtegePropertiesDocumentation(description = "The number of threads, shared by all requests, that run the read only actions in a batched request concurrently.  Zero runs the actions in a batch one after another.", example = "8")
+    BATCH_ACTION_THREADS("dispatch.batch.threads", PropertyValue.ofInteger(8)),
+
+    @WebProtegePropertiesDocumentation(description = "The maximum size, in megabytes, of the cache of generated project downloads.  The least recently used downloads are removed when the cache grows beyond this size.  Zero does not limit the size of the cache.", example = "10240")
+    DOWNLOAD_CACHE_MAX_SIZE_MB("download.cache.max.size.mb", PropertyValue.ofInteger(10240)),
+
+    @WebProtegePropertiesDocumentation(description = "The minimum number of changes in a single commit that cause a download of the head revision of the project to be generated in the background.  Zero does not generate downloads in the background.", example = "10000")
+    DOWNLOAD_PREGENERATION_CHANGE_THRESHOLD("download.pregeneration.change.threshold", PropertyValue.ofInteger(10000)),
+
+    @WebProtegePropertiesDocumentation(description = "The maximum number of changes in each of the revisions that are written to the change history when a project is created from uploaded ontologies", example = "100000")
+    IMPORT_CHUNK_SIZE("import.chunk.size", PropertyValue.ofInteger(100_000)),
+
+    @WebProtegePropertiesDocumentation(description = "The maximum number of projects that are loaded at the same time.  Requests for projects that cannot be loaded straight away are queued.", example = "2")
+    PROJECT_LOAD_MAX_CONCURRENT("project.load.max.concurrent", PropertyValue.ofInteger(2)),
+
+    @WebProtegePropertiesDocumentation(description = "The time, in milliseconds, that a request for a project that is being loaded waits for the project to finish loading before the client is told that the project is still loading", example = "5000")
+    PROJECT_LOAD_WAIT_MS("project.load.wait.ms", PropertyValue.ofInteger(5000)),
+
+    @WebProtegePropertiesDocumentation(description = "A comma separated list of the ids of projects that are loaded when WebProtege starts, in the order in which they should be loaded", example = "d1f0a4c6-0ae6-4b5c-9e5a-6b3bde4ad1e2,1b0b2d6e-79a3-4d0e-b7a4-b7b7c7e2a6e5")
+    PROJECT_PREWARM_IDS("project.prewarm.ids", PropertyValue.absentByDefault()),
+
+    @WebProtegePropertiesDocumentation(description = "The number of most recently modified projects that are loaded when WebProtege starts, after the projects listed in project.prewarm.ids.  Zero does not load any recently modified projects.", example = "10")
+    PROJECT_PREWARM_RECENT_COUNT("project.prewarm.recent.count", PropertyValue.ofInteger(0)),
+
+    @WebProtegePropertiesDocumentation(description = "The maximum estimated heap, in megabytes, that loaded projects may use.  When loaded projects exceed this budget the largest and least recently used projects are purged first.  Zero does not limit the heap used by loaded projects.", example = "8192")
+    PROJECT_CACHE_MAX_HEAP_MB("project.cache.max.heap.mb", PropertyValue.ofInteger(0)),
+
+    @WebProtegePropertiesDocumentation(description = "The maximum number of connections that clients may open on this node to be notified of project events.  Clients that cannot open a connection poll for project events.  Zero disables the notification of project events.", example = "2000")
+    EVENTS_PUSH_MAX_CONNECTIONS("events.push.max.connections", PropertyValue.ofInteger(2000)),
+
+    @WebProtegePropertiesDocumentation(description = "The interval, in milliseconds, between heartbeats that are sent on idle project event notification connections", example = "25000")
+    EVENTS_PUSH_HEARTBEAT_INTERVAL_MS("events.push.heartbeat.interval.ms", PropertyValue.ofInteger(25000));
 
     private static class PropertyValue {
 
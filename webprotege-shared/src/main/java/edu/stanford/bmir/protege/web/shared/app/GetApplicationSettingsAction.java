@@ -1,12 +1,13 @@
 package edu.stanford.bmir.protege.web.shared.app;
 
 import edu.stanford.bmir.protege.web.shared.dispatch.Action;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 
 /**
  * Matthew Horridge
  * Stanford Center for Biomedical Informatics Research
  * 16 Mar 2017
  */
-public class GetApplicationSettingsAction implements Action<GetApplicationSettingsResult> {
+public class GetApplicationSettingsAction implements Action<GetApplicationSettingsResult>, ReadOnlyAction {
 
 }
@@ -1,6 +1,7 @@
 package edu.stanford.bmir.protege.web.shared.change;
 
 import com.google.common.base.Objects;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.pagination.PageRequest;
 import edu.stanford.bmir.protege.web.shared.project.HasProjectId;
 import edu.stanford.bmir.protege.web.shared.dispatch.ProjectAction;
@@ -17,7 +18,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Stanford Center for Biomedical Informatics Research
  * 27/02/15
  */
-public class GetWatchedEntityChangesAction implements ProjectAction<GetWatchedEntityChangesResult>, HasProjectId {
+public class GetWatchedEntityChangesAction implements ProjectAction<GetWatchedEntityChangesResult>, HasProjectId, ReadOnlyAction {
 
     private ProjectId projectId;
 
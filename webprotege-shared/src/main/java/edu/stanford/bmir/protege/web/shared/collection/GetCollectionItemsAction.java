@@ -2,6 +2,7 @@ package edu.stanford.bmir.protege.web.shared.collection;
 
 import edu.stanford.bmir.protege.web.shared.annotations.GwtSerializationConstructor;
 import edu.stanford.bmir.protege.web.shared.dispatch.ProjectAction;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.pagination.PageRequest;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 
@@ -12,7 +13,7 @@ import javax.annotation.Nonnull;
  * Stanford Center for Biomedical Informatics Research
  * 4 Aug 2017
  */
-public class GetCollectionItemsAction implements ProjectAction<GetCollectionItemsResult> {
+public class GetCollectionItemsAction implements ProjectAction<GetCollectionItemsResult>, ReadOnlyAction {
 
     private ProjectId projectId;
 
@@ -1,6 +1,7 @@
 package edu.stanford.bmir.protege.web.shared.crud;
 
 import edu.stanford.bmir.protege.web.shared.dispatch.ProjectAction;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 
 import javax.annotation.Nonnull;
@@ -11,7 +12,7 @@ import javax.annotation.Nonnull;
  * Bio-Medical Informatics Research Group<br>
  * Date: 8/19/13
  */
-public class GetEntityCrudKitSettingsAction implements ProjectAction<GetEntityCrudKitSettingsResult> {
+public class GetEntityCrudKitSettingsAction implements ProjectAction<GetEntityCrudKitSettingsResult>, ReadOnlyAction {
 
     private ProjectId projectId;
 
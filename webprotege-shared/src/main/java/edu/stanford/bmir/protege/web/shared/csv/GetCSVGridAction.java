@@ -1,6 +1,7 @@
 package edu.stanford.bmir.protege.web.shared.csv;
 
 import edu.stanford.bmir.protege.web.shared.dispatch.Action;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -11,7 +12,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Bio-Medical Informatics Research Group<br>
  * Date: 21/05/2013
  */
-public class GetCSVGridAction implements Action<GetCSVGridResult> {
+public class GetCSVGridAction implements Action<GetCSVGridResult>, ReadOnlyAction {
 
     private DocumentId csvDocumentId;
 
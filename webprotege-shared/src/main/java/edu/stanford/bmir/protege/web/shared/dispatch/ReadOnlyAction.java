@@ -0,0 +1,15 @@
+package edu.stanford.bmir.protege.web.shared.dispatch;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ * <p>
+ *     A marker interface for actions that only read state from the server and do not modify it.  When read only
+ *     actions are batched together the server may execute them concurrently with each other, but never concurrently
+ *     with an action in the same batch that is not read only.
+ * </p>
+ */
+public interface ReadOnlyAction {
+
+}
@@ -1,6 +1,7 @@
 package edu.stanford.bmir.protege.web.shared.dispatch.actions;
 
 import edu.stanford.bmir.protege.web.shared.dispatch.Action;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 
 /**
  * Author: Matthew Horridge<br>
@@ -8,6 +9,6 @@ import edu.stanford.bmir.protege.web.shared.dispatch.Action;
  * Bio-Medical Informatics Research Group<br>
  * Date: 04/04/2013
  */
-public class GetCurrentUserInSessionAction implements Action<GetCurrentUserInSessionResult> {
+public class GetCurrentUserInSessionAction implements Action<GetCurrentUserInSessionResult>, ReadOnlyAction {
 
 }
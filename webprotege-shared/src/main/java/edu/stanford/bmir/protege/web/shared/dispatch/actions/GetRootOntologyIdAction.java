@@ -2,6 +2,7 @@ package edu.stanford.bmir.protege.web.shared.dispatch.actions;
 
 
 import edu.stanford.bmir.protege.web.shared.dispatch.AbstractHasProjectAction;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 
 /**
@@ -10,7 +11,7 @@ import edu.stanford.bmir.protege.web.shared.project.ProjectId;
  * Bio-Medical Informatics Research Group<br>
  * Date: 20/02/2013
  */
-public class GetRootOntologyIdAction extends AbstractHasProjectAction<GetRootOntologyIdResult> {
+public class GetRootOntologyIdAction extends AbstractHasProjectAction<GetRootOntologyIdResult> implements ReadOnlyAction {
 
     /**
      * For serialization purposes only
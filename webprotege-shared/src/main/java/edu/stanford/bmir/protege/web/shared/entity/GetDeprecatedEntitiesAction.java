@@ -2,6 +2,7 @@ package edu.stanford.bmir.protege.web.shared.entity;
 
 import edu.stanford.bmir.protege.web.shared.annotations.GwtSerializationConstructor;
 import edu.stanford.bmir.protege.web.shared.dispatch.ProjectAction;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.pagination.PageRequest;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 import org.semanticweb.owlapi.model.EntityType;
@@ -17,7 +18,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Stanford Center for Biomedical Informatics Research
  * 16 Jun 2017
  */
-public class GetDeprecatedEntitiesAction implements ProjectAction<GetDeprecatedEntitiesResult> {
+public class GetDeprecatedEntitiesAction implements ProjectAction<GetDeprecatedEntitiesResult>, ReadOnlyAction {
 
     private ProjectId projectId;
 
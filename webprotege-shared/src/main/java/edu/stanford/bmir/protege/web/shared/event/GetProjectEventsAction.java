@@ -3,6 +3,7 @@ package edu.stanford.bmir.protege.web.shared.event;
 import com.google.common.base.Objects;
 import com.google.gwt.core.shared.GWT;
 import com.google.gwt.user.client.rpc.InvocationException;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.project.HasProjectId;
 import edu.stanford.bmir.protege.web.shared.dispatch.Action;
 import edu.stanford.bmir.protege.web.shared.dispatch.InvocationExceptionTolerantAction;
@@ -20,7 +21,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Bio-Medical Informatics Research Group<br>
  * Date: 20/03/2013
  */
-public class GetProjectEventsAction implements Action<GetProjectEventsResult>, InvocationExceptionTolerantAction, HasProjectId {
+public class GetProjectEventsAction implements Action<GetProjectEventsResult>, InvocationExceptionTolerantAction, HasProjectId, ReadOnlyAction {
 
     private ProjectId projectId;
 
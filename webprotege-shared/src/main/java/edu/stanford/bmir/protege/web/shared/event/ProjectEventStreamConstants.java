@@ -0,0 +1,26 @@
+package edu.stanford.bmir.protege.web.shared.event;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ * <p>
+ *     The path and parameters of the stream that notifies clients of project events
+ * </p>
+ */
+public class ProjectEventStreamConstants {
+
+    public static final String PATH = "events";
+
+    public static final String PROJECT = "project";
+
+    /**
+     * The ordinal of the tag that the client will next retrieve events from
+     */
+    public static final String SINCE = "since";
+
+    /**
+     * The name of the event that tells the client to poll for events instead of reading the stream
+     */
+    public static final String POLL_EVENT = "poll";
+}
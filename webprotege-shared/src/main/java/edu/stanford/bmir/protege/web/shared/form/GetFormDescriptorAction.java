@@ -3,6 +3,7 @@ package edu.stanford.bmir.protege.web.shared.form;
 import edu.stanford.bmir.protege.web.shared.collection.CollectionId;
 import edu.stanford.bmir.protege.web.shared.collection.CollectionItem;
 import edu.stanford.bmir.protege.web.shared.dispatch.ProjectAction;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 
 import javax.annotation.Nonnull;
@@ -14,7 +15,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Stanford Center for Biomedical Informatics Research
  * 30/03/16
  */
-public class GetFormDescriptorAction implements ProjectAction<GetFormDescriptorResult> {
+public class GetFormDescriptorAction implements ProjectAction<GetFormDescriptorResult>, ReadOnlyAction {
 
     private ProjectId projectId;
 
@@ -3,6 +3,7 @@ package edu.stanford.bmir.protege.web.shared.hierarchy;
 import com.google.common.base.Objects;
 import edu.stanford.bmir.protege.web.shared.dispatch.AbstractHasProjectAction;
 import edu.stanford.bmir.protege.web.shared.annotations.GwtSerializationConstructor;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.pagination.PageRequest;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 import org.semanticweb.owlapi.model.OWLEntity;
@@ -15,7 +16,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 /**
  * Matthew Horridge Stanford Center for Biomedical Informatics Research 28 Nov 2017
  */
-public class GetHierarchyChildrenAction extends AbstractHasProjectAction<GetHierarchyChildrenResult> {
+public class GetHierarchyChildrenAction extends AbstractHasProjectAction<GetHierarchyChildrenResult> implements ReadOnlyAction {
 
     private OWLEntity entity;
 
@@ -3,6 +3,7 @@ package edu.stanford.bmir.protege.web.shared.hierarchy;
 import com.google.common.base.Objects;
 import edu.stanford.bmir.protege.web.shared.annotations.GwtSerializationConstructor;
 import edu.stanford.bmir.protege.web.shared.dispatch.ProjectAction;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 
 import javax.annotation.Nonnull;
@@ -13,7 +14,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 /**
  * Matthew Horridge Stanford Center for Biomedical Informatics Research 30 Nov 2017
  */
-public class GetHierarchyRootsAction implements ProjectAction<GetHierarchyRootsResult> {
+public class GetHierarchyRootsAction implements ProjectAction<GetHierarchyRootsResult>, ReadOnlyAction {
 
     private ProjectId projectId;
 
@@ -2,6 +2,7 @@ package edu.stanford.bmir.protege.web.shared.hierarchy;
 
 import edu.stanford.bmir.protege.web.shared.annotations.GwtSerializationConstructor;
 import edu.stanford.bmir.protege.web.shared.dispatch.AbstractHasProjectAction;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.pagination.PageRequest;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 import org.semanticweb.owlapi.model.OWLEntity;
@@ -15,7 +16,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Stanford Center for Biomedical Informatics Research
  * 13 Sep 2018
  */
-public class GetHierarchySiblingsAction extends AbstractHasProjectAction<GetHierarchySiblingsResult> {
+public class GetHierarchySiblingsAction extends AbstractHasProjectAction<GetHierarchySiblingsResult> implements ReadOnlyAction {
 
     private OWLEntity entity;
 
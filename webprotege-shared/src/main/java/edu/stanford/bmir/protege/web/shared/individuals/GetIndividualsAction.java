@@ -3,6 +3,7 @@ package edu.stanford.bmir.protege.web.shared.individuals;
 import com.google.common.base.MoreObjects;
 import edu.stanford.bmir.protege.web.shared.dispatch.AbstractHasProjectAction;
 import edu.stanford.bmir.protege.web.shared.annotations.GwtSerializationConstructor;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.pagination.PageRequest;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 import org.semanticweb.owlapi.model.OWLClass;
@@ -20,7 +21,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Bio-Medical Informatics Research Group<br>
  * Date: 12/09/2013
  */
-public class GetIndividualsAction extends AbstractHasProjectAction<GetIndividualsResult> {
+public class GetIndividualsAction extends AbstractHasProjectAction<GetIndividualsResult> implements ReadOnlyAction {
 
     @Nullable
     private OWLClass type;
@@ -3,6 +3,7 @@ package edu.stanford.bmir.protege.web.shared.issues;
 import com.google.common.base.Objects;
 import edu.stanford.bmir.protege.web.shared.annotations.GwtSerializationConstructor;
 import edu.stanford.bmir.protege.web.shared.dispatch.ProjectAction;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.pagination.PageRequest;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 
@@ -19,7 +20,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Stanford Center for Biomedical Informatics Research
  * 7 Mar 2017
  */
-public class GetCommentedEntitiesAction implements ProjectAction<GetCommentedEntitiesResult> {
+public class GetCommentedEntitiesAction implements ProjectAction<GetCommentedEntitiesResult>, ReadOnlyAction {
 
     private ProjectId projectId;
 
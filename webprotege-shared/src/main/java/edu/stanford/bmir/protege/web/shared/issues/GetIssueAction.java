@@ -2,6 +2,7 @@ package edu.stanford.bmir.protege.web.shared.issues;
 
 import edu.stanford.bmir.protege.web.shared.annotations.GwtSerializationConstructor;
 import edu.stanford.bmir.protege.web.shared.dispatch.Action;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 
 /**
@@ -9,7 +10,7 @@ import edu.stanford.bmir.protege.web.shared.project.ProjectId;
  * Stanford Center for Biomedical Informatics Research
  * 28 Sep 2016
  */
-public class GetIssueAction implements Action<GetIssueResult> {
+public class GetIssueAction implements Action<GetIssueResult>, ReadOnlyAction {
 
     private ProjectId projectId;
 
@@ -1,6 +1,7 @@
 package edu.stanford.bmir.protege.web.shared.issues;
 
 import edu.stanford.bmir.protege.web.shared.dispatch.ProjectAction;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 
 import javax.annotation.Nonnull;
@@ -14,7 +15,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Stanford Center for Biomedical Informatics Research
  * 27 Jul 16
  */
-public class GetIssuesAction implements ProjectAction<GetIssuesResult> {
+public class GetIssuesAction implements ProjectAction<GetIssuesResult>, ReadOnlyAction {
 
     private ProjectId projectId;
 
@@ -2,6 +2,7 @@ package edu.stanford.bmir.protege.web.shared.itemlist;
 
 import edu.stanford.bmir.protege.web.shared.dispatch.Action;
 
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -12,7 +13,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Stanford Center for Biomedical Informatics Research
  * 11/05/15
  */
-public abstract class GetItemsAction<T, R extends GetItemsResult<T>> implements Action<R> {
+public abstract class GetItemsAction<T, R extends GetItemsResult<T>> implements Action<R>, ReadOnlyAction {
 
     private List<String> itemNames;
 
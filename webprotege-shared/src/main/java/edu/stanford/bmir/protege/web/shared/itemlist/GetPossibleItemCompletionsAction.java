@@ -1,6 +1,7 @@
 package edu.stanford.bmir.protege.web.shared.itemlist;
 
 import edu.stanford.bmir.protege.web.shared.dispatch.Action;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -9,7 +10,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Stanford Center for Biomedical Informatics Research
  * 11/05/15
  */
-public abstract class GetPossibleItemCompletionsAction<T> implements Action<GetPossibleItemCompletionsResult<T>> {
+public abstract class GetPossibleItemCompletionsAction<T> implements Action<GetPossibleItemCompletionsResult<T>>, ReadOnlyAction {
 
     private String completionText;
 
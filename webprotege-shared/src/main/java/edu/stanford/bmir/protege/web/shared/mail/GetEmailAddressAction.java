@@ -1,6 +1,7 @@
 package edu.stanford.bmir.protege.web.shared.mail;
 
 import edu.stanford.bmir.protege.web.shared.dispatch.Action;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.user.UserId;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -11,7 +12,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Bio-Medical Informatics Research Group<br>
  * Date: 06/11/2013
  */
-public class GetEmailAddressAction implements Action<GetEmailAddressResult> {
+public class GetEmailAddressAction implements Action<GetEmailAddressResult>, ReadOnlyAction {
 
     private UserId userId;
 
@@ -5,6 +5,7 @@ import com.google.common.annotations.GwtCompatible;
 import edu.stanford.bmir.protege.web.shared.annotations.GwtSerializationConstructor;
 import edu.stanford.bmir.protege.web.shared.dispatch.Action;
 import edu.stanford.bmir.protege.web.shared.dispatch.ProjectAction;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.match.criteria.Criteria;
 import edu.stanford.bmir.protege.web.shared.pagination.PageRequest;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
@@ -20,7 +21,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 //@AutoValue
 //@GwtCompatible(serializable = true)
-public class GetMatchingEntitiesAction implements ProjectAction<GetMatchingEntitiesResult> {
+public class GetMatchingEntitiesAction implements ProjectAction<GetMatchingEntitiesResult>, ReadOnlyAction {
 
     private Criteria criteria;
 
@@ -2,9 +2,10 @@ package edu.stanford.bmir.protege.web.shared.merge_add;
 
 import edu.stanford.bmir.protege.web.shared.csv.DocumentId;
 import edu.stanford.bmir.protege.web.shared.dispatch.AbstractHasProjectAction;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 
-public class GetAllOntologiesAction extends AbstractHasProjectAction<GetAllOntologiesResult> {
+public class GetAllOntologiesAction extends AbstractHasProjectAction<GetAllOntologiesResult> implements ReadOnlyAction {
 
     private DocumentId documentId;
 
@@ -3,6 +3,7 @@ package edu.stanford.bmir.protege.web.shared.obo;
 import com.google.common.base.Objects;
 import edu.stanford.bmir.protege.web.shared.dispatch.AbstractHasProjectAction;
 import edu.stanford.bmir.protege.web.shared.annotations.GwtSerializationConstructor;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 import org.semanticweb.owlapi.model.OWLEntity;
 
@@ -14,7 +15,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Stanford Center for Biomedical Informatics Research
  * 21 Jun 2017
  */
-public class GetOboTermDefinitionAction extends AbstractHasProjectAction<GetOboTermDefinitionResult> {
+public class GetOboTermDefinitionAction extends AbstractHasProjectAction<GetOboTermDefinitionResult> implements ReadOnlyAction {
 
     private OWLEntity term;
 
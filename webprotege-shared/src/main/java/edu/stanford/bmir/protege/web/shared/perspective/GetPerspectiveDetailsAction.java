@@ -2,6 +2,7 @@ package edu.stanford.bmir.protege.web.shared.perspective;
 
 import edu.stanford.bmir.protege.web.shared.annotations.GwtSerializationConstructor;
 import edu.stanford.bmir.protege.web.shared.dispatch.ProjectAction;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 
 import javax.annotation.Nonnull;
@@ -13,7 +14,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Stanford Center for Biomedical Informatics Research
  * 2020-09-03
  */
-public class GetPerspectiveDetailsAction implements ProjectAction<GetPerspectiveDetailsResult> {
+public class GetPerspectiveDetailsAction implements ProjectAction<GetPerspectiveDetailsResult>, ReadOnlyAction {
 
     private ProjectId projectId;
 
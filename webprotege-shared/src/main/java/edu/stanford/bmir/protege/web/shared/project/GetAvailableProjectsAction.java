@@ -1,6 +1,7 @@
 package edu.stanford.bmir.protege.web.shared.project;
 
 import edu.stanford.bmir.protege.web.shared.dispatch.Action;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 
 /**
  * Author: Matthew Horridge<br>
@@ -8,7 +9,7 @@ import edu.stanford.bmir.protege.web.shared.dispatch.Action;
  * Bio-Medical Informatics Research Group<br>
  * Date: 01/04/2013
  */
-public class GetAvailableProjectsAction implements Action<GetAvailableProjectsResult> {
+public class GetAvailableProjectsAction implements Action<GetAvailableProjectsResult>, ReadOnlyAction {
 
     public GetAvailableProjectsAction() {
     }
@@ -5,6 +5,7 @@ import edu.stanford.bmir.protege.web.shared.access.ActionId;
 import edu.stanford.bmir.protege.web.shared.annotations.GwtSerializationConstructor;
 import edu.stanford.bmir.protege.web.shared.dispatch.Action;
 
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import javax.annotation.Nonnull;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -14,7 +15,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Stanford Center for Biomedical Informatics Research
  * 2020-04-14
  */
-public class GetAvailableProjectsWithPermissionAction implements Action<GetAvailableProjectsWithPermissionResult> {
+public class GetAvailableProjectsWithPermissionAction implements Action<GetAvailableProjectsWithPermissionResult>, ReadOnlyAction {
 
     private ActionId permission;
 
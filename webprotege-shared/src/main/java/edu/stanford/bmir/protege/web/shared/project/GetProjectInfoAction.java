@@ -3,6 +3,7 @@ package edu.stanford.bmir.protege.web.shared.project;
 import edu.stanford.bmir.protege.web.shared.annotations.GwtSerializationConstructor;
 import edu.stanford.bmir.protege.web.shared.dispatch.ProjectAction;
 
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import javax.annotation.Nonnull;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -13,7 +14,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Stanford Center for Biomedical Informatics Research
  * 21 Aug 2018
  */
-public class GetProjectInfoAction implements ProjectAction<GetProjectInfoResult> {
+public class GetProjectInfoAction implements ProjectAction<GetProjectInfoResult>, ReadOnlyAction {
 
     private ProjectId projectId;
 
@@ -0,0 +1,37 @@
+package edu.stanford.bmir.protege.web.shared.project;
+
+import com.google.gwt.user.client.rpc.IsSerializable;
+
+import javax.annotation.Nonnull;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Matthew Horridge
+ * Stanford Center for Biomedical Informatics Research
+ * 2020-12-11
+ * <p>
+ *     Describes the situation where a request could not be executed because the target project is still being
+ *     loaded on the server.  The request can be retried later.
+ * </p>
+ */
+public class ProjectLoadingException extends RuntimeException implements IsSerializable {
+
+    private ProjectId projectId;
+
+    /**
+     * For serialization purposes only
+     */
+    private ProjectLoadingException() {
+    }
+
+    public ProjectLoadingException(@Nonnull ProjectId projectId) {
+        super("Project is loading (" + projectId + ")");
+        this.projectId = checkNotNull(projectId);
+    }
+
+    @Nonnull
+    public ProjectId getProjectId() {
+        return projectId;
+    }
+}
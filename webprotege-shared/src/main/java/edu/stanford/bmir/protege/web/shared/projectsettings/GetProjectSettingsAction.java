@@ -3,6 +3,7 @@ package edu.stanford.bmir.protege.web.shared.projectsettings;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
 import edu.stanford.bmir.protege.web.shared.dispatch.AbstractHasProjectAction;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 
 /**
@@ -10,7 +11,7 @@ import edu.stanford.bmir.protege.web.shared.project.ProjectId;
  * Stanford Center for Biomedical Informatics Research
  * 25/11/14
  */
-public class GetProjectSettingsAction extends AbstractHasProjectAction<GetProjectSettingsResult> {
+public class GetProjectSettingsAction extends AbstractHasProjectAction<GetProjectSettingsResult> implements ReadOnlyAction {
 
 
     /**
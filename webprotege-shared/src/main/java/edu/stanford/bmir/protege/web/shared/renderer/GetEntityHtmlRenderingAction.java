@@ -2,6 +2,7 @@ package edu.stanford.bmir.protege.web.shared.renderer;
 
 import edu.stanford.bmir.protege.web.shared.annotations.GwtSerializationConstructor;
 import edu.stanford.bmir.protege.web.shared.dispatch.ProjectAction;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 import org.semanticweb.owlapi.model.OWLEntity;
 
@@ -14,7 +15,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Stanford Center for Biomedical Informatics Research
  * 2020-03-27
  */
-public class GetEntityHtmlRenderingAction implements ProjectAction<GetEntityHtmlRenderingResult> {
+public class GetEntityHtmlRenderingAction implements ProjectAction<GetEntityHtmlRenderingResult>, ReadOnlyAction {
 
     private ProjectId projectId;
 
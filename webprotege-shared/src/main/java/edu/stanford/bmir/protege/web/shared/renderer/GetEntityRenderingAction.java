@@ -1,6 +1,7 @@
 package edu.stanford.bmir.protege.web.shared.renderer;
 
 import edu.stanford.bmir.protege.web.shared.dispatch.ProjectAction;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 import org.semanticweb.owlapi.model.OWLEntity;
 
@@ -9,7 +10,7 @@ import javax.annotation.Nonnull;
 /**
  * @author Matthew Horridge, Stanford University, Bio-Medical Informatics Research Group, Date: 25/02/2014
  */
-public class GetEntityRenderingAction implements ProjectAction<GetEntityRenderingResult> {
+public class GetEntityRenderingAction implements ProjectAction<GetEntityRenderingResult>, ReadOnlyAction {
 
     private OWLEntity entity;
 
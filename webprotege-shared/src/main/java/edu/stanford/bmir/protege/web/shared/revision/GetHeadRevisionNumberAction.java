@@ -2,6 +2,7 @@ package edu.stanford.bmir.protege.web.shared.revision;
 
 import com.google.common.base.Objects;
 import edu.stanford.bmir.protege.web.shared.dispatch.ProjectAction;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 
 import javax.annotation.Nonnull;
@@ -14,7 +15,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Stanford Center for Biomedical Informatics Research
  * 21/02/15
  */
-public class GetHeadRevisionNumberAction implements ProjectAction<GetHeadRevisionNumberResult> {
+public class GetHeadRevisionNumberAction implements ProjectAction<GetHeadRevisionNumberResult>, ReadOnlyAction {
 
     private ProjectId projectId;
 
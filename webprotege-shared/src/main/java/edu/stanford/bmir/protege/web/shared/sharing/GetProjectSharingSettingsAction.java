@@ -2,6 +2,7 @@ package edu.stanford.bmir.protege.web.shared.sharing;
 
 import com.google.common.base.Objects;
 import edu.stanford.bmir.protege.web.shared.dispatch.ProjectAction;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 
 import javax.annotation.Nonnull;
@@ -14,7 +15,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Stanford Center for Biomedical Informatics Research
  * 07/02/15
  */
-public class GetProjectSharingSettingsAction implements ProjectAction<GetProjectSharingSettingsResult> {
+public class GetProjectSharingSettingsAction implements ProjectAction<GetProjectSharingSettingsResult>, ReadOnlyAction {
 
     private ProjectId projectId;
 
@@ -2,6 +2,7 @@ package edu.stanford.bmir.protege.web.shared.tag;
 
 import edu.stanford.bmir.protege.web.shared.annotations.GwtSerializationConstructor;
 import edu.stanford.bmir.protege.web.shared.dispatch.ProjectAction;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 import edu.stanford.bmir.protege.web.shared.project.ProjectId;
 
 import javax.annotation.Nonnull;
@@ -14,7 +15,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Stanford Center for Biomedical Informatics Research
  * 18 Mar 2018
  */
-public class GetProjectTagsAction implements ProjectAction<GetProjectTagsResult> {
+public class GetProjectTagsAction implements ProjectAction<GetProjectTagsResult>, ReadOnlyAction {
 
     private ProjectId projectId;
 
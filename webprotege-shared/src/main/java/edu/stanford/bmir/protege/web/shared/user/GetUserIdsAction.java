@@ -2,13 +2,14 @@ package edu.stanford.bmir.protege.web.shared.user;
 
 import com.google.common.base.MoreObjects;
 import edu.stanford.bmir.protege.web.shared.dispatch.Action;
+import edu.stanford.bmir.protege.web.shared.dispatch.ReadOnlyAction;
 
 /**
  * Matthew Horridge
  * Stanford Center for Biomedical Informatics Research
  * 06/01/15
  */
-public class GetUserIdsAction implements Action<GetUserIdsResult> {
+public class GetUserIdsAction implements Action<GetUserIdsResult>, ReadOnlyAction {
 
     public GetUserIdsAction() {
     }